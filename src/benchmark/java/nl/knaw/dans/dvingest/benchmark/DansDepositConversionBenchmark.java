@@ -0,0 +1,218 @@
+/*
+ * Copyright (C) 2024 DANS - Data Archiving and Networked Services (info@dans.knaw.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.knaw.dans.dvingest.benchmark;
+
+import gov.loc.repository.bagit.reader.BagReader;
+import nl.knaw.dans.dvingest.core.bagprocessor.DataversePath;
+import nl.knaw.dans.dvingest.core.dansbag.ActiveMetadataBlocks;
+import nl.knaw.dans.dvingest.core.dansbag.EditFilesComposer;
+import nl.knaw.dans.dvingest.core.dansbag.EditFilesComposerForUpdate;
+import nl.knaw.dans.dvingest.core.dansbag.deposit.DansBagDeposit;
+import nl.knaw.dans.dvingest.core.dansbag.deposit.DansBagDepositReader;
+import nl.knaw.dans.dvingest.core.dansbag.deposit.DansBagDepositReaderImpl;
+import nl.knaw.dans.dvingest.core.dansbag.deposit.FileInfo;
+import nl.knaw.dans.dvingest.core.dansbag.mapper.DepositToDvDatasetMetadataMapper;
+import nl.knaw.dans.dvingest.core.dansbag.mapper.mapping.FileElement;
+import nl.knaw.dans.dvingest.core.dansbag.xml.XmlReaderImpl;
+import nl.knaw.dans.dvingest.core.service.DataverseService;
+import nl.knaw.dans.dvingest.core.yaml.EditFiles;
+import nl.knaw.dans.lib.dataverse.model.dataset.Dataset;
+import nl.knaw.dans.lib.dataverse.model.file.Checksum;
+import nl.knaw.dans.lib.dataverse.model.file.DataFile;
+import nl.knaw.dans.lib.dataverse.model.file.FileMeta;
+import nl.knaw.dans.lib.dataverse.model.user.AuthenticatedUser;
+import nl.knaw.dans.lib.util.MappingLoader;
+import org.apache.commons.io.FileUtils;
+import org.mockito.Mockito;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static nl.knaw.dans.dvingest.DdDataverseIngestApplication.ABR_ARTIFACT_CODE_TO_TERM_FILENAME;
+import static nl.knaw.dans.dvingest.DdDataverseIngestApplication.ABR_COMPLEXTYPE_CODE_TO_TERM_FILENAME;
+import static nl.knaw.dans.dvingest.DdDataverseIngestApplication.ABR_PERIOD_CODE_TO_TERM_FILENAME;
+import static nl.knaw.dans.dvingest.DdDataverseIngestApplication.ABR_REPORT_CODE_TO_TERM_FILENAME;
+import static nl.knaw.dans.dvingest.DdDataverseIngestApplication.ABR_VERWERVINGSWIJZEN_CODE_TO_TERM_FILENAME;
+import static nl.knaw.dans.dvingest.DdDataverseIngestApplication.CODE_COLUMN;
+import static nl.knaw.dans.dvingest.DdDataverseIngestApplication.DATAVERSE_LANGUAGE_COLUMN;
+import static nl.knaw.dans.dvingest.DdDataverseIngestApplication.ISO_639_1_TO_DV_FILENAME;
+import static nl.knaw.dans.dvingest.DdDataverseIngestApplication.ISO_639_1_TO_DV_KEY_COLUMN;
+import static nl.knaw.dans.dvingest.DdDataverseIngestApplication.ISO_639_2_TO_DV_FILENAME;
+import static nl.knaw.dans.dvingest.DdDataverseIngestApplication.ISO_639_2_TO_DV_KEY_COLUMN;
+import static nl.knaw.dans.dvingest.DdDataverseIngestApplication.ISO_639_3_TO_DV_FILENAME;
+import static nl.knaw.dans.dvingest.DdDataverseIngestApplication.ISO_639_3_TO_DV_KEY_COLUMN;
+import static nl.knaw.dans.dvingest.DdDataverseIngestApplication.SPATIAL_COVERAGE_COUNTRY_TERMS_FILENAME;
+import static nl.knaw.dans.dvingest.DdDataverseIngestApplication.TERM_COLUMN;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyString;
+
+/**
+ * Benchmarks the steps that convert a DANS deposit into the instructions for the bag processor. Each benchmark is run against synthetic deposits of increasing size (see
+ * {@link SyntheticDansDepositGenerator}). The Dataverse calls made by {@link EditFilesComposerForUpdate} are answered by a mock, so that only the conversion itself is measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgsAppend = { "-Xmx4g" })
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class DansDepositConversionBenchmark {
+    private static final Path DEPOSITS_DIR = Path.of("target/benchmark/deposits");
+    private static final Path DEFAULT_CONFIG_DIR = Path.of("src/main/assembly/dist/cfg");
+    private static final String UPDATES_DATASET_PID = "doi:10.5072/FK2/BENCHMARK";
+
+    @Param({ "10", "10000", "500000" })
+    private int numberOfFiles;
+
+    private Path depositDir;
+    private DansBagDepositReader depositReader;
+    private DepositToDvDatasetMetadataMapper mapper;
+    private DataverseService dataverseService;
+    private AuthenticatedUser contact;
+    private DansBagDeposit deposit;
+    private Map<Path, FileInfo> files;
+    private Instant dateAvailable;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        depositDir = SyntheticDansDepositGenerator.generator()
+            .depositDir(DEPOSITS_DIR.resolve("deposit-" + numberOfFiles))
+            .numberOfFiles(numberOfFiles)
+            .generate();
+        depositReader = new DansBagDepositReaderImpl(new XmlReaderImpl(), new BagReader(), null);
+        mapper = createMapper();
+        contact = new AuthenticatedUser();
+        contact.setFirstName("Benchmark");
+        contact.setLastName("User");
+        contact.setEmail("benchmark@example.org");
+        contact.setDisplayName("Benchmark User");
+        deposit = depositReader.readDeposit(depositDir);
+        files = relativizeToDataDir(FileElement.pathToFileInfo(deposit));
+        dateAvailable = Instant.parse("2015-09-09T00:00:00Z");
+        dataverseService = Mockito.mock(DataverseService.class);
+        Mockito.when(dataverseService.getFiles(anyString(), anyBoolean())).thenReturn(filesInPreviousVersion());
+    }
+
+    @Benchmark
+    public DansBagDeposit readDeposit() throws Exception {
+        return depositReader.readDeposit(depositDir);
+    }
+
+    @Benchmark
+    public Map<Path, FileInfo> pathToFileInfo() {
+        return FileElement.pathToFileInfo(deposit);
+    }
+
+    @Benchmark
+    public Dataset toDataverseDataset() throws Exception {
+        return mapper.toDataverseDataset(
+            deposit.getDdm(),
+            "2024-01-01",
+            contact,
+            deposit.getVaultMetadata(),
+            deposit.getDepositorUserId(),
+            deposit.restrictedFilesPresent(),
+            deposit.getHasOrganizationalIdentifier(),
+            deposit.getHasOrganizationalIdentifierVersion());
+    }
+
+    @Benchmark
+    public EditFiles composeEditFiles() {
+        return new EditFilesComposer(files, dateAvailable, null, null, List.of()).composeEditFiles();
+    }
+
+    @Benchmark
+    public EditFiles composeEditFilesForUpdate() {
+        return new EditFilesComposerForUpdate(files, dateAvailable, UPDATES_DATASET_PID, null, null, List.of(), dataverseService).composeEditFiles();
+    }
+
+    private DepositToDvDatasetMetadataMapper createMapper() throws Exception {
+        return new DepositToDvDatasetMetadataMapper(
+            true,
+            new ActiveMetadataBlocks(Set.of("citation", "dansRights", "dansRelationMetadata", "dansArchaeologyMetadata", "dansTemporalSpatial", "dansDataVaultMetadata")),
+            MappingLoader.builder().csvFile(DEFAULT_CONFIG_DIR.resolve(ISO_639_1_TO_DV_FILENAME)).keyColumn(ISO_639_1_TO_DV_KEY_COLUMN).valueColumn(DATAVERSE_LANGUAGE_COLUMN).build().load(),
+            MappingLoader.builder().csvFile(DEFAULT_CONFIG_DIR.resolve(ISO_639_2_TO_DV_FILENAME)).keyColumn(ISO_639_2_TO_DV_KEY_COLUMN).valueColumn(DATAVERSE_LANGUAGE_COLUMN).build().load(),
+            MappingLoader.builder().csvFile(DEFAULT_CONFIG_DIR.resolve(ISO_639_3_TO_DV_FILENAME)).keyColumn(ISO_639_3_TO_DV_KEY_COLUMN).valueColumn(DATAVERSE_LANGUAGE_COLUMN).build().load(),
+            MappingLoader.builder().csvFile(DEFAULT_CONFIG_DIR.resolve(ABR_REPORT_CODE_TO_TERM_FILENAME)).keyColumn(CODE_COLUMN).valueColumn(TERM_COLUMN).build().load(),
+            MappingLoader.builder().csvFile(DEFAULT_CONFIG_DIR.resolve(ABR_VERWERVINGSWIJZEN_CODE_TO_TERM_FILENAME)).keyColumn(CODE_COLUMN).valueColumn(TERM_COLUMN).build().load(),
+            MappingLoader.builder().csvFile(DEFAULT_CONFIG_DIR.resolve(ABR_COMPLEXTYPE_CODE_TO_TERM_FILENAME)).keyColumn(CODE_COLUMN).valueColumn(TERM_COLUMN).build().load(),
+            MappingLoader.builder().csvFile(DEFAULT_CONFIG_DIR.resolve(ABR_ARTIFACT_CODE_TO_TERM_FILENAME)).keyColumn(CODE_COLUMN).valueColumn(TERM_COLUMN).build().load(),
+            MappingLoader.builder().csvFile(DEFAULT_CONFIG_DIR.resolve(ABR_PERIOD_CODE_TO_TERM_FILENAME)).keyColumn(CODE_COLUMN).valueColumn(TERM_COLUMN).build().load(),
+            FileUtils.readLines(DEFAULT_CONFIG_DIR.resolve(SPATIAL_COVERAGE_COUNTRY_TERMS_FILENAME).toFile(), StandardCharsets.UTF_8),
+            Map.of(),
+            List.of());
+    }
+
+    // Same as DansBagMappingServiceImpl does before handing the files to the composers
+    private Map<Path, FileInfo> relativizeToDataDir(Map<Path, FileInfo> pathToFileInfo) {
+        return pathToFileInfo.entrySet().stream()
+            .collect(Collectors.toMap(e -> Path.of("data").relativize(e.getKey()), Map.Entry::getValue));
+    }
+
+    /*
+     * A previous version in which a quarter of the files is unchanged, a quarter has a different checksum (replace), a quarter lives at a different path (move) and a quarter is absent (add).
+     */
+    private List<FileMeta> filesInPreviousVersion() {
+        var fileMetas = new ArrayList<FileMeta>();
+        for (int i = 0; i < numberOfFiles; i++) {
+            var path = Path.of("data").relativize(SyntheticDansDepositGenerator.payloadPath(i)).toString();
+            var checksum = SyntheticDansDepositGenerator.payloadChecksum(i);
+            switch (i % 4) {
+                case 0 -> fileMetas.add(fileMeta(path, checksum));
+                case 1 -> fileMetas.add(fileMeta(path, "0000000000000000000000000000000000000000"));
+                case 2 -> fileMetas.add(fileMeta("old/" + path, checksum));
+                default -> {
+                    // not in the previous version
+                }
+            }
+        }
+        return fileMetas;
+    }
+
+    private FileMeta fileMeta(String path, String checksum) {
+        var dataversePath = new DataversePath(path);
+        var fileMeta = new FileMeta();
+        fileMeta.setLabel(dataversePath.getLabel());
+        fileMeta.setDirectoryLabel(dataversePath.getDirectoryLabel());
+        var dataFile = new DataFile();
+        var cs = new Checksum();
+        cs.setType("SHA-1");
+        cs.setValue(checksum);
+        dataFile.setChecksum(cs);
+        dataFile.setFilename(dataversePath.getLabel());
+        fileMeta.setDataFile(dataFile);
+        return fileMeta;
+    }
+}
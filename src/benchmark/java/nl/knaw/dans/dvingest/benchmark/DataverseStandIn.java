@@ -0,0 +1,618 @@
+/*
+ * Copyright (C) 2024 DANS - Data Archiving and Networked Services (info@dans.knaw.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.knaw.dans.dvingest.benchmark;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import lombok.Builder;
+import lombok.extern.slf4j.Slf4j;
+import nl.knaw.dans.dvingest.core.bagprocessor.DataversePath;
+import nl.knaw.dans.lib.dataverse.model.file.Checksum;
+import nl.knaw.dans.lib.dataverse.model.file.DataFile;
+import nl.knaw.dans.lib.dataverse.model.file.FileMeta;
+import nl.knaw.dans.lib.dataverse.model.user.AuthenticatedUser;
+import org.apache.commons.codec.digest.DigestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.ZipInputStream;
+
+/**
+ * An in-process HTTP server that stands in for Dataverse in throughput benchmarks. It implements the part of the Dataverse API that is used by
+ * {@link nl.knaw.dans.dvingest.core.service.DataverseServiceImpl} and {@link nl.knaw.dans.dvingest.core.service.StreamingFileUploader}, keeping the datasets in memory. Uploaded ZIP files are
+ * unzipped one level deep, as Dataverse does, so that the file lists returned to the client match what was uploaded.
+ * <p>
+ * The response time of every request can be increased with a fixed latency and a latency per megabyte of request body. Adding files places an <code>Ingest</code> lock on the dataset, and
+ * publishing places a <code>finalizePublication</code> lock on it; the dataset only reaches the <code>RELEASED</code> state when the latter is lifted. If <code>rejectEditsWhileLocked</code> is set,
+ * adding or replacing a file in a locked dataset is refused with <code>409 Conflict</code> and the message Dataverse uses, so that the lock handling of the client is exercised. Requests that the stand-in does not
+ * recognize are answered with <code>501 Not Implemented</code> and counted under <code>unknown</code>, so that gaps in the stand-in fail the run and show up in the request counts.
+ */
+@Builder
+@Slf4j
+public class DataverseStandIn implements AutoCloseable {
+    private static final String API_KEY_HEADER = "X-Dataverse-key";
+    private static final Pattern DATASET_PATH = Pattern.compile("^/api/datasets/:persistentId(/.*)?$");
+    private static final Pattern DATAVERSE_PATH = Pattern.compile("^/api/dataverses/([^/]+)(/.*)?$");
+    private static final Pattern FILE_PATH = Pattern.compile("^/api/files/(\\d+)(/.*)?$");
+    private static final Pattern VERSION_PATH = Pattern.compile("^/versions/([^/]+)(/files)?$");
+    private static final Pattern ASSIGNMENT_PATH = Pattern.compile("^/assignments/(\\d+)$");
+    private static final Pattern BOUNDARY = Pattern.compile("boundary=\"?([^\";]+)\"?");
+    private static final Pattern CONTENT_DISPOSITION_NAME = Pattern.compile("\\bname=\"([^\"]*)\"");
+    private static final Pattern CONTENT_DISPOSITION_FILENAME = Pattern.compile("\\bfilename=\"([^\"]*)\"");
+    private static final ObjectMapper objectMapper = new ObjectMapper()
+        .setSerializationInclusion(JsonInclude.Include.NON_NULL);
+
+    // 0 means: pick a free port
+    @Builder.Default
+    private final int port = 0;
+
+    // Added to the response time of every request
+    @Builder.Default
+    private final long latency = 0;
+
+    // Added to the response time of a request for every megabyte in its body
+    @Builder.Default
+    private final long latencyPerMegabyte = 0;
+
+    // How long a dataset stays locked after files were added to it
+    @Builder.Default
+    private final long ingestLockDuration = 0;
+
+    // Whether adding or replacing a file in a dataset that is locked is refused, as Dataverse does; otherwise the lock is only reported by the locks endpoint
+    @Builder.Default
+    private final boolean rejectEditsWhileLocked = false;
+
+    // How long it takes a dataset to reach the RELEASED state after a publish or release-migrated request
+    @Builder.Default
+    private final long publishDuration = 0;
+
+    @Builder.Default
+    private final int numberOfThreads = 16;
+
+    // Role assignments on the root dataverse, in the JSON format of the Dataverse API
+    @Builder.Default
+    private final List<Map<String, Object>> rootRoleAssignments = List.of();
+
+    private final Map<String, StandInDataset> datasets = new ConcurrentHashMap<>();
+    private final AtomicLong ids = new AtomicLong();
+    private final Map<String, LongAdder> requestCounts = new ConcurrentHashMap<>();
+    private final LongAdder bytesReceived = new LongAdder();
+
+    private final AtomicReference<HttpServer> server = new AtomicReference<>();
+    private final AtomicReference<ExecutorService> executorService = new AtomicReference<>();
+
+    /**
+     * Starts the stand-in.
+     *
+     * @return the base URL to configure in the Dataverse client
+     * @throws IOException if the server cannot be started
+     */
+    public URI start() throws IOException {
+        var httpServer = HttpServer.create(new InetSocketAddress("localhost", port), 0);
+        if (!server.compareAndSet(null, httpServer)) {
+            throw new IllegalStateException("Dataverse stand-in already started");
+        }
+        executorService.set(Executors.newFixedThreadPool(numberOfThreads));
+        httpServer.createContext("/api/", this::handle);
+        httpServer.setExecutor(executorService.get());
+        httpServer.start();
+        var baseUrl = URI.create("http://localhost:" + httpServer.getAddress().getPort());
+        log.info("Dataverse stand-in listening on {}", baseUrl);
+        return baseUrl;
+    }
+
+    @Override
+    public void close() {
+        var httpServer = server.getAndSet(null);
+        if (httpServer != null) {
+            httpServer.stop(0);
+            executorService.get().shutdownNow();
+        }
+    }
+
+    /**
+     * Returns the number of requests handled per endpoint, e.g. <code>POST dataset/add</code>.
+     *
+     * @return a sorted copy of the request counts
+     */
+    public Map<String, Long> getRequestCounts() {
+        var counts = new TreeMap<String, Long>();
+        requestCounts.forEach((endpoint, count) -> counts.put(endpoint, count.sum()));
+        return counts;
+    }
+
+    /**
+     * Returns the total number of bytes in the bodies of the requests received so far.
+     *
+     * @return the number of bytes
+     */
+    public long getBytesReceived() {
+        return bytesReceived.sum();
+    }
+
+    public int getNumberOfDatasets() {
+        return datasets.size();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            var body = exchange.getRequestBody().readAllBytes();
+            bytesReceived.add(body.length);
+            simulateLatency(body.length);
+            if (exchange.getRequestHeaders().getFirst(API_KEY_HEADER) == null) {
+                respond(exchange, 401, error("No API key"));
+                return;
+            }
+            var response = route(exchange, body);
+            respond(exchange, response.status, response.body);
+        }
+        catch (Exception e) {
+            log.error("Dataverse stand-in failed to handle {} {}", exchange.getRequestMethod(), exchange.getRequestURI(), e);
+            respond(exchange, 500, error(e.getMessage()));
+        }
+        finally {
+            exchange.close();
+        }
+    }
+
+    private void simulateLatency(long bodySize) {
+        var delay = latency + latencyPerMegabyte * bodySize / (1024 * 1024);
+        if (delay > 0) {
+            try {
+                Thread.sleep(delay);
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private Response route(HttpExchange exchange, byte[] body) throws IOException {
+        var method = exchange.getRequestMethod();
+        var path = exchange.getRequestURI().getPath();
+        var query = parseQuery(exchange.getRequestURI().getRawQuery());
+
+        Matcher matcher;
+        if ((matcher = DATASET_PATH.matcher(path)).matches()) {
+            return routeDataset(exchange, method, Optional.ofNullable(matcher.group(1)).orElse(""), query, body);
+        }
+        if ((matcher = DATAVERSE_PATH.matcher(path)).matches()) {
+            return routeDataverse(method, Optional.ofNullable(matcher.group(2)).orElse(""), query, body);
+        }
+        if ((matcher = FILE_PATH.matcher(path)).matches() && "POST".equals(method) && "/replace".equals(matcher.group(2))) {
+            count("POST file/replace");
+            return replaceFile(Long.parseLong(matcher.group(1)), exchange, body);
+        }
+        if (path.startsWith("/api/admin/authenticatedUsers/") && "GET".equals(method)) {
+            count("GET admin/authenticatedUsers");
+            return ok(user(path.substring("/api/admin/authenticatedUsers/".length())));
+        }
+        if (path.equals("/api/licenses") && "GET".equals(method)) {
+            count("GET licenses");
+            return ok(List.of(license("CC0 1.0", "http://creativecommons.org/publicdomain/zero/1.0"), license("CC BY 4.0", "http://creativecommons.org/licenses/by/4.0")));
+        }
+        if (path.equals("/api/search") && "GET".equals(method)) {
+            count("GET search");
+            return ok(Map.of("q", query.getOrDefault("q", ""), "total_count", 0, "start", 0, "items", List.of()));
+        }
+        return unknown(method, path);
+    }
+
+    private Response routeDataset(HttpExchange exchange, String method, String subPath, Map<String, String> query, byte[] body) throws IOException {
+        var dataset = datasets.get(query.getOrDefault("persistentId", ""));
+        if (dataset == null) {
+            count(method + " dataset/<not found>");
+            return new Response(404, error("Dataset with Persistent ID " + query.get("persistentId") + " not found."));
+        }
+        var versionMatcher = VERSION_PATH.matcher(subPath);
+        if ("GET".equals(method) && versionMatcher.matches()) {
+            if (versionMatcher.group(2) != null) {
+                count("GET dataset/versions/files");
+                return ok(dataset.getFiles());
+            }
+            count("GET dataset/versions");
+            return ok(version(dataset, !"true".equals(query.get("excludeFiles"))));
+        }
+        var assignmentMatcher = ASSIGNMENT_PATH.matcher(subPath);
+        if ("DELETE".equals(method) && assignmentMatcher.matches()) {
+            count("DELETE dataset/assignments");
+            dataset.removeRoleAssignment(Long.parseLong(assignmentMatcher.group(1)));
+            return ok(Map.of("message", "Role assignment removed"));
+        }
+        switch (method + " " + subPath) {
+            case "GET /locks":
+                count("GET dataset/locks");
+                return ok(dataset.getActiveLocks().stream().map(lockType -> Map.of("lockType", lockType, "user", "dataverseAdmin")).toList());
+            case "POST /add":
+                count("POST dataset/add");
+                return addFile(dataset, exchange, body);
+            case "PUT /versions/:draft":
+                count("PUT dataset/versions/:draft");
+                dataset.edited();
+                return ok(version(dataset, false));
+            case "PUT /editMetadata":
+            case "PUT /deleteMetadata":
+                count("PUT dataset" + subPath);
+                dataset.edited();
+                return ok(version(dataset, false));
+            case "POST /files/metadata":
+                count("POST dataset/files/metadata");
+                return updateFileMetadatas(dataset, body);
+            case "POST /files/actions/:set-embargo":
+                count("POST dataset/files/actions/:set-embargo");
+                return setEmbargo(dataset, body);
+            case "PUT /deleteFiles":
+                count("PUT dataset/deleteFiles");
+                for (var id : objectMapper.readTree(body)) {
+                    dataset.removeFile(id.asLong());
+                }
+                dataset.edited();
+                return ok(Map.of("message", "Files deleted"));
+            case "POST /actions/:publish":
+            case "POST /actions/:releasemigrated":
+                count("POST dataset" + subPath);
+                dataset.startPublication(publishDuration);
+                return ok(Map.of("id", dataset.getId(), "persistentId", dataset.getPersistentId()));
+            case "GET /assignments":
+                count("GET dataset/assignments");
+                return ok(dataset.getRoleAssignments());
+            case "POST /assignments":
+                count("POST dataset/assignments");
+                var request = objectMapper.readTree(body);
+                var roleAssignment = roleAssignment(request.path("assignee").asText(), request.path("role").asText(), dataset.getId());
+                dataset.addRoleAssignment(roleAssignment);
+                return ok(roleAssignment);
+            default:
+                return unknown(method, "dataset" + subPath);
+        }
+    }
+
+    private Response routeDataverse(String method, String subPath, Map<String, String> query, byte[] body) throws IOException {
+        switch (method + " " + subPath) {
+            case "POST /datasets":
+                count("POST dataverse/datasets");
+                return new Response(201, envelope(createDataset(null)));
+            case "POST /datasets/:import":
+                count("POST dataverse/datasets/:import");
+                var pid = query.get("pid");
+                if (datasets.containsKey(pid)) {
+                    return new Response(400, error("A dataset with the persistent identifier " + pid + " already exists"));
+                }
+                return new Response(201, envelope(createDataset(pid)));
+            case "GET /assignments":
+                count("GET dataverse/assignments");
+                return ok(rootRoleAssignments);
+            case "GET /metadatablocks":
+                count("GET dataverse/metadatablocks");
+                return ok(List.of("citation", "dansRights", "dansRelationMetadata", "dansArchaeologyMetadata", "dansTemporalSpatial", "dansDataVaultMetadata").stream()
+                    .map(name -> Map.of("name", name, "displayName", name))
+                    .toList());
+            default:
+                return unknown(method, "dataverse" + subPath);
+        }
+    }
+
+    private Map<String, Object> createDataset(String persistentId) {
+        var id = ids.incrementAndGet();
+        var pid = persistentId != null ? persistentId : "doi:10.5072/FK2/STANDIN-" + id;
+        datasets.put(pid, new StandInDataset(id, pid));
+        return Map.of("id", id, "persistentId", pid);
+    }
+
+    private Response addFile(StandInDataset dataset, HttpExchange exchange, byte[] body) throws IOException {
+        if (rejectEditsWhileLocked && !dataset.getActiveLocks().isEmpty()) {
+            count("POST dataset/add <locked>");
+            return locked();
+        }
+        var parts = parseMultipart(exchange, body);
+        var jsonData = Optional.ofNullable(parts.get("jsonData")).map(p -> readJson(p.content)).orElse(objectMapper.createObjectNode());
+        var file = parts.get("file");
+        if (file == null) {
+            return new Response(400, error("No file part in request"));
+        }
+        var added = new ArrayList<FileMeta>();
+        var restricted = isRestricted(jsonData);
+        if (file.filename != null && file.filename.endsWith(".zip")) {
+            try (var zip = new ZipInputStream(new ByteArrayInputStream(file.content))) {
+                for (var entry = zip.getNextEntry(); entry != null; entry = zip.getNextEntry()) {
+                    if (!entry.isDirectory()) {
+                        added.add(fileMeta(new DataversePath(entry.getName()), restricted, DigestUtils.sha1Hex(zip.readAllBytes())));
+                    }
+                }
+            }
+        }
+        else {
+            var label = jsonData.hasNonNull("label") ? jsonData.get("label").asText() : file.filename;
+            var directoryLabel = jsonData.hasNonNull("directoryLabel") ? jsonData.get("directoryLabel").asText() : null;
+            added.add(fileMeta(new DataversePath(directoryLabel, label), restricted, DigestUtils.sha1Hex(file.content)));
+        }
+        added.forEach(dataset::putFile);
+        dataset.edited();
+        dataset.lock("Ingest", ingestLockDuration);
+        return ok(Map.of("files", added));
+    }
+
+    private Response replaceFile(long dataFileId, HttpExchange exchange, byte[] body) throws IOException {
+        var dataset = datasets.values().stream().filter(d -> d.getFile(dataFileId) != null).findFirst();
+        if (dataset.isEmpty()) {
+            return new Response(404, error("File with ID " + dataFileId + " not found."));
+        }
+        if (rejectEditsWhileLocked && !dataset.get().getActiveLocks().isEmpty()) {
+            count("POST file/replace <locked>");
+            return locked();
+        }
+        var parts = parseMultipart(exchange, body);
+        var jsonData = Optional.ofNullable(parts.get("jsonData")).map(p -> readJson(p.content)).orElse(objectMapper.createObjectNode());
+        var file = parts.get("file");
+        if (file == null) {
+            return new Response(400, error("No file part in request"));
+        }
+        var old = dataset.get().getFile(dataFileId);
+        var replacement = fileMeta(new DataversePath(old.getDirectoryLabel(), old.getLabel()), isRestricted(jsonData), DigestUtils.sha1Hex(file.content));
+        dataset.get().removeFile(dataFileId);
+        dataset.get().putFile(replacement);
+        dataset.get().edited();
+        return ok(Map.of("files", List.of(replacement)));
+    }
+
+    private Response locked() throws IOException {
+        return new Response(409, error("Dataset cannot be edited due to dataset lock."));
+    }
+
+    /*
+     * The request body is a list of file metadata updates, each identified by its dataFileId; only the fields that are present are changed.
+     */
+    private Response updateFileMetadatas(StandInDataset dataset, byte[] body) throws IOException {
+        var updates = objectMapper.readTree(body);
+        for (var update : updates) {
+            if (dataset.getFile(update.path("dataFileId").asLong()) == null) {
+                return new Response(404, error("File with ID " + update.path("dataFileId").asText() + " not found in dataset."));
+            }
+        }
+        for (var update : updates) {
+            var fileMeta = dataset.getFile(update.path("dataFileId").asLong());
+            if (update.has("label")) {
+                fileMeta.setLabel(update.get("label").asText());
+            }
+            if (update.has("directoryLabel")) {
+                fileMeta.setDirectoryLabel(update.get("directoryLabel").isNull() ? null : update.get("directoryLabel").asText());
+            }
+            if (update.has("description")) {
+                fileMeta.setDescription(update.get("description").asText());
+            }
+            if (update.has("restrict") || update.has("restricted")) {
+                fileMeta.setRestricted(isRestricted(update));
+            }
+        }
+        dataset.edited();
+        return ok(Map.of("message", "File metadata updated for " + updates.size() + " files"));
+    }
+
+    private Response setEmbargo(StandInDataset dataset, byte[] body) throws IOException {
+        var embargo = objectMapper.readTree(body);
+        if (!embargo.hasNonNull("dateAvailable")) {
+            return new Response(400, error("No dateAvailable in embargo"));
+        }
+        // The embargo itself is not kept, as the client never reads it back
+        for (var fileId : embargo.path("fileIds")) {
+            if (dataset.getFile(fileId.asLong()) == null) {
+                return new Response(400, error("Datafile " + fileId.asText() + " not found in dataset."));
+            }
+        }
+        dataset.edited();
+        return ok(Map.of("message", "Files were embargoed: " + embargo.path("fileIds").size()));
+    }
+
+    // The client sends the file metadata with the name used in the request format, but accept the response format as well
+    private boolean isRestricted(JsonNode jsonData) {
+        return jsonData.path("restrict").asBoolean(jsonData.path("restricted").asBoolean(false));
+    }
+
+    private FileMeta fileMeta(DataversePath path, boolean restricted, String sha1) {
+        var checksum = new Checksum();
+        checksum.setType("SHA-1");
+        checksum.setValue(sha1);
+        var dataFile = new DataFile();
+        dataFile.setId(ids.incrementAndGet());
+        dataFile.setFilename(path.getLabel());
+        dataFile.setChecksum(checksum);
+        var fileMeta = new FileMeta();
+        fileMeta.setLabel(path.getLabel());
+        fileMeta.setDirectoryLabel(path.getDirectoryLabel());
+        fileMeta.setRestricted(restricted);
+        fileMeta.setDataFile(dataFile);
+        return fileMeta;
+    }
+
+    private Map<String, Object> version(StandInDataset dataset, boolean includeFiles) {
+        var version = new LinkedHashMap<String, Object>();
+        version.put("datasetId", dataset.getId());
+        version.put("datasetPersistentId", dataset.getPersistentId());
+        version.put("versionState", dataset.getVersionState());
+        version.put("fileAccessRequest", true);
+        version.put("metadataBlocks", Map.of("dansDataVaultMetadata", Map.of(
+            "displayName", "Data Vault Metadata",
+            "name", "dansDataVaultMetadata",
+            "fields", List.of(Map.of("typeName", "dansNbn", "multiple", false, "typeClass", "primitive", "value", "urn:nbn:nl:ui:13-standin-" + dataset.getId())))));
+        if (includeFiles) {
+            version.put("files", dataset.getFiles());
+        }
+        return version;
+    }
+
+    private Map<String, Object> roleAssignment(String assignee, String roleAlias, long definitionPointId) {
+        var roleAssignment = new LinkedHashMap<String, Object>();
+        roleAssignment.put("id", ids.incrementAndGet());
+        roleAssignment.put("assignee", assignee);
+        roleAssignment.put("_roleAlias", roleAlias);
+        roleAssignment.put("definitionPointId", definitionPointId);
+        return roleAssignment;
+    }
+
+    private AuthenticatedUser user(String userId) {
+        var user = new AuthenticatedUser();
+        user.setFirstName("Stand-in");
+        user.setLastName(userId);
+        user.setDisplayName("Stand-in " + userId);
+        user.setEmail(userId + "@example.org");
+        return user;
+    }
+
+    private Map<String, Object> license(String name, String uri) {
+        var license = new LinkedHashMap<String, Object>();
+        license.put("name", name);
+        license.put("uri", uri);
+        license.put("iconUrl", uri + "/icon.png");
+        license.put("rightsIdentifier", name);
+        license.put("rightsIdentifierScheme", "SPDX");
+        license.put("schemeUri", "https://spdx.org/licenses/");
+        license.put("languageCode", "en");
+        return license;
+    }
+
+    private Response unknown(String method, String path) throws IOException {
+        log.warn("Dataverse stand-in does not implement {} {}", method, path);
+        count("unknown");
+        return new Response(501, error("Not implemented by the Dataverse stand-in: " + method + " " + path));
+    }
+
+    private void count(String endpoint) {
+        requestCounts.computeIfAbsent(endpoint, e -> new LongAdder()).increment();
+    }
+
+    private Response ok(Object data) throws IOException {
+        return new Response(200, envelope(data));
+    }
+
+    private byte[] envelope(Object data) throws IOException {
+        return objectMapper.writeValueAsBytes(Map.of("status", "OK", "data", data));
+    }
+
+    private byte[] error(String message) throws IOException {
+        return objectMapper.writeValueAsBytes(Map.of("status", "ERROR", "message", String.valueOf(message)));
+    }
+
+    private void respond(HttpExchange exchange, int status, byte[] body) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, body.length);
+        exchange.getResponseBody().write(body);
+    }
+
+    private JsonNode readJson(byte[] content) {
+        try {
+            return objectMapper.readTree(content);
+        }
+        catch (IOException e) {
+            throw new IllegalArgumentException("Invalid jsonData", e);
+        }
+    }
+
+    private Map<String, String> parseQuery(String rawQuery) {
+        var query = new HashMap<String, String>();
+        if (rawQuery != null) {
+            for (var parameter : rawQuery.split("&")) {
+                var keyValue = parameter.split("=", 2);
+                query.put(URLDecoder.decode(keyValue[0], StandardCharsets.UTF_8), keyValue.length > 1 ? URLDecoder.decode(keyValue[1], StandardCharsets.UTF_8) : "");
+            }
+        }
+        return query;
+    }
+
+    private Map<String, Part> parseMultipart(HttpExchange exchange, byte[] body) {
+        var contentType = Optional.ofNullable(exchange.getRequestHeaders().getFirst("Content-Type")).orElse("");
+        var boundaryMatcher = BOUNDARY.matcher(contentType);
+        if (!boundaryMatcher.find()) {
+            throw new IllegalArgumentException("Not a multipart request: " + contentType);
+        }
+        var delimiter = ("--" + boundaryMatcher.group(1)).getBytes(StandardCharsets.ISO_8859_1);
+        var parts = new HashMap<String, Part>();
+        var start = indexOf(body, delimiter, 0);
+        while (start >= 0) {
+            var headersStart = start + delimiter.length + 2; // skip CRLF, or "--" after the last delimiter
+            var next = indexOf(body, delimiter, headersStart);
+            if (next < 0) {
+                break;
+            }
+            var headersEnd = indexOf(body, "\r\n\r\n".getBytes(StandardCharsets.ISO_8859_1), headersStart);
+            var headers = new String(body, headersStart, headersEnd - headersStart, StandardCharsets.UTF_8);
+            var content = Arrays.copyOfRange(body, headersEnd + 4, next - 2); // content is followed by CRLF
+            var nameMatcher = CONTENT_DISPOSITION_NAME.matcher(headers);
+            var filenameMatcher = CONTENT_DISPOSITION_FILENAME.matcher(headers);
+            if (nameMatcher.find()) {
+                parts.put(nameMatcher.group(1), new Part(filenameMatcher.find() ? filenameMatcher.group(1) : null, content));
+            }
+            start = next;
+        }
+        return parts;
+    }
+
+    private static int indexOf(byte[] data, byte[] pattern, int from) {
+        outer:
+        for (int i = from; i <= data.length - pattern.length; i++) {
+            for (int j = 0; j < pattern.length; j++) {
+                if (data[i + j] != pattern[j]) {
+                    continue outer;
+                }
+            }
+            return i;
+        }
+        return -1;
+    }
+
+    private static class Part {
+        // If null, the part is not a file
+        private final String filename;
+        private final byte[] content;
+
+        private Part(String filename, byte[] content) {
+            this.filename = filename;
+            this.content = content;
+        }
+    }
+
+    private static class Response {
+        private final int status;
+        private final byte[] body;
+
+        private Response(int status, byte[] body) {
+            this.status = status;
+            this.body = body;
+        }
+    }
+}
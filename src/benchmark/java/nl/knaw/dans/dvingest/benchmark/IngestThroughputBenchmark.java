@@ -0,0 +1,232 @@
+/*
+ * Copyright (C) 2024 DANS - Data Archiving and Networked Services (info@dans.knaw.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.knaw.dans.dvingest.benchmark;
+
+import nl.knaw.dans.dvingest.BagProcessorFactoryImpl;
+import nl.knaw.dans.dvingest.DansDepositSupportDisabledFactory;
+import nl.knaw.dans.dvingest.DataverseIngestDepositFactoryImpl;
+import nl.knaw.dans.dvingest.DepositTaskFactoryImpl;
+import nl.knaw.dans.dvingest.ImportJobFactoryImpl;
+import nl.knaw.dans.dvingest.InboxTaskFactoryImpl;
+import nl.knaw.dans.dvingest.api.ImportCommandDto;
+import nl.knaw.dans.dvingest.config.YamlServiceConfig;
+import nl.knaw.dans.dvingest.core.DepositLanes;
+import nl.knaw.dans.dvingest.core.ImportJobReport;
+import nl.knaw.dans.dvingest.core.service.DataverseServiceImpl;
+import nl.knaw.dans.dvingest.core.service.StreamingFileUploader;
+import nl.knaw.dans.dvingest.core.service.UtilityServicesImpl;
+import nl.knaw.dans.dvingest.core.service.YamlServiceImpl;
+import nl.knaw.dans.lib.dataverse.DataverseClient;
+import nl.knaw.dans.lib.dataverse.DataverseClientConfig;
+import nl.knaw.dans.lib.util.PropertiesBasedDirectoryComparator;
+import nl.knaw.dans.lib.util.healthcheck.DependenciesReadyCheck;
+import nl.knaw.dans.lib.util.inbox.Inbox;
+import org.apache.commons.io.FileUtils;
+import org.mockito.Mockito;
+
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end throughput benchmark. It generates a batch of deposits (see {@link SyntheticDataverseIngestDepositGenerator}), processes them against a {@link DataverseStandIn} and reports the
+ * number of deposits and bytes processed per second. The deposits are processed either as an import job or through the auto-ingest inbox, with the same components the service itself uses.
+ * <p>
+ * Options are passed as <code>key=value</code> arguments:
+ * <ul>
+ *     <li><code>mode</code>: <code>import</code> (default) or <code>inbox</code></li>
+ *     <li><code>deposits</code>, <code>filesPerDeposit</code>, <code>fileSize</code>: the load</li>
+ *     <li><code>parallelDeposits</code>: the number of deposit lanes; 1 processes the deposits sequentially</li>
+ *     <li><code>latency</code>, <code>latencyPerMegabyte</code>, <code>ingestLock</code>, <code>publishDuration</code>: the behaviour of the stand-in, in milliseconds</li>
+ *     <li><code>rejectWhileLocked</code>: whether the stand-in refuses to add files to a locked dataset, as Dataverse does (default <code>false</code>)</li>
+ *     <li><code>maxFilesPerUploadBatch</code>, <code>maxBytesPerUploadBatch</code>, <code>preparedUploadBatches</code>, <code>streamUploadBatches</code>: the upload settings</li>
+ *     <li><code>pollingInterval</code>, <code>leadTimePerFile</code>: the settings for waiting for the released state, in milliseconds</li>
+ * </ul>
+ */
+public class IngestThroughputBenchmark {
+    private static final Path WORK_DIR = Path.of("target/benchmark/throughput");
+    private static final String API_KEY = "stand-in-api-key";
+
+    private final Map<String, String> options;
+    // Shared by all deposits, as in the application
+    private final ExecutorService uploadBatchPreparationExecutor = Executors.newCachedThreadPool();
+
+    private IngestThroughputBenchmark(Map<String, String> options) {
+        this.options = options;
+    }
+
+    public static void main(String[] args) throws Exception {
+        var options = new HashMap<String, String>();
+        for (var arg : args) {
+            var keyValue = arg.split("=", 2);
+            if (keyValue.length != 2) {
+                throw new IllegalArgumentException("Expected key=value, got: " + arg);
+            }
+            options.put(keyValue[0], keyValue[1]);
+        }
+        new IngestThroughputBenchmark(options).run();
+        // Threads of the Dataverse client may linger
+        System.exit(0);
+    }
+
+    private void run() throws Exception {
+        var mode = option("mode", "import");
+        var numberOfDeposits = intOption("deposits", 20);
+        var inbox = WORK_DIR.resolve("inbox").toAbsolutePath();
+        var outbox = WORK_DIR.resolve("outbox").toAbsolutePath();
+        FileUtils.deleteDirectory(WORK_DIR.toFile());
+        Files.createDirectories(WORK_DIR.resolve("tmp"));
+        var payloadBytes = SyntheticDataverseIngestDepositGenerator.generator()
+            .inbox(inbox)
+            .numberOfDeposits(numberOfDeposits)
+            .numberOfFilesPerDeposit(intOption("filesPerDeposit", 100))
+            .fileSize(intOption("fileSize", 10 * 1024))
+            .generate();
+
+        try (var standIn = DataverseStandIn.builder()
+            .latency(longOption("latency", 20))
+            .latencyPerMegabyte(longOption("latencyPerMegabyte", 0))
+            .ingestLockDuration(longOption("ingestLock", 0))
+            .rejectEditsWhileLocked(Boolean.parseBoolean(option("rejectWhileLocked", "false")))
+            .publishDuration(longOption("publishDuration", 500))
+            .build()) {
+            var baseUrl = standIn.start();
+            var parallelDeposits = intOption("parallelDeposits", 1);
+            var depositLanesExecutor = parallelDeposits > 1 ? Executors.newFixedThreadPool(parallelDeposits) : null;
+            var depositLanes = depositLanesExecutor == null ? null : new DepositLanes(depositLanesExecutor);
+            try {
+                var started = System.nanoTime();
+                String outcome;
+                if ("inbox".equals(mode)) {
+                    outcome = runInbox(baseUrl, inbox, outbox, depositLanes, numberOfDeposits);
+                }
+                else if ("import".equals(mode)) {
+                    outcome = runImportJob(baseUrl, inbox, outbox, depositLanes);
+                }
+                else {
+                    throw new IllegalArgumentException("Unknown mode: " + mode);
+                }
+                var seconds = (System.nanoTime() - started) / 1e9;
+                report(mode, numberOfDeposits, payloadBytes, seconds, outcome, standIn);
+            }
+            finally {
+                if (depositLanesExecutor != null) {
+                    depositLanesExecutor.shutdownNow();
+                }
+            }
+        }
+    }
+
+    private String runImportJob(URI baseUrl, Path inbox, Path outbox, DepositLanes depositLanes) throws Exception {
+        var depositFactory = new DataverseIngestDepositFactoryImpl(new YamlServiceImpl(new YamlServiceConfig()));
+        var importJob = new ImportJobFactoryImpl(depositFactory, createDepositTaskFactory(baseUrl), depositLanes, null)
+            .createImportJob(new ImportCommandDto().path(inbox.toString()).singleObject(false).continueBatch(false).onlyConvertDansBag(false), "benchmark", outbox, false);
+        importJob.run();
+        var report = ImportJobReport.of(importJob.getStatus(), importJob.getDepositOutcomes(), false);
+        return String.format("%s; average deposit duration %d ms, p95 %d ms, %d bytes uploaded",
+            report.getMessage(), report.getAverageDuration(), report.getP95Duration(), report.getBytesUploaded());
+    }
+
+    private String runInbox(URI baseUrl, Path inbox, Path outbox, DepositLanes depositLanes, int numberOfDeposits) throws Exception {
+        var depositFactory = new DataverseIngestDepositFactoryImpl(new YamlServiceImpl(new YamlServiceConfig()));
+        for (var dir : List.of("processed", "failed", "rejected")) {
+            Files.createDirectories(outbox.resolve(dir));
+        }
+        ExecutorService inboxExecutor = Executors.newSingleThreadExecutor();
+        var autoIngestInbox = Inbox.builder()
+            .interval(100)
+            .inbox(inbox)
+            .inboxItemComparator(new PropertiesBasedDirectoryComparator<>("deposit.properties", "creation.timestamp", Instant::parse))
+            .executorService(inboxExecutor)
+            .taskFactory(new InboxTaskFactoryImpl(depositFactory, createDepositTaskFactory(baseUrl), outbox, depositLanes))
+            .build();
+        autoIngestInbox.start();
+        try {
+            while (countFinishedDeposits(outbox) < numberOfDeposits) {
+                TimeUnit.MILLISECONDS.sleep(50);
+            }
+        }
+        finally {
+            autoIngestInbox.stop();
+            inboxExecutor.shutdownNow();
+        }
+        return String.format("%d processed, %d rejected, %d failed",
+            countDeposits(outbox.resolve("processed")), countDeposits(outbox.resolve("rejected")), countDeposits(outbox.resolve("failed")));
+    }
+
+    private DepositTaskFactoryImpl createDepositTaskFactory(URI baseUrl) {
+        var streamUploadBatches = Boolean.parseBoolean(option("streamUploadBatches", "false"));
+        var utilityServices = UtilityServicesImpl.builder()
+            .tempDir(WORK_DIR.resolve("tmp").toAbsolutePath())
+            .maxNumberOfFilesPerUpload(intOption("maxFilesPerUploadBatch", 1000))
+            .maxUploadSize(longOption("maxBytesPerUploadBatch", 1024L * 1024 * 1024))
+            .maxNumberOfPreparedUploadBatches(intOption("preparedUploadBatches", 1))
+            .uploadBatchPreparationExecutor(uploadBatchPreparationExecutor)
+            .streamUploadBatches(streamUploadBatches)
+            .maxConcurrentIndividualUploads(1)
+            .build();
+        var dataverseService = DataverseServiceImpl.builder()
+            .dataverseClient(new DataverseClient(new DataverseClientConfig(baseUrl, API_KEY)))
+            .pollingInterval(longOption("pollingInterval", 3000))
+            .leadTimePerFile(longOption("leadTimePerFile", 200))
+            .streamingFileUploader(streamUploadBatches ? StreamingFileUploader.builder().baseUrl(baseUrl).apiKey(API_KEY).build() : null)
+            .build();
+        // The stand-in is always ready
+        var dependenciesReadyCheck = Mockito.mock(DependenciesReadyCheck.class);
+        return new DepositTaskFactoryImpl(new BagProcessorFactoryImpl(dataverseService, utilityServices), new DansDepositSupportDisabledFactory(), dependenciesReadyCheck, 0);
+    }
+
+    private void report(String mode, int numberOfDeposits, long payloadBytes, double seconds, String outcome, DataverseStandIn standIn) {
+        System.out.printf("%nIngest throughput (%s mode)%n", mode);
+        System.out.printf("  options:       %s%n", options);
+        System.out.printf("  outcome:       %s%n", outcome);
+        System.out.printf("  elapsed:       %.1f s%n", seconds);
+        System.out.printf("  deposits/s:    %.3f%n", numberOfDeposits / seconds);
+        System.out.printf("  payload MB/s:  %.3f (%d bytes)%n", payloadBytes / seconds / (1024 * 1024), payloadBytes);
+        System.out.printf("  HTTP MB/s:     %.3f (%d bytes received by the stand-in)%n", standIn.getBytesReceived() / seconds / (1024 * 1024), standIn.getBytesReceived());
+        System.out.printf("  requests:%n");
+        standIn.getRequestCounts().forEach((endpoint, count) -> System.out.printf("    %-36s %d%n", endpoint, count));
+    }
+
+    private long countFinishedDeposits(Path outbox) throws Exception {
+        return countDeposits(outbox.resolve("processed")) + countDeposits(outbox.resolve("rejected")) + countDeposits(outbox.resolve("failed"));
+    }
+
+    private long countDeposits(Path dir) throws Exception {
+        try (var deposits = Files.list(dir)) {
+            return deposits.filter(Files::isDirectory).count();
+        }
+    }
+
+    private String option(String key, String defaultValue) {
+        return options.getOrDefault(key, defaultValue);
+    }
+
+    private int intOption(String key, int defaultValue) {
+        return Integer.parseInt(option(key, String.valueOf(defaultValue)));
+    }
+
+    private long longOption(String key, long defaultValue) {
+        return Long.parseLong(option(key, String.valueOf(defaultValue)));
+    }
+}
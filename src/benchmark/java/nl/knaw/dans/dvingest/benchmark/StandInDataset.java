@@ -0,0 +1,113 @@
+/*
+ * Copyright (C) 2024 DANS - Data Archiving and Networked Services (info@dans.knaw.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.knaw.dans.dvingest.benchmark;
+
+import lombok.Getter;
+import nl.knaw.dans.lib.dataverse.model.file.FileMeta;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * The state of a dataset in the {@link DataverseStandIn}. Only the latest version is kept.
+ */
+class StandInDataset {
+    @Getter
+    private final long id;
+    @Getter
+    private final String persistentId;
+    // Data file id to file metadata
+    private final Map<Long, FileMeta> files = new ConcurrentHashMap<>();
+    // In the JSON format of the Dataverse API
+    private final List<Map<String, Object>> roleAssignments = new CopyOnWriteArrayList<>();
+    // Lock type to the time (System.nanoTime) at which it is released
+    private final Map<String, Long> locks = new ConcurrentHashMap<>();
+
+    private volatile boolean published = false;
+    // Time (System.nanoTime) at which a requested publication completes; if null, no publication is in progress
+    private volatile Long publicationCompletesAt;
+
+    StandInDataset(long id, String persistentId) {
+        this.id = id;
+        this.persistentId = persistentId;
+    }
+
+    List<FileMeta> getFiles() {
+        return new ArrayList<>(files.values());
+    }
+
+    FileMeta getFile(long dataFileId) {
+        return files.get(dataFileId);
+    }
+
+    void putFile(FileMeta fileMeta) {
+        files.put(fileMeta.getDataFile().getId(), fileMeta);
+    }
+
+    void removeFile(long dataFileId) {
+        files.remove(dataFileId);
+    }
+
+    List<Map<String, Object>> getRoleAssignments() {
+        return List.copyOf(roleAssignments);
+    }
+
+    void addRoleAssignment(Map<String, Object> roleAssignment) {
+        roleAssignments.add(roleAssignment);
+    }
+
+    void removeRoleAssignment(long roleAssignmentId) {
+        roleAssignments.removeIf(ra -> ((Number) ra.get("id")).longValue() == roleAssignmentId);
+    }
+
+    void lock(String lockType, long durationMillis) {
+        if (durationMillis > 0) {
+            locks.put(lockType, System.nanoTime() + durationMillis * 1_000_000);
+        }
+    }
+
+    List<String> getActiveLocks() {
+        var now = System.nanoTime();
+        locks.values().removeIf(releasedAt -> releasedAt - now <= 0);
+        return List.copyOf(locks.keySet());
+    }
+
+    void startPublication(long durationMillis) {
+        lock("finalizePublication", durationMillis);
+        publicationCompletesAt = System.nanoTime() + durationMillis * 1_000_000;
+    }
+
+    String getVersionState() {
+        var completesAt = publicationCompletesAt;
+        if (completesAt != null && completesAt - System.nanoTime() <= 0) {
+            published = true;
+            publicationCompletesAt = null;
+        }
+        return published && publicationCompletesAt == null ? "RELEASED" : "DRAFT";
+    }
+
+    /**
+     * Called for every edit; like in Dataverse, editing a released dataset creates a new draft.
+     */
+    void edited() {
+        if ("RELEASED".equals(getVersionState())) {
+            published = false;
+        }
+    }
+}
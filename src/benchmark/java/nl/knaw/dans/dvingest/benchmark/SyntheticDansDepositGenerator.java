@@ -0,0 +1,143 @@
+/*
+ * Copyright (C) 2024 DANS - Data Archiving and Networked Services (info@dans.knaw.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.knaw.dans.dvingest.benchmark;
+
+import lombok.Data;
+import lombok.experimental.Accessors;
+import org.apache.commons.codec.digest.DigestUtils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Properties;
+
+/**
+ * Generates a DANS deposit with an arbitrary number of payload files. The dataset metadata is taken from one of the unit test deposits, so that the conversion follows the same path as in the tests;
+ * only the payload, the SHA-1 manifest and <code>files.xml</code> are synthetic. A deposit that was generated before is reused, as generating the larger ones takes a while.
+ */
+@Data
+@Accessors(fluent = true, chain = true)
+public class SyntheticDansDepositGenerator {
+    private static final Path TEMPLATE_BAG = Path.of("src/test/resources/unit-test/update-deposits/00000000-0000-0000-0000-000000000001/revision01");
+    private static final String BAG_NAME = "synthetic-bag";
+    private static final int FILES_PER_DIRECTORY = 1000;
+
+    private Path depositDir;
+    private int numberOfFiles;
+
+    // Every n-th file gets an explicit accessibleToRights element; if 0, none of them do
+    private int restrictEvery = 10;
+
+    // Every n-th file gets a description; if 0, none of them do
+    private int describeEvery = 7;
+
+    private SyntheticDansDepositGenerator() {
+    }
+
+    public static SyntheticDansDepositGenerator generator() {
+        return new SyntheticDansDepositGenerator();
+    }
+
+    /**
+     * Returns the path of the payload file with the given index, relative to the bag directory.
+     *
+     * @param index the index of the file
+     * @return the path of the file
+     */
+    public static Path payloadPath(int index) {
+        return Path.of("data", "dir" + (index / FILES_PER_DIRECTORY), "file" + index + ".txt");
+    }
+
+    /**
+     * Returns the SHA-1 checksum of the payload file with the given index.
+     *
+     * @param index the index of the file
+     * @return the checksum
+     */
+    public static String payloadChecksum(int index) {
+        return DigestUtils.sha1Hex(payloadContent(index));
+    }
+
+    private static byte[] payloadContent(int index) {
+        return ("Synthetic payload file " + index + "\n").getBytes(StandardCharsets.UTF_8);
+    }
+
+    public Path generate() throws IOException {
+        var depositProperties = depositDir.resolve("deposit.properties");
+        if (Files.exists(depositProperties)) {
+            return depositDir;
+        }
+        var bagDir = depositDir.resolve(BAG_NAME);
+        Files.createDirectories(bagDir.resolve("metadata"));
+        Files.copy(TEMPLATE_BAG.resolve("bagit.txt"), bagDir.resolve("bagit.txt"));
+        Files.copy(TEMPLATE_BAG.resolve("metadata/dataset.xml"), bagDir.resolve("metadata/dataset.xml"));
+        writeBagInfo(bagDir);
+        writePayloadAndManifest(bagDir);
+        writeFilesXml(bagDir);
+        // Written last, so that an interrupted run is not mistaken for a complete deposit
+        writeDepositProperties(depositProperties);
+        return depositDir;
+    }
+
+    private void writeBagInfo(Path bagDir) throws IOException {
+        Files.writeString(bagDir.resolve("bag-info.txt"), "Bagging-Date: 2024-01-01\nCreated: 2024-01-01T00:00:00.000+01:00\n");
+    }
+
+    private void writePayloadAndManifest(Path bagDir) throws IOException {
+        try (var manifest = Files.newBufferedWriter(bagDir.resolve("manifest-sha1.txt"))) {
+            for (int i = 0; i < numberOfFiles; i++) {
+                var path = payloadPath(i);
+                var file = bagDir.resolve(path);
+                if (i % FILES_PER_DIRECTORY == 0) {
+                    Files.createDirectories(file.getParent());
+                }
+                Files.write(file, payloadContent(i));
+                manifest.write(payloadChecksum(i) + "  " + path + "\n");
+            }
+        }
+    }
+
+    private void writeFilesXml(Path bagDir) throws IOException {
+        try (var filesXml = Files.newBufferedWriter(bagDir.resolve("metadata/files.xml"))) {
+            filesXml.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+            filesXml.write("<files xmlns=\"http://easy.dans.knaw.nl/schemas/bag/metadata/files/\" xmlns:dcterms=\"http://purl.org/dc/terms/\">\n");
+            for (int i = 0; i < numberOfFiles; i++) {
+                filesXml.write("    <file filepath=\"" + payloadPath(i) + "\">\n");
+                filesXml.write("        <dcterms:format>text/plain</dcterms:format>\n");
+                if (describeEvery > 0 && i % describeEvery == 0) {
+                    filesXml.write("        <dcterms:description>Description of file " + i + "</dcterms:description>\n");
+                }
+                if (restrictEvery > 0 && i % restrictEvery == 0) {
+                    filesXml.write("        <accessibleToRights>RESTRICTED_REQUEST</accessibleToRights>\n");
+                }
+                filesXml.write("    </file>\n");
+            }
+            filesXml.write("</files>\n");
+        }
+    }
+
+    private void writeDepositProperties(Path depositProperties) throws IOException {
+        var properties = new Properties();
+        properties.setProperty("creation.timestamp", "2024-01-01T00:00:00.000+01:00");
+        properties.setProperty("depositor.userId", "user001");
+        properties.setProperty("dataverse.bag-id", "urn:uuid:" + depositDir.getFileName());
+        properties.setProperty("dataverse.sword-token", "sword:" + depositDir.getFileName());
+        try (var out = Files.newBufferedWriter(depositProperties)) {
+            properties.store(out, null);
+        }
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright (C) 2024 DANS - Data Archiving and Networked Services (info@dans.knaw.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.knaw.dans.dvingest.benchmark;
+
+import lombok.Data;
+import lombok.experimental.Accessors;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Random;
+import java.util.UUID;
+
+/**
+ * Generates Dataverse ingest deposits that each create a new dataset with a number of synthetic payload files and publish it. The dataset metadata is taken from one of the test deposits. The
+ * payload is random, so that the upload batches cannot be compressed more than real data would be.
+ */
+@Data
+@Accessors(fluent = true, chain = true)
+public class SyntheticDataverseIngestDepositGenerator {
+    private static final Path TEMPLATE_BAG = Path.of("src/test/resources/test-deposits/072625c6-c2a8-43a6-9f35-f49b2db9435c/1");
+
+    private Path inbox;
+    private int numberOfDeposits;
+    private int numberOfFilesPerDeposit;
+    private int fileSize;
+    private long seed = 42;
+
+    private SyntheticDataverseIngestDepositGenerator() {
+    }
+
+    public static SyntheticDataverseIngestDepositGenerator generator() {
+        return new SyntheticDataverseIngestDepositGenerator();
+    }
+
+    /**
+     * Generates the deposits.
+     *
+     * @return the total number of payload bytes in the generated deposits
+     * @throws IOException if a deposit cannot be written
+     */
+    public long generate() throws IOException {
+        Files.createDirectories(inbox);
+        var random = new Random(seed);
+        var created = Instant.parse("2024-01-01T00:00:00Z");
+        long payloadBytes = 0;
+        for (int d = 0; d < numberOfDeposits; d++) {
+            var depositDir = inbox.resolve(new UUID(random.nextLong(), random.nextLong()).toString());
+            Files.createDirectories(depositDir);
+            // Distinct timestamps, so that the inbox processes the deposits in the order they were generated
+            Files.writeString(depositDir.resolve("deposit.properties"), "creation.timestamp=" + created.plusSeconds(d) + "\n");
+            payloadBytes += writeBag(depositDir.resolve("1"), random);
+        }
+        return payloadBytes;
+    }
+
+    private long writeBag(Path bagDir, Random random) throws IOException {
+        var dataDir = bagDir.resolve("data");
+        Files.createDirectories(dataDir);
+        Files.writeString(bagDir.resolve("bagit.txt"), "BagIt-Version: 1.0\nTag-File-Character-Encoding: UTF-8\n");
+        Files.writeString(bagDir.resolve("bag-info.txt"), "Bagging-Date: 2024-01-01\n");
+        Files.copy(TEMPLATE_BAG.resolve("dataset.yml"), bagDir.resolve("dataset.yml"));
+        Files.writeString(bagDir.resolve("update-state.yml"), "updateState:\n  publish: major\n");
+        var content = new byte[fileSize];
+        try (var editFiles = Files.newBufferedWriter(bagDir.resolve("edit-files.yml"))) {
+            editFiles.write("editFiles:\n  addUnrestrictedFiles:\n");
+            for (int i = 0; i < numberOfFilesPerDeposit; i++) {
+                var path = "dir" + (i / 1000) + "/file" + i + ".bin";
+                var file = dataDir.resolve(path);
+                Files.createDirectories(file.getParent());
+                random.nextBytes(content);
+                Files.write(file, content);
+                editFiles.write("    - '" + path + "'\n");
+            }
+        }
+        return (long) numberOfFilesPerDeposit * fileSize;
+    }
+}
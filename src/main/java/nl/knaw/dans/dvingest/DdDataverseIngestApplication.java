@@ -22,12 +22,15 @@ import io.dropwizard.core.setup.Environment;
 import lombok.extern.slf4j.Slf4j;
 import nl.knaw.dans.dvingest.client.ValidateDansBagServiceImpl;
 import nl.knaw.dans.dvingest.config.DansDepositConversionConfig;
+import nl.knaw.dans.dvingest.config.DataverseAccountCacheConfig;
 import nl.knaw.dans.dvingest.config.DdDataverseIngestConfiguration;
 import nl.knaw.dans.dvingest.config.DepositorAuthorizationConfig;
 import nl.knaw.dans.dvingest.config.IngestAreaConfig;
 import nl.knaw.dans.dvingest.config.IngestConfig;
 import nl.knaw.dans.dvingest.core.AutoIngestArea;
 import nl.knaw.dans.dvingest.core.DataverseIngestDepositFactory;
+import nl.knaw.dans.dvingest.core.DepositLanes;
+import nl.knaw.dans.dvingest.core.HsqldbImportJobRegistry;
 import nl.knaw.dans.lib.util.healthcheck.DependenciesReadyCheck;
 import nl.knaw.dans.lib.util.healthcheck.HealthChecksDependenciesReadyCheck;
 import nl.knaw.dans.dvingest.core.IngestArea;
@@ -37,8 +40,16 @@ import nl.knaw.dans.dvingest.core.dansbag.DansBagMappingServiceImpl;
 import nl.knaw.dans.dvingest.core.dansbag.DansDepositSupportFactory;
 import nl.knaw.dans.dvingest.core.dansbag.SupportedLicenses;
 import nl.knaw.dans.dvingest.core.dansbag.mapper.DepositToDvDatasetMetadataMapper;
+import nl.knaw.dans.dvingest.core.service.CachingDataverseService;
 import nl.knaw.dans.dvingest.core.service.DataverseService;
 import nl.knaw.dans.dvingest.core.service.DataverseServiceImpl;
+import nl.knaw.dans.dvingest.core.service.ExpiringCache;
+import nl.knaw.dans.dvingest.core.service.IngestMetrics;
+import nl.knaw.dans.dvingest.core.service.MeteredDataverseService;
+import nl.knaw.dans.dvingest.core.service.PublishDurationModel;
+import nl.knaw.dans.dvingest.core.service.ReferenceDataCache;
+import nl.knaw.dans.dvingest.core.service.StreamingFileUploader;
+import nl.knaw.dans.dvingest.core.service.UploadBatchSizer;
 import nl.knaw.dans.dvingest.core.service.UtilityServices;
 import nl.knaw.dans.dvingest.core.service.UtilityServicesImpl;
 import nl.knaw.dans.dvingest.core.service.YamlService;
@@ -46,6 +57,10 @@ import nl.knaw.dans.dvingest.core.service.YamlServiceImpl;
 import nl.knaw.dans.dvingest.resources.DefaultApiResource;
 import nl.knaw.dans.dvingest.resources.IllegalArgumentExceptionMapper;
 import nl.knaw.dans.dvingest.resources.IngestApiResource;
+import nl.knaw.dans.dvingest.resources.IngestReportResource;
+import nl.knaw.dans.dvingest.resources.InvalidateCachesTask;
+import nl.knaw.dans.lib.dataverse.model.RoleAssignmentReadOnly;
+import nl.knaw.dans.lib.dataverse.model.user.AuthenticatedUser;
 import nl.knaw.dans.lib.util.DataverseClientFactory;
 import nl.knaw.dans.lib.util.DataverseHealthCheck;
 import nl.knaw.dans.lib.util.MappingLoader;
@@ -56,7 +71,12 @@ import org.apache.commons.io.FileUtils;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
 import java.util.regex.Pattern;
+import java.util.stream.Stream;
 
 @Slf4j
 public class DdDataverseIngestApplication extends Application<DdDataverseIngestConfiguration> {
@@ -99,6 +119,23 @@ public class DdDataverseIngestApplication extends Application<DdDataverseIngestC
             .tempDir(configuration.getIngest().getTempDir())
             .maxNumberOfFilesPerUpload(configuration.getIngest().getMaxNumberOfFilesPerUploadBatch())
             .maxUploadSize(configuration.getIngest().getMaxByteSizePerUploadBatch().toBytes())
+            .maxNumberOfPreparedUploadBatches(configuration.getIngest().getMaxNumberOfPreparedUploadBatches())
+            .uploadBatchPreparationExecutor(createUploadBatchPreparationExecutor(configuration.getIngest(), environment))
+            .streamUploadBatches(configuration.getIngest().isStreamUploadBatches())
+            .maxConcurrentIndividualUploads(configuration.getIngest().getMaxConcurrentIndividualUploads())
+            .individualUploadExecutor(createBoundedConcurrencyExecutor(configuration.getIngest(), environment, "individual-upload",
+                configuration.getIngest().getMaxConcurrentIndividualUploads()))
+            .maxConcurrentRoleAssignmentEdits(configuration.getIngest().getMaxConcurrentRoleAssignmentEdits())
+            .roleAssignmentEditExecutor(createBoundedConcurrencyExecutor(configuration.getIngest(), environment, "role-assignment-edit",
+                configuration.getIngest().getMaxConcurrentRoleAssignmentEdits()))
+            .checksumExecutor(environment.lifecycle().executorService("checksum")
+                .minThreads(configuration.getIngest().getMaxConcurrentChecksumCalculations())
+                .maxThreads(configuration.getIngest().getMaxConcurrentChecksumCalculations())
+                .build())
+            .uploadBatchSizer(createUploadBatchSizer(configuration.getIngest()))
+            .taskLogCheckpointInterval(configuration.getIngest().getTaskLogCheckpointInterval().toMilliseconds())
+            .taskLogCheckpointScheduler(environment.lifecycle().scheduledExecutorService("task-log-checkpoint").threads(1).build())
+            .ingestMetrics(new IngestMetrics(environment.metrics()))
             .build();
         var yamlService = new YamlServiceImpl(configuration.getYamlServiceConfig());
         var dataverseIngestDepositFactory = new DataverseIngestDepositFactoryImpl(yamlService);
@@ -106,54 +143,131 @@ public class DdDataverseIngestApplication extends Application<DdDataverseIngestC
         environment.lifecycle().manage(dependenciesReadyCheck);
 
         /*
-         *  Import area
+         * Caches of Dataverse lookups and the publish duration model, shared by both areas
+         */
+        var accountCaches = createAccountCaches(configuration.getIngest().getAccountCache(), environment);
+        var publishDurationModel = new PublishDurationModel(configuration.getIngest().getWaitForReleasedState().getLeadTimePerFile().toMilliseconds(),
+            new IngestMetrics(environment.metrics()));
+
+        /*
+         * Reference data from Dataverse, shared by both areas
          */
         DansDepositConversionConfig dansDepositConversionConfig = configuration.getDansDepositConversion();
-        var importArea = getImportArea(configuration.getIngest(), configuration.getIngest().getImportConfig(), dansDepositConversionConfig, configuration.getDataverse(), environment,
-            yamlService, utilityServices, dataverseIngestDepositFactory, dependenciesReadyCheck);
+        var referenceData = dansDepositConversionConfig == null ? null : createReferenceData(configuration.getIngest(), dansDepositConversionConfig, configuration.getDataverse(), environment);
+
+        /*
+         *  Import area
+         */
+        var importArea = getImportArea(configuration.getIngest(), configuration.getIngest().getImportConfig(), dansDepositConversionConfig, referenceData, accountCaches,
+            publishDurationModel, configuration.getDataverse(), environment, yamlService, utilityServices, dataverseIngestDepositFactory, dependenciesReadyCheck);
 
         /*
          * Auto ingest area
          */
-        var autoIngestArea = getAutoIngestArea(configuration.getIngest(), configuration.getIngest().getAutoIngest(), dansDepositConversionConfig, configuration.getDataverse(), environment,
-            yamlService, utilityServices, dataverseIngestDepositFactory, dependenciesReadyCheck);
+        var autoIngestArea = getAutoIngestArea(configuration.getIngest(), configuration.getIngest().getAutoIngest(), dansDepositConversionConfig, referenceData, accountCaches,
+            publishDurationModel, configuration.getDataverse(), environment, yamlService, utilityServices, dataverseIngestDepositFactory, dependenciesReadyCheck);
 
         /*
          * Register components with Dropwizard
          */
         environment.jersey().register(new DefaultApiResource());
         environment.jersey().register(new IngestApiResource(importArea));
+        environment.jersey().register(new IngestReportResource(importArea));
+        environment.lifecycle().manage(importArea);
         environment.lifecycle().manage(autoIngestArea);
         environment.jersey().register(new IllegalArgumentExceptionMapper());
+        if (accountCaches != null) {
+            environment.admin().addTask(new InvalidateCachesTask(List.of(accountCaches.users, accountCaches.dataverseRoleAssignments)));
+        }
 
         environment.healthChecks().register("dataverse", new DataverseHealthCheck(configuration.getDataverse().build(environment, "dataverse/health")));
     }
 
-    private DataverseService getDataverseServiceForIngestArea(IngestConfig ingestConfig, DataverseClientFactory clientFactory, Environment environment, String name, String apiKeyOverride) {
-        return DataverseServiceImpl.builder()
+    private UploadBatchSizer createUploadBatchSizer(IngestConfig ingestConfig) {
+        var maxNumberOfFiles = ingestConfig.getMaxNumberOfFilesPerUploadBatch();
+        var maxNumberOfBytes = ingestConfig.getMaxByteSizePerUploadBatch().toBytes();
+        var adaptiveConfig = ingestConfig.getAdaptiveUploadBatchSize();
+        if (adaptiveConfig == null || !adaptiveConfig.isEnabled()) {
+            return UploadBatchSizer.fixed(maxNumberOfFiles, maxNumberOfBytes);
+        }
+        return new UploadBatchSizer(
+            Math.min(adaptiveConfig.getMinNumberOfFilesPerUploadBatch(), maxNumberOfFiles),
+            maxNumberOfFiles,
+            Math.min(adaptiveConfig.getMinByteSizePerUploadBatch().toBytes(), maxNumberOfBytes),
+            maxNumberOfBytes,
+            adaptiveConfig.getTargetUploadDuration().toMilliseconds());
+    }
+
+    private DataverseService getDataverseServiceForIngestArea(IngestConfig ingestConfig, DataverseClientFactory clientFactory, Environment environment, String name, String apiKeyOverride,
+        PublishDurationModel publishDurationModel) {
+        var dataverseService = DataverseServiceImpl.builder()
             .dataverseClient(clientFactory.build(environment, name, apiKeyOverride))
             .metadataKeys(ingestConfig.getMetadataKeys())
             .timeout(ingestConfig.getWaitForReleasedState().getTimeout().toMilliseconds())
             .leadTimePerFile(ingestConfig.getWaitForReleasedState().getLeadTimePerFile().toMilliseconds())
             .pollingInterval(ingestConfig.getWaitForReleasedState().getPollingInterval().toMilliseconds())
+            .minPollingInterval(ingestConfig.getWaitForReleasedState().getMinPollingInterval().toMilliseconds())
+            .publishDurationModel(publishDurationModel)
+            .streamingFileUploader(ingestConfig.isStreamUploadBatches() ? StreamingFileUploader.builder()
+                .baseUrl(clientFactory.getBaseUrl())
+                .apiKey(apiKeyOverride != null ? apiKeyOverride : clientFactory.getApiKey())
+                .connectTimeout(clientFactory.getHttpClient().getConnectionTimeout().toJavaDuration())
+                .readTimeout(clientFactory.getHttpClient().getTimeout().toJavaDuration())
+                .userAgent(clientFactory.getHttpClient().getUserAgent().orElse(null))
+                .build() : null)
             .build();
+        return new MeteredDataverseService(dataverseService, new IngestMetrics(environment.metrics()));
+    }
+
+    private AccountCaches createAccountCaches(DataverseAccountCacheConfig accountCacheConfig, Environment environment) {
+        if (!accountCacheConfig.isEnabled()) {
+            return null;
+        }
+        var timeToLive = accountCacheConfig.getTimeToLive().toJavaDuration();
+        var metrics = new IngestMetrics(environment.metrics());
+        return new AccountCaches(
+            new ExpiringCache<>("users", accountCacheConfig.getMaximumSize(), timeToLive, metrics),
+            new ExpiringCache<>("dataverse-role-assignments", accountCacheConfig.getMaximumSize(), timeToLive, metrics));
+    }
+
+    private DataverseService withAccountCaches(DataverseService dataverseService, AccountCaches accountCaches) {
+        if (accountCaches == null) {
+            return dataverseService;
+        }
+        return new CachingDataverseService(dataverseService, accountCaches.users, accountCaches.dataverseRoleAssignments);
+    }
+
+    private ReferenceData createReferenceData(IngestConfig ingestConfig, DansDepositConversionConfig dansDepositConversionConfig, DataverseClientFactory dataverseClientFactory,
+        Environment environment) {
+        var dataverseService = getDataverseServiceForIngestArea(ingestConfig, dataverseClientFactory, environment, "dataverse/reference-data", null, null);
+        var refreshInterval = dansDepositConversionConfig.getReferenceDataRefreshInterval().toJavaDuration();
+        var scheduler = environment.lifecycle().scheduledExecutorService("reference-data").threads(1).build();
+        var licenses = new ReferenceDataCache<>("supported licenses", () -> SupportedLicenses.fetchLicenses(dataverseService), refreshInterval, scheduler);
+        var metadataBlocks = new ReferenceDataCache<>("active metadata blocks", dataverseService::getActiveMetadataBlockNames, refreshInterval, scheduler);
+        environment.lifecycle().manage(licenses);
+        environment.lifecycle().manage(metadataBlocks);
+        return new ReferenceData(new SupportedLicenses(licenses), new ActiveMetadataBlocks(metadataBlocks));
     }
 
     private AutoIngestArea getAutoIngestArea(IngestConfig ingestConfig, IngestAreaConfig ingestAreaConfig, DansDepositConversionConfig dansDepositConversionConfig,
-        DataverseClientFactory dataverseClientFactory, Environment environment,
+        ReferenceData referenceData, AccountCaches accountCaches, PublishDurationModel publishDurationModel, DataverseClientFactory dataverseClientFactory, Environment environment,
         YamlService yamlService, UtilityServices utilityServices, DataverseIngestDepositFactory dataverseIngestDepositFactory,
         DependenciesReadyCheck dependenciesReadyCheck) {
         DansDepositSupportFactory dansDepositSupportFactory = new DansDepositSupportDisabledFactory();
-        var dataverseService = getDataverseServiceForIngestArea(ingestConfig, dataverseClientFactory, environment, "dataverse/auto-ingest", ingestAreaConfig.getApiKey());
+        var dataverseService = withAccountCaches(getDataverseServiceForIngestArea(ingestConfig, dataverseClientFactory, environment, "dataverse/auto-ingest", ingestAreaConfig.getApiKey(),
+            publishDurationModel),
+            accountCaches);
         if (dansDepositConversionConfig != null) {
-            var dansBagMappingService = createDansBagMappingService(dansDepositConversionConfig, dansDepositConversionConfig.getDepositorAuthorization().getAutoIngest(), dataverseService);
+            var dansBagMappingService = createDansBagMappingService(dansDepositConversionConfig, dansDepositConversionConfig.getDepositorAuthorization().getAutoIngest(), referenceData,
+                dataverseService, utilityServices);
             var validateDansBagService = new ValidateDansBagServiceImpl(dansDepositConversionConfig.getValidateDansBag(), environment);
             dansDepositSupportFactory = new DansDepositSupportFactoryImpl(validateDansBagService, dansBagMappingService, dataverseService, yamlService, ingestAreaConfig.getRequireDansBag());
         }
 
         var bagProcessorFactory = new BagProcessorFactoryImpl(dataverseService, utilityServices);
         var depositTaskFactory = new DepositTaskFactoryImpl(bagProcessorFactory, dansDepositSupportFactory, dependenciesReadyCheck, ingestAreaConfig.getDelayBetweenDeposits().toMilliseconds());
-        var inboxTaskFactory = new InboxTaskFactoryImpl(dataverseIngestDepositFactory, depositTaskFactory, ingestAreaConfig.getOutbox());
+        var inboxTaskFactory = new InboxTaskFactoryImpl(dataverseIngestDepositFactory, depositTaskFactory, ingestAreaConfig.getOutbox(),
+            createDepositLanes(ingestAreaConfig, environment, "auto-ingest-deposit"));
         var inbox = Inbox.builder()
             .interval(Math.toIntExact(ingestAreaConfig.getPollingInterval().toMilliseconds()))
             .inbox(ingestAreaConfig.getInbox())
@@ -164,32 +278,87 @@ public class DdDataverseIngestApplication extends Application<DdDataverseIngestC
     }
 
     private IngestArea getImportArea(IngestConfig ingestConfig, IngestAreaConfig ingestAreaConfig, DansDepositConversionConfig dansDepositConversionConfig,
-        DataverseClientFactory dataverseClientFactory, Environment environment,
+        ReferenceData referenceData, AccountCaches accountCaches, PublishDurationModel publishDurationModel, DataverseClientFactory dataverseClientFactory, Environment environment,
         YamlService yamlService, UtilityServices utilityServices, DataverseIngestDepositFactory dataverseIngestDepositFactory,
         DependenciesReadyCheck dependenciesReadyCheck) {
         DansDepositSupportFactory dansDepositSupportFactory = new DansDepositSupportDisabledFactory();
-        var dataverseService = getDataverseServiceForIngestArea(ingestConfig, dataverseClientFactory, environment, "dataverse/import", ingestAreaConfig.getApiKey());
+        var dataverseService = withAccountCaches(getDataverseServiceForIngestArea(ingestConfig, dataverseClientFactory, environment, "dataverse/import", ingestAreaConfig.getApiKey(),
+            publishDurationModel),
+            accountCaches);
         if (dansDepositConversionConfig != null) {
-            var dansBagMappingService = createDansBagMappingService(dansDepositConversionConfig, dansDepositConversionConfig.getDepositorAuthorization().getImportConfig(), dataverseService);
+            var dansBagMappingService = createDansBagMappingService(dansDepositConversionConfig, dansDepositConversionConfig.getDepositorAuthorization().getImportConfig(), referenceData,
+                dataverseService, utilityServices);
             var validateDansBag = new ValidateDansBagServiceImpl(dansDepositConversionConfig.getValidateDansBag(), environment);
             dansDepositSupportFactory = new DansDepositSupportFactoryImpl(validateDansBag, dansBagMappingService, dataverseService, yamlService,
                 ingestAreaConfig.getRequireDansBag());
         }
         var bagProcessorFactory = new BagProcessorFactoryImpl(dataverseService, utilityServices);
         var depositTaskFactory = new DepositTaskFactoryImpl(bagProcessorFactory, dansDepositSupportFactory, dependenciesReadyCheck, ingestAreaConfig.getDelayBetweenDeposits().toMilliseconds());
-        var jobFactory = new ImportJobFactoryImpl(dataverseIngestDepositFactory, depositTaskFactory);
+        HsqldbImportJobRegistry importJobRegistry = null;
+        if (ingestConfig.getImportJobDatabaseDir() != null) {
+            importJobRegistry = HsqldbImportJobRegistry.inDirectory(ingestConfig.getImportJobDatabaseDir());
+            environment.lifecycle().manage(importJobRegistry);
+        }
+        var jobFactory = new ImportJobFactoryImpl(dataverseIngestDepositFactory, depositTaskFactory, createDepositLanes(ingestAreaConfig, environment, "import-deposit"),
+            importJobRegistry);
         return new IngestArea(jobFactory, ingestAreaConfig.getInbox(), ingestAreaConfig.getOutbox(),
-            environment.lifecycle().executorService("import").minThreads(1).maxThreads(1).build());
+            environment.lifecycle().executorService("import").minThreads(1).maxThreads(1).build(), importJobRegistry);
+    }
+
+    private DepositLanes createDepositLanes(IngestAreaConfig ingestAreaConfig, Environment environment, String name) {
+        if (ingestAreaConfig.getMaxParallelDeposits() <= 1) {
+            return null;
+        }
+        log.info("Processing up to {} deposits in parallel in {}", ingestAreaConfig.getMaxParallelDeposits(), ingestAreaConfig.getInbox());
+        return new DepositLanes(environment.lifecycle().executorService(name)
+            .minThreads(ingestAreaConfig.getMaxParallelDeposits())
+            .maxThreads(ingestAreaConfig.getMaxParallelDeposits())
+            .build());
+    }
+
+    private ExecutorService createUploadBatchPreparationExecutor(IngestConfig ingestConfig, Environment environment) {
+        if (ingestConfig.isStreamUploadBatches() || ingestConfig.getMaxNumberOfPreparedUploadBatches() == 0) {
+            return null;
+        }
+        // One thread for each deposit that may be uploading at the same time
+        return environment.lifecycle().executorService("upload-batch-preparation")
+            .minThreads(getMaxParallelDeposits(ingestConfig))
+            .maxThreads(getMaxParallelDeposits(ingestConfig))
+            .build();
+    }
+
+    /*
+     * Creates the executor for calls that each deposit makes with at most maxConcurrentPerDeposit at the same time, or null if they are made one after the other.
+     */
+    private ExecutorService createBoundedConcurrencyExecutor(IngestConfig ingestConfig, Environment environment, String name, int maxConcurrentPerDeposit) {
+        if (maxConcurrentPerDeposit <= 1) {
+            return null;
+        }
+        var threads = maxConcurrentPerDeposit * getMaxParallelDeposits(ingestConfig);
+        return environment.lifecycle().executorService(name)
+            .minThreads(threads)
+            .maxThreads(threads)
+            .build();
+    }
+
+    /*
+     * The maximum number of deposits that are processed at the same time, over the import and auto-ingest areas together.
+     */
+    private static int getMaxParallelDeposits(IngestConfig ingestConfig) {
+        return Stream.of(ingestConfig.getImportConfig(), ingestConfig.getAutoIngest())
+            .filter(Objects::nonNull)
+            .mapToInt(IngestAreaConfig::getMaxParallelDeposits)
+            .sum();
     }
 
     private DansBagMappingService createDansBagMappingService(DansDepositConversionConfig dansDepositConversionConfig, DepositorAuthorizationConfig depositorAuthorizationConfig,
-        DataverseService dataverseService) {
+        ReferenceData referenceData, DataverseService dataverseService, UtilityServices utilityServices) {
         log.info("Configuring DANS Deposit conversion");
-        var mapper = createMapper(dansDepositConversionConfig, dataverseService);
+        var mapper = createMapper(dansDepositConversionConfig, referenceData.activeMetadataBlocks);
         return new DansBagMappingServiceImpl(
             mapper,
             dataverseService,
-            new SupportedLicenses(dataverseService),
+            referenceData.supportedLicenses,
             dansDepositConversionConfig.getFileExclusionPattern() == null ? null :
                 Pattern.compile(dansDepositConversionConfig.getFileExclusionPattern()),
             dansDepositConversionConfig.getFilesForSeparateUploadPattern() == null ? null :
@@ -197,15 +366,16 @@ public class DdDataverseIngestApplication extends Application<DdDataverseIngestC
             dansDepositConversionConfig.getEmbargoExclusions(),
             dansDepositConversionConfig.getAssignDepositorRole().getAutoIngest(),
             depositorAuthorizationConfig.getPublishDataset(),
-            depositorAuthorizationConfig.getEditDataset());
+            depositorAuthorizationConfig.getEditDataset(),
+            utilityServices.getChecksumExecutor());
     }
 
-    private DepositToDvDatasetMetadataMapper createMapper(DansDepositConversionConfig dansDepositConversionConfig, DataverseService dataverseService) {
+    private DepositToDvDatasetMetadataMapper createMapper(DansDepositConversionConfig dansDepositConversionConfig, ActiveMetadataBlocks activeMetadataBlocks) {
         var mappingDefsDir = dansDepositConversionConfig.getMappingDefsDir();
         try {
             return new DepositToDvDatasetMetadataMapper(
                 dansDepositConversionConfig.isDeduplicate(),
-                new ActiveMetadataBlocks(dataverseService),
+                activeMetadataBlocks,
                 MappingLoader.builder().csvFile(mappingDefsDir.resolve(ISO_639_1_TO_DV_FILENAME)).keyColumn(ISO_639_1_TO_DV_KEY_COLUMN).valueColumn(DATAVERSE_LANGUAGE_COLUMN).build().load(),
                 MappingLoader.builder().csvFile(mappingDefsDir.resolve(ISO_639_2_TO_DV_FILENAME)).keyColumn(ISO_639_2_TO_DV_KEY_COLUMN).valueColumn(DATAVERSE_LANGUAGE_COLUMN).build().load(),
                 MappingLoader.builder().csvFile(mappingDefsDir.resolve(ISO_639_3_TO_DV_FILENAME)).keyColumn(ISO_639_3_TO_DV_KEY_COLUMN).valueColumn(DATAVERSE_LANGUAGE_COLUMN).build().load(),
@@ -222,4 +392,24 @@ public class DdDataverseIngestApplication extends Application<DdDataverseIngestC
             throw new IllegalStateException("Failed to read configuration files", e);
         }
     }
+
+    private static class ReferenceData {
+        private final SupportedLicenses supportedLicenses;
+        private final ActiveMetadataBlocks activeMetadataBlocks;
+
+        private ReferenceData(SupportedLicenses supportedLicenses, ActiveMetadataBlocks activeMetadataBlocks) {
+            this.supportedLicenses = supportedLicenses;
+            this.activeMetadataBlocks = activeMetadataBlocks;
+        }
+    }
+
+    private static class AccountCaches {
+        private final ExpiringCache<String, AuthenticatedUser> users;
+        private final ExpiringCache<String, Map<String, List<RoleAssignmentReadOnly>>> dataverseRoleAssignments;
+
+        private AccountCaches(ExpiringCache<String, AuthenticatedUser> users, ExpiringCache<String, Map<String, List<RoleAssignmentReadOnly>>> dataverseRoleAssignments) {
+            this.users = users;
+            this.dataverseRoleAssignments = dataverseRoleAssignments;
+        }
+    }
 }
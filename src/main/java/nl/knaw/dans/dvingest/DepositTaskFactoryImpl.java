@@ -33,7 +33,7 @@ public class DepositTaskFactoryImpl implements DepositTaskFactory {
     private final long delayBetweenDeposits;
 
     @Override
-    public Runnable createDepositTask(DataverseIngestDeposit deposit, Path outputDir, boolean onlyConvertDansDeposit) {
+    public DepositTask createDepositTask(DataverseIngestDeposit deposit, Path outputDir, boolean onlyConvertDansDeposit) {
         return new DepositTask(deposit, outputDir, onlyConvertDansDeposit, bagProcessorFactory, dansDepositSupportFactory, dependenciesReadyCheck, delayBetweenDeposits);
     }
 }
@@ -19,11 +19,14 @@ import lombok.AllArgsConstructor;
 import lombok.NonNull;
 import nl.knaw.dans.dvingest.api.ImportCommandDto;
 import nl.knaw.dans.dvingest.core.DataverseIngestDepositFactory;
+import nl.knaw.dans.dvingest.core.DepositLanes;
 import nl.knaw.dans.dvingest.core.DepositTaskFactory;
 import nl.knaw.dans.dvingest.core.ImportJob;
 import nl.knaw.dans.dvingest.core.ImportJobFactory;
+import nl.knaw.dans.dvingest.core.ImportJobRegistry;
 
 import java.nio.file.Path;
+import java.util.List;
 
 @AllArgsConstructor
 public class ImportJobFactoryImpl implements ImportJobFactory {
@@ -31,9 +34,19 @@ public class ImportJobFactoryImpl implements ImportJobFactory {
     private final DataverseIngestDepositFactory dataverseIngestDepositFactory;
     @NonNull
     private final DepositTaskFactory depositTaskFactory;
+    // If null, deposits are processed sequentially
+    private final DepositLanes depositLanes;
+    // If null, the status of import jobs is only kept in memory
+    private final ImportJobRegistry importJobRegistry;
 
     @Override
     public ImportJob createImportJob(ImportCommandDto importCommand, String path, Path outputDir, boolean onlyConvertDansDeposit) {
-        return new ImportJob(importCommand, path, outputDir, onlyConvertDansDeposit, dataverseIngestDepositFactory, depositTaskFactory);
+        return new ImportJob(importCommand, path, outputDir, onlyConvertDansDeposit, dataverseIngestDepositFactory, depositTaskFactory, depositLanes, importJobRegistry, null);
+    }
+
+    @Override
+    public ImportJob resumeImportJob(ImportCommandDto importCommand, String path, Path outputDir, boolean onlyConvertDansDeposit, List<Path> queuedDeposits) {
+        return new ImportJob(importCommand, path, outputDir, onlyConvertDansDeposit, dataverseIngestDepositFactory, depositTaskFactory, depositLanes, importJobRegistry,
+            queuedDeposits);
     }
 }
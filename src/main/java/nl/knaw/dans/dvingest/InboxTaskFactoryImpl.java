@@ -17,6 +17,7 @@ package nl.knaw.dans.dvingest;
 
 import lombok.AllArgsConstructor;
 import nl.knaw.dans.dvingest.core.DataverseIngestDepositFactory;
+import nl.knaw.dans.dvingest.core.DepositLanes;
 import nl.knaw.dans.dvingest.core.DepositTaskFactory;
 import nl.knaw.dans.lib.util.inbox.InboxTaskFactory;
 
@@ -27,10 +28,17 @@ public class InboxTaskFactoryImpl implements InboxTaskFactory {
     private final DataverseIngestDepositFactory dataverseIngestDepositFactory;
     private final DepositTaskFactory depositTaskFactory;
     private final Path outputDir;
+    // If null, the deposit task is run directly by the inbox
+    private final DepositLanes depositLanes;
 
     @Override
     public Runnable createInboxTask(Path path) {
         var dataVerseIngestDeposit = dataverseIngestDepositFactory.createDataverseIngestDeposit(path);
-        return depositTaskFactory.createDepositTask(dataVerseIngestDeposit, outputDir, false);
+        var depositTask = depositTaskFactory.createDepositTask(dataVerseIngestDeposit, outputDir, false);
+        if (depositLanes == null) {
+            return depositTask;
+        }
+        // The inbox only dispatches the deposit to its lane, so that a slow deposit does not hold up deposits for other datasets
+        return () -> depositLanes.submit(dataVerseIngestDeposit.getTargetDataset(), depositTask);
     }
 }
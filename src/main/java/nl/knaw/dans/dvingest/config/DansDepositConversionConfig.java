@@ -15,6 +15,7 @@
  */
 package nl.knaw.dans.dvingest.config;
 
+import io.dropwizard.util.Duration;
 import lombok.Data;
 
 import javax.validation.Valid;
@@ -43,6 +44,9 @@ public class DansDepositConversionConfig {
 
     private List<String> skipFields = List.of();
 
+    @NotNull
+    private Duration referenceDataRefreshInterval = Duration.hours(1);
+
     @NotNull
     @Valid
     private ValidateDansBagConfig validateDansBag;
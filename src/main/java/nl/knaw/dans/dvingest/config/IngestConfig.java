@@ -17,9 +17,11 @@ package nl.knaw.dans.dvingest.config;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
 import io.dropwizard.util.DataSize;
+import io.dropwizard.util.Duration;
 import lombok.Data;
 
 import javax.validation.Valid;
+import javax.validation.constraints.Min;
 import javax.validation.constraints.NotNull;
 import java.nio.file.Path;
 import java.util.HashMap;
@@ -38,10 +40,44 @@ public class IngestConfig {
     // If null, use the standard temp directory
     private Path tempDir;
 
+    // If null, the status of import jobs is only kept in memory
+    private Path importJobDatabaseDir;
+
     private int maxNumberOfFilesPerUploadBatch = 1000;
 
     private DataSize maxByteSizePerUploadBatch = DataSize.gibibytes(1);
 
+    @Valid
+    private AdaptiveUploadBatchSizeConfig adaptiveUploadBatchSize = new AdaptiveUploadBatchSizeConfig();
+
+    // Number of upload batches that may be zipped while the previous one is uploading; 0 disables this
+    @Min(0)
+    private int maxNumberOfPreparedUploadBatches = 0;
+
+    // Stream upload batches directly into the upload request instead of zipping them to tempDir first
+    private boolean streamUploadBatches = false;
+
+    // Number of files that are uploaded at the same time when files are added individually (e.g. files matching filesForSeparateUploadPattern)
+    @Min(1)
+    private int maxConcurrentIndividualUploads = 1;
+
+    // Number of role assignments that are added or deleted at the same time when editing the permissions on a dataset
+    @Min(1)
+    private int maxConcurrentRoleAssignmentEdits = 4;
+
+    // Number of payload files that are hashed at the same time, over all deposits, when a bag without SHA-1 payload manifest gets one
+    @Min(1)
+    private int maxConcurrentChecksumCalculations = Runtime.getRuntime().availableProcessors();
+
+    // Minimum time between two saves of the task log of a bag while it is being processed
+    @NotNull
+    private Duration taskLogCheckpointInterval = Duration.seconds(5);
+
+    // Cache of the Dataverse accounts of depositors and of the role assignments on root, which are looked up for every deposit
+    @Valid
+    @NotNull
+    private DataverseAccountCacheConfig accountCache = new DataverseAccountCacheConfig();
+
     private Map<String, String> metadataKeys = new HashMap<>();
 
     @Valid
@@ -23,8 +23,13 @@ public class WaitForReleasedStateConfig {
 
     private Duration timeout = Duration.minutes(30);
 
+    // The publish duration per file that is assumed until publishes of datasets of a similar size have been observed
     private Duration leadTimePerFile = Duration.seconds(5);
 
+    // The maximum time between two polls, once the predicted publish duration has passed
     private Duration pollingInterval = Duration.seconds(10);
 
+    // The minimum time between two polls, used around the predicted completion time
+    private Duration minPollingInterval = Duration.milliseconds(500);
+
 }
@@ -27,6 +27,7 @@ import nl.knaw.dans.dvingest.core.yaml.EditPermissions;
 import nl.knaw.dans.dvingest.core.yaml.EditPermissionsRoot;
 import nl.knaw.dans.dvingest.core.yaml.Init;
 import nl.knaw.dans.dvingest.core.yaml.InitRoot;
+import nl.knaw.dans.dvingest.core.yaml.StreamedStringList;
 import nl.knaw.dans.dvingest.core.yaml.UpdateAction;
 import nl.knaw.dans.dvingest.core.yaml.UpdateStateRoot;
 import nl.knaw.dans.dvingest.core.yaml.tasklog.TaskLog;
@@ -36,7 +37,12 @@ import nl.knaw.dans.lib.dataverse.model.dataset.Dataset;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 
 public class DataverseIngestBag implements Comparable<DataverseIngestBag> {
     private final YamlServiceImpl yamService;
@@ -48,10 +54,15 @@ public class DataverseIngestBag implements Comparable<DataverseIngestBag> {
     public static final String EDIT_PERMISSIONS_YML = "edit-permissions.yml";
     public static final String UPDATE_STATE_YML = "update-state.yml";
     public static final String TASK_LOG_YAML = "_tasks.yml";
+    public static final String TASK_LOG_JOURNAL = "_tasks.journal";
+
+    private static final Set<String> STREAMED_EDIT_FILES_LISTS = Set.of("addUnrestrictedFiles", "addRestrictedFiles", "addUnrestrictedFilesSeparately", "addRestrictedFilesSeparately");
 
     private final Path bagDir;
     @Getter
     private final TaskLog taskLog;
+    private final TaskLogJournal taskLogJournal;
+    private final Map<String, Optional<Object>> instructionsCache = new HashMap<>();
 
     public DataverseIngestBag(Path bagDir, YamlService yamlService) throws IOException {
         this.bagDir = bagDir;
@@ -62,12 +73,14 @@ public class DataverseIngestBag implements Comparable<DataverseIngestBag> {
         }
         if (!Files.exists(bagDir.resolve(TASK_LOG_YAML))) {
             taskLog = new TaskLog();
+            taskLogJournal = new TaskLogJournal(bagDir.resolve(TASK_LOG_JOURNAL), taskLog);
             saveTaskLog();
         }
         else {
             try {
                 var actionLogRoot = yamlService.readYaml(bagDir.resolve(TASK_LOG_YAML), TaskLogRoot.class);
-                taskLog = actionLogRoot.getTaskLog();
+                taskLog = TaskLogJournal.replay(bagDir.resolve(TASK_LOG_JOURNAL), actionLogRoot.getTaskLog());
+                taskLogJournal = new TaskLogJournal(bagDir.resolve(TASK_LOG_JOURNAL), taskLog);
             }
             catch (ConfigurationException e) {
                 throw new IllegalStateException("Error reading action log", e);
@@ -80,56 +93,105 @@ public class DataverseIngestBag implements Comparable<DataverseIngestBag> {
     }
 
     public Init getInit() throws IOException, ConfigurationException {
-        if (!Files.exists(bagDir.resolve(INIT_YML))) {
-            return null;
-        }
-        var initRoot = yamService.readYaml(bagDir.resolve(INIT_YML), InitRoot.class);
-        return initRoot.getInit();
+        var initRoot = readInstructions(INIT_YML, InitRoot.class);
+        return initRoot == null ? null : initRoot.getInit();
     }
 
     public Dataset getDatasetMetadata() throws IOException, ConfigurationException {
-        if (!Files.exists(bagDir.resolve(DATASET_YML))) {
-            return null;
+        var dataset = readInstructions(DATASET_YML, Dataset.class);
+        if (dataset != null) {
+            dataset.getDatasetVersion().setFiles(Collections.emptyList()); // files = null or a list of files is not allowed
         }
-        var dataset = yamService.readYaml(bagDir.resolve(DATASET_YML), Dataset.class);
-        dataset.getDatasetVersion().setFiles(Collections.emptyList()); // files = null or a list of files is not allowed
         return dataset;
     }
 
+    /**
+     * Returns the edit-files instructions. The lists of files to add in batches can be very long, so they are not loaded into memory, but streamed from edit-files.yml
+     * every time they are traversed.
+     *
+     * @return the edit-files instructions, or null if the bag has no edit-files.yml
+     * @throws IOException if edit-files.yml could not be read
+     */
     public EditFiles getEditFiles() throws IOException, ConfigurationException {
-        if (!Files.exists(bagDir.resolve(EDIT_FILES_YML))) {
-            return null;
+        var editFilesRoot = readInstructions(EDIT_FILES_YML, EditFilesRoot.class, this::readEditFiles);
+        return editFilesRoot == null ? null : editFilesRoot.getEditFiles();
+    }
+
+    private EditFilesRoot readEditFiles(Path file) throws IOException {
+        var editFilesRoot = yamService.readYamlSkipping(file, EditFilesRoot.class, "editFiles", STREAMED_EDIT_FILES_LISTS);
+        var editFiles = editFilesRoot.getEditFiles();
+        if (editFiles != null) {
+            editFiles.setAddUnrestrictedFiles(streamedEditFilesList(file, "addUnrestrictedFiles"));
+            editFiles.setAddRestrictedFiles(streamedEditFilesList(file, "addRestrictedFiles"));
+            editFiles.setAddUnrestrictedFilesSeparately(streamedEditFilesList(file, "addUnrestrictedFilesSeparately"));
+            editFiles.setAddRestrictedFilesSeparately(streamedEditFilesList(file, "addRestrictedFilesSeparately"));
         }
-        var editFilesRoot = yamService.readYaml(bagDir.resolve(EDIT_FILES_YML), EditFilesRoot.class);
-        return editFilesRoot.getEditFiles();
+        return editFilesRoot;
+    }
+
+    private StreamedStringList streamedEditFilesList(Path file, String listProperty) {
+        return new StreamedStringList(() -> yamService.streamStringList(file, "editFiles", listProperty));
     }
 
     public EditMetadata getEditMetadata() throws IOException, ConfigurationException {
-        if (!Files.exists(bagDir.resolve(EDIT_METADATA_YML))) {
-            return null;
-        }
-        var editMetadataRoot = yamService.readYaml(bagDir.resolve(EDIT_METADATA_YML), EditMetadataRoot.class);
-        return editMetadataRoot.getEditMetadata();
+        var editMetadataRoot = readInstructions(EDIT_METADATA_YML, EditMetadataRoot.class);
+        return editMetadataRoot == null ? null : editMetadataRoot.getEditMetadata();
     }
 
     public EditPermissions getEditPermissions() throws IOException, ConfigurationException {
-        if (!Files.exists(bagDir.resolve(EDIT_PERMISSIONS_YML))) {
-            return null;
-        }
-        var editPermissionsRoot = yamService.readYaml(bagDir.resolve(EDIT_PERMISSIONS_YML), EditPermissionsRoot.class);
-        return editPermissionsRoot.getEditPermissions();
+        var editPermissionsRoot = readInstructions(EDIT_PERMISSIONS_YML, EditPermissionsRoot.class);
+        return editPermissionsRoot == null ? null : editPermissionsRoot.getEditPermissions();
     }
 
     public UpdateAction getUpdateState() throws IOException, ConfigurationException {
-        if (!Files.exists(bagDir.resolve(UPDATE_STATE_YML))) {
-            return null;
+        var updateStateRoot = readInstructions(UPDATE_STATE_YML, UpdateStateRoot.class);
+        return updateStateRoot == null ? null : updateStateRoot.getUpdateState();
+    }
+
+    /*
+     * Each instruction file is parsed and validated at most once per DataverseIngestBag object; later calls get the same object. A missing file is remembered as well.
+     * Failures are not remembered, so that a later call reports the same error.
+     */
+    private <T> T readInstructions(String filename, Class<T> rootClass) throws IOException, ConfigurationException {
+        return readInstructions(filename, rootClass, file -> yamService.readYaml(file, rootClass));
+    }
+
+    private synchronized <T> T readInstructions(String filename, Class<T> rootClass, InstructionsReader<T> reader) throws IOException, ConfigurationException {
+        var instructions = instructionsCache.get(filename);
+        if (instructions == null) {
+            var file = bagDir.resolve(filename);
+            instructions = Files.exists(file) ? Optional.<Object> of(reader.read(file)) : Optional.empty();
+            instructionsCache.put(filename, instructions);
         }
-        var updateStateRoot = yamService.readYaml(bagDir.resolve(UPDATE_STATE_YML), UpdateStateRoot.class);
-        return updateStateRoot.getUpdateState();
+        return rootClass.cast(instructions.orElse(null));
+    }
+
+    @FunctionalInterface
+    private interface InstructionsReader<T> {
+        T read(Path file) throws IOException, ConfigurationException;
+    }
+
+    /**
+     * Saves the full task log as YAML and removes the journal of checkpoints. The task log is first written to a temporary file, which then replaces the old task log, so
+     * that a crash never leaves a partially written task log.
+     *
+     * @throws IOException if the task log could not be written
+     */
+    public synchronized void saveTaskLog() throws IOException {
+        var tempFile = bagDir.resolve(TASK_LOG_YAML + ".tmp");
+        yamService.writeYaml(new TaskLogRoot(taskLog), tempFile);
+        Files.move(tempFile, bagDir.resolve(TASK_LOG_YAML), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        taskLogJournal.reset(taskLog);
     }
 
-    public void saveTaskLog() throws IOException {
-        yamService.writeYaml(new TaskLogRoot(taskLog), bagDir.resolve(TASK_LOG_YAML));
+    /**
+     * Saves the changes to the task log since the previous checkpoint by appending them to the journal. This is much cheaper than {@link #saveTaskLog()} for large task
+     * logs. The journal is applied to the task log when the bag is read again.
+     *
+     * @throws IOException if the journal could not be written
+     */
+    public synchronized void checkpointTaskLog() throws IOException {
+        taskLogJournal.append(taskLog);
     }
 
     @Override
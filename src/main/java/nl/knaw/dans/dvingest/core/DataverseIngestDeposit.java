@@ -19,9 +19,12 @@ import lombok.Getter;
 import lombok.NonNull;
 import lombok.ToString;
 import lombok.extern.slf4j.Slf4j;
+import nl.knaw.dans.dvingest.core.dansbag.LightweightBagInfo;
 import nl.knaw.dans.dvingest.core.service.YamlService;
+import nl.knaw.dans.dvingest.core.yaml.InitRoot;
 import org.apache.commons.configuration2.PropertiesConfiguration;
 import org.apache.commons.configuration2.ex.ConfigurationException;
+import org.apache.commons.lang3.StringUtils;
 
 import javax.validation.constraints.NotNull;
 import java.io.IOException;
@@ -30,9 +33,12 @@ import java.nio.file.Path;
 import java.time.OffsetDateTime;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Stream;
 
 @Getter
 @Slf4j
@@ -71,6 +77,72 @@ public class DataverseIngestDeposit implements Comparable<DataverseIngestDeposit
         return depositProperties.getString(UPDATES_DATASET_KEY);
     }
 
+    /**
+     * Returns what is known about the dataset targeted by this deposit, without calling Dataverse. Deposits that share any of the identifiers of their target datasets must be processed one after
+     * the other, in order of their creation timestamp.
+     *
+     * @return the target dataset
+     */
+    public TargetDataset getTargetDataset() {
+        var identifiers = new LinkedHashSet<String>();
+        var updatesDataset = getUpdatesDataset();
+        var firstBag = getFirstBag();
+        var importPid = firstBag.map(this::getImportPid).orElse(null);
+        var swordToken = depositProperties.getString(SWORD_TOKEN_KEY);
+        var isVersionOf = firstBag.map(this::getIsVersionOf).orElse(null);
+        Stream.of(updatesDataset, importPid, swordToken, isVersionOf)
+            .filter(StringUtils::isNotBlank)
+            .forEach(identifiers::add);
+        var isUpdate = StringUtils.isNotBlank(updatesDataset) || StringUtils.isNotBlank(isVersionOf);
+        if (!isUpdate) {
+            // The bag ID that later versions refer to in their Is-Version-Of
+            identifiers.add("urn:uuid:" + id);
+        }
+        return new TargetDataset(new ArrayList<>(identifiers),
+            !isUpdate && StringUtils.isBlank(importPid),
+            isUpdate && StringUtils.isBlank(swordToken) && StringUtils.isBlank(isVersionOf));
+    }
+
+    private Optional<Path> getFirstBag() {
+        try (var files = Files.list(location)) {
+            return files.filter(Files::isDirectory).sorted().findFirst();
+        }
+        catch (IOException e) {
+            log.warn("[{}] Could not list bags of deposit", id, e);
+            return Optional.empty();
+        }
+    }
+
+    private String getImportPid(Path bagDir) {
+        var initYml = bagDir.resolve(DataverseIngestBag.INIT_YML);
+        if (!Files.exists(initYml)) {
+            return null;
+        }
+        try {
+            var initRoot = yamlService.readYaml(initYml, InitRoot.class);
+            var init = initRoot == null ? null : initRoot.getInit();
+            return init != null && init.getCreate() != null ? init.getCreate().getImportPid() : null;
+        }
+        catch (Exception e) {
+            log.warn("[{}] Could not read importPid from init.yml; assuming deposit does not import a dataset", id, e);
+            return null;
+        }
+    }
+
+    private String getIsVersionOf(Path bagDir) {
+        var bagInfo = bagDir.resolve("bag-info.txt");
+        if (!Files.exists(bagInfo)) {
+            return null;
+        }
+        try {
+            return new LightweightBagInfo(bagInfo).get("Is-Version-Of");
+        }
+        catch (Exception e) {
+            log.warn("[{}] Could not read Is-Version-Of from bag-info.txt; assuming deposit targets a new dataset", id, e);
+            return null;
+        }
+    }
+
     @Override
     public boolean convertDansDepositIfNeeded() {
         return false;
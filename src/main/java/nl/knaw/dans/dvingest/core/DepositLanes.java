@@ -0,0 +1,147 @@
+/*
+ * Copyright (C) 2024 DANS - Data Archiving and Networked Services (info@dans.knaw.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.knaw.dans.dvingest.core;
+
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Runs deposit tasks in serial lanes on a shared executor. Tasks that are submitted with the same lane key are run one after the other, in the order in which they were submitted. Tasks in different
+ * lanes may run concurrently, up to the number of threads of the executor.
+ * <p>
+ * Deposit tasks are submitted with their {@link TargetDataset}. A task is put in the lane of every earlier task that shares any identifier of its target dataset with it; if those are different lanes,
+ * they are merged, and the task waits for all of them. A deposit that refers to its dataset only by PID cannot be linked to a deposit that creates a dataset with a PID minted by Dataverse, so it also
+ * waits for all lanes with such a deposit. Lanes that have become idle are forgotten, together with their identifiers.
+ */
+@Slf4j
+public class DepositLanes {
+    private final ExecutorService executorService;
+
+    /*
+     * Key: lane key / Value: the future of the last task submitted to that lane
+     */
+    private final Map<String, CompletableFuture<Void>> laneTails = new HashMap<>();
+
+    /*
+     * Key: identifier of a target dataset / Value: the key of the lane that has a task for that dataset
+     */
+    private final Map<String, String> laneOfIdentifier = new HashMap<>();
+
+    /*
+     * Key: lane key / Value: the identifiers of the target datasets of the tasks in that lane
+     */
+    private final Map<String, Set<String>> identifiersOfLane = new HashMap<>();
+
+    /*
+     * Keys of the lanes that have a task for a deposit that creates a dataset with a PID minted by Dataverse
+     */
+    private final Set<String> lanesMintingPid = new HashSet<>();
+
+    public DepositLanes(@NonNull ExecutorService executorService) {
+        this.executorService = executorService;
+    }
+
+    /**
+     * Submits a task to the lane with the given key. The task is started after all tasks that were previously submitted to the same lane have finished, whether successfully or not.
+     *
+     * @param laneKey the key of the lane
+     * @param task    the task to run
+     * @return a future that completes when the task has finished
+     */
+    public CompletableFuture<Void> submit(@NonNull String laneKey, @NonNull Runnable task) {
+        return submit(new TargetDataset(List.of(laneKey), false, false), task);
+    }
+
+    /**
+     * Submits a deposit task to the lane of its target dataset. The task is started after all tasks that were previously submitted for the same dataset have finished, whether successfully or not.
+     *
+     * @param targetDataset the target dataset of the deposit
+     * @param task          the task to run
+     * @return a future that completes when the task has finished
+     */
+    public synchronized CompletableFuture<Void> submit(@NonNull TargetDataset targetDataset, @NonNull Runnable task) {
+        var lanes = new LinkedHashSet<String>();
+        for (var identifier : targetDataset.getIdentifiers()) {
+            var lane = laneOfIdentifier.get(identifier);
+            if (lane != null) {
+                lanes.add(lane);
+            }
+        }
+        if (targetDataset.isReferencedByPidOnly() && lanes.isEmpty()) {
+            // The PID may have been minted by a deposit that is still running
+            lanes.addAll(lanesMintingPid);
+        }
+        var laneKey = lanes.isEmpty() ? targetDataset.getIdentifiers().get(0) : lanes.iterator().next();
+        var predecessors = lanes.stream().map(laneTails::get).toArray(CompletableFuture[]::new);
+        for (var lane : lanes) {
+            if (!lane.equals(laneKey)) {
+                mergeLane(lane, laneKey);
+            }
+        }
+        for (var identifier : targetDataset.getIdentifiers()) {
+            laneOfIdentifier.put(identifier, laneKey);
+            identifiersOfLane.computeIfAbsent(laneKey, k -> new HashSet<>()).add(identifier);
+        }
+        if (targetDataset.isPidMinted()) {
+            lanesMintingPid.add(laneKey);
+        }
+        // A failing task must not block the rest of its lane, so the outcome of the preceding tasks is ignored
+        var next = CompletableFuture.allOf(predecessors).handle((result, e) -> null).thenRunAsync(task, executorService);
+        laneTails.put(laneKey, next);
+        log.debug("Submitted task to lane {}; number of active lanes: {}", laneKey, laneTails.size());
+        next.whenComplete((result, e) -> removeLaneIfIdle(laneKey, next));
+        return next;
+    }
+
+    /**
+     * Returns the number of lanes that have tasks that are waiting or running.
+     *
+     * @return the number of active lanes
+     */
+    public synchronized int getNumberOfActiveLanes() {
+        return laneTails.size();
+    }
+
+    private void mergeLane(String lane, String intoLane) {
+        log.debug("Merging lane {} into lane {}", lane, intoLane);
+        laneTails.remove(lane);
+        for (var identifier : identifiersOfLane.remove(lane)) {
+            laneOfIdentifier.put(identifier, intoLane);
+            identifiersOfLane.computeIfAbsent(intoLane, k -> new HashSet<>()).add(identifier);
+        }
+        if (lanesMintingPid.remove(lane)) {
+            lanesMintingPid.add(intoLane);
+        }
+    }
+
+    private synchronized void removeLaneIfIdle(String laneKey, CompletableFuture<Void> future) {
+        if (laneTails.remove(laneKey, future)) {
+            for (var identifier : identifiersOfLane.remove(laneKey)) {
+                laneOfIdentifier.remove(identifier);
+            }
+            lanesMintingPid.remove(laneKey);
+        }
+    }
+}
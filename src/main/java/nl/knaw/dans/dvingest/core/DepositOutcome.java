@@ -0,0 +1,38 @@
+/*
+ * Copyright (C) 2024 DANS - Data Archiving and Networked Services (info@dans.knaw.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.knaw.dans.dvingest.core;
+
+import lombok.Value;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+
+@Value
+public class DepositOutcome {
+    String jobPath;
+    String depositId;
+    DepositTask.Status status;
+    Instant started;
+    Instant finished;
+    long bytesUploaded;
+    // Milliseconds spent in each phase, in the order in which the phases were run
+    Map<String, Long> phaseDurations;
+
+    public Duration getDuration() {
+        return Duration.between(started, finished);
+    }
+}
@@ -24,6 +24,9 @@ import nl.knaw.dans.dvingest.core.dansbag.exception.RejectedDepositException;
 
 import java.io.IOException;
 import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 @Slf4j
 public class DepositTask implements Runnable {
@@ -43,6 +46,11 @@ public class DepositTask implements Runnable {
 
     @Getter
     private Status status = Status.TODO;
+    // Milliseconds spent in each phase; the phases of the bag processors are summed over the bags of the deposit
+    @Getter
+    private final Map<String, Long> phaseDurations = new LinkedHashMap<>();
+    @Getter
+    private long bytesUploaded;
 
     public DepositTask(DataverseIngestDeposit dataverseIngestDeposit, Path outputDir, boolean onlyConvertDansDeposit, BagProcessorFactory bagProcessorFactory,
         DansDepositSupportFactory dansDepositSupportFactory, DependenciesReadyCheck dependenciesReadyCheck, long delayBetweenDeposits) {
@@ -59,20 +67,34 @@ public class DepositTask implements Runnable {
         String pid = null;
         try {
             dependenciesReadyCheck.waitUntilReady();
+            var start = System.nanoTime();
             deposit.validate();
-            if (deposit.convertDansDepositIfNeeded() && onlyConvertDansDeposit) {
+            recordPhase("validation", start);
+            start = System.nanoTime();
+            var converted = deposit.convertDansDepositIfNeeded();
+            recordPhase("conversion", start);
+            if (converted && onlyConvertDansDeposit) {
                 log.info("[{}] Only converting DANS deposit, LEAVING CONVERTED DEPOSIT IN PLACE", deposit.getId());
+                status = Status.SUCCESS;
                 return;
             }
             pid = deposit.getUpdatesDataset();
 
             for (DataverseIngestBag bag : deposit.getBags()) {
                 log.info("[{}] START processing bag: {}", deposit.getId(), bag);
-                pid = bagProcessorFactory.createBagProcessor(deposit.getId(), bag).run(pid);
+                var bagProcessor = bagProcessorFactory.createBagProcessor(deposit.getId(), bag);
+                try {
+                    pid = bagProcessor.run(pid);
+                }
+                finally {
+                    bagProcessor.getPhaseDurations().forEach((phase, millis) -> phaseDurations.merge(phase, millis, Long::sum));
+                    bytesUploaded += bagProcessor.getBytesUploaded();
+                }
                 log.info("[{}] END processing bag: {}", deposit.getId(), bag);
             }
             deposit.onSuccess(pid, "Deposit processed successfully");
             deposit.moveTo(outputDir.resolve("processed"));
+            status = Status.SUCCESS;
         }
         catch (RejectedDepositException e) {
             try {
@@ -105,4 +127,8 @@ public class DepositTask implements Runnable {
             log.warn("[{}] Interrupted while waiting after deposit finish", deposit.getId());
         }
     }
-}
\ No newline at end of file
+
+    private void recordPhase(String phase, long startNanos) {
+        phaseDurations.merge(phase, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos), Long::sum);
+    }
+}
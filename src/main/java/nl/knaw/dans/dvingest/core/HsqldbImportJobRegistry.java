@@ -0,0 +1,379 @@
+/*
+ * Copyright (C) 2024 DANS - Data Archiving and Networked Services (info@dans.knaw.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.knaw.dans.dvingest.core;
+
+import io.dropwizard.lifecycle.Managed;
+import lombok.extern.slf4j.Slf4j;
+import nl.knaw.dans.dvingest.api.ImportCommandDto;
+import nl.knaw.dans.dvingest.api.ImportJobStatusDto;
+import nl.knaw.dans.dvingest.api.ImportJobStatusDto.StatusEnum;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * {@link ImportJobRegistry} backed by an embedded HSQLDB database. Jobs are looked up by their path and deposit outcomes by the path of their job, both through the
+ * primary key, so that the status of a job can be reported without scanning the outbox.
+ */
+@Slf4j
+public class HsqldbImportJobRegistry implements ImportJobRegistry, Managed {
+    private static final List<String> SCHEMA = List.of(
+        "CREATE CACHED TABLE IF NOT EXISTS import_job ("
+            + "path VARCHAR(1024) PRIMARY KEY, "
+            + "single_object BOOLEAN NOT NULL, "
+            + "status VARCHAR(32) NOT NULL, "
+            + "message LONGVARCHAR, "
+            + "submitted BIGINT NOT NULL, "
+            + "updated BIGINT NOT NULL)",
+        "CREATE INDEX IF NOT EXISTS import_job_status ON import_job (status)",
+        "CREATE CACHED TABLE IF NOT EXISTS deposit_outcome ("
+            + "job_path VARCHAR(1024) NOT NULL, "
+            + "deposit_id VARCHAR(64) NOT NULL, "
+            + "status VARCHAR(32) NOT NULL, "
+            + "started BIGINT NOT NULL, "
+            + "finished BIGINT NOT NULL, "
+            + "bytes_uploaded BIGINT DEFAULT 0 NOT NULL, "
+            + "PRIMARY KEY (job_path, deposit_id))",
+        "CREATE CACHED TABLE IF NOT EXISTS deposit_phase ("
+            + "job_path VARCHAR(1024) NOT NULL, "
+            + "deposit_id VARCHAR(64) NOT NULL, "
+            + "seq INTEGER NOT NULL, "
+            + "phase VARCHAR(64) NOT NULL, "
+            + "millis BIGINT NOT NULL, "
+            + "PRIMARY KEY (job_path, deposit_id, seq))",
+        "CREATE CACHED TABLE IF NOT EXISTS import_job_command ("
+            + "job_path VARCHAR(1024) PRIMARY KEY, "
+            + "path VARCHAR(4096) NOT NULL, "
+            + "single_object BOOLEAN NOT NULL, "
+            + "continue_batch BOOLEAN NOT NULL, "
+            + "only_convert_dans_bag BOOLEAN NOT NULL)",
+        "CREATE CACHED TABLE IF NOT EXISTS import_job_queue ("
+            + "job_path VARCHAR(1024) NOT NULL, "
+            + "seq INTEGER NOT NULL, "
+            + "deposit_id VARCHAR(64) NOT NULL, "
+            + "location VARCHAR(4096) NOT NULL, "
+            + "PRIMARY KEY (job_path, seq))");
+
+    private final String jdbcUrl;
+    private Connection connection;
+
+    public HsqldbImportJobRegistry(String jdbcUrl) {
+        this.jdbcUrl = jdbcUrl;
+    }
+
+    /**
+     * Creates a registry that stores its data in a file database in the given directory. The directory is created if it does not exist.
+     *
+     * @param databaseDir the directory of the database files
+     * @return the registry
+     */
+    public static HsqldbImportJobRegistry inDirectory(Path databaseDir) {
+        return new HsqldbImportJobRegistry("jdbc:hsqldb:file:" + databaseDir.toAbsolutePath().resolve("import-jobs") + ";hsqldb.write_delay=false");
+    }
+
+    @Override
+    public synchronized void start() throws SQLException {
+        log.info("Opening import job registry at {}", jdbcUrl);
+        connection = DriverManager.getConnection(jdbcUrl, "SA", "");
+        try (var statement = connection.createStatement()) {
+            for (var ddl : SCHEMA) {
+                statement.execute(ddl);
+            }
+        }
+    }
+
+    @Override
+    public synchronized void stop() throws SQLException {
+        if (connection != null) {
+            try (var statement = connection.createStatement()) {
+                statement.execute("SHUTDOWN");
+            }
+            finally {
+                connection.close();
+                connection = null;
+            }
+        }
+    }
+
+    @Override
+    public synchronized void saveJob(ImportJobStatusDto status) {
+        var now = Instant.now().toEpochMilli();
+        try (var update = connection.prepareStatement("UPDATE import_job SET single_object = ?, status = ?, message = ?, updated = ? WHERE path = ?")) {
+            update.setBoolean(1, Boolean.TRUE.equals(status.getSingleObject()));
+            update.setString(2, status.getStatus().name());
+            update.setString(3, status.getMessage());
+            update.setLong(4, now);
+            update.setString(5, status.getPath());
+            if (update.executeUpdate() == 0) {
+                try (var insert = connection.prepareStatement("INSERT INTO import_job (path, single_object, status, message, submitted, updated) VALUES (?, ?, ?, ?, ?, ?)")) {
+                    insert.setString(1, status.getPath());
+                    insert.setBoolean(2, Boolean.TRUE.equals(status.getSingleObject()));
+                    insert.setString(3, status.getStatus().name());
+                    insert.setString(4, status.getMessage());
+                    insert.setLong(5, now);
+                    insert.setLong(6, now);
+                    insert.executeUpdate();
+                }
+            }
+        }
+        catch (SQLException e) {
+            throw new IllegalStateException("Failed to save status of import job " + status.getPath(), e);
+        }
+    }
+
+    @Override
+    public synchronized void saveCommand(String jobPath, ImportCommandDto importCommand) {
+        try (var delete = connection.prepareStatement("DELETE FROM import_job_command WHERE job_path = ?");
+            var insert = connection.prepareStatement("INSERT INTO import_job_command (job_path, path, single_object, continue_batch, only_convert_dans_bag) VALUES (?, ?, ?, ?, ?)")) {
+            delete.setString(1, jobPath);
+            delete.executeUpdate();
+            insert.setString(1, jobPath);
+            insert.setString(2, importCommand.getPath());
+            insert.setBoolean(3, Boolean.TRUE.equals(importCommand.getSingleObject()));
+            insert.setBoolean(4, Boolean.TRUE.equals(importCommand.getContinueBatch()));
+            insert.setBoolean(5, Boolean.TRUE.equals(importCommand.getOnlyConvertDansBag()));
+            insert.executeUpdate();
+        }
+        catch (SQLException e) {
+            throw new IllegalStateException("Failed to save command of import job " + jobPath, e);
+        }
+    }
+
+    @Override
+    public synchronized Optional<ImportCommandDto> findCommand(String jobPath) {
+        try (var query = connection.prepareStatement("SELECT path, single_object, continue_batch, only_convert_dans_bag FROM import_job_command WHERE job_path = ?")) {
+            query.setString(1, jobPath);
+            try (var resultSet = query.executeQuery()) {
+                if (!resultSet.next()) {
+                    return Optional.empty();
+                }
+                return Optional.of(new ImportCommandDto()
+                    .path(resultSet.getString("path"))
+                    .singleObject(resultSet.getBoolean("single_object"))
+                    .continueBatch(resultSet.getBoolean("continue_batch"))
+                    .onlyConvertDansBag(resultSet.getBoolean("only_convert_dans_bag")));
+            }
+        }
+        catch (SQLException e) {
+            throw new IllegalStateException("Failed to read command of import job " + jobPath, e);
+        }
+    }
+
+    @Override
+    public synchronized void saveQueue(String jobPath, List<DataverseIngestDeposit> deposits) {
+        try {
+            connection.setAutoCommit(false);
+            try (var deleteQueue = connection.prepareStatement("DELETE FROM import_job_queue WHERE job_path = ?");
+                var deleteOutcome = connection.prepareStatement("DELETE FROM deposit_outcome WHERE job_path = ? AND deposit_id = ?");
+                var deletePhases = connection.prepareStatement("DELETE FROM deposit_phase WHERE job_path = ? AND deposit_id = ?");
+                var insert = connection.prepareStatement("INSERT INTO import_job_queue (job_path, seq, deposit_id, location) VALUES (?, ?, ?, ?)")) {
+                deleteQueue.setString(1, jobPath);
+                deleteQueue.executeUpdate();
+                int seq = 0;
+                for (var deposit : deposits) {
+                    // Only the outcome of a deposit that is queued again is replaced; the history of the other deposits of the job is kept
+                    for (var delete : List.of(deleteOutcome, deletePhases)) {
+                        delete.setString(1, jobPath);
+                        delete.setString(2, deposit.getId().toString());
+                        delete.addBatch();
+                    }
+                    insert.setString(1, jobPath);
+                    insert.setInt(2, seq++);
+                    insert.setString(3, deposit.getId().toString());
+                    insert.setString(4, deposit.getLocation().toString());
+                    insert.addBatch();
+                }
+                deleteOutcome.executeBatch();
+                deletePhases.executeBatch();
+                insert.executeBatch();
+                connection.commit();
+            }
+            catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            }
+            finally {
+                connection.setAutoCommit(true);
+            }
+        }
+        catch (SQLException e) {
+            throw new IllegalStateException("Failed to save queue of import job " + jobPath, e);
+        }
+    }
+
+    @Override
+    public synchronized Optional<List<Path>> findUnfinishedDeposits(String jobPath) {
+        try (var count = connection.prepareStatement("SELECT COUNT(*) FROM import_job_queue WHERE job_path = ?");
+            var query = connection.prepareStatement("SELECT q.location FROM import_job_queue q WHERE q.job_path = ? "
+                + "AND NOT EXISTS (SELECT 1 FROM deposit_outcome o WHERE o.job_path = q.job_path AND o.deposit_id = q.deposit_id) ORDER BY q.seq")) {
+            count.setString(1, jobPath);
+            try (var resultSet = count.executeQuery()) {
+                resultSet.next();
+                if (resultSet.getLong(1) == 0) {
+                    return Optional.empty();
+                }
+            }
+            query.setString(1, jobPath);
+            var locations = new ArrayList<Path>();
+            try (var resultSet = query.executeQuery()) {
+                while (resultSet.next()) {
+                    locations.add(Path.of(resultSet.getString("location")));
+                }
+            }
+            return Optional.of(locations);
+        }
+        catch (SQLException e) {
+            throw new IllegalStateException("Failed to read unfinished deposits of import job " + jobPath, e);
+        }
+    }
+
+    @Override
+    public synchronized void saveDepositOutcome(DepositOutcome outcome) {
+        try {
+            connection.setAutoCommit(false);
+            try (var deleteOutcome = connection.prepareStatement("DELETE FROM deposit_outcome WHERE job_path = ? AND deposit_id = ?");
+                var deletePhases = connection.prepareStatement("DELETE FROM deposit_phase WHERE job_path = ? AND deposit_id = ?");
+                var insertOutcome = connection.prepareStatement(
+                    "INSERT INTO deposit_outcome (job_path, deposit_id, status, started, finished, bytes_uploaded) VALUES (?, ?, ?, ?, ?, ?)");
+                var insertPhase = connection.prepareStatement("INSERT INTO deposit_phase (job_path, deposit_id, seq, phase, millis) VALUES (?, ?, ?, ?, ?)")) {
+                for (var delete : List.of(deleteOutcome, deletePhases)) {
+                    delete.setString(1, outcome.getJobPath());
+                    delete.setString(2, outcome.getDepositId());
+                    delete.executeUpdate();
+                }
+                insertOutcome.setString(1, outcome.getJobPath());
+                insertOutcome.setString(2, outcome.getDepositId());
+                insertOutcome.setString(3, outcome.getStatus().name());
+                insertOutcome.setLong(4, outcome.getStarted().toEpochMilli());
+                insertOutcome.setLong(5, outcome.getFinished().toEpochMilli());
+                insertOutcome.setLong(6, outcome.getBytesUploaded());
+                insertOutcome.executeUpdate();
+                int seq = 0;
+                for (var phase : outcome.getPhaseDurations().entrySet()) {
+                    insertPhase.setString(1, outcome.getJobPath());
+                    insertPhase.setString(2, outcome.getDepositId());
+                    insertPhase.setInt(3, seq++);
+                    insertPhase.setString(4, phase.getKey());
+                    insertPhase.setLong(5, phase.getValue());
+                    insertPhase.addBatch();
+                }
+                insertPhase.executeBatch();
+                connection.commit();
+            }
+            catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            }
+            finally {
+                connection.setAutoCommit(true);
+            }
+        }
+        catch (SQLException e) {
+            throw new IllegalStateException("Failed to save outcome of deposit " + outcome.getDepositId() + " in import job " + outcome.getJobPath(), e);
+        }
+    }
+
+    @Override
+    public synchronized Optional<ImportJobStatusDto> findJob(String path) {
+        try (var query = connection.prepareStatement("SELECT path, single_object, status, message FROM import_job WHERE path = ?")) {
+            query.setString(1, path);
+            return readJobs(query).stream().findFirst();
+        }
+        catch (SQLException e) {
+            throw new IllegalStateException("Failed to read status of import job " + path, e);
+        }
+    }
+
+    @Override
+    public synchronized List<ImportJobStatusDto> findJobs() {
+        try (var query = connection.prepareStatement("SELECT path, single_object, status, message FROM import_job ORDER BY submitted")) {
+            return readJobs(query);
+        }
+        catch (SQLException e) {
+            throw new IllegalStateException("Failed to read import jobs", e);
+        }
+    }
+
+    @Override
+    public synchronized List<ImportJobStatusDto> findJobsWithStatus(StatusEnum status) {
+        try (var query = connection.prepareStatement("SELECT path, single_object, status, message FROM import_job WHERE status = ? ORDER BY submitted")) {
+            query.setString(1, status.name());
+            return readJobs(query);
+        }
+        catch (SQLException e) {
+            throw new IllegalStateException("Failed to read import jobs with status " + status, e);
+        }
+    }
+
+    @Override
+    public synchronized List<DepositOutcome> findDepositOutcomes(String jobPath) {
+        try (var query = connection.prepareStatement("SELECT deposit_id, status, started, finished, bytes_uploaded FROM deposit_outcome WHERE job_path = ? ORDER BY started");
+            var phaseQuery = connection.prepareStatement("SELECT deposit_id, phase, millis FROM deposit_phase WHERE job_path = ? ORDER BY deposit_id, seq")) {
+            phaseQuery.setString(1, jobPath);
+            var phaseDurations = new HashMap<String, Map<String, Long>>();
+            try (var resultSet = phaseQuery.executeQuery()) {
+                while (resultSet.next()) {
+                    phaseDurations.computeIfAbsent(resultSet.getString("deposit_id"), id -> new LinkedHashMap<>())
+                        .put(resultSet.getString("phase"), resultSet.getLong("millis"));
+                }
+            }
+            query.setString(1, jobPath);
+            var outcomes = new ArrayList<DepositOutcome>();
+            try (var resultSet = query.executeQuery()) {
+                while (resultSet.next()) {
+                    var depositId = resultSet.getString("deposit_id");
+                    outcomes.add(new DepositOutcome(
+                        jobPath,
+                        depositId,
+                        DepositTask.Status.valueOf(resultSet.getString("status")),
+                        Instant.ofEpochMilli(resultSet.getLong("started")),
+                        Instant.ofEpochMilli(resultSet.getLong("finished")),
+                        resultSet.getLong("bytes_uploaded"),
+                        phaseDurations.getOrDefault(depositId, Map.of())));
+                }
+            }
+            return outcomes;
+        }
+        catch (SQLException e) {
+            throw new IllegalStateException("Failed to read deposit outcomes of import job " + jobPath, e);
+        }
+    }
+
+    private List<ImportJobStatusDto> readJobs(PreparedStatement query) throws SQLException {
+        var jobs = new ArrayList<ImportJobStatusDto>();
+        try (ResultSet resultSet = query.executeQuery()) {
+            while (resultSet.next()) {
+                jobs.add(new ImportJobStatusDto()
+                    .path(resultSet.getString("path"))
+                    .singleObject(resultSet.getBoolean("single_object"))
+                    .status(StatusEnum.valueOf(resultSet.getString("status")))
+                    .message(resultSet.getString("message")));
+            }
+        }
+        return jobs;
+    }
+}
@@ -25,7 +25,13 @@ import nl.knaw.dans.dvingest.api.ImportJobStatusDto.StatusEnum;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
 
 @Slf4j
 public class ImportJob implements Runnable {
@@ -37,19 +43,52 @@ public class ImportJob implements Runnable {
     private final boolean onlyConvertDansDeposit;
     private final DataverseIngestDepositFactory depositFactory;
     private final DepositTaskFactory depositTaskFactory;
+    // If null, deposits are processed sequentially
+    private final DepositLanes depositLanes;
+    // If null, the status of the job is only kept in memory
+    private final ImportJobRegistry importJobRegistry;
+    // If null, the deposits are listed from the inbox; otherwise these deposits are processed in this order
+    private final List<Path> queuedDeposits;
 
     @Getter
     private final ImportJobStatusDto status;
+    // Includes the outcomes of an earlier run if the job was resumed
+    private final List<DepositOutcome> depositOutcomes = Collections.synchronizedList(new ArrayList<>());
+    // Kept up to date with depositOutcomes, for the message in the status while the job is running
+    private final ImportJobReport.Totals totals = new ImportJobReport.Totals();
 
-    private boolean cancelled = false;
+    private volatile boolean cancelled = false;
 
-    public ImportJob(ImportCommandDto importCommand, String path, Path outputDir, boolean onlyConvertDansDeposit, DataverseIngestDepositFactory depositFactory, DepositTaskFactory depositTaskFactory) {
+    public ImportJob(ImportCommandDto importCommand, String path, Path outputDir, boolean onlyConvertDansDeposit, DataverseIngestDepositFactory depositFactory, DepositTaskFactory depositTaskFactory,
+        DepositLanes depositLanes, ImportJobRegistry importJobRegistry, List<Path> queuedDeposits) {
         this.importCommand = importCommand;
         this.outputDir = outputDir;
         this.onlyConvertDansDeposit = onlyConvertDansDeposit;
         this.depositFactory = depositFactory;
         this.depositTaskFactory = depositTaskFactory;
+        this.depositLanes = depositLanes;
+        this.importJobRegistry = importJobRegistry;
+        this.queuedDeposits = queuedDeposits;
         this.status = new ImportJobStatusDto().status(StatusEnum.PENDING).path(path).singleObject(importCommand.getSingleObject()).message("Import job pending");
+        saveStatus();
+        if (importJobRegistry != null && queuedDeposits == null) {
+            try {
+                importJobRegistry.saveCommand(path, importCommand);
+            }
+            catch (Exception e) {
+                log.error("Failed to record command of import job {} in import job registry; job cannot be resumed after a restart", path, e);
+            }
+        }
+        if (importJobRegistry != null && queuedDeposits != null) {
+            try {
+                var earlierOutcomes = importJobRegistry.findDepositOutcomes(path);
+                depositOutcomes.addAll(earlierOutcomes);
+                earlierOutcomes.forEach(totals::add);
+            }
+            catch (Exception e) {
+                log.error("Failed to read deposit outcomes of import job {} from import job registry", path, e);
+            }
+        }
     }
 
     public void cancel() {
@@ -60,20 +99,35 @@ public class ImportJob implements Runnable {
     public void run() {
         try {
             log.debug("Starting import job: {}", importCommand);
-            status.setStatus(StatusEnum.RUNNING);
-            status.setMessage("Import job running");
-            var deposits = createDataverseIngestDeposits();
+            updateStatus(StatusEnum.RUNNING, "Import job running");
+            var deposits = queuedDeposits == null ? createDataverseIngestDeposits() : createQueuedDataverseIngestDeposits();
             initOutputDir();
+            if (queuedDeposits == null) {
+                saveQueue(deposits);
+            }
             processDeposits(deposits);
         }
         catch (Exception e) {
             log.error("Failed to process import job", e);
-            status.setStatus(StatusEnum.FAILED);
-            status.setMessage(e.getMessage());
+            updateStatus(StatusEnum.FAILED, e.getMessage());
+        }
+    }
+
+    private List<DataverseIngestDeposit> createQueuedDataverseIngestDeposits() {
+        log.debug("Resuming import job from queue with {} unfinished deposits", queuedDeposits.size());
+        var deposits = new ArrayList<DataverseIngestDeposit>(queuedDeposits.size());
+        for (var depositPath : queuedDeposits) {
+            if (Files.isDirectory(depositPath)) {
+                deposits.add(depositFactory.createDataverseIngestDeposit(depositPath));
+            }
+            else {
+                log.warn("[{}] Deposit is no longer in the inbox; SKIPPING", depositPath.getFileName());
+            }
         }
+        return deposits;
     }
 
-    private TreeSet<DataverseIngestDeposit> createDataverseIngestDeposits() throws IOException {
+    private List<DataverseIngestDeposit> createDataverseIngestDeposits() throws IOException {
         var deposits = new TreeSet<DataverseIngestDeposit>();
 
         if (importCommand.getSingleObject()) {
@@ -92,7 +146,7 @@ public class ImportJob implements Runnable {
                 log.debug("Deposits will be processed in this order: {}", deposits.stream().map(DataverseIngestDeposit::getId).toList());
             }
         }
-        return deposits;
+        return new ArrayList<>(deposits);
     }
 
     private void initOutputDir() {
@@ -127,23 +181,114 @@ public class ImportJob implements Runnable {
         }
     }
 
-    private void processDeposits(TreeSet<DataverseIngestDeposit> deposits) {
+    private void processDeposits(List<DataverseIngestDeposit> deposits) {
+        if (depositLanes == null) {
+            processDepositsSequentially(deposits);
+        }
+        else {
+            processDepositsInLanes(deposits);
+        }
+    }
+
+    private void processDepositsSequentially(List<DataverseIngestDeposit> deposits) {
         for (DataverseIngestDeposit dataverseIngestDeposit : deposits) {
             if (cancelled) {
                 log.info("Import job cancelled");
-                status.setMessage("Import job cancelled");
-                status.setStatus(StatusEnum.DONE);
+                updateStatus(StatusEnum.DONE, "Import job cancelled; " + ImportJobReport.summarize(getDepositOutcomes()));
                 return;
             }
             else {
-                log.info("[{}] START Processing deposit.", dataverseIngestDeposit.getId());
-                var task = depositTaskFactory.createDepositTask(dataverseIngestDeposit, outputDir, onlyConvertDansDeposit);
-                task.run();
-                log.info("[{}] END Processing deposit.", dataverseIngestDeposit.getId());
-                // TODO: record number of processed/rejected/failed deposits in ImportJob status
+                processDeposit(dataverseIngestDeposit);
+            }
+        }
+        updateStatus(StatusEnum.DONE, "Import job completed; " + ImportJobReport.summarize(getDepositOutcomes()));
+    }
+
+    /*
+     * Deposits that target the same dataset are put in the same lane, in order of creation timestamp. Lanes are processed concurrently. Deposits that cannot be linked to their dataset
+     * beforehand are put in the lanes of all deposits they might depend on (see DepositLanes).
+     */
+    private void processDepositsInLanes(List<DataverseIngestDeposit> deposits) {
+        var futures = new ArrayList<CompletableFuture<Void>>();
+        for (DataverseIngestDeposit dataverseIngestDeposit : deposits) {
+            var targetDataset = dataverseIngestDeposit.getTargetDataset();
+            log.debug("[{}] Deposit targets dataset {}", dataverseIngestDeposit.getId(), targetDataset);
+            futures.add(depositLanes.submit(targetDataset, () -> {
+                if (cancelled) {
+                    log.info("[{}] Import job cancelled; SKIPPING deposit.", dataverseIngestDeposit.getId());
+                }
+                else {
+                    processDeposit(dataverseIngestDeposit);
+                }
+            }));
+        }
+        CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).handle((result, e) -> null).join();
+        if (cancelled) {
+            log.info("Import job cancelled");
+            updateStatus(StatusEnum.DONE, "Import job cancelled; " + ImportJobReport.summarize(getDepositOutcomes()));
+        }
+        else {
+            updateStatus(StatusEnum.DONE, "Import job completed; " + ImportJobReport.summarize(getDepositOutcomes()));
+        }
+    }
+
+    private void processDeposit(DataverseIngestDeposit dataverseIngestDeposit) {
+        log.info("[{}] START Processing deposit.", dataverseIngestDeposit.getId());
+        var started = Instant.now();
+        var task = depositTaskFactory.createDepositTask(dataverseIngestDeposit, outputDir, onlyConvertDansDeposit);
+        task.run();
+        log.info("[{}] END Processing deposit.", dataverseIngestDeposit.getId());
+        var outcome = new DepositOutcome(status.getPath(), dataverseIngestDeposit.getId().toString(), task.getStatus(), started, Instant.now(), task.getBytesUploaded(),
+            Collections.unmodifiableMap(new LinkedHashMap<>(task.getPhaseDurations())));
+        depositOutcomes.add(outcome);
+        totals.add(outcome);
+        if (importJobRegistry != null) {
+            try {
+                importJobRegistry.saveDepositOutcome(outcome);
+            }
+            catch (Exception e) {
+                log.error("[{}] Failed to record deposit outcome in import job registry", dataverseIngestDeposit.getId(), e);
+            }
+        }
+        updateStatus(StatusEnum.RUNNING, "Import job running; " + totals.summarize());
+    }
+
+    /**
+     * Returns a snapshot of the outcomes of the deposits processed so far, so that readers do not hold the lock while iterating.
+     *
+     * @return the deposit outcomes in the order in which the deposits were finished
+     */
+    public List<DepositOutcome> getDepositOutcomes() {
+        synchronized (depositOutcomes) {
+            return List.copyOf(depositOutcomes);
+        }
+    }
+
+    private synchronized void updateStatus(StatusEnum newStatus, String message) {
+        status.setStatus(newStatus);
+        status.setMessage(message);
+        saveStatus();
+    }
+
+    private void saveQueue(List<DataverseIngestDeposit> deposits) {
+        if (importJobRegistry != null) {
+            try {
+                importJobRegistry.saveQueue(status.getPath(), deposits);
+            }
+            catch (Exception e) {
+                log.error("Failed to record queue of import job {} in import job registry; job cannot be resumed after a restart", status.getPath(), e);
+            }
+        }
+    }
+
+    private void saveStatus() {
+        if (importJobRegistry != null) {
+            try {
+                importJobRegistry.saveJob(status);
+            }
+            catch (Exception e) {
+                log.error("Failed to record status of import job {} in import job registry", status.getPath(), e);
             }
         }
-        status.setMessage("Import job completed");
-        status.setStatus(StatusEnum.DONE);
     }
 }
@@ -18,8 +18,21 @@ package nl.knaw.dans.dvingest.core;
 import nl.knaw.dans.dvingest.api.ImportCommandDto;
 
 import java.nio.file.Path;
+import java.util.List;
 
 public interface ImportJobFactory {
 
     ImportJob createImportJob(ImportCommandDto importCommand, String path, Path outputDir, boolean onlyConvertDansDeposit);
+
+    /**
+     * Creates a job that continues an interrupted job. Only the given deposits are processed, in the given order.
+     *
+     * @param importCommand          the command of the interrupted job
+     * @param path                   the path of the job, relative to the inbox
+     * @param outputDir              the outbox of the job
+     * @param onlyConvertDansDeposit whether to only convert DANS deposits
+     * @param queuedDeposits         the deposits that were not finished
+     * @return the job
+     */
+    ImportJob resumeImportJob(ImportCommandDto importCommand, String path, Path outputDir, boolean onlyConvertDansDeposit, List<Path> queuedDeposits);
 }
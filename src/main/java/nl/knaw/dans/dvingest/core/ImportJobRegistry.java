@@ -0,0 +1,80 @@
+/*
+ * Copyright (C) 2024 DANS - Data Archiving and Networked Services (info@dans.knaw.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.knaw.dans.dvingest.core;
+
+import nl.knaw.dans.dvingest.api.ImportCommandDto;
+import nl.knaw.dans.dvingest.api.ImportJobStatusDto;
+import nl.knaw.dans.dvingest.api.ImportJobStatusDto.StatusEnum;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Durable record of the import jobs and the outcome of each of their deposits. The status of a job is kept after the job has finished and after a restart of the
+ * service. The registry also keeps the command and the queue of deposits of each job, so that an interrupted job can be resumed.
+ */
+public interface ImportJobRegistry {
+
+    /**
+     * Stores the current status of a job, replacing any earlier status of the job with the same path.
+     *
+     * @param status the status of the job
+     */
+    void saveJob(ImportJobStatusDto status);
+
+    /**
+     * Stores the command that started a job, replacing any earlier command for the same path.
+     *
+     * @param jobPath       the path of the job, relative to the inbox
+     * @param importCommand the command
+     */
+    void saveCommand(String jobPath, ImportCommandDto importCommand);
+
+    Optional<ImportCommandDto> findCommand(String jobPath);
+
+    /**
+     * Stores the deposits of a job in the order in which they must be processed. Any earlier queue of the job is removed, and so are the earlier outcomes of the deposits
+     * in the new queue; the outcomes of other deposits of the job are kept.
+     *
+     * @param jobPath  the path of the job, relative to the inbox
+     * @param deposits the deposits, in processing order
+     */
+    void saveQueue(String jobPath, List<DataverseIngestDeposit> deposits);
+
+    /**
+     * Returns the locations of the queued deposits of a job for which no outcome has been recorded yet, in processing order.
+     *
+     * @param jobPath the path of the job, relative to the inbox
+     * @return the locations of the unfinished deposits, or empty if no queue was saved for the job
+     */
+    Optional<List<Path>> findUnfinishedDeposits(String jobPath);
+
+    /**
+     * Records the outcome of processing one deposit of a job, replacing any earlier outcome of the same deposit in the same job.
+     *
+     * @param outcome the outcome, including the time spent in each phase
+     */
+    void saveDepositOutcome(DepositOutcome outcome);
+
+    Optional<ImportJobStatusDto> findJob(String path);
+
+    List<ImportJobStatusDto> findJobs();
+
+    List<ImportJobStatusDto> findJobsWithStatus(StatusEnum status);
+
+    List<DepositOutcome> findDepositOutcomes(String jobPath);
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright (C) 2024 DANS - Data Archiving and Networked Services (info@dans.knaw.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.knaw.dans.dvingest.core;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Value;
+import nl.knaw.dans.dvingest.api.ImportJobStatusDto;
+import nl.knaw.dans.dvingest.api.ImportJobStatusDto.StatusEnum;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Statistics of the deposits processed by an import job, computed from their {@link DepositOutcome}s. Durations are in milliseconds. The breakdown per deposit is only
+ * included on request.
+ */
+@Value
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ImportJobReport {
+    String path;
+    StatusEnum status;
+    String message;
+    int numberOfDeposits;
+    Map<DepositTask.Status, Long> numberOfDepositsPerOutcome;
+    double depositsPerHour;
+    long averageDuration;
+    long p95Duration;
+    long bytesUploaded;
+    // If null, the breakdown per deposit was not requested
+    List<DepositReport> deposits;
+
+    @Value
+    public static class DepositReport {
+        String depositId;
+        DepositTask.Status status;
+        String started;
+        String finished;
+        long duration;
+        long bytesUploaded;
+        Map<String, Long> phaseDurations;
+    }
+
+    public static ImportJobReport of(ImportJobStatusDto status, List<DepositOutcome> outcomes, boolean includeDeposits) {
+        var durations = outcomes.stream().mapToLong(o -> o.getDuration().toMillis()).sorted().toArray();
+        var first = outcomes.stream().map(DepositOutcome::getStarted).min(Comparator.naturalOrder());
+        var last = outcomes.stream().map(DepositOutcome::getFinished).max(Comparator.naturalOrder());
+        var elapsed = first.isPresent() ? last.get().toEpochMilli() - first.get().toEpochMilli() : 0L;
+        return new ImportJobReport(
+            status.getPath(),
+            status.getStatus(),
+            status.getMessage(),
+            outcomes.size(),
+            countPerOutcome(outcomes),
+            elapsed > 0 ? outcomes.size() * 3_600_000.0 / elapsed : 0.0,
+            durations.length == 0 ? 0L : Math.round(Arrays.stream(durations).average().orElse(0)),
+            durations.length == 0 ? 0L : durations[(int) Math.ceil(0.95 * durations.length) - 1],
+            outcomes.stream().mapToLong(DepositOutcome::getBytesUploaded).sum(),
+            includeDeposits ? outcomes.stream().map(ImportJobReport::toDepositReport).toList() : null);
+    }
+
+    /**
+     * Summarizes the outcomes in a single line, for the message in the status of a job.
+     *
+     * @param outcomes the outcomes of the deposits processed so far
+     * @return the summary
+     */
+    public static String summarize(List<DepositOutcome> outcomes) {
+        var totals = new Totals();
+        outcomes.forEach(totals::add);
+        return totals.summarize();
+    }
+
+    /**
+     * Running totals of the outcomes of the deposits of a job, so that the message in the status of the job can be updated after every deposit without going over the outcomes of all
+     * earlier deposits.
+     */
+    public static class Totals {
+        private final Map<DepositTask.Status, Long> numberOfDepositsPerOutcome = countPerOutcome(List.of());
+        private long numberOfDeposits;
+        private long bytesUploaded;
+
+        public synchronized void add(DepositOutcome outcome) {
+            numberOfDepositsPerOutcome.merge(outcome.getStatus(), 1L, Long::sum);
+            numberOfDeposits++;
+            bytesUploaded += outcome.getBytesUploaded();
+        }
+
+        /**
+         * Summarizes the totals in a single line, for the message in the status of a job.
+         *
+         * @return the summary
+         */
+        public synchronized String summarize() {
+            return String.format("%d deposits processed: %d succeeded, %d rejected, %d failed; %d bytes uploaded",
+                numberOfDeposits,
+                numberOfDepositsPerOutcome.get(DepositTask.Status.SUCCESS),
+                numberOfDepositsPerOutcome.get(DepositTask.Status.REJECTED),
+                numberOfDepositsPerOutcome.get(DepositTask.Status.FAILED),
+                bytesUploaded);
+        }
+    }
+
+    private static Map<DepositTask.Status, Long> countPerOutcome(List<DepositOutcome> outcomes) {
+        var counts = new EnumMap<DepositTask.Status, Long>(DepositTask.Status.class);
+        for (var status : DepositTask.Status.values()) {
+            if (status != DepositTask.Status.TODO) {
+                counts.put(status, 0L);
+            }
+        }
+        outcomes.forEach(o -> counts.merge(o.getStatus(), 1L, Long::sum));
+        return counts;
+    }
+
+    private static DepositReport toDepositReport(DepositOutcome outcome) {
+        return new DepositReport(
+            outcome.getDepositId(),
+            outcome.getStatus(),
+            outcome.getStarted().toString(),
+            outcome.getFinished().toString(),
+            outcome.getDuration().toMillis(),
+            outcome.getBytesUploaded(),
+            outcome.getPhaseDurations());
+    }
+}
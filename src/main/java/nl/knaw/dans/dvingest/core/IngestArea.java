@@ -15,6 +15,7 @@
  */
 package nl.knaw.dans.dvingest.core;
 
+import io.dropwizard.lifecycle.Managed;
 import lombok.NonNull;
 import lombok.extern.slf4j.Slf4j;
 import nl.knaw.dans.dvingest.api.ImportCommandDto;
@@ -22,13 +23,14 @@ import nl.knaw.dans.dvingest.api.ImportJobStatusDto;
 import nl.knaw.dans.dvingest.api.ImportJobStatusDto.StatusEnum;
 
 import java.nio.file.Path;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 
 @Slf4j
-public class IngestArea {
+public class IngestArea implements Managed {
     @NonNull
     private final ExecutorService executorService;
     @NonNull
@@ -37,10 +39,17 @@ public class IngestArea {
     private final Path inbox;
     @NonNull
     protected final Path outbox;
+    // If null, only the jobs submitted since the service started are known
+    private final ImportJobRegistry importJobRegistry;
 
     private final Map<String, ImportJob> importJobs = new ConcurrentHashMap<>();
 
     public IngestArea(ImportJobFactory importJobFactory, Path inbox, Path outbox, ExecutorService executorService) {
+        this(importJobFactory, inbox, outbox, executorService, null);
+    }
+
+    public IngestArea(ImportJobFactory importJobFactory, Path inbox, Path outbox, ExecutorService executorService, ImportJobRegistry importJobRegistry) {
+        this.importJobRegistry = importJobRegistry;
         try {
             this.importJobFactory = importJobFactory;
             this.inbox = inbox.toAbsolutePath().toRealPath();
@@ -88,16 +97,95 @@ public class IngestArea {
 
     public List<ImportJobStatusDto> getStatus(String path) {
         if (path == null) {
-            return importJobs.values().stream().map(ImportJob::getStatus).toList();
+            if (importJobRegistry == null) {
+                return importJobs.values().stream().map(ImportJob::getStatus).toList();
+            }
+            var statuses = new LinkedHashMap<String, ImportJobStatusDto>();
+            importJobRegistry.findJobs().forEach(s -> statuses.put(s.getPath(), s));
+            importJobs.forEach((p, j) -> statuses.put(p, j.getStatus()));
+            return List.copyOf(statuses.values());
         }
         else {
-            if (importJobs.get(path) == null) {
-                throw new IllegalArgumentException("No job found for path: " + path);
+            var importJob = importJobs.get(path);
+            if (importJob != null) {
+                return List.of(importJob.getStatus());
+            }
+            if (importJobRegistry != null) {
+                var status = importJobRegistry.findJob(path);
+                if (status.isPresent()) {
+                    return List.of(status.get());
+                }
             }
-            return List.of(importJobs.get(path).getStatus());
+            throw new IllegalArgumentException("No job found for path: " + path);
         }
     }
 
+    /**
+     * Reports the statistics of the deposits of one or all jobs. The outcomes are read from the import job registry, if configured, so that jobs that ran before a
+     * restart of the service are included; otherwise the outcomes kept in memory are used.
+     *
+     * @param path            the path of the job, relative to the inbox, or null for all jobs
+     * @param includeDeposits whether to include the breakdown per deposit
+     * @return the reports
+     */
+    public List<ImportJobReport> getReport(String path, boolean includeDeposits) {
+        return getStatus(path).stream()
+            .map(status -> ImportJobReport.of(status, getDepositOutcomes(status.getPath()), includeDeposits))
+            .toList();
+    }
+
+    private List<DepositOutcome> getDepositOutcomes(String path) {
+        if (importJobRegistry != null) {
+            return importJobRegistry.findDepositOutcomes(path);
+        }
+        var importJob = importJobs.get(path);
+        return importJob == null ? List.of() : importJob.getDepositOutcomes();
+    }
+
+    /**
+     * Resumes the jobs that were still pending or running when the service stopped. A job that had already queued its deposits continues with the first deposit that
+     * has no recorded outcome; a job that had not yet queued its deposits is started again. Jobs of which the command is unknown are marked as failed.
+     */
+    @Override
+    public void start() {
+        if (importJobRegistry == null) {
+            return;
+        }
+        for (var statusEnum : List.of(StatusEnum.PENDING, StatusEnum.RUNNING)) {
+            for (var status : importJobRegistry.findJobsWithStatus(statusEnum)) {
+                var importCommand = importJobRegistry.findCommand(status.getPath());
+                if (importCommand.isEmpty()) {
+                    log.warn("Import job {} was interrupted by a restart of the service and cannot be resumed", status.getPath());
+                    importJobRegistry.saveJob(status.status(StatusEnum.FAILED).message("Import job interrupted by restart of the service"));
+                }
+                else {
+                    resume(status.getPath(), importCommand.get());
+                }
+            }
+        }
+    }
+
+    private void resume(String relativePath, ImportCommandDto importCommand) {
+        var queuedDeposits = importJobRegistry.findUnfinishedDeposits(relativePath);
+        ImportJob importJob;
+        if (queuedDeposits.isPresent()) {
+            log.info("Resuming import job {} with {} unfinished deposits", relativePath, queuedDeposits.get().size());
+            var continueCommand = new ImportCommandDto()
+                .path(importCommand.getPath())
+                .singleObject(importCommand.getSingleObject())
+                .onlyConvertDansBag(importCommand.getOnlyConvertDansBag())
+                .continueBatch(true);
+            importJob = importJobFactory.resumeImportJob(continueCommand, relativePath, outbox.resolve(relativePath), continueCommand.getOnlyConvertDansBag(),
+                queuedDeposits.get());
+        }
+        else {
+            log.info("Restarting import job {}", relativePath);
+            importJob = createImportJob(importCommand, relativePath);
+        }
+        importJobs.put(relativePath, importJob);
+        executorService.submit(importJob);
+    }
+
     private String getRelativePath(ImportCommandDto importCommand) {
         if (importCommand.getSingleObject()) {
             return inbox.relativize(Path.of(importCommand.getPath()).getParent()).toString();
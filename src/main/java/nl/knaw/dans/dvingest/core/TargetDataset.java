@@ -0,0 +1,54 @@
+/*
+ * Copyright (C) 2024 DANS - Data Archiving and Networked Services (info@dans.knaw.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.knaw.dans.dvingest.core;
+
+import lombok.NonNull;
+import lombok.Value;
+
+import java.util.List;
+
+/**
+ * What is known about the dataset that a deposit targets before the deposit is processed, without calling Dataverse. Used by {@link DepositLanes} to make sure that deposits for the same dataset
+ * are never processed at the same time.
+ */
+@Value
+public class TargetDataset {
+    /**
+     * The identifiers by which the deposit refers to its dataset: the PID in updates-dataset, the PID to import from init.yml, the SWORD token, the Is-Version-Of of the first bag, or, for a deposit that
+     * creates a dataset, the bag ID that later versions refer to in their Is-Version-Of. Two deposits that share any of these identifiers target the same dataset.
+     */
+    @NonNull
+    List<String> identifiers;
+
+    /**
+     * Whether the deposit creates a dataset whose PID is minted by Dataverse, so that deposits that refer to the dataset by that PID cannot be linked to it beforehand.
+     */
+    boolean pidMinted;
+
+    /**
+     * Whether the deposit refers to its dataset only by the PID in updates-dataset, so that it may target a dataset whose PID is minted by a deposit that is still being processed.
+     */
+    boolean referencedByPidOnly;
+
+    public TargetDataset(@NonNull List<String> identifiers, boolean pidMinted, boolean referencedByPidOnly) {
+        if (identifiers.isEmpty()) {
+            throw new IllegalArgumentException("A target dataset must have at least one identifier");
+        }
+        this.identifiers = List.copyOf(identifiers);
+        this.pidMinted = pidMinted;
+        this.referencedByPidOnly = referencedByPidOnly;
+    }
+}
@@ -0,0 +1,208 @@
+/*
+ * Copyright (C) 2024 DANS - Data Archiving and Networked Services (info@dans.knaw.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.knaw.dans.dvingest.core;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.introspect.BeanPropertyDefinition;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import nl.knaw.dans.dvingest.core.yaml.tasklog.TaskLog;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Append-only journal of changes to a {@link TaskLog}. Each line records one change as a JSON pointer into the task log, a space and the new value in JSON. Elements
+ * added to a list are recorded one by one, with their index. Saving a checkpoint therefore only appends the values that changed since the previous checkpoint, instead
+ * of rewriting the whole task log. The journal is replayed on top of the last full task log when the bag is read again. Replaying is idempotent, so a journal that is
+ * replayed on a task log that already contains some of its changes gives the same result.
+ * <p>
+ * The lists in the task log only grow while it is being processed, so for each list the journal only remembers how many elements it already recorded, and a checkpoint
+ * only looks at the elements added after that. A list that is replaced, or that shrinks, is recorded as a whole. The cost of a checkpoint therefore does not grow with the
+ * number of files already recorded.
+ */
+@Slf4j
+class TaskLogJournal {
+    private static final ObjectMapper mapper = new ObjectMapper();
+    private static final Map<Class<?>, List<BeanPropertyDefinition>> properties = new ConcurrentHashMap<>();
+
+    private final Path journalFile;
+    // The values in the task log at the last checkpoint, by JSON pointer; lists are represented by a JournaledList
+    private Map<String, Object> lastValues;
+
+    TaskLogJournal(Path journalFile, TaskLog taskLog) {
+        this.journalFile = journalFile;
+        this.lastValues = snapshot(taskLog);
+    }
+
+    /**
+     * Appends the changes since the previous checkpoint to the journal.
+     *
+     * @param taskLog the current task log
+     * @throws IOException if the journal could not be written
+     */
+    synchronized void append(TaskLog taskLog) throws IOException {
+        var values = snapshot(taskLog);
+        var lines = new StringBuilder();
+        for (var entry : values.entrySet()) {
+            var pointer = entry.getKey();
+            var lastValue = lastValues.get(pointer);
+            if (entry.getValue() instanceof JournaledList journaledList) {
+                var list = journaledList.getList();
+                if (lastValue instanceof JournaledList lastList && lastList.getList() == list && lastList.getSize() <= journaledList.getSize()) {
+                    for (int i = lastList.getSize(); i < journaledList.getSize(); i++) {
+                        lines.append(pointer).append('/').append(i).append(' ').append(mapper.writeValueAsString(list.get(i))).append('\n');
+                    }
+                }
+                else {
+                    lines.append(pointer).append(' ').append(mapper.writeValueAsString(list.subList(0, journaledList.getSize()))).append('\n');
+                }
+            }
+            else if (!Objects.equals(lastValue, entry.getValue())) {
+                lines.append(pointer).append(' ').append(mapper.writeValueAsString(entry.getValue())).append('\n');
+            }
+        }
+        if (!lines.isEmpty()) {
+            Files.writeString(journalFile, lines, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        }
+        lastValues = values;
+    }
+
+    /**
+     * Removes the journal, after the full task log has been saved.
+     *
+     * @param taskLog the task log that was saved
+     * @throws IOException if the journal could not be deleted
+     */
+    synchronized void reset(TaskLog taskLog) throws IOException {
+        Files.deleteIfExists(journalFile);
+        lastValues = snapshot(taskLog);
+    }
+
+    /**
+     * Applies the changes in a journal to a task log. A last line that was not completely written is removed from the journal, so that the changes appended after it are
+     * not lost; blank and malformed lines are ignored.
+     *
+     * @param journalFile the journal
+     * @param taskLog     the last full task log
+     * @return the task log with the changes applied
+     * @throws IOException if the journal could not be read
+     */
+    static TaskLog replay(Path journalFile, TaskLog taskLog) throws IOException {
+        if (!Files.exists(journalFile)) {
+            return taskLog;
+        }
+        var content = Files.readString(journalFile, StandardCharsets.UTF_8);
+        var root = (ObjectNode) mapper.valueToTree(taskLog);
+        int start = 0;
+        int end;
+        while ((end = content.indexOf('\n', start)) >= 0) {
+            apply(root, content.substring(start, end));
+            start = end + 1;
+        }
+        if (start < content.length()) {
+            log.warn("Removing incomplete last line from task log journal {}", journalFile);
+            try (var channel = FileChannel.open(journalFile, StandardOpenOption.WRITE)) {
+                channel.truncate(content.substring(0, start).getBytes(StandardCharsets.UTF_8).length);
+            }
+        }
+        return mapper.treeToValue(root, TaskLog.class);
+    }
+
+    private static void apply(ObjectNode root, String line) {
+        var separator = line.indexOf(' ');
+        if (separator <= 0 || !line.startsWith("/")) {
+            if (!line.isBlank()) {
+                log.warn("Ignoring malformed line in task log journal: {}", line);
+            }
+            return;
+        }
+        var pointer = line.substring(0, separator);
+        var lastSlash = pointer.lastIndexOf('/');
+        var parent = root.at(pointer.substring(0, lastSlash));
+        var name = pointer.substring(lastSlash + 1);
+        if (parent.isMissingNode()) {
+            log.warn("Ignoring change to unknown task log item {}", pointer);
+            return;
+        }
+        try {
+            var value = mapper.readTree(line.substring(separator + 1));
+            if (parent.isArray()) {
+                var array = (ArrayNode) parent;
+                var index = Integer.parseInt(name);
+                if (index < array.size()) {
+                    array.set(index, value);
+                }
+                else {
+                    array.add(value);
+                }
+            }
+            else {
+                ((ObjectNode) parent).set(name, value);
+            }
+        }
+        catch (JsonProcessingException | NumberFormatException e) {
+            log.warn("Ignoring malformed line in task log journal: {}", line);
+        }
+    }
+
+    /*
+     * Collects the values of the scalar properties and the current sizes of the lists in the task log, without serializing it.
+     */
+    private static Map<String, Object> snapshot(TaskLog taskLog) {
+        var values = new HashMap<String, Object>();
+        snapshot("", taskLog, values);
+        return values;
+    }
+
+    private static void snapshot(String pointer, Object value, Map<String, Object> values) {
+        if (value == null || value instanceof String || value instanceof Number || value instanceof Boolean || value instanceof Enum) {
+            values.put(pointer, value);
+        }
+        else if (value instanceof List<?> list) {
+            values.put(pointer, new JournaledList(list, list.size()));
+        }
+        else {
+            for (var property : properties.computeIfAbsent(value.getClass(), TaskLogJournal::findProperties)) {
+                snapshot(pointer + "/" + property.getName(), property.getAccessor().getValue(value), values);
+            }
+        }
+    }
+
+    private static List<BeanPropertyDefinition> findProperties(Class<?> type) {
+        return mapper.getSerializationConfig().introspect(mapper.constructType(type)).findProperties().stream()
+            .filter(BeanPropertyDefinition::couldSerialize)
+            .toList();
+    }
+
+    @Value
+    private static class JournaledList {
+        List<?> list;
+        int size;
+    }
+}
@@ -17,14 +17,19 @@ package nl.knaw.dans.dvingest.core.bagprocessor;
 
 import io.dropwizard.configuration.ConfigurationException;
 import lombok.Builder;
+import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 import nl.knaw.dans.dvingest.core.DataverseIngestBag;
 import nl.knaw.dans.dvingest.core.service.DataverseService;
+import nl.knaw.dans.dvingest.core.service.IngestMetrics;
 import nl.knaw.dans.dvingest.core.service.UtilityServices;
 import nl.knaw.dans.lib.dataverse.DataverseException;
 
 import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Processes a bag, creating and/or editing a dataset version in Dataverse. A BagProcessor is created for each deposit.
@@ -37,30 +42,81 @@ public class BagProcessor {
     private final PermissionsEditor permissionsEditor;
     private final StateUpdater stateUpdater;
     private final DataverseIngestBag bag;
+    private final TaskLogCheckpointer checkpointer;
+    private final IngestMetrics metrics;
+    @Getter
+    private final Map<String, Long> phaseDurations = new LinkedHashMap<>();
 
     @Builder
     private BagProcessor(UUID depositId, DataverseIngestBag bag, DataverseService dataverseService, UtilityServices utilityServices) throws IOException, ConfigurationException {
         this.bag = bag;
+        this.metrics = utilityServices.getIngestMetrics();
         var taskLog = bag.getTaskLog();
+        this.checkpointer = new TaskLogCheckpointer(depositId, bag, utilityServices.getTaskLogCheckpointInterval(), utilityServices.getTaskLogCheckpointScheduler());
         this.datasetVersionCreator = new DatasetVersionCreator(depositId, dataverseService, bag.getInit(), bag.getDatasetMetadata(), taskLog.getInit(), taskLog.getDataset());
-        this.permissionsEditor = new PermissionsEditor(depositId, bag.getEditPermissions(), taskLog.getEditPermissions(), dataverseService);
-        this.filesEditor = new FilesEditor(depositId, bag.getDataDir(), bag.getEditFiles(), dataverseService, utilityServices, taskLog.getEditFiles());
-        this.metadataEditor = new MetadataEditor(depositId, bag.getEditMetadata(), taskLog.getEditMetadata(), dataverseService);
+        this.permissionsEditor = new PermissionsEditor(depositId, bag.getEditPermissions(), taskLog.getEditPermissions(), dataverseService,
+            utilityServices.getMaxConcurrentRoleAssignmentEdits(), utilityServices.getRoleAssignmentEditExecutor(), checkpointer);
+        this.filesEditor = new FilesEditor(depositId, bag.getDataDir(), bag.getEditFiles(), dataverseService, utilityServices, taskLog.getEditFiles(), checkpointer);
+        this.metadataEditor = new MetadataEditor(depositId, bag.getEditMetadata(), taskLog.getEditMetadata(), dataverseService, checkpointer);
         this.stateUpdater = new StateUpdater(depositId, bag.getUpdateState(), taskLog.getUpdateState(), dataverseService);
     }
 
     public String run(String targetPid) throws IOException, DataverseException {
         try {
-            targetPid = datasetVersionCreator.createDatasetVersion(targetPid);
-            permissionsEditor.editPermissions(targetPid);
-            filesEditor.editFiles(targetPid);
-            metadataEditor.editMetadata(targetPid);
-            stateUpdater.updateState(targetPid, filesEditor.getFilesInDatasetCache().getNumberOfFilesInDataset());
+            targetPid = runPidReturningPhase("createDatasetVersion", datasetVersionCreator::createDatasetVersion, targetPid);
+            checkpointer.flush();
+            runPhase("editPermissions", permissionsEditor::editPermissions, targetPid);
+            checkpointer.flush();
+            runPhase("editFiles", filesEditor::editFiles, targetPid);
+            checkpointer.flush();
+            runPhase("editMetadata", metadataEditor::editMetadata, targetPid);
+            checkpointer.flush();
+            runPhase("updateState", pid -> stateUpdater.updateState(pid, filesEditor.getFilesInDatasetCache().getNumberOfFilesInDataset(),
+                filesEditor.getFilesInDatasetCache().getTotalFileSize()), targetPid);
             return targetPid;
-
         }
         finally {
+            checkpointer.close();
             bag.saveTaskLog();
         }
     }
+
+    /**
+     * The number of bytes uploaded to Dataverse while processing the bag.
+     *
+     * @return the number of bytes
+     */
+    public long getBytesUploaded() {
+        return filesEditor.getBytesUploaded();
+    }
+
+    @FunctionalInterface
+    private interface Phase {
+        void run(String pid) throws IOException, DataverseException;
+    }
+
+    @FunctionalInterface
+    private interface PidReturningPhase {
+        String run(String pid) throws IOException, DataverseException;
+    }
+
+    private void runPhase(String name, Phase phase, String pid) throws IOException, DataverseException {
+        runPidReturningPhase(name, p -> {
+            phase.run(p);
+            return p;
+        }, pid);
+    }
+
+    /*
+     * Runs a phase, recording its duration in the metrics and in phaseDurations, also if the phase fails.
+     */
+    private String runPidReturningPhase(String name, PidReturningPhase phase, String pid) throws IOException, DataverseException {
+        var timer = metrics.time("phase", name);
+        try {
+            return phase.run(pid);
+        }
+        finally {
+            phaseDurations.put(name, TimeUnit.NANOSECONDS.toMillis(timer.stop()));
+        }
+    }
 }
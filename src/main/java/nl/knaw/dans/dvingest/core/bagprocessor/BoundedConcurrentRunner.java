@@ -0,0 +1,146 @@
+/*
+ * Copyright (C) 2024 DANS - Data Archiving and Networked Services (info@dans.knaw.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.knaw.dans.dvingest.core.bagprocessor;
+
+import nl.knaw.dans.lib.dataverse.DataverseException;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Runs an action for each item of a list, with at most a given number of actions in progress at the same time. The actions run on an executor that is shared with other deposits:
+ * at most that number of workers is submitted to it, each of which takes the items one by one. The actions call Dataverse and record their own completion in the task log. An action
+ * that is in progress is therefore never interrupted: if one of the actions fails, or the calling thread is interrupted, no new actions are started, but the ones in progress are
+ * allowed to finish (and record their completion) before the failure is rethrown. Otherwise, Dataverse could have carried out an action that the task log does not know about, so
+ * that it would be done twice when processing is resumed.
+ */
+final class BoundedConcurrentRunner {
+
+    @FunctionalInterface
+    interface Action<T> {
+        void run(T item) throws IOException, DataverseException;
+    }
+
+    private BoundedConcurrentRunner() {
+    }
+
+    /**
+     * Runs the action for all items. With one concurrent action, or without executor, the items are processed in order in the calling thread. Otherwise, the order is not defined.
+     *
+     * @param executorService the executor to run the actions on, or null to run them in the calling thread
+     * @param items           the items
+     * @param maxConcurrent   the maximum number of actions in progress at the same time
+     * @param action          the action; it must be thread-safe when more than one concurrent action is allowed
+     * @param <T>             the type of the items
+     * @throws IOException        if an action failed
+     * @throws DataverseException if an action failed
+     */
+    static <T> void runAll(ExecutorService executorService, List<T> items, int maxConcurrent, Action<T> action) throws IOException, DataverseException {
+        if (executorService == null || maxConcurrent <= 1 || items.size() <= 1) {
+            for (var item : items) {
+                action.run(item);
+            }
+            return;
+        }
+        var remaining = new ConcurrentLinkedQueue<>(items);
+        var stop = new AtomicBoolean();
+        var failure = new AtomicReference<Throwable>();
+        var workers = new ArrayList<Future<?>>();
+        try {
+            for (int i = 0; i < Math.min(maxConcurrent, items.size()); i++) {
+                workers.add(executorService.submit(() -> runItems(remaining, stop, failure, action)));
+            }
+        }
+        catch (RejectedExecutionException e) {
+            // The executor is shutting down; let the workers that were submitted finish their current action
+            stop.set(true);
+            failure.compareAndSet(null, e);
+        }
+        boolean interrupted = awaitWorkersUninterruptibly(workers, stop, failure);
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+            if (failure.get() == null) {
+                throw new InterruptedIOException("Interrupted while waiting for concurrent actions");
+            }
+        }
+        if (failure.get() != null) {
+            rethrow(failure.get());
+        }
+    }
+
+    private static <T> void runItems(ConcurrentLinkedQueue<T> remaining, AtomicBoolean stop, AtomicReference<Throwable> failure, Action<T> action) {
+        T item;
+        while (!stop.get() && (item = remaining.poll()) != null) {
+            try {
+                action.run(item);
+            }
+            catch (Throwable t) {
+                failure.compareAndSet(null, t);
+                // Do not start new actions, but let the ones in progress finish
+                stop.set(true);
+            }
+        }
+    }
+
+    /*
+     * Returns whether the calling thread was interrupted while waiting. When interrupted, the workers are told not to start new actions, but are still waited for.
+     */
+    private static boolean awaitWorkersUninterruptibly(List<Future<?>> workers, AtomicBoolean stop, AtomicReference<Throwable> failure) {
+        boolean interrupted = false;
+        for (var worker : workers) {
+            while (true) {
+                try {
+                    worker.get();
+                    break;
+                }
+                catch (InterruptedException e) {
+                    interrupted = true;
+                    stop.set(true);
+                }
+                catch (ExecutionException e) {
+                    failure.compareAndSet(null, e.getCause());
+                    break;
+                }
+            }
+        }
+        return interrupted;
+    }
+
+    private static void rethrow(Throwable t) throws IOException, DataverseException {
+        if (t instanceof IOException) {
+            throw (IOException) t;
+        }
+        if (t instanceof DataverseException) {
+            throw (DataverseException) t;
+        }
+        if (t instanceof RuntimeException) {
+            throw (RuntimeException) t;
+        }
+        if (t instanceof Error) {
+            throw (Error) t;
+        }
+        throw new IllegalStateException("Concurrent action failed", t);
+    }
+}
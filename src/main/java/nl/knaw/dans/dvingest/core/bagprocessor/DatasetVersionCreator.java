@@ -30,6 +30,7 @@ import nl.knaw.dans.lib.dataverse.model.RoleAssignmentReadOnly;
 import nl.knaw.dans.lib.dataverse.model.dataset.Dataset;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
 
@@ -98,7 +99,9 @@ public class DatasetVersionCreator {
     }
 
     private void checkDataverseRoleAssignment(@NonNull Expect expect) throws DataverseException, IOException {
-        var actualRoleAssignments = dataverseService.getRoleAssignmentsOnDataverse("root");
+        var expectedAssignee = expect.getDataverseRoleAssignment().getAssignee();
+        var actualRoleAssignments = new ArrayList<>(dataverseService.getRoleAssignmentsOnDataverse("root", expectedAssignee));
+        actualRoleAssignments.addAll(dataverseService.getRoleAssignmentsOnDataverse("root", ":authenticated-users"));
         if (contains(actualRoleAssignments, expect.getDataverseRoleAssignment(), true)) {
             log.debug("[{}] Expected role assignment found for dataverse root", depositId);
             initLog.getExpect().getDataverseRoleAssignment().setCompleted(true);
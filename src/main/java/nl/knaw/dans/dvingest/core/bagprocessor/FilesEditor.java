@@ -20,13 +20,17 @@ import lombok.Getter;
 import lombok.NonNull;
 import lombok.extern.slf4j.Slf4j;
 import nl.knaw.dans.dvingest.core.service.DataverseService;
+import nl.knaw.dans.dvingest.core.service.IngestMetrics;
 import nl.knaw.dans.dvingest.core.service.UtilityServices;
 import nl.knaw.dans.dvingest.core.yaml.EditFiles;
 import nl.knaw.dans.dvingest.core.yaml.FromTo;
+import nl.knaw.dans.dvingest.core.yaml.StreamedStringList;
 import nl.knaw.dans.dvingest.core.yaml.tasklog.CompletableItemWithCount;
+import nl.knaw.dans.dvingest.core.yaml.tasklog.CompletableItemWithFiles;
 import nl.knaw.dans.dvingest.core.yaml.tasklog.EditFilesLog;
 import nl.knaw.dans.lib.dataverse.DataverseException;
 import nl.knaw.dans.lib.dataverse.model.dataset.Embargo;
+import nl.knaw.dans.lib.dataverse.model.dataset.FileList;
 import nl.knaw.dans.lib.dataverse.model.file.FileMeta;
 import nl.knaw.dans.lib.dataverse.model.file.FileMetaUpdate;
 import nl.knaw.dans.lib.util.PathIterator;
@@ -38,10 +42,14 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
 
 @Slf4j
 
@@ -49,6 +57,11 @@ import java.util.stream.Collectors;
  * Edits files in a dataset in Dataverse, based on the edit-files.yml file, which has been read and parsed into an EditFiles object.
  */
 public class FilesEditor {
+    // Backoff of individual uploads while the dataset is locked: starts at 1 s, doubles up to 30 s, and gives up after 10 attempts
+    private static final long INDIVIDUAL_UPLOAD_INITIAL_BACKOFF_MS = 1000;
+    private static final long INDIVIDUAL_UPLOAD_MAX_BACKOFF_MS = 30000;
+    private static final int INDIVIDUAL_UPLOAD_MAX_ATTEMPTS = 10;
+
     private final UUID depositId;
     private final Path dataDir;
     private final EditFiles editFiles;
@@ -57,17 +70,27 @@ public class FilesEditor {
     @Getter(AccessLevel.PACKAGE) // for testing
     private final FilesInDatasetCache filesInDatasetCache;
     private final EditFilesLog editFilesLog;
+    private final TaskLogCheckpointer checkpointer;
+    private final IngestMetrics metrics;
+    private final AtomicLong bytesUploaded = new AtomicLong();
 
     private String pid;
 
     public FilesEditor(@NonNull UUID depositId, @NonNull Path dataDir, @NonNull EditFiles editFiles, @NonNull DataverseService dataverseService,
         @NonNull UtilityServices utilityServices, @NonNull EditFilesLog editFilesLog) {
+        this(depositId, dataDir, editFiles, dataverseService, utilityServices, editFilesLog, TaskLogCheckpointer.disabled());
+    }
+
+    public FilesEditor(@NonNull UUID depositId, @NonNull Path dataDir, @NonNull EditFiles editFiles, @NonNull DataverseService dataverseService,
+        @NonNull UtilityServices utilityServices, @NonNull EditFilesLog editFilesLog, @NonNull TaskLogCheckpointer checkpointer) {
         this.depositId = depositId;
         this.dataDir = dataDir;
         this.editFiles = editFiles;
         this.dataverseService = dataverseService;
         this.utilityServices = utilityServices;
         this.editFilesLog = editFilesLog;
+        this.checkpointer = checkpointer;
+        this.metrics = utilityServices.getIngestMetrics();
         this.filesInDatasetCache = new FilesInDatasetCache(dataverseService, getRenameMap(editFiles.getAutoRenameFiles()));
     }
 
@@ -88,7 +111,7 @@ public class FilesEditor {
         if (editFiles == null) {
             if (isEmptyDir(dataDir)) {
                 log.debug("[{}] No files to edit for dataset {}.", depositId, pid);
-                editFilesLog.completeAll();
+                checkpointer.update(editFilesLog::completeAll);
                 return;
             }
         }
@@ -97,21 +120,49 @@ public class FilesEditor {
         this.pid = pid;
         filesInDatasetCache.downloadFromDataset(pid, true);
         if (editFiles != null) {
-            deleteFiles();
-            replaceFiles();
-            addUnrestrictedFiles();
-            addRestrictedFiles();
-            addUnrestrictedFilesSeparately();
-            addRestictedFilesSeparately();
-            addUnrestrictedFilesIndividually();
-            addRestrictedFilesIndividually();
-            moveFiles();
-            updateFileMetas();
-            addEmbargoes();
+            try {
+                runTimed("deleteFiles", this::deleteFiles);
+                runTimed("replaceFiles", this::replaceFiles);
+                runTimed("addUnrestrictedFiles", this::addUnrestrictedFiles);
+                runTimed("addRestrictedFiles", this::addRestrictedFiles);
+                runTimed("addUnrestrictedFilesSeparately", this::addUnrestrictedFilesSeparately);
+                runTimed("addRestrictedFilesSeparately", this::addRestictedFilesSeparately);
+                runTimed("addUnrestrictedFilesIndividually", this::addUnrestrictedFilesIndividually);
+                runTimed("addRestrictedFilesIndividually", this::addRestrictedFilesIndividually);
+                runTimed("moveFiles", this::moveFiles);
+                runTimed("updateFileMetas", this::updateFileMetas);
+                runTimed("addEmbargoes", this::addEmbargoes);
+            }
+            finally {
+                closeStreamedLists();
+            }
         }
         log.debug("[{}] End editing files for dataset {}.", depositId, pid);
     }
 
+    @FunctionalInterface
+    private interface FilesTask {
+        void run() throws IOException, DataverseException;
+    }
+
+    private void runTimed(String taskName, FilesTask task) throws IOException, DataverseException {
+        try (var ignored = metrics.time("phase", "editFiles", taskName)) {
+            task.run();
+        }
+    }
+
+    /*
+     * The file lists that are streamed from edit-files.yml keep it open if an iteration over them was not completed, for example because an upload failed.
+     */
+    private void closeStreamedLists() {
+        for (var list : List.of(editFiles.getAddUnrestrictedFiles(), editFiles.getAddRestrictedFiles(), editFiles.getAddUnrestrictedFilesSeparately(),
+            editFiles.getAddRestrictedFilesSeparately())) {
+            if (list instanceof StreamedStringList streamedList) {
+                streamedList.close();
+            }
+        }
+    }
+
     private boolean isEmptyDir(Path dir) throws IOException {
         try (var stream = Files.list(dir)) {
             return stream.findAny().isEmpty();
@@ -137,7 +188,7 @@ public class FilesEditor {
             filesInDatasetCache.removeAll(editFiles.getDeleteFiles());
             log.debug("[{}] End deleting {} files.", depositId, editFiles.getDeleteFiles().size());
         }
-        editFilesLog.getDeleteFiles().setCompleted(true);
+        checkpointer.update(() -> editFilesLog.getDeleteFiles().setCompleted(true));
     }
 
     private void checkForUnknownPaths(List<String> paths) {
@@ -186,16 +237,19 @@ public class FilesEditor {
                         filesInDatasetCache.put(newFileMeta);
                     }
                 );
-                editFilesLog.getReplaceFiles().setNumberCompleted(++numberReplaced);
+                var numberCompleted = ++numberReplaced;
+                checkpointer.update(() -> editFilesLog.getReplaceFiles().setNumberCompleted(numberCompleted));
             }
             log.debug("[{}] End replacing {} files.", depositId, editFiles.getReplaceFiles().size());
         }
-        editFilesLog.getReplaceFiles().setCompleted(true);
+        checkpointer.update(() -> editFilesLog.getReplaceFiles().setCompleted(true));
     }
 
     private FileMeta replaceFileOrThrow(String pid, FileMeta fileMeta, Path fileToUpload) {
         try {
-            return dataverseService.replaceFile(pid, fileMeta, fileToUpload);
+            var newFileMeta = dataverseService.replaceFile(pid, fileMeta, fileToUpload);
+            recordUploadedBytes(fileToUpload.toFile().length());
+            return newFileMeta;
         }
         catch (IOException | DataverseException e) {
             throw new RuntimeException(e);
@@ -213,7 +267,7 @@ public class FilesEditor {
         else {
             addFilesIndividually(editFiles.getAddRestrictedIndividually(), true);
         }
-        editFilesLog.getAddRestrictedIndividually().setCompleted(true);
+        checkpointer.update(() -> editFilesLog.getAddRestrictedIndividually().setCompleted(true));
     }
 
     public void addUnrestrictedFilesIndividually() throws IOException, DataverseException {
@@ -227,44 +281,59 @@ public class FilesEditor {
         else {
             addFilesIndividually(editFiles.getAddUnrestrictedIndividually(), false);
         }
-        editFilesLog.getAddUnrestrictedIndividually().setCompleted(true);
+        checkpointer.update(() -> editFilesLog.getAddUnrestrictedIndividually().setCompleted(true));
     }
 
     public void addFilesIndividually(List<String> files, boolean restricted) throws IOException, DataverseException {
-        log.debug("[{}] Start adding {} {} files individually.", depositId, files.size(), restricted ? "restricted" : "unrestricted");
-        int numberAdded = editFilesLog.getAddRestrictedIndividually().getNumberCompleted();
-        if (numberAdded > 0) {
-            log.debug("[{}] Resuming adding files from number {}", depositId, numberAdded);
-        }
-        for (int i = numberAdded; i < files.size(); i++) {
-            var filepath = files.get(i);
-            log.debug("[{}] Adding file: {}", depositId, filepath);
-            var fileMeta = new FileMeta();
-            fileMeta.setRestricted(restricted);
-            var realFilepath = filepath;
-            // TODO: a bit confusing that autorenamedFiles is part of the cache, although the file looked up here has not been added to the dataset yet.
-            if (filesInDatasetCache.getAutoRenamedFiles().containsKey(filepath)) {
-                realFilepath = filesInDatasetCache.getAutoRenamedFiles().get(filepath);
-            }
-            var dataversePath = new DataversePath(realFilepath);
-            fileMeta.setLabel(dataversePath.getLabel());
-            fileMeta.setDirectoryLabel(dataversePath.getDirectoryLabel());
-            var fileToUpload = dataDir.resolve(filepath);
-            if (!Files.exists(fileToUpload)) {
-                throw new IllegalArgumentException("File to add not found in bag: " + filepath);
-            }
-            var addedFileMeta = dataverseService.addFile(pid, fileToUpload, fileMeta);
+        var numberOfFiles = files.size();
+        log.debug("[{}] Start adding {} {} files individually.", depositId, numberOfFiles, restricted ? "restricted" : "unrestricted");
+        var trackLog = restricted ? editFilesLog.getAddRestrictedIndividually() : editFilesLog.getAddUnrestrictedIndividually();
+        var filesToAdd = getFilesNotYetAdded(files, trackLog);
+        if (filesToAdd.size() < numberOfFiles) {
+            log.debug("[{}] Resuming adding files; {} of {} files already added", depositId, numberOfFiles - filesToAdd.size(), numberOfFiles);
+        }
+        var scheduler = new IndividualUploadScheduler(depositId, utilityServices.getMaxConcurrentIndividualUploads(), utilityServices.getIndividualUploadExecutor(),
+            INDIVIDUAL_UPLOAD_INITIAL_BACKOFF_MS, INDIVIDUAL_UPLOAD_MAX_BACKOFF_MS, INDIVIDUAL_UPLOAD_MAX_ATTEMPTS);
+        scheduler.uploadAll(filesToAdd, filepath -> addFileIndividually(filepath, restricted, trackLog));
+        log.debug("[{}] End adding {} {} files individually.", depositId, numberOfFiles, restricted ? "restricted" : "unrestricted");
+    }
+
+    private List<String> getFilesNotYetAdded(List<String> files, CompletableItemWithFiles trackLog) {
+        if (trackLog.getCompletedFiles().isEmpty() && trackLog.getNumberCompleted() > 0) {
+            // Task logs written before completed files were recorded only have the number of files added, in list order
+            checkpointer.update(() -> trackLog.getCompletedFiles().addAll(files.subList(0, Math.min(trackLog.getNumberCompleted(), files.size()))));
+        }
+        var completedFiles = new HashSet<>(trackLog.getCompletedFiles());
+        return files.stream().filter(f -> !completedFiles.contains(f)).collect(Collectors.toList());
+    }
+
+    /*
+     * May be called concurrently by the IndividualUploadScheduler, so the cache is only updated while holding the lock on this, and the log through the checkpointer.
+     */
+    private void addFileIndividually(String filepath, boolean restricted, CompletableItemWithFiles trackLog) throws IOException, DataverseException {
+        log.debug("[{}] Adding file: {}", depositId, filepath);
+        var fileMeta = new FileMeta();
+        fileMeta.setRestricted(restricted);
+        // TODO: a bit confusing that autorenamedFiles is part of the cache, although the file looked up here has not been added to the dataset yet.
+        var realFilepath = filesInDatasetCache.getAutoRenamedFiles().getOrDefault(filepath, filepath);
+        var dataversePath = new DataversePath(realFilepath);
+        fileMeta.setLabel(dataversePath.getLabel());
+        fileMeta.setDirectoryLabel(dataversePath.getDirectoryLabel());
+        var fileToUpload = dataDir.resolve(filepath);
+        if (!Files.exists(fileToUpload)) {
+            throw new IllegalArgumentException("File to add not found in bag: " + filepath);
+        }
+        var addedFileMeta = dataverseService.addFile(pid, fileToUpload, fileMeta);
+        recordUploadedBytes(fileToUpload.toFile().length());
+        synchronized (this) {
             for (var fm : addedFileMeta.getFiles()) {
                 filesInDatasetCache.put(fm);
             }
-            if (restricted) {
-                editFilesLog.getAddRestrictedIndividually().setNumberCompleted(++numberAdded);
-            }
-            else {
-                editFilesLog.getAddUnrestrictedIndividually().setNumberCompleted(++numberAdded);
-            }
         }
-        log.debug("[{}] End adding {} {} files individually.", depositId, files.size(), restricted ? "restricted" : "unrestricted");
+        checkpointer.update(() -> {
+            trackLog.getCompletedFiles().add(filepath);
+            trackLog.setNumberCompleted(trackLog.getCompletedFiles().size());
+        });
     }
 
     private void addRestrictedFiles() throws IOException, DataverseException {
@@ -295,48 +364,173 @@ public class FilesEditor {
                 taskName.endsWith("Separately") ? " separately" : "");
         }
         else {
+            // The list may be streamed from edit-files.yml, so its size is only computed once
+            var numberOfFiles = filesToAdd.size();
             log.debug("[{}] Start adding {} {} files{}.",
-                depositId, filesToAdd.size(),
+                depositId, numberOfFiles,
                 restrict ? "restricted" : "unrestricted",
                 taskName.endsWith("Separately") ? " separately" : "");
-            var iterator = new PathIterator(
-                IteratorUtils.skippingIterator(
-                    filesToAdd.stream().map(dataDir::resolve).map(Path::toFile).iterator(),
-                    fileAddLog.getNumberCompleted()));
-            while (iterator.hasNext()) {
-                uploadFileBatch(iterator, restrict, fileAddLog);
+            // The list may be streamed from edit-files.yml, so the stream must be closed
+            try (var paths = filesToAdd.stream()) {
+                var iterator = new PathIterator(
+                    IteratorUtils.skippingIterator(
+                        paths.map(dataDir::resolve).map(Path::toFile).iterator(),
+                        fileAddLog.getNumberCompleted()));
+                if (utilityServices.isStreamUploadBatches()) {
+                    streamFileBatches(iterator, restrict, fileAddLog);
+                }
+                else if (utilityServices.getMaxNumberOfPreparedUploadBatches() > 0 && utilityServices.getUploadBatchPreparationExecutor() != null) {
+                    uploadFileBatchesPipelined(iterator, restrict, fileAddLog);
+                }
+                else {
+                    while (iterator.hasNext()) {
+                        uploadFileBatch(iterator, restrict, fileAddLog);
+                    }
+                }
             }
             log.debug("[{}] End adding {} {} files.{}",
                 depositId,
-                filesToAdd.size(), restrict ? "restricted" : "unrestricted",
+                numberOfFiles, restrict ? "restricted" : "unrestricted",
                 taskName.endsWith("Separately") ? " separately" : "");
         }
-        fileAddLog.setCompleted(true);
+        checkpointer.update(() -> fileAddLog.setCompleted(true));
     }
 
     private void uploadFileBatch(PathIterator iterator, boolean restrict, CompletableItemWithCount trackLog) throws IOException, DataverseException {
-        var tempZipFile = utilityServices.createTempZipFile();
+        var zipFile = zipFileBatch(iterator);
         try {
-            var zipFile = utilityServices.createPathIteratorZipperBuilder(filesInDatasetCache.getAutoRenamedFiles())
+            uploadZipFile(zipFile, restrict, trackLog);
+        }
+        finally {
+            Files.deleteIfExists(zipFile);
+        }
+    }
+
+    /*
+     * Zips the next batch while the current one is being uploaded. The log is only updated after a batch has been uploaded, and batches are uploaded in the order of the
+     * iterator, so numberCompleted remains a valid resume point. ZIP files that were prepared but not uploaded are deleted when an upload fails.
+     */
+    private void uploadFileBatchesPipelined(PathIterator iterator, boolean restrict, CompletableItemWithCount trackLog) throws IOException, DataverseException {
+        try (var preparedBatches = new PreparedZipBatches(depositId, iterator, this::zipFileBatch, utilityServices.getMaxNumberOfPreparedUploadBatches(),
+            utilityServices.getUploadBatchPreparationExecutor())) {
+            var zipFile = preparedBatches.next();
+            while (zipFile.isPresent()) {
+                try {
+                    uploadZipFile(zipFile.get(), restrict, trackLog);
+                }
+                finally {
+                    Files.deleteIfExists(zipFile.get());
+                }
+                zipFile = preparedBatches.next();
+            }
+        }
+    }
+
+    private void streamFileBatches(PathIterator iterator, boolean restrict, CompletableItemWithCount trackLog) throws IOException, DataverseException {
+        var peekingIterator = IteratorUtils.peekingIterator(iterator);
+        while (peekingIterator.hasNext()) {
+            var zipBatch = utilityServices.nextStreamingZipBatch(dataDir, peekingIterator, filesInDatasetCache.getAutoRenamedFiles());
+            if (zipBatch.isEmpty()) {
+                continue;
+            }
+            var fileMeta = new FileMeta();
+            fileMeta.setRestricted(restrict);
+            log.debug("[{}] Start streaming batch of {} files", depositId, zipBatch.getFiles().size());
+            var addedFileMetaList = timeUpload(zipBatch.getFiles().size(), zipBatch.getNumberOfBytes(), () -> dataverseService.addZipFile(pid, zipBatch, fileMeta));
+            log.debug("[{}] End streaming batch of {} files", depositId, zipBatch.getFiles().size());
+            recordAddedFiles(addedFileMetaList, trackLog);
+        }
+    }
+
+    private Path zipFileBatch(PathIterator iterator) throws IOException {
+        var tempZipFile = utilityServices.createTempZipFile();
+        try (var ignored = metrics.time("upload", "zipBatch")) {
+            return utilityServices.createPathIteratorZipperBuilder(filesInDatasetCache.getAutoRenamedFiles())
                 .rootDir(dataDir)
                 .sourceIterator(iterator)
                 .targetZipFile(tempZipFile)
                 .build()
                 .zip();
-            var fileMeta = new FileMeta();
-            fileMeta.setRestricted(restrict);
-            log.debug("[{}] Start uploading batch in ZIP file: {}", depositId, zipFile);
-            var addedFileMetaList = dataverseService.addFile(pid, zipFile, fileMeta);
-            log.debug("[{}] End uploading batch in ZIP file: {}", depositId, zipFile);
-            trackLog.setNumberCompleted(trackLog.getNumberCompleted() + addedFileMetaList.getFiles().size());
-            log.debug("[{}] Added {} files in this batch; total: {}", depositId, addedFileMetaList.getFiles().size(), trackLog.getNumberCompleted());
-            for (var fm : addedFileMetaList.getFiles()) {
-                filesInDatasetCache.put(fm); // auto-rename is done by PathIteratorZipper
-            }
         }
-        finally {
+        catch (IOException | RuntimeException e) {
             Files.deleteIfExists(tempZipFile);
+            throw e;
+        }
+    }
+
+    private void uploadZipFile(Path zipFile, boolean restrict, CompletableItemWithCount trackLog) throws IOException, DataverseException {
+        var fileMeta = new FileMeta();
+        fileMeta.setRestricted(restrict);
+        log.debug("[{}] Start uploading batch in ZIP file: {}", depositId, zipFile);
+        var addedFileMetaList = timeUpload(-1, uncompressedSize(zipFile), () -> dataverseService.addFile(pid, zipFile, fileMeta));
+        log.debug("[{}] End uploading batch in ZIP file: {}", depositId, zipFile);
+        recordAddedFiles(addedFileMetaList, trackLog);
+    }
+
+    /*
+     * The upload batch sizer limits batches by the size of the files in them, and the streamed batches report that size as well, so a ZIP file is counted by the
+     * uncompressed size of its entries rather than by its own size.
+     */
+    private static long uncompressedSize(Path zipFile) throws IOException {
+        try (var zip = new ZipFile(zipFile.toFile())) {
+            return zip.stream()
+                .filter(entry -> !entry.isDirectory())
+                .mapToLong(ZipEntry::getSize)
+                .filter(size -> size > 0)
+                .sum();
+        }
+    }
+
+    @FunctionalInterface
+    private interface BatchUpload {
+        FileList upload() throws IOException, DataverseException;
+    }
+
+    /*
+     * Reports the throughput of the upload to the batch sizer, so that it can adjust the size of the next batches. If the number of files is not known in advance (-1), the
+     * number of files that Dataverse reports as added is used.
+     */
+    private FileList timeUpload(int numberOfFiles, long numberOfBytes, BatchUpload batchUpload) throws IOException, DataverseException {
+        var sizer = utilityServices.getUploadBatchSizer();
+        var start = System.currentTimeMillis();
+        try {
+            var result = batchUpload.upload();
+            sizer.recordUpload(numberOfFiles < 0 ? result.getFiles().size() : numberOfFiles, numberOfBytes, System.currentTimeMillis() - start);
+            recordUploadedBytes(numberOfBytes);
+            return result;
+        }
+        catch (IOException e) {
+            sizer.recordFailure();
+            throw e;
+        }
+        catch (DataverseException e) {
+            if (e.getStatus() >= 500) {
+                sizer.recordFailure();
+            }
+            throw e;
+        }
+    }
+
+    private void recordUploadedBytes(long numberOfBytes) {
+        bytesUploaded.addAndGet(numberOfBytes);
+        metrics.mark(numberOfBytes, "upload", "bytes");
+    }
+
+    /**
+     * The number of bytes uploaded to Dataverse by this editor so far, counted as the uncompressed size of the uploaded files.
+     *
+     * @return the number of bytes
+     */
+    public long getBytesUploaded() {
+        return bytesUploaded.get();
+    }
+
+    private void recordAddedFiles(FileList addedFileMetaList, CompletableItemWithCount trackLog) {
+        for (var fm : addedFileMetaList.getFiles()) {
+            filesInDatasetCache.put(fm); // auto-rename is done by PathIteratorZipper or StreamingZipBatch
         }
+        checkpointer.update(() -> trackLog.setNumberCompleted(trackLog.getNumberCompleted() + addedFileMetaList.getFiles().size()));
+        log.debug("[{}] Added {} files in this batch; total: {}", depositId, addedFileMetaList.getFiles().size(), trackLog.getNumberCompleted());
     }
 
     private void moveFiles() throws IOException, DataverseException {
@@ -365,7 +559,7 @@ public class FilesEditor {
             dataverseService.updateFileMetadatas(pid, fileMetaUpdates);
             log.debug("[{}] End moving {} files.", depositId, editFiles.getMoveFiles().size());
         }
-        editFilesLog.getMoveFiles().setCompleted(true);
+        checkpointer.update(() -> editFilesLog.getMoveFiles().setCompleted(true));
     }
 
     private void updateFileMetas() throws IOException, DataverseException {
@@ -390,7 +584,7 @@ public class FilesEditor {
             dataverseService.updateFileMetadatas(pid, fileMetaUpdates);
             log.debug("[{}] End updating file metas.", depositId);
         }
-        editFilesLog.getUpdateFileMetas().setCompleted(true);
+        checkpointer.update(() -> editFilesLog.getUpdateFileMetas().setCompleted(true));
     }
 
     private String getPath(FileMeta file) {
@@ -426,10 +620,11 @@ public class FilesEditor {
                     .mapToInt(file -> (int) file.getDataFile().getId()).toArray();
                 embargo.setFileIds(fileIds);
                 dataverseService.addEmbargo(pid, embargo);
-                editFilesLog.getAddEmbargoes().setNumberCompleted(++numberOfEmbargoesAdded);
+                var numberCompleted = ++numberOfEmbargoesAdded;
+                checkpointer.update(() -> editFilesLog.getAddEmbargoes().setNumberCompleted(numberCompleted));
             }
             log.debug("[{}] End adding {} embargoes.", depositId, editFiles.getAddEmbargoes().size());
         }
-        editFilesLog.getAddEmbargoes().setCompleted(true);
+        checkpointer.update(() -> editFilesLog.getAddEmbargoes().setCompleted(true));
     }
 }
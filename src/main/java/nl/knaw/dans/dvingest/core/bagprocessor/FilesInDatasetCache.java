@@ -154,6 +154,18 @@ public class FilesInDatasetCache {
         return filesInDataset.size();
     }
 
+    /**
+     * Returns the total size of the files in the dataset, as far as known from the cached FileMeta objects.
+     *
+     * @return the total size in bytes
+     */
+    public long getTotalFileSize() {
+        return filesInDataset.values().stream()
+            .filter(fileMeta -> fileMeta.getDataFile() != null)
+            .mapToLong(fileMeta -> fileMeta.getDataFile().getFilesize())
+            .sum();
+    }
+
     public void putAll(List<FileMeta> fileMetas) {
         for (var fileMeta : fileMetas) {
             put(fileMeta);
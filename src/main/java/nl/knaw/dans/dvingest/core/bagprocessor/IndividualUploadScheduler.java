@@ -0,0 +1,118 @@
+/*
+ * Copyright (C) 2024 DANS - Data Archiving and Networked Services (info@dans.knaw.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.knaw.dans.dvingest.core.bagprocessor;
+
+import lombok.extern.slf4j.Slf4j;
+import nl.knaw.dans.lib.dataverse.DataverseException;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.regex.Pattern;
+
+/**
+ * Uploads files one by one, with up to <code>maxConcurrentUploads</code> uploads in progress at the same time. Dataverse refuses to add files to a dataset while it is locked,
+ * for example while a previously uploaded tabular file is being ingested. When an upload fails because of such a lock, all uploads back off with an exponentially increasing
+ * delay before they try again, so that the scheduler does not keep hammering a locked dataset.
+ */
+@Slf4j
+class IndividualUploadScheduler {
+
+    @FunctionalInterface
+    interface Upload {
+        void upload(String file) throws IOException, DataverseException;
+    }
+
+    // A whole word, so that e.g. "metadata block" does not match
+    private static final Pattern LOCK_MESSAGE = Pattern.compile("\\block(ed)?\\b", Pattern.CASE_INSENSITIVE);
+
+    private final UUID depositId;
+    private final int maxConcurrentUploads;
+    // If not set, the files are uploaded one after the other in the calling thread
+    private final ExecutorService executorService;
+    private final long initialBackoff;
+    private final long maxBackoff;
+    private final int maxAttempts;
+
+    // Shared by all uploads: when one of them runs into a lock, the others also wait
+    private volatile long backoffUntil = 0;
+
+    IndividualUploadScheduler(UUID depositId, int maxConcurrentUploads, ExecutorService executorService, long initialBackoff, long maxBackoff, int maxAttempts) {
+        this.depositId = depositId;
+        this.maxConcurrentUploads = executorService == null ? 1 : Math.max(1, maxConcurrentUploads);
+        this.executorService = executorService;
+        this.initialBackoff = initialBackoff;
+        this.maxBackoff = maxBackoff;
+        this.maxAttempts = maxAttempts;
+    }
+
+    /**
+     * Uploads the files. With one concurrent upload the files are uploaded in order. Otherwise, the order is not defined. If an upload fails, no new uploads are started and the
+     * failure is rethrown after the uploads in progress have finished, so that each of them has been recorded by <code>upload</code> if it succeeded.
+     *
+     * @param files  the files to upload
+     * @param upload the action that uploads a single file; it must be thread-safe when more than one concurrent upload is allowed
+     * @throws IOException        if an upload failed
+     * @throws DataverseException if an upload failed
+     */
+    void uploadAll(List<String> files, Upload upload) throws IOException, DataverseException {
+        if (maxConcurrentUploads > 1 && files.size() > 1) {
+            log.debug("[{}] Uploading {} files with up to {} concurrent uploads", depositId, files.size(), maxConcurrentUploads);
+        }
+        BoundedConcurrentRunner.runAll(executorService, files, maxConcurrentUploads, file -> uploadWithBackoff(file, upload));
+    }
+
+    private void uploadWithBackoff(String file, Upload upload) throws IOException, DataverseException {
+        long backoff = initialBackoff;
+        for (int attempt = 1; ; attempt++) {
+            waitForBackoff();
+            try {
+                upload.upload(file);
+                return;
+            }
+            catch (DataverseException e) {
+                if (!isLockConflict(e) || attempt >= maxAttempts) {
+                    throw e;
+                }
+                log.debug("[{}] Dataset locked while adding {} (attempt {} of {}); backing off {} ms", depositId, file, attempt, maxAttempts, backoff);
+                backoffUntil = Math.max(backoffUntil, System.currentTimeMillis() + backoff);
+                backoff = Math.min(backoff * 2, maxBackoff);
+            }
+        }
+    }
+
+    private void waitForBackoff() throws InterruptedIOException {
+        long delay;
+        while ((delay = backoffUntil - System.currentTimeMillis()) > 0) {
+            try {
+                Thread.sleep(delay);
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while backing off");
+            }
+        }
+    }
+
+    static boolean isLockConflict(DataverseException e) {
+        if (e.getStatus() == 409) {
+            return true;
+        }
+        return e.getMessage() != null && LOCK_MESSAGE.matcher(e.getMessage()).find();
+    }
+}
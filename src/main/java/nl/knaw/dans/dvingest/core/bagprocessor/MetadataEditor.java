@@ -15,94 +15,114 @@
  */
 package nl.knaw.dans.dvingest.core.bagprocessor;
 
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import nl.knaw.dans.dvingest.core.service.DataverseService;
 import nl.knaw.dans.dvingest.core.yaml.EditMetadata;
+import nl.knaw.dans.dvingest.core.yaml.tasklog.CompletableItem;
 import nl.knaw.dans.dvingest.core.yaml.tasklog.EditMetadataLog;
 import nl.knaw.dans.lib.dataverse.DataverseException;
+import nl.knaw.dans.lib.dataverse.model.dataset.MetadataField;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.UUID;
+import java.util.stream.Collectors;
 
-@RequiredArgsConstructor
+/**
+ * Edits the metadata of a dataset with at most one call to Dataverse per operation: first all field values to add, then all field values to replace and finally all field values to
+ * delete, each in a single request. Operations without field values are skipped. The completion of each operation is recorded in the task log, so that after a crash only the
+ * operations that were not yet completed are carried out.
+ */
 @Slf4j
 public class MetadataEditor {
     private final UUID depositId;
     private final EditMetadata editMetadata;
     private final EditMetadataLog editMetadataLog;
     private final DataverseService dataverseService;
+    private final TaskLogCheckpointer checkpointer;
 
-    private String pid;
-
-    public void editMetadata(String pid) throws IOException, DataverseException {
-        this.pid = pid;
-        if (editMetadata == null) {
-            log.debug("[{}] No metadata to edit. Skipping metadata editing.", depositId);
-            editMetadataLog.completeAll();
-            return;
-        }
-        log.debug("[{}] Start editing metadata.", depositId);
-        addFieldValues();
-        replaceFieldValues();
-        deleteFieldValues();
-        log.debug("[{}] End editing metadata.", depositId);
+    @FunctionalInterface
+    private interface MetadataCall {
+        void call(String pid, List<MetadataField> fields) throws IOException, DataverseException;
     }
 
-    private void deleteFieldValues() throws IOException, DataverseException {
-        if (editMetadataLog.getDeleteFieldValues().isCompleted()) {
-            log.debug("[{}] Deletion of field values already completed.", depositId);
-            return;
+    static class Operation {
+        private final String name;
+        private final List<MetadataField> fields;
+        private final CompletableItem operationLog;
+        private final MetadataCall call;
+
+        private Operation(String name, List<MetadataField> fields, CompletableItem operationLog, MetadataCall call) {
+            this.name = name;
+            this.fields = fields;
+            this.operationLog = operationLog;
+            this.call = call;
         }
-        if (editMetadata.getDeleteFieldValues().isEmpty()) {
-            log.debug("[{}] No field values to delete.", depositId);
+
+        String getName() {
+            return name;
         }
-        else {
-            log.debug("[{}] Start deleting {} field values.", depositId, editMetadata.getDeleteFieldValues().size());
-            for (var fieldValue : editMetadata.getDeleteFieldValues()) {
-                log.debug("[{}] Deleting field value: {}", depositId, fieldValue.getTypeName());
-                dataverseService.deleteDatasetMetadata(pid, editMetadata.getDeleteFieldValues());
-            }
-            log.debug("[{}] End deleting field values.", depositId);
+
+        List<MetadataField> getFields() {
+            return fields;
         }
-        editMetadataLog.getDeleteFieldValues().setCompleted(true);
     }
 
-    private void addFieldValues() throws IOException, DataverseException {
-        if (editMetadataLog.getAddFieldValues().isCompleted()) {
-            log.debug("[{}] Addition of field values already completed.", depositId);
+    public MetadataEditor(UUID depositId, EditMetadata editMetadata, EditMetadataLog editMetadataLog, DataverseService dataverseService, TaskLogCheckpointer checkpointer) {
+        this.depositId = depositId;
+        this.editMetadata = editMetadata;
+        this.editMetadataLog = editMetadataLog;
+        this.dataverseService = dataverseService;
+        this.checkpointer = checkpointer;
+    }
+
+    public void editMetadata(String pid) throws IOException, DataverseException {
+        if (editMetadata == null) {
+            log.debug("[{}] No metadata to edit. Skipping metadata editing.", depositId);
+            checkpointer.update(editMetadataLog::completeAll);
             return;
         }
-        if (editMetadata.getAddFieldValues().isEmpty()) {
-            log.debug("[{}] No field values to add.", depositId);
-        }
-        else {
-            log.debug("[{}] Start adding {} field values.", depositId, editMetadata.getAddFieldValues().size());
-            for (var fieldValue : editMetadata.getAddFieldValues()) {
-                log.debug("[{}] Adding field value: {}", depositId, fieldValue.getTypeName());
-                dataverseService.editMetadata(pid, editMetadata.getAddFieldValues(), false);
+        log.debug("[{}] Start editing metadata.", depositId);
+        for (var operation : plan()) {
+            if (operation.fields.isEmpty()) {
+                log.debug("[{}] No field values for {}.", depositId, operation.name);
             }
-            log.debug("[{}] End adding field values.", depositId);
+            else {
+                log.debug("[{}] Start {} {} field values: {}", depositId, operation.name, operation.fields.size(),
+                    operation.fields.stream().map(MetadataField::getTypeName).collect(Collectors.joining(", ")));
+                operation.call.call(pid, operation.fields);
+                log.debug("[{}] End {} field values.", depositId, operation.name);
+            }
+            checkpointer.update(() -> operation.operationLog.setCompleted(true));
         }
-        editMetadataLog.getAddFieldValues().setCompleted(true);
+        log.debug("[{}] End editing metadata.", depositId);
     }
 
-    private void replaceFieldValues() throws IOException, DataverseException {
-        if (editMetadataLog.getReplaceFieldValues().isCompleted()) {
-            log.debug("[{}] Replacement of field values already completed.", depositId);
-            return;
-        }
-        if (editMetadata.getReplaceFieldValues().isEmpty()) {
-            log.debug("[{}] No field values to replace.", depositId);
+    /**
+     * Returns the operations that are not yet completed according to the task log, in the order in which they must be carried out. Field values that are listed more than once for the
+     * same operation are sent only once. An operation without field values has an empty list of fields; it takes no call to Dataverse, but must still be marked as completed. Planning
+     * does not change the task log.
+     *
+     * @return the operations, each of which takes at most one call to Dataverse
+     */
+    List<Operation> plan() {
+        var operations = new ArrayList<Operation>();
+        addIfNeeded(operations, new Operation("adding", editMetadata.getAddFieldValues(), editMetadataLog.getAddFieldValues(),
+            (pid, fields) -> dataverseService.editMetadata(pid, fields, false)));
+        addIfNeeded(operations, new Operation("replacing", editMetadata.getReplaceFieldValues(), editMetadataLog.getReplaceFieldValues(),
+            (pid, fields) -> dataverseService.editMetadata(pid, fields, true)));
+        addIfNeeded(operations, new Operation("deleting", editMetadata.getDeleteFieldValues(), editMetadataLog.getDeleteFieldValues(), dataverseService::deleteDatasetMetadata));
+        return operations;
+    }
+
+    private void addIfNeeded(List<Operation> operations, Operation operation) {
+        if (operation.operationLog.isCompleted()) {
+            log.debug("[{}] Already completed {} field values.", depositId, operation.name);
         }
         else {
-            log.debug("Start replacing field values for deposit {}", depositId);
-            for (var fieldValue : editMetadata.getReplaceFieldValues()) {
-                log.debug("Replacing field value: {}", fieldValue.getTypeName());
-                dataverseService.editMetadata(pid, editMetadata.getReplaceFieldValues(), true);
-            }
-            log.debug("End replacing field values for deposit {}", depositId);
+            var fields = operation.fields == null ? List.<MetadataField>of() : operation.fields.stream().distinct().collect(Collectors.toList());
+            operations.add(new Operation(operation.name, fields, operation.operationLog, operation.call));
         }
-        editMetadataLog.getReplaceFieldValues().setCompleted(true);
     }
 }
@@ -15,26 +15,54 @@
  */
 package nl.knaw.dans.dvingest.core.bagprocessor;
 
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import nl.knaw.dans.dvingest.core.service.DataverseService;
 import nl.knaw.dans.dvingest.core.yaml.EditPermissions;
+import nl.knaw.dans.dvingest.core.yaml.tasklog.CompletableItemWithRoleAssignments;
 import nl.knaw.dans.dvingest.core.yaml.tasklog.EditPermissionsLog;
 import nl.knaw.dans.lib.dataverse.DataverseException;
+import nl.knaw.dans.lib.dataverse.model.RoleAssignment;
+import nl.knaw.dans.lib.dataverse.model.RoleAssignmentReadOnly;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.stream.Collectors;
 
-@RequiredArgsConstructor
+/**
+ * Edits the role assignments on a dataset. The role assignments on the dataset are listed once, after which the role assignments to delete and to add are compared with that list:
+ * role assignments that are not there are not deleted, and role assignments that are already there are not added. The remaining deletions and additions are carried out with up to
+ * <code>maxConcurrentEdits</code> calls to Dataverse at the same time; first all deletions, then all additions. Each role assignment that has been processed is recorded in the task
+ * log, so that after a crash only the unprocessed ones are retried.
+ */
 @Slf4j
 public class PermissionsEditor {
     private final UUID depositId;
     private final EditPermissions editPermissions;
     private final EditPermissionsLog editPermissionsLog;
     private final DataverseService dataverseService;
+    private final int maxConcurrentEdits;
+    // If not set, the role assignments are edited one after the other in the calling thread
+    private final ExecutorService executorService;
+    private final TaskLogCheckpointer checkpointer;
 
     private String pid;
 
+    public PermissionsEditor(UUID depositId, EditPermissions editPermissions, EditPermissionsLog editPermissionsLog, DataverseService dataverseService, int maxConcurrentEdits,
+        ExecutorService executorService, TaskLogCheckpointer checkpointer) {
+        this.depositId = depositId;
+        this.editPermissions = editPermissions;
+        this.editPermissionsLog = editPermissionsLog;
+        this.dataverseService = dataverseService;
+        this.maxConcurrentEdits = Math.max(1, maxConcurrentEdits);
+        this.executorService = executorService;
+        this.checkpointer = checkpointer;
+    }
+
     public void editPermissions(String pid) throws IOException, DataverseException {
         if (editPermissions == null) {
             log.debug("[{}] No permissions to edit.", depositId);
@@ -43,13 +71,57 @@ public class PermissionsEditor {
 
         this.pid = pid;
         log.debug("[{}] Start updating permissions.", depositId);
-        deleteRoleAssignments();
-        addRoleAssignments();
+        var toDelete = getNotYetProcessed(editPermissions.getDeleteRoleAssignments(), editPermissionsLog.getDeleteRoleAssignments());
+        var toAdd = getNotYetProcessed(editPermissions.getAddRoleAssignments(), editPermissionsLog.getAddRoleAssignments());
+        var existing = toDelete.isEmpty() && toAdd.isEmpty() ? List.<RoleAssignmentReadOnly> of() : dataverseService.getRoleAssignmentsOnDataset(pid);
+        existing = deleteRoleAssignments(toDelete, existing);
+        addRoleAssignments(toAdd, existing);
         log.debug("[{}] End updating permissions.", depositId);
     }
 
-    private void addRoleAssignments() throws IOException, DataverseException {
-        if (editPermissionsLog.getAddRoleAssignments().isCompleted()) {
+    /*
+     * Returns the role assignments that are left after the deletions.
+     */
+    private List<RoleAssignmentReadOnly> deleteRoleAssignments(List<RoleAssignment> toDelete, List<RoleAssignmentReadOnly> existing) throws IOException, DataverseException {
+        var deleteLog = editPermissionsLog.getDeleteRoleAssignments();
+        if (deleteLog.isCompleted()) {
+            log.debug("[{}] Deletion of role assignments already completed.", depositId);
+            return existing;
+        }
+        if (editPermissions.getDeleteRoleAssignments().isEmpty()) {
+            log.debug("[{}] No role assignments to delete.", depositId);
+        }
+        else {
+            log.debug("[{}] Start deleting {} role assignments.", depositId, editPermissions.getDeleteRoleAssignments().size());
+            if (toDelete.size() < editPermissions.getDeleteRoleAssignments().size()) {
+                log.debug("[{}] Resuming deleting role assignments; {} already deleted.", depositId, deleteLog.getCompletedRoleAssignments().size());
+            }
+            var listedByKey = existing.stream()
+                .filter(ra -> toDelete.stream().anyMatch(d -> matches(ra, d)))
+                .collect(Collectors.groupingBy(PermissionsEditor::listedKey));
+            BoundedConcurrentRunner.runAll(executorService, toDelete, maxConcurrentEdits, roleAssignment -> {
+                var assignmentsToDelete = listedByKey.getOrDefault(key(roleAssignment), List.of());
+                if (assignmentsToDelete.isEmpty()) {
+                    log.debug("[{}] Role assignment {} not found on dataset; nothing to delete.", depositId, key(roleAssignment));
+                }
+                for (var ra : assignmentsToDelete) {
+                    log.debug("[{}] Deleting role assignment: {}", depositId, key(roleAssignment));
+                    dataverseService.deleteRoleAssignment(pid, ra);
+                }
+                recordCompleted(deleteLog, roleAssignment);
+            });
+            existing = existing.stream()
+                .filter(ra -> toDelete.stream().noneMatch(d -> matches(ra, d)))
+                .collect(Collectors.toList());
+            log.debug("[{}] End deleting role assignments.", depositId);
+        }
+        checkpointer.update(() -> deleteLog.setCompleted(true));
+        return existing;
+    }
+
+    private void addRoleAssignments(List<RoleAssignment> toAdd, List<RoleAssignmentReadOnly> existing) throws IOException, DataverseException {
+        var addLog = editPermissionsLog.getAddRoleAssignments();
+        if (addLog.isCompleted()) {
             log.debug("[{}] Addition of role assignments already completed.", depositId);
             return;
         }
@@ -58,42 +130,64 @@ public class PermissionsEditor {
         }
         else {
             log.debug("[{}] Start adding {} role assignments.", depositId, editPermissions.getAddRoleAssignments().size());
-            int numberCompleted = editPermissionsLog.getAddRoleAssignments().getNumberCompleted();
-            if (numberCompleted > 0) {
-                log.debug("[{}] Resuming adding role assignments from index {}.", depositId, numberCompleted);
-            }
-            for (int i = numberCompleted; i < editPermissions.getAddRoleAssignments().size(); i++) {
-                var roleAssignment = editPermissions.getAddRoleAssignments().get(i);
-                log.debug("[{}] Adding role assignment: {}={}", depositId, roleAssignment.getAssignee(), roleAssignment.getRole());
-                dataverseService.addRoleAssignment(pid, roleAssignment);
-                editPermissionsLog.getAddRoleAssignments().setNumberCompleted(i + 1);
+            if (toAdd.size() < editPermissions.getAddRoleAssignments().size()) {
+                log.debug("[{}] Resuming adding role assignments; {} already added.", depositId, addLog.getCompletedRoleAssignments().size());
             }
+            var existingKeys = existing.stream().map(PermissionsEditor::listedKey).collect(Collectors.toSet());
+            BoundedConcurrentRunner.runAll(executorService, toAdd, maxConcurrentEdits, roleAssignment -> {
+                if (existingKeys.contains(key(roleAssignment))) {
+                    log.debug("[{}] Role assignment {} already present on dataset; nothing to add.", depositId, key(roleAssignment));
+                }
+                else {
+                    log.debug("[{}] Adding role assignment: {}", depositId, key(roleAssignment));
+                    dataverseService.addRoleAssignment(pid, roleAssignment);
+                }
+                recordCompleted(addLog, roleAssignment);
+            });
             log.debug("[{}] End adding role assignments.", depositId);
         }
-        editPermissionsLog.getAddRoleAssignments().setCompleted(true);
+        checkpointer.update(() -> addLog.setCompleted(true));
     }
 
-    private void deleteRoleAssignments() throws IOException, DataverseException {
-        if (editPermissionsLog.getDeleteRoleAssignments().isCompleted()) {
-            log.debug("[{}] Deletion of role assignments already completed.", depositId);
-            return;
+    private List<RoleAssignment> getNotYetProcessed(List<RoleAssignment> roleAssignments, CompletableItemWithRoleAssignments trackLog) {
+        if (trackLog.isCompleted()) {
+            return List.of();
         }
-        if (editPermissions.getDeleteRoleAssignments().isEmpty()) {
-            log.debug("[{}] No role assignments to delete.", depositId);
+        if (trackLog.getCompletedRoleAssignments().isEmpty() && trackLog.getNumberCompleted() > 0) {
+            // Task logs written before completed role assignments were recorded only have the number of role assignments processed, in list order
+            checkpointer.update(() -> roleAssignments.subList(0, Math.min(trackLog.getNumberCompleted(), roleAssignments.size()))
+                .forEach(ra -> trackLog.getCompletedRoleAssignments().add(key(ra))));
         }
-        else {
-            log.debug("[{}] Start deleting {} role assignments.", depositId, editPermissions.getDeleteRoleAssignments().size());
-            int numberCompleted = editPermissionsLog.getDeleteRoleAssignments().getNumberCompleted();
-            if (numberCompleted > 0) {
-                log.debug("[{}] Resuming deleting role assignments from index {}.", depositId, numberCompleted);
+        var completed = new HashSet<>(trackLog.getCompletedRoleAssignments());
+        // The same role assignment listed twice only needs to be processed once
+        var notYetProcessed = new LinkedHashMap<String, RoleAssignment>();
+        for (var ra : roleAssignments) {
+            if (!completed.contains(key(ra))) {
+                notYetProcessed.putIfAbsent(key(ra), ra);
             }
-            for (int i = numberCompleted; i < editPermissions.getDeleteRoleAssignments().size(); i++) {
-                var roleAssignment = editPermissions.getDeleteRoleAssignments().get(i);
-                log.debug("[{}] Deleting role assignment: {}={}", depositId, roleAssignment.getAssignee(), roleAssignment.getRole());
-                dataverseService.deleteRoleAssignment(pid, roleAssignment);
-            }
-            log.debug("[{}] End deleting role assignments.", depositId);
         }
-        editPermissionsLog.getDeleteRoleAssignments().setCompleted(true);
+        return new ArrayList<>(notYetProcessed.values());
+    }
+
+    /*
+     * May be called concurrently, so the log is only updated through the checkpointer, which holds the lock that is also held while the log is saved.
+     */
+    private void recordCompleted(CompletableItemWithRoleAssignments trackLog, RoleAssignment roleAssignment) {
+        checkpointer.update(() -> {
+            trackLog.getCompletedRoleAssignments().add(key(roleAssignment));
+            trackLog.setNumberCompleted(trackLog.getCompletedRoleAssignments().size());
+        });
+    }
+
+    private static boolean matches(RoleAssignmentReadOnly actual, RoleAssignment expected) {
+        return actual.getAssignee().equals(expected.getAssignee()) && actual.get_roleAlias().equals(expected.getRole());
+    }
+
+    private static String key(RoleAssignment roleAssignment) {
+        return roleAssignment.getAssignee() + "=" + roleAssignment.getRole();
+    }
+
+    private static String listedKey(RoleAssignmentReadOnly roleAssignment) {
+        return roleAssignment.getAssignee() + "=" + roleAssignment.get_roleAlias();
     }
 }
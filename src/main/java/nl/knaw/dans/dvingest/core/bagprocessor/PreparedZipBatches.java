@@ -0,0 +1,177 @@
+/*
+ * Copyright (C) 2024 DANS - Data Archiving and Networked Services (info@dans.knaw.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.knaw.dans.dvingest.core.bagprocessor;
+
+import lombok.extern.slf4j.Slf4j;
+import nl.knaw.dans.lib.util.PathIterator;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Creates the ZIP files for a sequence of upload batches in a background task, so that the next batch can be zipped while the current one is being uploaded. At most
+ * <code>maxPreparedBatches</code> ZIP files are kept waiting for upload, which caps the amount of temp space used. Batches are handed out in the order in which they were
+ * zipped. ZIP files that are still waiting when the pipeline is closed are deleted. The background task runs on an executor that is shared with other deposits; closing the
+ * pipeline stops the task, but not the executor.
+ */
+@Slf4j
+class PreparedZipBatches implements AutoCloseable {
+
+    @FunctionalInterface
+    interface BatchZipper {
+        /**
+         * Zips the next batch of files from the iterator into a new temporary ZIP file.
+         *
+         * @param iterator the iterator to take the files from
+         * @return the ZIP file
+         * @throws IOException if the ZIP file could not be created
+         */
+        Path zipNextBatch(PathIterator iterator) throws IOException;
+    }
+
+    private static final class PreparedBatch {
+        private static final PreparedBatch END = new PreparedBatch(null, null);
+
+        private final Path zipFile;
+        private final Exception failure;
+
+        private PreparedBatch(Path zipFile, Exception failure) {
+            this.zipFile = zipFile;
+            this.failure = failure;
+        }
+    }
+
+    private final UUID depositId;
+    private final BlockingQueue<PreparedBatch> queue;
+    private final Future<?> preparation;
+    private final AtomicBoolean started = new AtomicBoolean();
+    private final AtomicBoolean closed = new AtomicBoolean();
+    private final CountDownLatch stopped = new CountDownLatch(1);
+
+    PreparedZipBatches(UUID depositId, PathIterator iterator, BatchZipper zipper, int maxPreparedBatches, ExecutorService executorService) {
+        if (maxPreparedBatches < 1) {
+            throw new IllegalArgumentException("maxPreparedBatches must be at least 1");
+        }
+        this.depositId = depositId;
+        this.queue = new ArrayBlockingQueue<>(maxPreparedBatches);
+        this.preparation = executorService.submit(() -> prepareBatches(iterator, zipper));
+    }
+
+    private void prepareBatches(PathIterator iterator, BatchZipper zipper) {
+        // Either close() sees that the task has started and waits for it to stop, or the task sees that the pipeline is closed and does nothing
+        started.set(true);
+        if (closed.get()) {
+            stopped.countDown();
+            return;
+        }
+        try {
+            while (iterator.hasNext()) {
+                var zipFile = zipper.zipNextBatch(iterator);
+                log.debug("[{}] Prepared batch in ZIP file: {}", depositId, zipFile);
+                try {
+                    queue.put(new PreparedBatch(zipFile, null));
+                }
+                catch (InterruptedException e) {
+                    Files.deleteIfExists(zipFile);
+                    throw e;
+                }
+            }
+            queue.put(PreparedBatch.END);
+        }
+        catch (InterruptedException e) {
+            log.debug("[{}] Preparation of ZIP batches interrupted", depositId);
+            Thread.currentThread().interrupt();
+        }
+        catch (Exception e) {
+            log.error("[{}] Error preparing ZIP batch", depositId, e);
+            try {
+                queue.put(new PreparedBatch(null, e));
+            }
+            catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        finally {
+            stopped.countDown();
+        }
+    }
+
+    /**
+     * Returns the next prepared ZIP file, waiting for it to be zipped if necessary. The caller becomes responsible for deleting the file.
+     *
+     * @return the next ZIP file, or empty if all batches have been handed out
+     * @throws IOException if the batch could not be zipped
+     */
+    Optional<Path> next() throws IOException {
+        PreparedBatch batch;
+        try {
+            batch = queue.take();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for next ZIP batch");
+        }
+        if (batch.failure != null) {
+            if (batch.failure instanceof IOException) {
+                throw (IOException) batch.failure;
+            }
+            if (batch.failure instanceof RuntimeException) {
+                throw (RuntimeException) batch.failure;
+            }
+            throw new IllegalStateException("Could not prepare ZIP batch", batch.failure);
+        }
+        if (batch == PreparedBatch.END) {
+            // Put it back, so that further calls also return empty
+            queue.offer(batch);
+            return Optional.empty();
+        }
+        return Optional.of(batch.zipFile);
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed.set(true);
+        preparation.cancel(true);
+        try {
+            if (started.get() && !stopped.await(1, TimeUnit.MINUTES)) {
+                log.warn("[{}] Preparation of ZIP batches did not stop in time", depositId);
+            }
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        var remaining = new ArrayList<PreparedBatch>();
+        queue.drainTo(remaining);
+        for (var batch : remaining) {
+            if (batch.zipFile != null) {
+                log.debug("[{}] Deleting unused ZIP batch: {}", depositId, batch.zipFile);
+                Files.deleteIfExists(batch.zipFile);
+            }
+        }
+    }
+}
@@ -39,8 +39,9 @@ public class StateUpdater {
 
     private String pid;
     private int numberOfFilesInDataset;
+    private long totalFileSize;
 
-    public void updateState(String pid, int numberOfFilesInDataset) throws DataverseException, IOException {
+    public void updateState(String pid, int numberOfFilesInDataset, long totalFileSize) throws DataverseException, IOException {
         if (updateStateLog.isCompleted()) {
             log.debug("[{}] State already updated.", depositId);
             return;
@@ -48,6 +49,7 @@ public class StateUpdater {
 
         this.pid = pid;
         this.numberOfFilesInDataset = numberOfFilesInDataset;
+        this.totalFileSize = totalFileSize;
 
         if (updateAction instanceof PublishAction) {
             publishVersion(((PublishAction) updateAction).getUpdateType());
@@ -62,7 +64,7 @@ public class StateUpdater {
         log.debug("[{}] Start publishing version; dataset = {}; updateType = {}", depositId, pid, updateType);
         dataverseService.publishDataset(pid, updateType);
         log.debug("[{}] Waiting for dataset to reach released state; dataset = {}", depositId, pid);
-        dataverseService.waitForReleasedState(pid, numberOfFilesInDataset);
+        dataverseService.waitForReleasedState(pid, numberOfFilesInDataset, totalFileSize);
         log.debug("[{}] Dataset reached released state; dataset = {}", depositId, pid);
         log.debug("[{}] End publishing version; dataset = {}; updateType = {}", depositId, pid, updateType);
     }
@@ -71,7 +73,7 @@ public class StateUpdater {
         log.debug("[{}] Start releasing migrated dataset with pid {} and date {}", depositId, pid, date);
         dataverseService.releaseMigratedDataset(pid, date);
         log.debug("[{}] Waiting for dataset to reach released state; dataset = {}", depositId, pid);
-        dataverseService.waitForReleasedState(pid, numberOfFilesInDataset);
+        dataverseService.waitForReleasedState(pid, numberOfFilesInDataset, totalFileSize);
         log.debug("[{}] Dataset reached released state; dataset = {}", depositId, pid);
         log.debug("[{}] End releasing migrated dataset with pid {} and date {}", depositId, pid, date);
     }
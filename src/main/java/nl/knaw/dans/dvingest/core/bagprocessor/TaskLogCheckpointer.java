@@ -0,0 +1,136 @@
+/*
+ * Copyright (C) 2024 DANS - Data Archiving and Networked Services (info@dans.knaw.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.knaw.dans.dvingest.core.bagprocessor;
+
+import lombok.extern.slf4j.Slf4j;
+import nl.knaw.dans.dvingest.core.DataverseIngestBag;
+
+import java.util.UUID;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Saves the task log of a bag while it is being processed, so that after a crash the processing can be resumed without redoing completed work. Checkpoints are appended
+ * to the task log journal of the bag at most once per interval; checkpoints that come in quicker than that are coalesced into one save at the end of the interval.
+ * <p>
+ * A delayed save runs on the scheduler thread while workers may still be updating the task log. Therefore all changes to the task log during processing must be made
+ * through {@link #update(Runnable)}, which holds the same lock as the save, so that a save never serializes a half-made change.
+ */
+@Slf4j
+public class TaskLogCheckpointer implements AutoCloseable {
+    private final UUID depositId;
+    // If null, checkpoints are ignored
+    private final DataverseIngestBag bag;
+    private final long minIntervalNanos;
+    // If null, every checkpoint is saved immediately
+    private final ScheduledExecutorService scheduler;
+
+    private long lastSaveNanos;
+    private boolean dirty = false;
+    private boolean closed = false;
+    private ScheduledFuture<?> pendingSave;
+
+    public TaskLogCheckpointer(UUID depositId, DataverseIngestBag bag, long minIntervalMillis, ScheduledExecutorService scheduler) {
+        this.depositId = depositId;
+        this.bag = bag;
+        this.minIntervalNanos = TimeUnit.MILLISECONDS.toNanos(minIntervalMillis);
+        this.scheduler = scheduler;
+        this.lastSaveNanos = System.nanoTime() - minIntervalNanos;
+    }
+
+    /**
+     * Returns a checkpointer that does nothing, for components that are used without a bag.
+     *
+     * @return the checkpointer
+     */
+    public static TaskLogCheckpointer disabled() {
+        return new TaskLogCheckpointer(null, null, 0, null);
+    }
+
+    /**
+     * Applies a change to the task log under the lock that is also held while saving it, and then records a checkpoint.
+     *
+     * @param change the change to apply
+     */
+    public synchronized void update(Runnable change) {
+        change.run();
+        checkpoint();
+    }
+
+    /**
+     * Records that a unit of work was completed. The task log is saved immediately if the last save was more than the interval ago, otherwise at the end of the interval.
+     */
+    public synchronized void checkpoint() {
+        if (bag == null || closed) {
+            return;
+        }
+        dirty = true;
+        var remainingNanos = minIntervalNanos - (System.nanoTime() - lastSaveNanos);
+        if (remainingNanos <= 0 || scheduler == null) {
+            save();
+        }
+        else if (pendingSave == null) {
+            pendingSave = scheduler.schedule(this::saveIfDirty, remainingNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Saves the task log immediately, for example at the end of a processing phase.
+     */
+    public synchronized void flush() {
+        if (bag == null || closed) {
+            return;
+        }
+        save();
+    }
+
+    /**
+     * Cancels any pending save. After this, checkpoints are ignored; the final task log must be saved by the caller.
+     */
+    @Override
+    public synchronized void close() {
+        closed = true;
+        cancelPendingSave();
+    }
+
+    private synchronized void saveIfDirty() {
+        pendingSave = null;
+        if (dirty && !closed) {
+            save();
+        }
+    }
+
+    private void save() {
+        cancelPendingSave();
+        try {
+            bag.checkpointTaskLog();
+            dirty = false;
+        }
+        catch (Exception e) {
+            // Not fatal: the task log is saved again at the next checkpoint and at the end of processing
+            log.warn("[{}] Failed to save task log checkpoint", depositId, e);
+        }
+        lastSaveNanos = System.nanoTime();
+    }
+
+    private void cancelPendingSave() {
+        if (pendingSave != null) {
+            pendingSave.cancel(false);
+            pendingSave = null;
+        }
+    }
+}
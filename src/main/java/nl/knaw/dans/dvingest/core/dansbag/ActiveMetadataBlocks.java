@@ -15,23 +15,20 @@
  */
 package nl.knaw.dans.dvingest.core.dansbag;
 
-import nl.knaw.dans.dvingest.core.service.DataverseService;
+import nl.knaw.dans.dvingest.core.service.ReferenceDataCache;
 
 import java.util.Set;
 
 public class ActiveMetadataBlocks {
-    private final DataverseService dataverseService;
-    private Set<String> activeMetadataBlockNames;
+    private final ReferenceDataCache<Set<String>> activeMetadataBlockNames;
 
-    public ActiveMetadataBlocks(DataverseService dataverseService) {
-        this.activeMetadataBlockNames = null;
-        this.dataverseService = dataverseService;
+    public ActiveMetadataBlocks(ReferenceDataCache<Set<String>> activeMetadataBlockNames) {
+        this.activeMetadataBlockNames = activeMetadataBlockNames;
     }
 
     // FOR TESTING
     public ActiveMetadataBlocks(Set<String> activeMetadataBlockNames) {
-        this.activeMetadataBlockNames = activeMetadataBlockNames;
-        this.dataverseService = null;
+        this(ReferenceDataCache.loadedOnce("active metadata blocks", () -> activeMetadataBlockNames));
     }
 
     public boolean contains(String blockName) {
@@ -39,15 +36,7 @@ public class ActiveMetadataBlocks {
     }
 
     public Set<String> getActiveMetadataBlockNames() {
-        if (activeMetadataBlockNames == null) {
-            try {
-                activeMetadataBlockNames = dataverseService.getActiveMetadataBlockNames();
-            }
-            catch (Exception e) {
-                throw new IllegalStateException("Could not fetch active metadata blocks from Dataverse", e);
-            }
-        }
-        return activeMetadataBlockNames;
+        return activeMetadataBlockNames.get();
     }
 
 }
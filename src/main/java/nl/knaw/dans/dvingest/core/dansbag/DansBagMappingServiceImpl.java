@@ -65,6 +65,7 @@ import java.time.format.DateTimeParseException;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ExecutorService;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
@@ -86,7 +87,7 @@ public class DansBagMappingServiceImpl implements DansBagMappingService {
 
     public DansBagMappingServiceImpl(DepositToDvDatasetMetadataMapper depositToDvDatasetMetadataMapper, DataverseService dataverseService, SupportedLicenses supportedLicenses,
         Pattern fileExclusionPattern, Pattern filesForSeparateUploadPattern, List<String> embargoExclusions, String depositorRoleAutoIngest,
-        String expectedDataverseRole, String expectedDatasetRole) {
+        String expectedDataverseRole, String expectedDatasetRole, ExecutorService checksumExecutor) {
         this.depositToDvDatasetMetadataMapper = depositToDvDatasetMetadataMapper;
         this.dataverseService = dataverseService;
         this.depositorRoleAutoIngest = depositorRoleAutoIngest;
@@ -95,7 +96,7 @@ public class DansBagMappingServiceImpl implements DansBagMappingService {
         BagReader bagReader = new BagReader();
         XmlReader xmlReader = new XmlReaderImpl();
 
-        dansBagDepositReader = new DansBagDepositReaderImpl(xmlReader, bagReader);
+        dansBagDepositReader = new DansBagDepositReaderImpl(xmlReader, bagReader, checksumExecutor);
         this.supportedLicenses = supportedLicenses;
         this.fileExclusionPattern = fileExclusionPattern;
         this.filesForSeparateUploadPattern = filesForSeparateUploadPattern;
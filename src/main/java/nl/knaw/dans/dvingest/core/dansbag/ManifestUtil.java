@@ -15,7 +15,6 @@
  */
 package nl.knaw.dans.dvingest.core.dansbag;
 
-import gov.loc.repository.bagit.creator.CreatePayloadManifestsVistor;
 import gov.loc.repository.bagit.creator.CreateTagManifestsVistor;
 import gov.loc.repository.bagit.domain.Bag;
 import gov.loc.repository.bagit.domain.Manifest;
@@ -24,25 +23,44 @@ import gov.loc.repository.bagit.hash.StandardSupportedAlgorithms;
 import gov.loc.repository.bagit.util.PathUtils;
 import gov.loc.repository.bagit.writer.ManifestWriter;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.codec.binary.Hex;
 
 import javax.validation.constraints.NotNull;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.stream.Collectors;
 
 import static gov.loc.repository.bagit.hash.StandardSupportedAlgorithms.SHA1;
 
 @Slf4j
 public class ManifestUtil {
+    private static final int HASH_BUFFER_SIZE = 1024 * 1024;
+    // One heap buffer per hashing thread, rather than a new (direct) buffer per file
+    private static final ThreadLocal<byte[]> HASH_BUFFER = ThreadLocal.withInitial(() -> new byte[HASH_BUFFER_SIZE]);
 
-    public static void ensureSha1ManifestPresent(Bag bag) throws NoSuchAlgorithmException, IOException {
+    /**
+     * Adds a SHA-1 payload manifest to the bag if it does not have one yet, and updates the tag manifests accordingly.
+     *
+     * @param bag              the bag
+     * @param checksumExecutor the executor to hash the payload files on, or null to hash them one after the other in the calling thread
+     * @throws NoSuchAlgorithmException if a tag manifest algorithm is not supported
+     * @throws IOException              if the payload could not be read or the manifests could not be written
+     */
+    public static void ensureSha1ManifestPresent(Bag bag, ExecutorService checksumExecutor) throws NoSuchAlgorithmException, IOException {
         log.debug("Ensure SHA-1 manifest is present in bag {}", bag.getRootDir());
         var manifests = bag.getPayLoadManifests();
         var algorithms = manifests.stream().map(Manifest::getAlgorithm);
@@ -52,16 +70,78 @@ public class ManifestUtil {
             return;
         }
 
-        var payloadFilesMap = Hasher.createManifestToMessageDigestMap(List.of(SHA1));
-        var payloadVisitor = new CreatePayloadManifestsVistor(payloadFilesMap, true);
-        Files.walkFileTree(PathUtils.getDataDir(bag), payloadVisitor);
-        manifests.addAll(payloadFilesMap.keySet());
+        manifests.add(createSha1PayloadManifest(PathUtils.getDataDir(bag), checksumExecutor));
         ManifestWriter.writePayloadManifests(manifests, PathUtils.getBagitDir(bag), bag.getRootDir(), bag.getFileEncoding());
 
         updateTagManifests(bag);
         log.debug("SHA-1 manifest added to bag {}", bag.getRootDir());
     }
 
+    /*
+     * Hashes the payload files on the checksum executor, one task per file, so that for large bags on fast storage the throughput is not limited to what one core can do.
+     * The executor is shared by all deposits, so its size caps the number of files hashed at the same time. The result is the same as that of the
+     * CreatePayloadManifestsVistor, including hidden files.
+     */
+    static Manifest createSha1PayloadManifest(Path dataDir, ExecutorService checksumExecutor) throws IOException {
+        List<Path> files;
+        try (var paths = Files.walk(dataDir)) {
+            files = paths.filter(Files::isRegularFile).collect(Collectors.toList());
+        }
+        var manifest = new Manifest(SHA1);
+        var checksums = manifest.getFileToChecksumMap();
+        if (checksumExecutor == null) {
+            log.debug("Calculating SHA-1 checksums for {} payload files in {}", files.size(), dataDir);
+            for (var file : files) {
+                checksums.put(file, sha1Hex(file));
+            }
+            return manifest;
+        }
+
+        log.debug("Calculating SHA-1 checksums for {} payload files in {} on the checksum executor", files.size(), dataDir);
+        var tasks = new ArrayList<Callable<String>>(files.size());
+        for (var file : files) {
+            tasks.add(() -> sha1Hex(file));
+        }
+        try {
+            var results = checksumExecutor.invokeAll(tasks);
+            for (int i = 0; i < files.size(); i++) {
+                checksums.put(files.get(i), getChecksum(results.get(i)));
+            }
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while calculating SHA-1 checksums");
+        }
+        return manifest;
+    }
+
+    private static String getChecksum(Future<String> result) throws IOException, InterruptedException {
+        try {
+            return result.get();
+        }
+        catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IllegalStateException("Could not calculate SHA-1 checksum", e.getCause());
+        }
+    }
+
+    private static String sha1Hex(Path file) throws IOException {
+        try (var in = Files.newInputStream(file)) {
+            var digest = MessageDigest.getInstance(SHA1.getMessageDigestName());
+            var buffer = HASH_BUFFER.get();
+            int n;
+            while ((n = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, n);
+            }
+            return Hex.encodeHexString(digest.digest());
+        }
+        catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-1 not supported", e);
+        }
+    }
+
     private static void updateTagManifests(Bag bag) throws NoSuchAlgorithmException, IOException {
         var algorithms = bag.getTagManifests().stream()
             .map(Manifest::getAlgorithm)
@@ -21,11 +21,13 @@ import nl.knaw.dans.dvingest.core.dansbag.exception.RejectedDepositException;
 import nl.knaw.dans.dvingest.core.dansbag.mapper.mapping.LicenseElem;
 import nl.knaw.dans.dvingest.core.dansbag.xml.XPathEvaluator;
 import nl.knaw.dans.dvingest.core.service.DataverseService;
+import nl.knaw.dans.dvingest.core.service.ReferenceDataCache;
 import nl.knaw.dans.lib.dataverse.DataverseException;
 import nl.knaw.dans.lib.dataverse.model.dataset.License;
 
 import java.io.IOException;
 import java.net.URI;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -34,19 +36,18 @@ import static nl.knaw.dans.dvingest.core.dansbag.xml.XPathConstants.DDM_DCMI_MET
 // TODO: move to mapping package
 @Slf4j
 public class SupportedLicenses {
-    private final DataverseService dataverseService;
-    private Map<URI, License> supportedLicenses;
+    private final ReferenceDataCache<Map<URI, License>> supportedLicenses;
+
+    public SupportedLicenses(ReferenceDataCache<Map<URI, License>> supportedLicenses) {
+        this.supportedLicenses = supportedLicenses;
+    }
 
     public SupportedLicenses(DataverseService dataverseService) {
-        supportedLicenses = null;
-        this.dataverseService = dataverseService;
+        this(ReferenceDataCache.loadedOnce("supported licenses", () -> fetchLicenses(dataverseService)));
     }
 
     public License getLicenseFromDansDeposit(DansBagDeposit dansDeposit) {
-        if (supportedLicenses == null) {
-            log.debug("Fetching supported licenses from Dataverse");
-            fetchLicenses();
-        }
+        var licenses = supportedLicenses.get();
         var optLicenseUri = XPathEvaluator.nodes(dansDeposit.getDdm(), DDM_DCMI_METADATA + "/dcterms:license")
             .filter(LicenseElem::isLicenseUri)
             .findFirst()
@@ -56,23 +57,27 @@ public class SupportedLicenses {
         }
         else {
             var licenseUri = optLicenseUri.get();
-            if (!supportedLicenses.containsKey(licenseUri)) {
+            if (!licenses.containsKey(licenseUri)) {
                 throw new RejectedDepositException(dansDeposit, "Unsupported license: " + licenseUri);
             }
-            return supportedLicenses.get(licenseUri);
+            return licenses.get(licenseUri);
         }
     }
 
-    private void fetchLicenses() {
-        try {
-            supportedLicenses = new HashMap<>();
-            for (var license : dataverseService.getSupportedLicenses()) {
-                supportedLicenses.put(license.getUri(), license);
-            }
-        }
-        catch (IOException | DataverseException e) {
-            supportedLicenses = null;
-            throw new IllegalStateException("Could not fetch supported licenses from Dataverse", e);
+    /**
+     * Fetches the supported licenses from Dataverse, keyed by URI.
+     *
+     * @param dataverseService the Dataverse service
+     * @return the supported licenses
+     * @throws IOException        if the licenses could not be fetched
+     * @throws DataverseException if Dataverse returned an error
+     */
+    public static Map<URI, License> fetchLicenses(DataverseService dataverseService) throws IOException, DataverseException {
+        log.debug("Fetching supported licenses from Dataverse");
+        var licenses = new HashMap<URI, License>();
+        for (var license : dataverseService.getSupportedLicenses()) {
+            licenses.put(license.getUri(), license);
         }
+        return Collections.unmodifiableMap(licenses);
     }
 }
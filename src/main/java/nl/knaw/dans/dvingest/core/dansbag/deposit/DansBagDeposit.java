@@ -29,7 +29,6 @@ import java.time.OffsetDateTime;
 import java.util.List;
 
 import static nl.knaw.dans.dvingest.core.dansbag.xml.XPathConstants.DDM_PROFILE;
-import static nl.knaw.dans.dvingest.core.dansbag.xml.XPathConstants.FILES_FILE;
 
 /**
  * Represents a DANS bag deposit, i.e. a deposit containing a bag conforming to the DANS BagIt Profile.
@@ -67,7 +66,6 @@ public class DansBagDeposit {
     private Instant bagCreated;
 
     private Document ddm;
-    private Document filesXml;
     private Document amd;
     private Bag bag;
 
@@ -93,8 +91,8 @@ public class DansBagDeposit {
             .orElseThrow();
 
         var isNoAccessDataset = "NO_ACCESS".equals(accessRightsNode.getTextContent().trim());
-        var accessibleToNoneFilesPresent = XPathEvaluator
-            .strings(filesXml, FILES_FILE + "/files:accessibleToRights")
+        var accessibleToNoneFilesPresent = files.stream()
+            .flatMap(file -> file.getAccessibleToRights().stream())
             .map(String::trim)
             .anyMatch("NONE"::equals);
 
@@ -103,8 +101,8 @@ public class DansBagDeposit {
 
     public boolean restrictedFilesPresent() {
         var numberOfFiles = files.size();
-        var explicitAccessibleToValues = XPathEvaluator
-            .strings(filesXml, FILES_FILE + "/files:accessibleToRights")
+        var explicitAccessibleToValues = files.stream()
+            .flatMap(file -> file.getAccessibleToRights().stream())
             .map(String::trim).toList();
         var explicitlyRestrictedFilesPresent = explicitAccessibleToValues.stream()
             .anyMatch(a -> !"ANONYMOUS".equals(a));
@@ -19,7 +19,7 @@ import gov.loc.repository.bagit.domain.Bag;
 import gov.loc.repository.bagit.reader.BagReader;
 import nl.knaw.dans.dvingest.core.dansbag.ManifestUtil;
 import nl.knaw.dans.dvingest.core.dansbag.exception.InvalidDepositException;
-import nl.knaw.dans.dvingest.core.dansbag.xml.XPathEvaluator;
+import nl.knaw.dans.dvingest.core.dansbag.xml.FilesXmlStreamReader;
 import nl.knaw.dans.dvingest.core.dansbag.xml.XmlReader;
 import org.apache.commons.configuration2.Configuration;
 import org.apache.commons.configuration2.FileBasedConfiguration;
@@ -29,29 +29,32 @@ import org.apache.commons.configuration2.builder.fluent.Parameters;
 import org.apache.commons.configuration2.ex.ConfigurationException;
 import org.apache.commons.lang3.StringUtils;
 import org.w3c.dom.Document;
-import org.w3c.dom.Node;
 import org.xml.sax.SAXException;
 
 import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLStreamException;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.time.OffsetDateTime;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
-import java.util.stream.Collectors;
-
-import static nl.knaw.dans.dvingest.core.dansbag.xml.XPathConstants.FILES_FILE;
+import java.util.concurrent.ExecutorService;
 
 public class DansBagDepositReaderImpl implements DansBagDepositReader {
     private static final String DEPOSIT_PROPERTIES_FILENAME = "deposit.properties";
 
     private final XmlReader xmlReader;
     private final BagReader bagReader;
+    // If not set, the payload files of a bag without SHA-1 manifest are hashed in the calling thread
+    private final ExecutorService checksumExecutor;
+    private final FilesXmlStreamReader filesXmlStreamReader = new FilesXmlStreamReader();
 
-    public DansBagDepositReaderImpl(XmlReader xmlReader, BagReader bagReader) {
+    public DansBagDepositReaderImpl(XmlReader xmlReader, BagReader bagReader, ExecutorService checksumExecutor) {
         this.xmlReader = xmlReader;
         this.bagReader = bagReader;
+        this.checksumExecutor = checksumExecutor;
     }
 
     @Override
@@ -61,13 +64,12 @@ public class DansBagDepositReaderImpl implements DansBagDepositReader {
 
             var depositProperties = readDepositProperties(depositDir);
             var bag = bagReader.read(bagDir);
-            ManifestUtil.ensureSha1ManifestPresent(bag);
+            ManifestUtil.ensureSha1ManifestPresent(bag, checksumExecutor);
 
             var deposit = mapToDeposit(bag, depositProperties);
 
             deposit.setBag(bag);
             deposit.setDdm(readRequiredXmlFile(deposit.getDdmPath()));
-            deposit.setFilesXml(readRequiredXmlFile(deposit.getFilesXmlPath()));
             deposit.setAmd(readOptionalXmlFile(deposit.getAmdPath()));
 
             deposit.setFiles(getDepositFiles(deposit));
@@ -126,22 +128,24 @@ public class DansBagDepositReaderImpl implements DansBagDepositReader {
         return builder.getConfiguration();
     }
 
-    private List<DepositFile> getDepositFiles(DansBagDeposit dansBagDeposit) throws IOException {
-        var bag = dansBagDeposit.getBag();
-        var filePathToSha1 = ManifestUtil.getFilePathToSha1(bag);
-
-        return XPathEvaluator.nodes(dansBagDeposit.getFilesXml(), FILES_FILE)
-            .map(node -> {
-                var filePath = Optional.ofNullable(node.getAttributes().getNamedItem("filepath"))
-                    .map(Node::getTextContent)
-                    .map(Path::of)
-                    .orElseThrow(() -> new IllegalArgumentException("File element without filepath attribute"));
-
-                var sha1 = filePathToSha1.get(filePath);
-
-                return new DepositFile(filePath, sha1, node);
-            })
-            .collect(Collectors.toList());
+    /*
+     * files.xml can be very large, so it is streamed instead of being parsed into a DOM. Only the data needed for the conversion is kept.
+     */
+    private List<DepositFile> getDepositFiles(DansBagDeposit dansBagDeposit) throws IOException, XMLStreamException {
+        var filesXmlPath = dansBagDeposit.getFilesXmlPath();
+        if (!Files.exists(filesXmlPath)) {
+            throw new IllegalArgumentException("Required file not found: " + filesXmlPath);
+        }
+        var filePathToSha1 = ManifestUtil.getFilePathToSha1(dansBagDeposit.getBag());
+        var depositFiles = new ArrayList<DepositFile>();
+        filesXmlStreamReader.readFileElements(filesXmlPath, fileElement -> {
+            var filePath = Optional.ofNullable(fileElement.getFilepath())
+                .map(Path::of)
+                .orElseThrow(() -> new IllegalArgumentException("File element without filepath attribute"));
+            depositFiles.add(new DepositFile(filePath, fileElement.getFilepath(), filePathToSha1.get(filePath), fileElement.getAccessibleToRights(),
+                fileElement.getDescriptions()));
+        });
+        return depositFiles;
     }
 
     private Document readRequiredXmlFile(Path path) throws ParserConfigurationException, IOException, SAXException {
@@ -17,14 +17,22 @@ package nl.knaw.dans.dvingest.core.dansbag.deposit;
 
 import lombok.AllArgsConstructor;
 import lombok.Value;
-import org.w3c.dom.Node;
 
 import java.nio.file.Path;
+import java.util.List;
 
+/**
+ * A file element from files.xml. Only the data needed for the conversion is kept, so that memory use stays small for deposits with very many files.
+ */
 @Value
 @AllArgsConstructor
 public class DepositFile {
     Path path;
+    // The filepath attribute as it is in files.xml, which Path may have normalized
+    String filepath;
     String checksum;
-    Node xmlNode;
+    // Texts of the files:accessibleToRights children; normally there is at most one
+    List<String> accessibleToRights;
+    // Texts of the dcterms:description children
+    List<String> descriptions;
 }
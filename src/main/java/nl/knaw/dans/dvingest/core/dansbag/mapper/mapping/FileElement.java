@@ -18,11 +18,11 @@ package nl.knaw.dans.dvingest.core.dansbag.mapper.mapping;
 import lombok.Value;
 import lombok.extern.slf4j.Slf4j;
 import nl.knaw.dans.dvingest.core.dansbag.deposit.DansBagDeposit;
+import nl.knaw.dans.dvingest.core.dansbag.deposit.DepositFile;
 import nl.knaw.dans.dvingest.core.dansbag.deposit.FileInfo;
 import nl.knaw.dans.dvingest.core.dansbag.xml.XPathEvaluator;
 import nl.knaw.dans.lib.dataverse.model.file.FileMeta;
 import org.apache.commons.lang3.StringUtils;
-import org.w3c.dom.Node;
 
 import java.nio.file.Path;
 import java.util.ArrayList;
@@ -50,10 +50,16 @@ public class FileElement extends Base {
         FileMeta fileMeta;
     }
 
-    public static FileMetaResult toFileMeta(Node node, boolean defaultRestrict) {
-        var filepathAttribute = getAttribute(node, "filepath")
-            .map(Node::getTextContent)
-            .orElseThrow(() -> new RuntimeException("File node without a filepath attribute"));
+    public static FileMetaResult toFileMeta(DepositFile depositFile, boolean defaultRestrict) {
+        // Only the first accessibleToRights counts, as it did when this was read from the DOM
+        var accessibleToRights = depositFile.getAccessibleToRights().stream().findFirst().orElse(null);
+        return toFileMeta(depositFile.getFilepath(), accessibleToRights, depositFile.getDescriptions(), defaultRestrict);
+    }
+
+    private static FileMetaResult toFileMeta(String filepathAttribute, String accessibleToRights, List<String> descriptions, boolean defaultRestrict) {
+        if (filepathAttribute == null) {
+            throw new RuntimeException("File node without a filepath attribute");
+        }
 
         if (!filepathAttribute.startsWith("data/")) {
             throw new RuntimeException(String.format("file outside data folder: %s", filepathAttribute));
@@ -71,8 +77,7 @@ public class FileElement extends Base {
         var sanitizedDirLabel = replaceForbiddenCharactersInPath(dirPath);
 
         // FIL005
-        var restricted = getChildNode(node, "files:accessibleToRights")
-            .map(Node::getTextContent)
+        var restricted = Optional.ofNullable(accessibleToRights)
             .map(accessibilityToRestrict::get)
             .orElse(defaultRestrict);
 
@@ -81,7 +86,7 @@ public class FileElement extends Base {
             ? pathInDataset.toString()
             : null;
 
-        var kv = getKeyValuePairs(node, filename, originalFilePath);
+        var kv = getKeyValuePairs(descriptions, filename, originalFilePath);
 
         var description = getDescription(kv);
 
@@ -116,7 +121,7 @@ public class FileElement extends Base {
             .collect(Collectors.joining("; "));
     }
 
-    private static Map<String, List<String>> getKeyValuePairs(Node node, String filename, String originalFilePath) {
+    private static Map<String, List<String>> getKeyValuePairs(List<String> descriptions, String filename, String originalFilePath) {
         var result = new HashMap<String, List<String>>() {
 
             void addValue(String key, String value) {
@@ -132,8 +137,7 @@ public class FileElement extends Base {
         }
 
         // FIL004(A)
-        getChildNodes(node, "dcterms:description")
-            .map(Node::getTextContent)
+        descriptions.stream()
             .filter(n -> !StringUtils.equalsIgnoreCase(filename, n))
             .forEach(n -> result.addValue("description", n));
         return result;
@@ -164,7 +168,7 @@ public class FileElement extends Base {
         var bagDir = dansBagDeposit.getBagDir();
 
         dansBagDeposit.getFiles().forEach(depositFile -> {
-            var fileMetaResult = toFileMeta(depositFile.getXmlNode(), defaultRestrict);
+            var fileMetaResult = toFileMeta(depositFile, defaultRestrict);
             result.put(depositFile.getPath(), new FileInfo(
                 bagDir.resolve(depositFile.getPath()),
                 depositFile.getChecksum(),
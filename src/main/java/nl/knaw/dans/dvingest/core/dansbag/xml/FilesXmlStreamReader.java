@@ -0,0 +1,163 @@
+/*
+ * Copyright (C) 2024 DANS - Data Archiving and Networked Services (info@dans.knaw.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.knaw.dans.dvingest.core.dansbag.xml;
+
+import lombok.Value;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Reads the file elements from files.xml in a single pass with StAX, without building a DOM. Only the data needed for the mapping to Dataverse is extracted: the filepath
+ * attribute, the <code>files:accessibleToRights</code> children and the <code>dcterms:description</code> children. Time and memory are linear in the number of file elements,
+ * and only one element is held in memory at a time.
+ */
+public class FilesXmlStreamReader implements XmlNamespaces {
+
+    @Value
+    public static class FileElementData {
+        // null if the element has no filepath attribute
+        String filepath;
+        // In document order; normally there is at most one
+        List<String> accessibleToRights;
+        List<String> descriptions;
+    }
+
+    private static final XMLInputFactory xmlInputFactory = createXmlInputFactory();
+
+    private static XMLInputFactory createXmlInputFactory() {
+        var factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, true);
+        factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+        return factory;
+    }
+
+    /**
+     * Reads the file elements from files.xml and passes them to the consumer in document order.
+     *
+     * @param filesXml the files.xml file
+     * @param consumer the consumer of the file elements
+     * @throws IOException        if the file could not be read
+     * @throws XMLStreamException if the file is not well-formed XML
+     */
+    public void readFileElements(Path filesXml, Consumer<FileElementData> consumer) throws IOException, XMLStreamException {
+        try (var inputStream = Files.newInputStream(filesXml)) {
+            XMLStreamReader reader;
+            synchronized (xmlInputFactory) {
+                // Not all XMLInputFactory implementations are thread-safe
+                reader = xmlInputFactory.createXMLStreamReader(inputStream);
+            }
+            try {
+                readDocument(reader, consumer);
+            }
+            finally {
+                reader.close();
+            }
+        }
+    }
+
+    private void readDocument(XMLStreamReader reader, Consumer<FileElementData> consumer) throws XMLStreamException {
+        int depth = 0;
+        while (reader.hasNext()) {
+            var event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                depth++;
+                if (depth == 1 && !isElement(reader, NAMESPACE_FILES_XML, "files")) {
+                    // Not a files.xml document; there are no /files:files/files:file elements
+                    return;
+                }
+                if (depth == 2 && isElement(reader, NAMESPACE_FILES_XML, "file")) {
+                    consumer.accept(readFileElement(reader));
+                    depth--;
+                }
+            }
+            else if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+            }
+        }
+    }
+
+    /*
+     * Reads the file element the reader is positioned on, up to and including its end tag.
+     */
+    private FileElementData readFileElement(XMLStreamReader reader) throws XMLStreamException {
+        var filepath = reader.getAttributeValue(null, "filepath");
+        var accessibleToRights = new ArrayList<String>();
+        var descriptions = new ArrayList<String>();
+        int depth = 1;
+        while (depth > 0) {
+            var event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                // Only direct children of the file element count
+                if (depth == 1 && isElement(reader, NAMESPACE_FILES_XML, "accessibleToRights")) {
+                    accessibleToRights.add(readTextContent(reader));
+                }
+                else if (depth == 1 && isElement(reader, NAMESPACE_DCTERMS, "description")) {
+                    descriptions.add(readTextContent(reader));
+                }
+                else {
+                    depth++;
+                }
+            }
+            else if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+            }
+        }
+        return new FileElementData(filepath, Collections.unmodifiableList(accessibleToRights), Collections.unmodifiableList(descriptions));
+    }
+
+    /*
+     * Returns the concatenated text of the element and its descendants, like Node.getTextContent() does, and leaves the reader on the end tag of the element.
+     */
+    private String readTextContent(XMLStreamReader reader) throws XMLStreamException {
+        var text = new StringBuilder();
+        int depth = 1;
+        while (depth > 0) {
+            var event = reader.next();
+            switch (event) {
+                case XMLStreamConstants.START_ELEMENT:
+                    depth++;
+                    break;
+                case XMLStreamConstants.END_ELEMENT:
+                    depth--;
+                    break;
+                case XMLStreamConstants.CHARACTERS:
+                case XMLStreamConstants.CDATA:
+                case XMLStreamConstants.SPACE:
+                    text.append(reader.getText());
+                    break;
+                default:
+                    break;
+            }
+        }
+        return text.toString();
+    }
+
+    private boolean isElement(XMLStreamReader reader, String namespace, String localName) {
+        return namespace.equals(reader.getNamespaceURI()) && localName.equals(reader.getLocalName());
+    }
+}
@@ -21,62 +21,83 @@ import org.w3c.dom.NodeList;
 import javax.xml.namespace.NamespaceContext;
 import javax.xml.xpath.XPath;
 import javax.xml.xpath.XPathConstants;
+import javax.xml.xpath.XPathExpression;
 import javax.xml.xpath.XPathExpressionException;
 import javax.xml.xpath.XPathFactory;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.Map;
 import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
+/**
+ * Evaluates XPath expressions on DOM nodes. Neither {@link XPath} nor {@link XPathExpression} objects are thread-safe, so each thread gets its own XPath object and its own cache
+ * of compiled expressions. The expressions used are constants, so each of them is compiled only once per thread, and evaluations in different threads do not block each other.
+ */
 public final class XPathEvaluator implements XmlNamespaces {
 
-    private static XPath xpath;
-
-    private static XPath getXpath() {
-        if (xpath == null) {
-            xpath = XPathFactory
-                .newInstance()
-                .newXPath();
-
-            final var namespaceMap = new HashMap<String, String>();
-            namespaceMap.put("xml", XmlNamespaces.NAMESPACE_XML);
-            namespaceMap.put("dc", XmlNamespaces.NAMESPACE_DC);
-            namespaceMap.put("dcx-dai", XmlNamespaces.NAMESPACE_DCX_DAI);
-            namespaceMap.put("ddm", XmlNamespaces.NAMESPACE_DDM);
-            namespaceMap.put("dcterms", XmlNamespaces.NAMESPACE_DCTERMS);
-            namespaceMap.put("xsi", XmlNamespaces.NAMESPACE_XSI);
-            namespaceMap.put("id-type", XmlNamespaces.NAMESPACE_ID_TYPE);
-            namespaceMap.put("dcx-gml", XmlNamespaces.NAMESPACE_DCX_GML);
-            namespaceMap.put("files", XmlNamespaces.NAMESPACE_FILES_XML);
-            namespaceMap.put("afm", XmlNamespaces.NAMESPACE_AFM_XML);
-            namespaceMap.put("gml", XmlNamespaces.NAMESPACE_OPEN_GIS);
-            namespaceMap.put("wfs", XmlNamespaces.NAMESPACE_EASY_WORKFLOW);
-            namespaceMap.put("damd", XmlNamespaces.NAMESPACE_DAMD);
-            namespaceMap.put("agreements", XmlNamespaces.NAMESPACE_AGREEMENTS);
-
-            xpath.setNamespaceContext(new NamespaceContext() {
-
-                @Override
-                public String getNamespaceURI(String s) {
-                    return namespaceMap.get(s);
-                }
-
-                @Override
-                public String getPrefix(String s) {
-                    return null;
-                }
-
-                @Override
-                public Iterator<String> getPrefixes(String s) {
-                    return null;
-                }
-            });
-        }
+    private static final Map<String, String> namespaceMap = Map.ofEntries(
+        Map.entry("xml", XmlNamespaces.NAMESPACE_XML),
+        Map.entry("dc", XmlNamespaces.NAMESPACE_DC),
+        Map.entry("dcx-dai", XmlNamespaces.NAMESPACE_DCX_DAI),
+        Map.entry("ddm", XmlNamespaces.NAMESPACE_DDM),
+        Map.entry("dcterms", XmlNamespaces.NAMESPACE_DCTERMS),
+        Map.entry("xsi", XmlNamespaces.NAMESPACE_XSI),
+        Map.entry("id-type", XmlNamespaces.NAMESPACE_ID_TYPE),
+        Map.entry("dcx-gml", XmlNamespaces.NAMESPACE_DCX_GML),
+        Map.entry("files", XmlNamespaces.NAMESPACE_FILES_XML),
+        Map.entry("afm", XmlNamespaces.NAMESPACE_AFM_XML),
+        Map.entry("gml", XmlNamespaces.NAMESPACE_OPEN_GIS),
+        Map.entry("wfs", XmlNamespaces.NAMESPACE_EASY_WORKFLOW),
+        Map.entry("damd", XmlNamespaces.NAMESPACE_DAMD),
+        Map.entry("agreements", XmlNamespaces.NAMESPACE_AGREEMENTS));
+
+    // Guards against unbounded growth if an expression is ever built from data instead of constants
+    private static final int MAX_CACHED_EXPRESSIONS_PER_THREAD = 1000;
+
+    private static final ThreadLocal<XPath> xpath = ThreadLocal.withInitial(XPathEvaluator::createXpath);
+
+    private static final ThreadLocal<Map<String, XPathExpression>> compiledExpressions = ThreadLocal.withInitial(HashMap::new);
+
+    private static XPath createXpath() {
+        var xpath = XPathFactory
+            .newInstance()
+            .newXPath();
+
+        xpath.setNamespaceContext(new NamespaceContext() {
+
+            @Override
+            public String getNamespaceURI(String s) {
+                return namespaceMap.get(s);
+            }
+
+            @Override
+            public String getPrefix(String s) {
+                return null;
+            }
+
+            @Override
+            public Iterator<String> getPrefixes(String s) {
+                return null;
+            }
+        });
 
         return xpath;
     }
 
+    private static XPathExpression compile(String expr) throws XPathExpressionException {
+        var cache = compiledExpressions.get();
+        var compiled = cache.get(expr);
+        if (compiled == null) {
+            compiled = xpath.get().compile(expr);
+            if (cache.size() < MAX_CACHED_EXPRESSIONS_PER_THREAD) {
+                cache.put(expr, compiled);
+            }
+        }
+        return compiled;
+    }
+
     public static Stream<Node> nodes(Node node, String... expressions) {
         try {
             return xpathsToStream(node, expressions);
@@ -97,8 +118,8 @@ public final class XPathEvaluator implements XmlNamespaces {
         }
     }
 
-    private static synchronized Object evaluateXpath(Node node, String expr) throws XPathExpressionException {
-        return getXpath().compile(expr).evaluate(node, XPathConstants.NODESET);
+    private static Object evaluateXpath(Node node, String expr) throws XPathExpressionException {
+        return compile(expr).evaluate(node, XPathConstants.NODESET);
     }
 
     private static Stream<Node> xpathToStream(Node node, String expression) throws XPathExpressionException {
@@ -0,0 +1,219 @@
+/*
+ * Copyright (C) 2024 DANS - Data Archiving and Networked Services (info@dans.knaw.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.knaw.dans.dvingest.core.service;
+
+import lombok.NonNull;
+import nl.knaw.dans.lib.dataverse.DataverseException;
+import nl.knaw.dans.lib.dataverse.model.RoleAssignment;
+import nl.knaw.dans.lib.dataverse.model.RoleAssignmentReadOnly;
+import nl.knaw.dans.lib.dataverse.model.dataset.Dataset;
+import nl.knaw.dans.lib.dataverse.model.dataset.DatasetVersion;
+import nl.knaw.dans.lib.dataverse.model.dataset.Embargo;
+import nl.knaw.dans.lib.dataverse.model.dataset.FileList;
+import nl.knaw.dans.lib.dataverse.model.dataset.License;
+import nl.knaw.dans.lib.dataverse.model.dataset.MetadataField;
+import nl.knaw.dans.lib.dataverse.model.dataset.UpdateType;
+import nl.knaw.dans.lib.dataverse.model.file.FileMeta;
+import nl.knaw.dans.lib.dataverse.model.file.FileMetaUpdate;
+import nl.knaw.dans.lib.dataverse.model.user.AuthenticatedUser;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Decorates a {@link DataverseService} with caches for the lookups that are done for every deposit, but whose results rarely change: the Dataverse account of the depositor and the role
+ * assignments on a dataverse (in practice, root). The role assignments are cached per dataverse, indexed by assignee, so that checking the role of a depositor does not scan all
+ * assignments. Cached lists are unmodifiable, as they are shared by all callers. The caches can be shared by several instances, so that the import and auto-ingest areas benefit from each other's lookups. All other calls are
+ * passed on unchanged.
+ */
+public class CachingDataverseService implements DataverseService {
+    private final DataverseService delegate;
+    private final ExpiringCache<String, AuthenticatedUser> users;
+    private final ExpiringCache<String, Map<String, List<RoleAssignmentReadOnly>>> dataverseRoleAssignments;
+
+    public CachingDataverseService(@NonNull DataverseService delegate, @NonNull ExpiringCache<String, AuthenticatedUser> users,
+        @NonNull ExpiringCache<String, Map<String, List<RoleAssignmentReadOnly>>> dataverseRoleAssignments) {
+        this.delegate = delegate;
+        this.users = users;
+        this.dataverseRoleAssignments = dataverseRoleAssignments;
+    }
+
+    @Override
+    public String createDataset(Dataset datasetMetadata) throws DataverseException, IOException {
+        return delegate.createDataset(datasetMetadata);
+    }
+
+    @Override
+    public FileList addFile(String persistentId, Path file, FileMeta fileMeta) throws DataverseException, IOException {
+        return delegate.addFile(persistentId, file, fileMeta);
+    }
+
+    @Override
+    public FileList addZipFile(String persistentId, StreamingZipBatch zipBatch, FileMeta fileMeta) throws DataverseException, IOException {
+        return delegate.addZipFile(persistentId, zipBatch, fileMeta);
+    }
+
+    @Override
+    public void publishDataset(String persistentId, UpdateType updateType) throws DataverseException, IOException {
+        delegate.publishDataset(persistentId, updateType);
+    }
+
+    @Override
+    public List<FileMeta> getFiles(String pid, boolean includeDraftVersion) throws IOException, DataverseException {
+        return delegate.getFiles(pid, includeDraftVersion);
+    }
+
+    @Override
+    public FileMeta replaceFile(String targetDatasetPid, FileMeta fileToReplace, Path replacement) throws DataverseException, IOException {
+        return delegate.replaceFile(targetDatasetPid, fileToReplace, replacement);
+    }
+
+    @Override
+    public void deleteFiles(String pid, List<Long> ids) throws DataverseException, IOException {
+        delegate.deleteFiles(pid, ids);
+    }
+
+    @Override
+    public String getDatasetUrnNbn(String datasetId) throws IOException, DataverseException {
+        return delegate.getDatasetUrnNbn(datasetId);
+    }
+
+    @Override
+    public void updateMetadata(String targetDatasetPid, DatasetVersion datasetMetadata) throws DataverseException, IOException {
+        delegate.updateMetadata(targetDatasetPid, datasetMetadata);
+    }
+
+    @Override
+    public void updateFileMetadatas(String pid, List<FileMetaUpdate> fileMetaUpdates) throws DataverseException, IOException {
+        delegate.updateFileMetadatas(pid, fileMetaUpdates);
+    }
+
+    @Override
+    public void deleteDatasetMetadata(String pid, List<MetadataField> fields) throws DataverseException, IOException {
+        delegate.deleteDatasetMetadata(pid, fields);
+    }
+
+    @Override
+    public void editMetadata(String pid, List<MetadataField> addFieldValues, boolean b) throws DataverseException, IOException {
+        delegate.editMetadata(pid, addFieldValues, b);
+    }
+
+    @Override
+    public void addRoleAssignment(String pid, RoleAssignment roleAssignment) throws DataverseException, IOException {
+        delegate.addRoleAssignment(pid, roleAssignment);
+    }
+
+    @Override
+    public void deleteRoleAssignment(String pid, RoleAssignmentReadOnly roleAssignment) throws DataverseException, IOException {
+        delegate.deleteRoleAssignment(pid, roleAssignment);
+    }
+
+    @Override
+    public Optional<AuthenticatedUser> getUserById(String userId) {
+        var cached = users.getIfPresent(userId);
+        if (cached.isPresent()) {
+            return cached;
+        }
+        var user = delegate.getUserById(userId);
+        // An empty result may also mean that Dataverse could not be reached, so it is not cached
+        user.ifPresent(u -> users.put(userId, u));
+        return user;
+    }
+
+    @Override
+    public List<License> getSupportedLicenses() throws IOException, DataverseException {
+        return delegate.getSupportedLicenses();
+    }
+
+    @Override
+    public Set<String> getActiveMetadataBlockNames() throws IOException, DataverseException {
+        return delegate.getActiveMetadataBlockNames();
+    }
+
+    @Override
+    public void addEmbargo(String pid, Embargo embargo) throws IOException, DataverseException {
+        delegate.addEmbargo(pid, embargo);
+    }
+
+    @Override
+    public List<String> findDoiByMetadataField(String fieldName, String value) throws IOException, DataverseException {
+        return delegate.findDoiByMetadataField(fieldName, value);
+    }
+
+    @Override
+    public DatasetVersion getDatasetMetadata(String pid) throws IOException, DataverseException {
+        return delegate.getDatasetMetadata(pid);
+    }
+
+    @Override
+    public DatasetVersion getDatasetMetadataFirstVersion(String pid) throws IOException, DataverseException {
+        return delegate.getDatasetMetadataFirstVersion(pid);
+    }
+
+    @Override
+    public String getDatasetState(String targetPid) throws IOException, DataverseException {
+        return delegate.getDatasetState(targetPid);
+    }
+
+    @Override
+    public void importDataset(String pid, Dataset dataset) throws IOException, DataverseException {
+        delegate.importDataset(pid, dataset);
+    }
+
+    @Override
+    public void releaseMigratedDataset(String pid, String date) throws DataverseException, IOException {
+        delegate.releaseMigratedDataset(pid, date);
+    }
+
+    @Override
+    public void waitForReleasedState(String persistentId, int numberOfFilesInDataset, long totalFileSize) throws DataverseException, IOException {
+        delegate.waitForReleasedState(persistentId, numberOfFilesInDataset, totalFileSize);
+    }
+
+    @Override
+    public List<RoleAssignmentReadOnly> getRoleAssignmentsOnDataverse(String dataverseAlias) throws DataverseException, IOException {
+        return getRoleAssignmentsByAssignee(dataverseAlias).values().stream()
+            .flatMap(List::stream)
+            .collect(Collectors.toUnmodifiableList());
+    }
+
+    @Override
+    public List<RoleAssignmentReadOnly> getRoleAssignmentsOnDataverse(String dataverseAlias, String assignee) throws DataverseException, IOException {
+        return getRoleAssignmentsByAssignee(dataverseAlias).getOrDefault(assignee, List.of());
+    }
+
+    private Map<String, List<RoleAssignmentReadOnly>> getRoleAssignmentsByAssignee(String dataverseAlias) throws DataverseException, IOException {
+        var cached = dataverseRoleAssignments.getIfPresent(dataverseAlias);
+        if (cached.isPresent()) {
+            return cached.get();
+        }
+        var roleAssignmentsByAssignee = delegate.getRoleAssignmentsOnDataverse(dataverseAlias).stream()
+            .collect(Collectors.groupingBy(RoleAssignmentReadOnly::getAssignee, Collectors.toUnmodifiableList()));
+        var index = Map.copyOf(roleAssignmentsByAssignee);
+        dataverseRoleAssignments.put(dataverseAlias, index);
+        return index;
+    }
+
+    @Override
+    public List<RoleAssignmentReadOnly> getRoleAssignmentsOnDataset(String persistentId) throws DataverseException, IOException {
+        return delegate.getRoleAssignmentsOnDataset(persistentId);
+    }
+}
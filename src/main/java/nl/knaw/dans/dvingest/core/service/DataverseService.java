@@ -41,6 +41,8 @@ public interface DataverseService {
 
     FileList addFile(String persistentId, Path file, FileMeta fileMeta) throws DataverseException, IOException;
 
+    FileList addZipFile(String persistentId, StreamingZipBatch zipBatch, FileMeta fileMeta) throws DataverseException, IOException;
+
     void publishDataset(String persistentId, UpdateType updateType) throws DataverseException, IOException;
 
     List<FileMeta> getFiles(String pid, boolean includeDraftVersion) throws IOException, DataverseException;
@@ -61,7 +63,7 @@ public interface DataverseService {
 
     void addRoleAssignment(String pid, RoleAssignment roleAssignment) throws DataverseException, IOException;
 
-    void deleteRoleAssignment(String pid, RoleAssignment roleAssignment) throws DataverseException, IOException;
+    void deleteRoleAssignment(String pid, RoleAssignmentReadOnly roleAssignment) throws DataverseException, IOException;
 
     Optional<AuthenticatedUser> getUserById(String userId);
 
@@ -83,9 +85,11 @@ public interface DataverseService {
 
     void releaseMigratedDataset(String pid, String date) throws DataverseException, IOException;
 
-    void waitForReleasedState(String persistentId, int numberOfFilesInDataset) throws DataverseException, IOException;
+    void waitForReleasedState(String persistentId, int numberOfFilesInDataset, long totalFileSize) throws DataverseException, IOException;
 
     List<RoleAssignmentReadOnly> getRoleAssignmentsOnDataverse(String dataverseAlias) throws DataverseException, IOException;
 
+    List<RoleAssignmentReadOnly> getRoleAssignmentsOnDataverse(String dataverseAlias, String assignee) throws DataverseException, IOException;
+
     List<RoleAssignmentReadOnly> getRoleAssignmentsOnDataset(String persistentId) throws DataverseException, IOException;
 }
@@ -39,6 +39,7 @@ import nl.knaw.dans.lib.dataverse.model.search.DatasetResultItem;
 import nl.knaw.dans.lib.dataverse.model.user.AuthenticatedUser;
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.net.URI;
 import java.nio.file.Path;
 import java.util.HashMap;
@@ -54,18 +55,29 @@ public class DataverseServiceImpl implements DataverseService {
     @NonNull
     private final DataverseClient dataverseClient;
 
+    // The maximum time between two polls of the dataset state while waiting for it to be released
     @Builder.Default
     private long pollingInterval = 3000; // 3 seconds
 
+    @Builder.Default
+    private long minPollingInterval = 500;
+
+    // The publish duration per file that is assumed before any publishes have been observed
     @Builder.Default
     private long leadTimePerFile = 200;
 
+    // If not set, a model private to this service is used
+    private PublishDurationModel publishDurationModel;
+
     @Builder.Default
     private long timeout = 1800000; // 30 minutes
 
     @Builder.Default
     private Map<String, String> metadataKeys = new HashMap<>();
 
+    // Only needed for addZipFile
+    private final StreamingFileUploader streamingFileUploader;
+
     public String createDataset(Dataset datasetMetadata) throws DataverseException, IOException {
         var result = dataverseClient.dataverse("root").createDataset(datasetMetadata, metadataKeys);
         log.debug(result.getEnvelopeAsString());
@@ -81,6 +93,15 @@ public class DataverseServiceImpl implements DataverseService {
         return result.getData();
     }
 
+    @Override
+    public FileList addZipFile(String persistentId, StreamingZipBatch zipBatch, FileMeta fileMeta) throws DataverseException, IOException {
+        if (streamingFileUploader == null) {
+            throw new IllegalStateException("Streaming upload is not configured");
+        }
+        dataverseClient.dataset(persistentId).awaitUnlock(List.of("Ingest"), 10, 1000);
+        return streamingFileUploader.addZipFile(persistentId, zipBatch, fileMeta);
+    }
+
     @Override
     public void publishDataset(String persistentId, UpdateType updateType) throws DataverseException, IOException {
         var result = dataverseClient.dataset(persistentId).publish(updateType, true);
@@ -142,16 +163,10 @@ public class DataverseServiceImpl implements DataverseService {
     }
 
     @Override
-    public void deleteRoleAssignment(String pid, RoleAssignment roleAssignment) throws DataverseException, IOException {
-        var listResult = dataverseClient.dataset(pid).listRoleAssignments();
-        var list = listResult.getData();
-        for (RoleAssignmentReadOnly ra : list) {
-            if (ra.getAssignee().equals(roleAssignment.getAssignee()) && ra.get_roleAlias().equals(roleAssignment.getRole())) {
-                log.debug("Deleting role assignment: {}", ra);
-                var deleteResult = dataverseClient.dataset(pid).deleteRoleAssignment(ra.getId());
-                log.debug(deleteResult.getEnvelopeAsString());
-            }
-        }
+    public void deleteRoleAssignment(String pid, RoleAssignmentReadOnly roleAssignment) throws DataverseException, IOException {
+        log.debug("Deleting role assignment: {}", roleAssignment);
+        var deleteResult = dataverseClient.dataset(pid).deleteRoleAssignment(roleAssignment.getId());
+        log.debug(deleteResult.getEnvelopeAsString());
     }
 
     @Override
@@ -249,18 +264,68 @@ public class DataverseServiceImpl implements DataverseService {
         log.debug(result.getEnvelopeAsString());
     }
 
+    /**
+     * Waits for the dataset to reach the released state. The dataset state is polled adaptively around the publish duration predicted by the {@link PublishDurationModel}: before the
+     * predicted completion time, each poll waits half of the remaining time, and after it the wait grows with the time overdue; each wait is at least minPollingInterval. Once the wait
+     * has grown to pollingInterval, the rest of the waiting, up to the timeout, is left to the client, so that a timeout is reported as before.
+     * <p>
+     * The dataset was released somewhere between the last poll that saw it unreleased and the first one that saw it released. The midpoint of these is fed back into the model, so that
+     * the coarse polling far from the predicted time does not bias the model towards its own predictions.
+     */
     @Override
-    public void waitForReleasedState(String pid, int numberOfFilesInDataset) throws DataverseException, IOException {
-        long leadTime = numberOfFilesInDataset * leadTimePerFile;
-        log.debug("Waiting {} ms before first check", leadTime);
-        try {
-            Thread.sleep(leadTime);
+    public void waitForReleasedState(String pid, int numberOfFilesInDataset, long totalFileSize) throws DataverseException, IOException {
+        var model = getPublishDurationModel();
+        long predicted = model.predict(numberOfFilesInDataset, totalFileSize);
+        long start = System.currentTimeMillis();
+        long deadline = start + predicted + timeout;
+        // Publishing has only just been started, so the dataset is not released yet
+        long lastUnreleased = start;
+        log.debug("Start waiting for dataset {} to be released; predicted publish duration {} ms", pid, predicted);
+        while (true) {
+            long now = System.currentTimeMillis();
+            long delay = nextPollDelay(predicted, now - start, minPollingInterval, pollingInterval);
+            if (now >= deadline || (now - start >= predicted && delay >= pollingInterval)) {
+                log.debug("Dataset {} not released {} ms after predicted time; polling every {} ms", pid, now - start - predicted, pollingInterval);
+                dataverseClient.dataset(pid).awaitState("RELEASED", Math.max(0, deadline - now), pollingInterval);
+                long released = System.currentTimeMillis();
+                model.record(numberOfFilesInDataset, totalFileSize, predicted, observedDuration(start, Math.max(lastUnreleased, released - pollingInterval), released));
+                return;
+            }
+            try {
+                Thread.sleep(Math.min(delay, deadline - now));
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for dataset " + pid + " to be released");
+            }
+            long poll = System.currentTimeMillis();
+            if ("RELEASED".equals(getDatasetState(pid))) {
+                model.record(numberOfFilesInDataset, totalFileSize, predicted, observedDuration(start, lastUnreleased, poll));
+                return;
+            }
+            lastUnreleased = poll;
         }
-        catch (InterruptedException e) {
-            log.error("Interrupted during lead time. Continuing", e);
+    }
+
+    /*
+     * The best estimate of the publish duration, given the last time the dataset was seen unreleased and the first time it was seen released.
+     */
+    static long observedDuration(long start, long lastUnreleased, long released) {
+        return lastUnreleased + (released - lastUnreleased) / 2 - start;
+    }
+
+    static long nextPollDelay(long predicted, long elapsed, long minPollingInterval, long maxPollingInterval) {
+        if (elapsed < predicted) {
+            return Math.max(minPollingInterval, (predicted - elapsed) / 2);
         }
-        log.debug("Start waiting for dataset {} to be released", pid);
-        dataverseClient.dataset(pid).awaitState("RELEASED", timeout, pollingInterval);
+        return Math.min(maxPollingInterval, Math.max(minPollingInterval, (elapsed - predicted) / 2));
+    }
+
+    private synchronized PublishDurationModel getPublishDurationModel() {
+        if (publishDurationModel == null) {
+            publishDurationModel = new PublishDurationModel(leadTimePerFile, IngestMetrics.disabled());
+        }
+        return publishDurationModel;
     }
 
     @Override
@@ -269,6 +334,13 @@ public class DataverseServiceImpl implements DataverseService {
         return result.getData();
     }
 
+    @Override
+    public List<RoleAssignmentReadOnly> getRoleAssignmentsOnDataverse(String dataverseAlias, String assignee) throws DataverseException, IOException {
+        return getRoleAssignmentsOnDataverse(dataverseAlias).stream()
+            .filter(roleAssignment -> assignee.equals(roleAssignment.getAssignee()))
+            .collect(Collectors.toList());
+    }
+
     @Override
     public List<RoleAssignmentReadOnly> getRoleAssignmentsOnDataset(String persistentId) throws DataverseException, IOException {
         var result = dataverseClient.dataset(persistentId).listRoleAssignments();
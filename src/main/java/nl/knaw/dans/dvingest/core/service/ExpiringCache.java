@@ -0,0 +1,126 @@
+/*
+ * Copyright (C) 2024 DANS - Data Archiving and Networked Services (info@dans.knaw.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.knaw.dans.dvingest.core.service;
+
+import lombok.NonNull;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * A bounded cache of values that expire a fixed time after they were put in the cache. When the cache is full, the least recently used value is evicted. Hits, misses and evictions are counted
+ * in meters named {@code ingest.cache.<name>.hits}, {@code .misses} and {@code .evictions}, and the ratio of hits to lookups is reported by a gauge named {@code ingest.cache.<name>.hit-ratio}.
+ *
+ * @param <K> the type of the keys
+ * @param <V> the type of the values
+ */
+public class ExpiringCache<K, V> {
+    private final String name;
+    private final int maximumSize;
+    private final long timeToLiveNanos;
+    private final IngestMetrics metrics;
+    private final LongSupplier nanoClock;
+
+    private final Map<K, Entry<V>> entries;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public ExpiringCache(@NonNull String name, int maximumSize, @NonNull Duration timeToLive, @NonNull IngestMetrics metrics) {
+        this(name, maximumSize, timeToLive, metrics, System::nanoTime);
+    }
+
+    ExpiringCache(String name, int maximumSize, Duration timeToLive, IngestMetrics metrics, LongSupplier nanoClock) {
+        if (maximumSize < 1) {
+            throw new IllegalArgumentException("maximumSize must be at least 1, but was " + maximumSize);
+        }
+        this.name = name;
+        this.maximumSize = maximumSize;
+        this.timeToLiveNanos = timeToLive.toNanos();
+        this.metrics = metrics;
+        this.nanoClock = nanoClock;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+                if (size() > ExpiringCache.this.maximumSize) {
+                    metrics.mark(1, "cache", name, "evictions");
+                    return true;
+                }
+                return false;
+            }
+        };
+        metrics.gauge(this::getHitRatio, "cache", name, "hit-ratio");
+    }
+
+    /**
+     * Returns the value for the key, if it is in the cache and has not expired.
+     *
+     * @param key the key
+     * @return the value, or empty if it must be fetched again
+     */
+    public synchronized Optional<V> getIfPresent(K key) {
+        var entry = entries.get(key);
+        if (entry != null && nanoClock.getAsLong() - entry.expiresAt < 0) {
+            hits.incrementAndGet();
+            metrics.mark(1, "cache", name, "hits");
+            return Optional.of(entry.value);
+        }
+        if (entry != null) {
+            entries.remove(key);
+        }
+        misses.incrementAndGet();
+        metrics.mark(1, "cache", name, "misses");
+        return Optional.empty();
+    }
+
+    public synchronized void put(@NonNull K key, @NonNull V value) {
+        entries.put(key, new Entry<>(value, nanoClock.getAsLong() + timeToLiveNanos));
+    }
+
+    public synchronized void invalidate(K key) {
+        entries.remove(key);
+    }
+
+    public synchronized void invalidateAll() {
+        entries.clear();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return the fraction of lookups that were hits since the cache was created, or NaN if there were no lookups yet
+     */
+    public double getHitRatio() {
+        var h = hits.get();
+        var total = h + misses.get();
+        return total == 0 ? Double.NaN : (double) h / total;
+    }
+
+    private static class Entry<V> {
+        private final V value;
+        private final long expiresAt;
+
+        private Entry(V value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
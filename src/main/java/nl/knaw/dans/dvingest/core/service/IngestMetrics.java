@@ -0,0 +1,88 @@
+/*
+ * Copyright (C) 2024 DANS - Data Archiving and Networked Services (info@dans.knaw.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.knaw.dans.dvingest.core.service;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+
+/**
+ * Records timers, meters, histograms and gauges for the ingest pipeline in a Dropwizard {@link MetricRegistry}. The metrics in the registry of the application are reported on the admin port
+ * (/metrics). All metric names start with {@value #PREFIX}.
+ */
+public class IngestMetrics {
+    public static final String PREFIX = "ingest";
+
+    // If null, nothing is recorded
+    private final MetricRegistry metricRegistry;
+
+    public IngestMetrics(MetricRegistry metricRegistry) {
+        this.metricRegistry = metricRegistry;
+    }
+
+    public static IngestMetrics disabled() {
+        return new IngestMetrics(null);
+    }
+
+    /**
+     * Starts timing an operation. The time is recorded when the returned context is closed, so it can be used in a try-with-resources statement.
+     *
+     * @param names the parts of the name of the timer, after the prefix
+     * @return the timer context
+     */
+    public Timer.Context time(String... names) {
+        if (metricRegistry == null) {
+            return new Timer().time();
+        }
+        return metricRegistry.timer(MetricRegistry.name(PREFIX, names)).time();
+    }
+
+    /**
+     * Records that a number of events (e.g., bytes uploaded) occurred.
+     *
+     * @param count the number of events
+     * @param names the parts of the name of the meter, after the prefix
+     */
+    public void mark(long count, String... names) {
+        if (metricRegistry != null) {
+            metricRegistry.meter(MetricRegistry.name(PREFIX, names)).mark(count);
+        }
+    }
+
+    /**
+     * Records a value (e.g., the error of a prediction) in a histogram.
+     *
+     * @param value the value
+     * @param names the parts of the name of the histogram, after the prefix
+     */
+    public void update(long value, String... names) {
+        if (metricRegistry != null) {
+            metricRegistry.histogram(MetricRegistry.name(PREFIX, names)).update(value);
+        }
+    }
+
+    /**
+     * Registers a gauge, unless a metric with the same name was registered before.
+     *
+     * @param gauge the gauge
+     * @param names the parts of the name of the gauge, after the prefix
+     */
+    public void gauge(Gauge<?> gauge, String... names) {
+        if (metricRegistry != null) {
+            metricRegistry.gauge(MetricRegistry.name(PREFIX, names), () -> gauge);
+        }
+    }
+}
@@ -0,0 +1,220 @@
+/*
+ * Copyright (C) 2024 DANS - Data Archiving and Networked Services (info@dans.knaw.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.knaw.dans.dvingest.core.service;
+
+import lombok.NonNull;
+import nl.knaw.dans.lib.dataverse.DataverseException;
+import nl.knaw.dans.lib.dataverse.model.RoleAssignment;
+import nl.knaw.dans.lib.dataverse.model.RoleAssignmentReadOnly;
+import nl.knaw.dans.lib.dataverse.model.dataset.Dataset;
+import nl.knaw.dans.lib.dataverse.model.dataset.DatasetVersion;
+import nl.knaw.dans.lib.dataverse.model.dataset.Embargo;
+import nl.knaw.dans.lib.dataverse.model.dataset.FileList;
+import nl.knaw.dans.lib.dataverse.model.dataset.License;
+import nl.knaw.dans.lib.dataverse.model.dataset.MetadataField;
+import nl.knaw.dans.lib.dataverse.model.dataset.UpdateType;
+import nl.knaw.dans.lib.dataverse.model.file.FileMeta;
+import nl.knaw.dans.lib.dataverse.model.file.FileMetaUpdate;
+import nl.knaw.dans.lib.dataverse.model.user.AuthenticatedUser;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Decorates a {@link DataverseService} with a timer for each call, named {@code ingest.dataverse.<method>}. Failed calls are also counted in a meter named
+ * {@code ingest.dataverse.<method>.failures}.
+ */
+public class MeteredDataverseService implements DataverseService {
+    private final DataverseService delegate;
+    private final IngestMetrics metrics;
+
+    public MeteredDataverseService(@NonNull DataverseService delegate, @NonNull IngestMetrics metrics) {
+        this.delegate = delegate;
+        this.metrics = metrics;
+    }
+
+    @FunctionalInterface
+    private interface DataverseCall<T> {
+        T call() throws IOException, DataverseException;
+    }
+
+    @FunctionalInterface
+    private interface VoidDataverseCall {
+        void run() throws IOException, DataverseException;
+    }
+
+    private <T> T call(String method, DataverseCall<T> call) throws IOException, DataverseException {
+        try (var ignored = metrics.time("dataverse", method)) {
+            return call.call();
+        }
+        catch (IOException | DataverseException | RuntimeException e) {
+            metrics.mark(1, "dataverse", method, "failures");
+            throw e;
+        }
+    }
+
+    private void run(String method, VoidDataverseCall call) throws IOException, DataverseException {
+        call(method, () -> {
+            call.run();
+            return null;
+        });
+    }
+
+    @Override
+    public String createDataset(Dataset datasetMetadata) throws DataverseException, IOException {
+        return call("createDataset", () -> delegate.createDataset(datasetMetadata));
+    }
+
+    @Override
+    public FileList addFile(String persistentId, Path file, FileMeta fileMeta) throws DataverseException, IOException {
+        return call("addFile", () -> delegate.addFile(persistentId, file, fileMeta));
+    }
+
+    @Override
+    public FileList addZipFile(String persistentId, StreamingZipBatch zipBatch, FileMeta fileMeta) throws DataverseException, IOException {
+        return call("addZipFile", () -> delegate.addZipFile(persistentId, zipBatch, fileMeta));
+    }
+
+    @Override
+    public void publishDataset(String persistentId, UpdateType updateType) throws DataverseException, IOException {
+        run("publishDataset", () -> delegate.publishDataset(persistentId, updateType));
+    }
+
+    @Override
+    public List<FileMeta> getFiles(String pid, boolean includeDraftVersion) throws IOException, DataverseException {
+        return call("getFiles", () -> delegate.getFiles(pid, includeDraftVersion));
+    }
+
+    @Override
+    public FileMeta replaceFile(String targetDatasetPid, FileMeta fileToReplace, Path replacement) throws DataverseException, IOException {
+        return call("replaceFile", () -> delegate.replaceFile(targetDatasetPid, fileToReplace, replacement));
+    }
+
+    @Override
+    public void deleteFiles(String pid, List<Long> ids) throws DataverseException, IOException {
+        run("deleteFiles", () -> delegate.deleteFiles(pid, ids));
+    }
+
+    @Override
+    public String getDatasetUrnNbn(String datasetId) throws IOException, DataverseException {
+        return call("getDatasetUrnNbn", () -> delegate.getDatasetUrnNbn(datasetId));
+    }
+
+    @Override
+    public void updateMetadata(String targetDatasetPid, DatasetVersion datasetMetadata) throws DataverseException, IOException {
+        run("updateMetadata", () -> delegate.updateMetadata(targetDatasetPid, datasetMetadata));
+    }
+
+    @Override
+    public void updateFileMetadatas(String pid, List<FileMetaUpdate> fileMetaUpdates) throws DataverseException, IOException {
+        run("updateFileMetadatas", () -> delegate.updateFileMetadatas(pid, fileMetaUpdates));
+    }
+
+    @Override
+    public void deleteDatasetMetadata(String pid, List<MetadataField> fields) throws DataverseException, IOException {
+        run("deleteDatasetMetadata", () -> delegate.deleteDatasetMetadata(pid, fields));
+    }
+
+    @Override
+    public void editMetadata(String pid, List<MetadataField> addFieldValues, boolean b) throws DataverseException, IOException {
+        run("editMetadata", () -> delegate.editMetadata(pid, addFieldValues, b));
+    }
+
+    @Override
+    public void addRoleAssignment(String pid, RoleAssignment roleAssignment) throws DataverseException, IOException {
+        run("addRoleAssignment", () -> delegate.addRoleAssignment(pid, roleAssignment));
+    }
+
+    @Override
+    public void deleteRoleAssignment(String pid, RoleAssignmentReadOnly roleAssignment) throws DataverseException, IOException {
+        run("deleteRoleAssignment", () -> delegate.deleteRoleAssignment(pid, roleAssignment));
+    }
+
+    @Override
+    public Optional<AuthenticatedUser> getUserById(String userId) {
+        try (var ignored = metrics.time("dataverse", "getUserById")) {
+            return delegate.getUserById(userId);
+        }
+    }
+
+    @Override
+    public List<License> getSupportedLicenses() throws IOException, DataverseException {
+        return call("getSupportedLicenses", () -> delegate.getSupportedLicenses());
+    }
+
+    @Override
+    public Set<String> getActiveMetadataBlockNames() throws IOException, DataverseException {
+        return call("getActiveMetadataBlockNames", () -> delegate.getActiveMetadataBlockNames());
+    }
+
+    @Override
+    public void addEmbargo(String pid, Embargo embargo) throws IOException, DataverseException {
+        run("addEmbargo", () -> delegate.addEmbargo(pid, embargo));
+    }
+
+    @Override
+    public List<String> findDoiByMetadataField(String fieldName, String value) throws IOException, DataverseException {
+        return call("findDoiByMetadataField", () -> delegate.findDoiByMetadataField(fieldName, value));
+    }
+
+    @Override
+    public DatasetVersion getDatasetMetadata(String pid) throws IOException, DataverseException {
+        return call("getDatasetMetadata", () -> delegate.getDatasetMetadata(pid));
+    }
+
+    @Override
+    public DatasetVersion getDatasetMetadataFirstVersion(String pid) throws IOException, DataverseException {
+        return call("getDatasetMetadataFirstVersion", () -> delegate.getDatasetMetadataFirstVersion(pid));
+    }
+
+    @Override
+    public String getDatasetState(String targetPid) throws IOException, DataverseException {
+        return call("getDatasetState", () -> delegate.getDatasetState(targetPid));
+    }
+
+    @Override
+    public void importDataset(String pid, Dataset dataset) throws IOException, DataverseException {
+        run("importDataset", () -> delegate.importDataset(pid, dataset));
+    }
+
+    @Override
+    public void releaseMigratedDataset(String pid, String date) throws DataverseException, IOException {
+        run("releaseMigratedDataset", () -> delegate.releaseMigratedDataset(pid, date));
+    }
+
+    @Override
+    public void waitForReleasedState(String persistentId, int numberOfFilesInDataset, long totalFileSize) throws DataverseException, IOException {
+        run("waitForReleasedState", () -> delegate.waitForReleasedState(persistentId, numberOfFilesInDataset, totalFileSize));
+    }
+
+    @Override
+    public List<RoleAssignmentReadOnly> getRoleAssignmentsOnDataverse(String dataverseAlias) throws DataverseException, IOException {
+        return call("getRoleAssignmentsOnDataverse", () -> delegate.getRoleAssignmentsOnDataverse(dataverseAlias));
+    }
+
+    @Override
+    public List<RoleAssignmentReadOnly> getRoleAssignmentsOnDataverse(String dataverseAlias, String assignee) throws DataverseException, IOException {
+        return call("getRoleAssignmentsOnDataverse", () -> delegate.getRoleAssignmentsOnDataverse(dataverseAlias, assignee));
+    }
+
+    @Override
+    public List<RoleAssignmentReadOnly> getRoleAssignmentsOnDataset(String persistentId) throws DataverseException, IOException {
+        return call("getRoleAssignmentsOnDataset", () -> delegate.getRoleAssignmentsOnDataset(persistentId));
+    }
+}
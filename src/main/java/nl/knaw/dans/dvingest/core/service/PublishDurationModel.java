@@ -0,0 +1,122 @@
+/*
+ * Copyright (C) 2024 DANS - Data Archiving and Networked Services (info@dans.knaw.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.knaw.dans.dvingest.core.service;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Predicts how long it takes Dataverse to publish a dataset, based on the publishes observed so far. Datasets are grouped by the order of magnitude (powers of two) of their number of
+ * files and of their total size in MiB; for each group an exponentially weighted moving average of the observed durations is kept. For a group without observations, the average
+ * duration per file over all observed publishes is used, and before anything has been observed, the configured lead time per file.
+ * <p>
+ * The difference between the observed and the predicted duration is recorded in a histogram named {@code ingest.publish.predictionError}, in milliseconds. A positive error means
+ * that publishing took longer than predicted. The model is kept in memory only, so it starts from the lead time per file again after a restart.
+ */
+@Slf4j
+public class PublishDurationModel {
+    private static final double WEIGHT_OF_NEW_OBSERVATION = 0.3;
+    private static final long MEBIBYTE = 1024 * 1024;
+
+    private final long leadTimePerFile;
+    private final IngestMetrics metrics;
+
+    private final Map<Bucket, Double> averageDurationPerBucket = new HashMap<>();
+    // If null, nothing has been observed yet
+    private Double averageDurationPerFile;
+
+    public PublishDurationModel(long leadTimePerFile, IngestMetrics metrics) {
+        this.leadTimePerFile = leadTimePerFile;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Predicts the duration of publishing a dataset.
+     *
+     * @param numberOfFiles the number of files in the dataset
+     * @param totalFileSize the total size of the files in the dataset, in bytes
+     * @return the predicted duration in milliseconds
+     */
+    public synchronized long predict(int numberOfFiles, long totalFileSize) {
+        var average = averageDurationPerBucket.get(Bucket.of(numberOfFiles, totalFileSize));
+        if (average != null) {
+            return Math.round(average);
+        }
+        if (averageDurationPerFile != null) {
+            return Math.round(averageDurationPerFile * numberOfFiles);
+        }
+        return leadTimePerFile * numberOfFiles;
+    }
+
+    /**
+     * Records an observed duration of publishing a dataset, so that it is taken into account in later predictions.
+     *
+     * @param numberOfFiles the number of files in the dataset
+     * @param totalFileSize the total size of the files in the dataset, in bytes
+     * @param predicted     the duration that was predicted for this publish, in milliseconds
+     * @param observed      the observed duration, in milliseconds
+     */
+    public synchronized void record(int numberOfFiles, long totalFileSize, long predicted, long observed) {
+        averageDurationPerBucket.merge(Bucket.of(numberOfFiles, totalFileSize), (double) observed, PublishDurationModel::movingAverage);
+        if (numberOfFiles > 0) {
+            var durationPerFile = (double) observed / numberOfFiles;
+            averageDurationPerFile = averageDurationPerFile == null ? durationPerFile : movingAverage(averageDurationPerFile, durationPerFile);
+        }
+        metrics.update(observed - predicted, "publish", "predictionError");
+        log.debug("Publish of dataset with {} files and {} bytes took {} ms; predicted {} ms", numberOfFiles, totalFileSize, observed, predicted);
+    }
+
+    private static double movingAverage(double average, double observation) {
+        return (1 - WEIGHT_OF_NEW_OBSERVATION) * average + WEIGHT_OF_NEW_OBSERVATION * observation;
+    }
+
+    private static final class Bucket {
+        private final int filesMagnitude;
+        private final int sizeMagnitude;
+
+        private Bucket(int filesMagnitude, int sizeMagnitude) {
+            this.filesMagnitude = filesMagnitude;
+            this.sizeMagnitude = sizeMagnitude;
+        }
+
+        static Bucket of(int numberOfFiles, long totalFileSize) {
+            return new Bucket(magnitude(numberOfFiles), magnitude(totalFileSize / MEBIBYTE));
+        }
+
+        private static int magnitude(long n) {
+            return 64 - Long.numberOfLeadingZeros(Math.max(0, n));
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Bucket)) {
+                return false;
+            }
+            var other = (Bucket) o;
+            return filesMagnitude == other.filesMagnitude && sizeMagnitude == other.sizeMagnitude;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * filesMagnitude + sizeMagnitude;
+        }
+    }
+}
@@ -0,0 +1,195 @@
+/*
+ * Copyright (C) 2024 DANS - Data Archiving and Networked Services (info@dans.knaw.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.knaw.dans.dvingest.core.service;
+
+import io.dropwizard.lifecycle.Managed;
+import lombok.extern.slf4j.Slf4j;
+import nl.knaw.dans.lib.dataverse.DataverseException;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.LongSupplier;
+
+/**
+ * Caches reference data fetched from Dataverse, such as the supported licenses, so that it can be shared by all ingest areas and worker threads. Reading does not lock: the data is replaced as a
+ * whole when it is refreshed. When managed, the data is fetched at startup and refreshed in the background every time-to-live. A reader that finds the data expired still gets the stale data, and
+ * triggers a refresh in the background. If a refresh fails, the stale data is kept and the refresh is retried after {@link #RETRY_DELAY} (or the time-to-live, if that is shorter).
+ *
+ * @param <T> the type of the data
+ */
+@Slf4j
+public class ReferenceDataCache<T> implements Managed {
+    static final Duration RETRY_DELAY = Duration.ofMinutes(1);
+
+    private final String name;
+    private final Loader<T> loader;
+    // If null, the data never expires
+    private final Duration timeToLive;
+    // If null, expired data is refreshed on the thread of the reader that finds it expired
+    private final ScheduledExecutorService scheduler;
+    private final LongSupplier nanoClock;
+
+    private final AtomicReference<Snapshot<T>> snapshot = new AtomicReference<>();
+    private final AtomicBoolean refreshing = new AtomicBoolean(false);
+    private final Object initialLoadLock = new Object();
+    private volatile ScheduledFuture<?> scheduledRefresh;
+
+    @FunctionalInterface
+    public interface Loader<T> {
+        T load() throws IOException, DataverseException;
+    }
+
+    public ReferenceDataCache(String name, Loader<T> loader, Duration timeToLive, ScheduledExecutorService scheduler) {
+        this(name, loader, timeToLive, scheduler, System::nanoTime);
+    }
+
+    ReferenceDataCache(String name, Loader<T> loader, Duration timeToLive, ScheduledExecutorService scheduler, LongSupplier nanoClock) {
+        this.name = name;
+        this.loader = loader;
+        this.timeToLive = timeToLive;
+        this.scheduler = scheduler;
+        this.nanoClock = nanoClock;
+    }
+
+    /**
+     * Creates a cache that fetches the data when it is first needed and never refreshes it.
+     *
+     * @param name   the name of the data, for logging
+     * @param loader fetches the data
+     * @param <T>    the type of the data
+     * @return the cache
+     */
+    public static <T> ReferenceDataCache<T> loadedOnce(String name, Loader<T> loader) {
+        return new ReferenceDataCache<>(name, loader, null, null);
+    }
+
+    /**
+     * Returns the cached data. Only the very first call, if the data could not be fetched at startup, waits for Dataverse.
+     *
+     * @return the data
+     * @throws IllegalStateException if there is no data yet and it cannot be fetched
+     */
+    public T get() {
+        var current = snapshot.get();
+        if (current == null) {
+            return loadInitial();
+        }
+        if (current.expiresAt != null && nanoClock.getAsLong() - current.expiresAt >= 0) {
+            refreshInBackground();
+        }
+        return current.data;
+    }
+
+    /**
+     * Fetches the data again, replacing the cached data if successful.
+     *
+     * @return the fetched data
+     * @throws IOException        if the data could not be fetched
+     * @throws DataverseException if Dataverse returned an error
+     */
+    public T refresh() throws IOException, DataverseException {
+        var started = nanoClock.getAsLong();
+        var data = loader.load();
+        snapshot.set(new Snapshot<>(data, expiresAt(started, timeToLive)));
+        log.debug("Fetched {} from Dataverse", name);
+        return data;
+    }
+
+    @Override
+    public void start() {
+        try {
+            refresh();
+        }
+        catch (Exception e) {
+            log.warn("Could not fetch {} from Dataverse at startup; will try again when first needed", name, e);
+        }
+        if (scheduler != null && timeToLive != null) {
+            var period = timeToLive.toMillis();
+            scheduledRefresh = scheduler.scheduleWithFixedDelay(this::refreshInBackground, period, period, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @Override
+    public void stop() {
+        var future = scheduledRefresh;
+        if (future != null) {
+            future.cancel(false);
+        }
+    }
+
+    private T loadInitial() {
+        synchronized (initialLoadLock) {
+            var current = snapshot.get();
+            if (current != null) {
+                return current.data;
+            }
+            try {
+                return refresh();
+            }
+            catch (IOException | DataverseException e) {
+                throw new IllegalStateException("Could not fetch " + name + " from Dataverse", e);
+            }
+        }
+    }
+
+    private void refreshInBackground() {
+        if (!refreshing.compareAndSet(false, true)) {
+            return;
+        }
+        Runnable task = () -> {
+            try {
+                refresh();
+            }
+            catch (Exception e) {
+                log.warn("Could not refresh {} from Dataverse; keeping the data fetched earlier", name, e);
+                var current = snapshot.get();
+                if (current != null) {
+                    var retryDelay = timeToLive != null && timeToLive.compareTo(RETRY_DELAY) < 0 ? timeToLive : RETRY_DELAY;
+                    snapshot.set(new Snapshot<>(current.data, expiresAt(nanoClock.getAsLong(), retryDelay)));
+                }
+            }
+            finally {
+                refreshing.set(false);
+            }
+        };
+        if (scheduler == null) {
+            task.run();
+        }
+        else {
+            scheduler.execute(task);
+        }
+    }
+
+    private static Long expiresAt(long now, Duration timeToLive) {
+        return timeToLive == null ? null : now + timeToLive.toNanos();
+    }
+
+    private static class Snapshot<T> {
+        private final T data;
+        // If null, the data never expires
+        private final Long expiresAt;
+
+        private Snapshot(T data, Long expiresAt) {
+            this.data = data;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
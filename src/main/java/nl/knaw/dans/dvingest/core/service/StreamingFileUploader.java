@@ -0,0 +1,144 @@
+/*
+ * Copyright (C) 2024 DANS - Data Archiving and Networked Services (info@dans.knaw.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.knaw.dans.dvingest.core.service;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.Builder;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import nl.knaw.dans.lib.dataverse.DataverseException;
+import nl.knaw.dans.lib.dataverse.model.dataset.FileList;
+import nl.knaw.dans.lib.dataverse.model.file.FileMeta;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.UUID;
+
+/**
+ * Adds files to a dataset by streaming a {@link StreamingZipBatch} directly into the body of the multipart request to the Dataverse add-file API. The request is sent with chunked
+ * transfer encoding, so the size of the ZIP file does not need to be known in advance and the ZIP file is never written to disk. The timeouts and user agent should be the ones
+ * configured for the Dataverse client.
+ */
+@Builder
+@Slf4j
+public class StreamingFileUploader {
+    private static final String CRLF = "\r\n";
+    private static final ObjectMapper objectMapper = new ObjectMapper()
+        .setSerializationInclusion(JsonInclude.Include.NON_NULL)
+        .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    @NonNull
+    private final URI baseUrl;
+
+    @NonNull
+    private final String apiKey;
+
+    @Builder.Default
+    private Duration connectTimeout = Duration.ofSeconds(15);
+
+    @Builder.Default
+    private Duration readTimeout = Duration.ofMinutes(45);
+
+    // If null, the default user agent of HttpURLConnection is sent
+    private final String userAgent;
+
+    @Builder.Default
+    private int chunkSize = 1024 * 1024;
+
+    /**
+     * Adds the files in the batch to the dataset.
+     *
+     * @param persistentId the PID of the dataset
+     * @param zipBatch     the files to add
+     * @param fileMeta     the metadata to apply to all the files
+     * @return the metadata of the added files, as returned by Dataverse
+     * @throws IOException        if the request could not be sent or the response could not be read
+     * @throws DataverseException if Dataverse answered with an error status; the message contains the response body, as in the Dataverse client
+     */
+    public FileList addZipFile(String persistentId, StreamingZipBatch zipBatch, FileMeta fileMeta) throws IOException, DataverseException {
+        var boundary = "dd-dataverse-ingest-" + UUID.randomUUID();
+        var connection = (HttpURLConnection) addFileUri(persistentId).toURL().openConnection();
+        try {
+            connection.setRequestMethod("POST");
+            connection.setDoOutput(true);
+            connection.setChunkedStreamingMode(chunkSize);
+            connection.setConnectTimeout(Math.toIntExact(connectTimeout.toMillis()));
+            connection.setReadTimeout(Math.toIntExact(readTimeout.toMillis()));
+            connection.setRequestProperty("X-Dataverse-key", apiKey);
+            if (userAgent != null) {
+                connection.setRequestProperty("User-Agent", userAgent);
+            }
+            connection.setRequestProperty("Content-Type", "multipart/form-data; boundary=" + boundary);
+            try (var outputStream = connection.getOutputStream()) {
+                writeMultipartBody(outputStream, boundary, zipBatch, fileMeta);
+            }
+            var status = connection.getResponseCode();
+            var body = readBody(status < 400 ? connection.getInputStream() : connection.getErrorStream());
+            log.debug(body);
+            if (status >= 400) {
+                throw new DataverseException(status, String.format("Adding files to dataset %s failed: HTTP %d: %s", persistentId, status, body));
+            }
+            var data = objectMapper.readTree(body).get("data");
+            if (data == null) {
+                throw new IOException(String.format("Adding files to dataset %s returned no data: %s", persistentId, body));
+            }
+            return objectMapper.treeToValue(data, FileList.class);
+        }
+        finally {
+            connection.disconnect();
+        }
+    }
+
+    /*
+     * The API path is resolved relative to the base URL, so that a path prefix of the base URL (e.g. when Dataverse is behind a proxy) is kept.
+     */
+    URI addFileUri(String persistentId) {
+        var base = baseUrl.toString().endsWith("/") ? baseUrl : URI.create(baseUrl + "/");
+        return base.resolve("api/datasets/:persistentId/add?persistentId=" + URLEncoder.encode(persistentId, StandardCharsets.UTF_8));
+    }
+
+    private void writeMultipartBody(OutputStream outputStream, String boundary, StreamingZipBatch zipBatch, FileMeta fileMeta) throws IOException {
+        var head = "--" + boundary + CRLF
+            + "Content-Disposition: form-data; name=\"jsonData\"" + CRLF
+            + "Content-Type: application/json" + CRLF
+            + CRLF
+            + objectMapper.writeValueAsString(fileMeta) + CRLF
+            + "--" + boundary + CRLF
+            + "Content-Disposition: form-data; name=\"file\"; filename=\"batch.zip\"" + CRLF
+            + "Content-Type: application/zip" + CRLF
+            + CRLF;
+        outputStream.write(head.getBytes(StandardCharsets.UTF_8));
+        zipBatch.writeTo(outputStream);
+        outputStream.write((CRLF + "--" + boundary + "--" + CRLF).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private String readBody(InputStream inputStream) throws IOException {
+        if (inputStream == null) {
+            return "";
+        }
+        try (inputStream) {
+            return new String(inputStream.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}
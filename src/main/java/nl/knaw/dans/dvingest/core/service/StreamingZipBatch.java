@@ -0,0 +1,109 @@
+/*
+ * Copyright (C) 2024 DANS - Data Archiving and Networked Services (info@dans.knaw.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.knaw.dans.dvingest.core.service;
+
+import lombok.Getter;
+import lombok.NonNull;
+import org.apache.commons.collections4.iterators.PeekingIterator;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * A batch of files that is zipped on the fly while it is written to an output stream, so that no temporary ZIP file is needed. The files in the batch are selected with the same
+ * limits as the ones used by {@link nl.knaw.dans.lib.util.PathIteratorZipper}: a maximum number of files and a maximum number of bytes, with at least one file per batch.
+ */
+public class StreamingZipBatch {
+    private final Path rootDir;
+    @Getter
+    private final List<Path> files;
+    @Getter
+    private final long numberOfBytes;
+    private final Map<String, String> renameMap;
+
+    private StreamingZipBatch(Path rootDir, List<Path> files, long numberOfBytes, Map<String, String> renameMap) {
+        this.rootDir = rootDir;
+        this.files = Collections.unmodifiableList(files);
+        this.numberOfBytes = numberOfBytes;
+        this.renameMap = renameMap;
+    }
+
+    /**
+     * Takes the next batch of files from the iterator. Directories are skipped.
+     *
+     * @param rootDir          the directory that the entry names are relative to
+     * @param iterator         the files to take the batch from
+     * @param renameMap        maps paths relative to rootDir to the entry names to use instead
+     * @param maxNumberOfFiles the maximum number of files in the batch
+     * @param maxNumberOfBytes the maximum total size of the files in the batch; a single larger file is put in a batch on its own
+     * @return the batch
+     * @throws IOException if the size of a file could not be determined
+     */
+    public static StreamingZipBatch next(@NonNull Path rootDir, @NonNull PeekingIterator<File> iterator, @NonNull Map<String, String> renameMap, int maxNumberOfFiles,
+        long maxNumberOfBytes) throws IOException {
+        var files = new ArrayList<Path>();
+        long numberOfBytes = 0;
+        while (iterator.hasNext() && files.size() < maxNumberOfFiles) {
+            var file = iterator.peek().toPath();
+            if (Files.isDirectory(file)) {
+                iterator.next();
+                continue;
+            }
+            var size = Files.size(file);
+            if (!files.isEmpty() && numberOfBytes + size > maxNumberOfBytes) {
+                break;
+            }
+            files.add(iterator.next().toPath());
+            numberOfBytes += size;
+        }
+        return new StreamingZipBatch(rootDir, files, numberOfBytes, renameMap);
+    }
+
+    public boolean isEmpty() {
+        return files.isEmpty();
+    }
+
+    /**
+     * Writes the batch as a ZIP file to the output stream. The output stream is not closed.
+     *
+     * @param outputStream the stream to write to
+     * @throws IOException if a file could not be read or the stream could not be written to
+     */
+    public void writeTo(OutputStream outputStream) throws IOException {
+        var zipOutputStream = new ZipOutputStream(outputStream);
+        for (var file : files) {
+            zipOutputStream.putNextEntry(new ZipEntry(getEntryName(file)));
+            Files.copy(file, zipOutputStream);
+            zipOutputStream.closeEntry();
+        }
+        zipOutputStream.finish();
+        zipOutputStream.flush();
+    }
+
+    private String getEntryName(Path file) {
+        var relativePath = rootDir.relativize(file).toString();
+        return renameMap.getOrDefault(relativePath, relativePath);
+    }
+}
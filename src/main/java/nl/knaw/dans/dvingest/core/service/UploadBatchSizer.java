@@ -0,0 +1,111 @@
+/*
+ * Copyright (C) 2024 DANS - Data Archiving and Networked Services (info@dans.knaw.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.knaw.dans.dvingest.core.service;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Determines the limits for the next upload batch from the throughput observed in previous uploads. After each upload the time per file and the number of bytes per
+ * millisecond are recorded as exponentially weighted moving averages. The next batch is sized so that, at those rates, its upload takes about the target duration. A batch
+ * never grows to more than twice the size of the previous limits, and a failed upload halves the limits. The limits always stay within the configured bounds, so with equal
+ * minimum and maximum bounds the batch size is fixed.
+ */
+@Slf4j
+public class UploadBatchSizer {
+    // Weight of the latest observation in the moving averages
+    private static final double ALPHA = 0.3;
+
+    private final int minNumberOfFiles;
+    private final int maxNumberOfFiles;
+    private final long minNumberOfBytes;
+    private final long maxNumberOfBytes;
+    private final long targetDurationMillis;
+
+    private int numberOfFiles;
+    private long numberOfBytes;
+    private double millisPerFile = -1;
+    private double bytesPerMilli = -1;
+
+    public UploadBatchSizer(int minNumberOfFiles, int maxNumberOfFiles, long minNumberOfBytes, long maxNumberOfBytes, long targetDurationMillis) {
+        if (minNumberOfFiles < 1 || minNumberOfFiles > maxNumberOfFiles) {
+            throw new IllegalArgumentException("Invalid bounds for number of files: " + minNumberOfFiles + ".." + maxNumberOfFiles);
+        }
+        if (minNumberOfBytes < 1 || minNumberOfBytes > maxNumberOfBytes) {
+            throw new IllegalArgumentException("Invalid bounds for number of bytes: " + minNumberOfBytes + ".." + maxNumberOfBytes);
+        }
+        this.minNumberOfFiles = minNumberOfFiles;
+        this.maxNumberOfFiles = maxNumberOfFiles;
+        this.minNumberOfBytes = minNumberOfBytes;
+        this.maxNumberOfBytes = maxNumberOfBytes;
+        this.targetDurationMillis = targetDurationMillis;
+        this.numberOfFiles = maxNumberOfFiles;
+        this.numberOfBytes = maxNumberOfBytes;
+    }
+
+    /**
+     * Creates a sizer that always returns the same limits.
+     *
+     * @param numberOfFiles the maximum number of files per batch
+     * @param numberOfBytes the maximum number of bytes per batch
+     * @return the sizer
+     */
+    public static UploadBatchSizer fixed(int numberOfFiles, long numberOfBytes) {
+        return new UploadBatchSizer(numberOfFiles, numberOfFiles, numberOfBytes, numberOfBytes, 1);
+    }
+
+    public synchronized int getMaxNumberOfFiles() {
+        return numberOfFiles;
+    }
+
+    public synchronized long getMaxNumberOfBytes() {
+        return numberOfBytes;
+    }
+
+    /**
+     * Records a successful upload and adjusts the limits for the next batch.
+     *
+     * @param uploadedFiles  the number of files in the batch
+     * @param uploadedBytes  the size of the batch
+     * @param durationMillis the time it took Dataverse to accept the batch
+     */
+    public synchronized void recordUpload(int uploadedFiles, long uploadedBytes, long durationMillis) {
+        if (uploadedFiles <= 0 || durationMillis <= 0) {
+            return;
+        }
+        millisPerFile = average(millisPerFile, (double) durationMillis / uploadedFiles);
+        bytesPerMilli = average(bytesPerMilli, (double) uploadedBytes / durationMillis);
+        numberOfFiles = (int) clamp(targetDurationMillis / millisPerFile, minNumberOfFiles, Math.min(maxNumberOfFiles, 2L * numberOfFiles));
+        numberOfBytes = clamp(targetDurationMillis * bytesPerMilli, minNumberOfBytes, Math.min(maxNumberOfBytes, 2 * numberOfBytes));
+        log.debug("Upload of {} files ({} bytes) took {} ms; next batch: max {} files, max {} bytes", uploadedFiles, uploadedBytes, durationMillis, numberOfFiles, numberOfBytes);
+    }
+
+    /**
+     * Records a failed upload, for example a time-out. The limits for the next batch are halved.
+     */
+    public synchronized void recordFailure() {
+        numberOfFiles = (int) clamp(numberOfFiles / 2.0, minNumberOfFiles, maxNumberOfFiles);
+        numberOfBytes = clamp(numberOfBytes / 2.0, minNumberOfBytes, maxNumberOfBytes);
+        log.debug("Upload failed; next batch: max {} files, max {} bytes", numberOfFiles, numberOfBytes);
+    }
+
+    private static double average(double current, double observation) {
+        return current < 0 ? observation : ALPHA * observation + (1 - ALPHA) * current;
+    }
+
+    private static long clamp(double value, long min, long max) {
+        return Math.max(min, Math.min(max, (long) value));
+    }
+}
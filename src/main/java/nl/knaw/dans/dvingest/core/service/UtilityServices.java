@@ -16,11 +16,15 @@
 package nl.knaw.dans.dvingest.core.service;
 
 import nl.knaw.dans.lib.util.PathIteratorZipper.PathIteratorZipperBuilder;
+import org.apache.commons.collections4.iterators.PeekingIterator;
 
+import java.io.File;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ScheduledExecutorService;
 
 public interface UtilityServices {
 
@@ -30,5 +34,102 @@ public interface UtilityServices {
 
     PathIteratorZipperBuilder createPathIteratorZipperBuilder(Map<String, String> renameMap);
 
+    /**
+     * Takes the next upload batch from the iterator, using the same limits as the ZIP files created with {@link #createPathIteratorZipperBuilder(Map)}.
+     *
+     * @param rootDir   the directory that the entry names are relative to
+     * @param iterator  the files to take the batch from
+     * @param renameMap maps paths relative to rootDir to the entry names to use instead
+     * @return the batch
+     * @throws IOException if the size of a file could not be determined
+     */
+    StreamingZipBatch nextStreamingZipBatch(Path rootDir, PeekingIterator<File> iterator, Map<String, String> renameMap) throws IOException;
+
+    /**
+     * The sizer that determines the limits of the next upload batch. Callers should report the outcome of each batch upload to it.
+     *
+     * @return the upload batch sizer
+     */
+    UploadBatchSizer getUploadBatchSizer();
+
+    /**
+     * Whether upload batches should be streamed to Dataverse instead of being zipped to a temporary file first.
+     *
+     * @return true if upload batches are streamed
+     */
+    boolean isStreamUploadBatches();
+
     Optional<Path> wrapIfZipFile(Path path) throws IOException;
+
+    /**
+     * The maximum number of upload batches that may be zipped ahead of the batch currently being uploaded. A value of 0 means that batches are zipped and uploaded one after the
+     * other.
+     *
+     * @return the maximum number of prepared upload batches
+     */
+    int getMaxNumberOfPreparedUploadBatches();
+
+    /**
+     * The executor on which upload batches are zipped ahead of the batch currently being uploaded. It is shared by all deposits.
+     *
+     * @return the executor, or null if batches must be zipped and uploaded one after the other
+     */
+    ExecutorService getUploadBatchPreparationExecutor();
+
+    /**
+     * The maximum number of files that may be uploaded at the same time when adding files individually.
+     *
+     * @return the maximum number of concurrent individual uploads
+     */
+    int getMaxConcurrentIndividualUploads();
+
+    /**
+     * The executor on which files are uploaded when adding files individually with more than one upload at the same time. It is shared by all deposits.
+     *
+     * @return the executor, or null if files must be uploaded one after the other
+     */
+    ExecutorService getIndividualUploadExecutor();
+
+    /**
+     * The maximum number of role assignments that may be added or deleted at the same time when editing the permissions on a dataset.
+     *
+     * @return the maximum number of concurrent role assignment edits
+     */
+    int getMaxConcurrentRoleAssignmentEdits();
+
+    /**
+     * The executor on which role assignments are added or deleted when editing the permissions on a dataset with more than one edit at the same time. It is shared by all deposits.
+     *
+     * @return the executor, or null if role assignments must be edited one after the other
+     */
+    ExecutorService getRoleAssignmentEditExecutor();
+
+    /**
+     * The executor on which the payload files of a bag are hashed when it needs a SHA-1 payload manifest. It is shared by all deposits, so that its size caps the number of files
+     * hashed at the same time.
+     *
+     * @return the checksum executor, or null if files must be hashed in the calling thread
+     */
+    ExecutorService getChecksumExecutor();
+
+    /**
+     * The minimum time between two saves of the task log of a bag while it is being processed. Checkpoints within this interval are coalesced into one save.
+     *
+     * @return the interval in milliseconds
+     */
+    long getTaskLogCheckpointInterval();
+
+    /**
+     * The scheduler that saves coalesced task log checkpoints at the end of the interval.
+     *
+     * @return the scheduler, or null if every checkpoint must be saved immediately
+     */
+    ScheduledExecutorService getTaskLogCheckpointScheduler();
+
+    /**
+     * The metrics of the ingest pipeline.
+     *
+     * @return the metrics
+     */
+    IngestMetrics getIngestMetrics();
 }
@@ -22,8 +22,10 @@ import net.lingala.zip4j.model.ZipParameters;
 import net.lingala.zip4j.model.enums.CompressionMethod;
 import nl.knaw.dans.lib.util.PathIteratorZipper;
 import nl.knaw.dans.lib.util.PathIteratorZipper.PathIteratorZipperBuilder;
+import org.apache.commons.collections4.iterators.PeekingIterator;
 import org.apache.tika.Tika;
 
+import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -31,6 +33,8 @@ import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ScheduledExecutorService;
 
 @Slf4j
 @Builder
@@ -43,6 +47,25 @@ public class UtilityServicesImpl implements UtilityServices {
     private final Path tempDir;
     private final int maxNumberOfFilesPerUpload;
     private final long maxUploadSize;
+    private final int maxNumberOfPreparedUploadBatches;
+    // If not set, batches are zipped and uploaded one after the other
+    private final ExecutorService uploadBatchPreparationExecutor;
+    private final boolean streamUploadBatches;
+    private final int maxConcurrentIndividualUploads;
+    // If not set, files are uploaded one after the other
+    private final ExecutorService individualUploadExecutor;
+    private final int maxConcurrentRoleAssignmentEdits;
+    // If not set, role assignments are edited one after the other
+    private final ExecutorService roleAssignmentEditExecutor;
+    // If not set, files are hashed in the calling thread
+    private final ExecutorService checksumExecutor;
+    private final long taskLogCheckpointInterval;
+    // If not set, every task log checkpoint is saved immediately
+    private final ScheduledExecutorService taskLogCheckpointScheduler;
+    // If not set, all batches use maxNumberOfFilesPerUpload and maxUploadSize
+    private UploadBatchSizer uploadBatchSizer;
+    @Builder.Default
+    private final IngestMetrics ingestMetrics = IngestMetrics.disabled();
     private final Tika tika = new Tika();
 
     @Override
@@ -62,10 +85,80 @@ public class UtilityServicesImpl implements UtilityServices {
 
     @Override
     public PathIteratorZipperBuilder createPathIteratorZipperBuilder(Map<String, String> renameMap) {
+        var sizer = getUploadBatchSizer();
         return PathIteratorZipper.builder()
             .renameMap(renameMap)
-            .maxNumberOfFiles(maxNumberOfFilesPerUpload)
-            .maxNumberOfBytes(maxUploadSize);
+            .maxNumberOfFiles(sizer.getMaxNumberOfFiles())
+            .maxNumberOfBytes(sizer.getMaxNumberOfBytes());
+    }
+
+    @Override
+    public StreamingZipBatch nextStreamingZipBatch(Path rootDir, PeekingIterator<File> iterator, Map<String, String> renameMap) throws IOException {
+        var sizer = getUploadBatchSizer();
+        return StreamingZipBatch.next(rootDir, iterator, renameMap, sizer.getMaxNumberOfFiles(), sizer.getMaxNumberOfBytes());
+    }
+
+    @Override
+    public synchronized UploadBatchSizer getUploadBatchSizer() {
+        if (uploadBatchSizer == null) {
+            uploadBatchSizer = UploadBatchSizer.fixed(maxNumberOfFilesPerUpload, maxUploadSize);
+        }
+        return uploadBatchSizer;
+    }
+
+    @Override
+    public boolean isStreamUploadBatches() {
+        return streamUploadBatches;
+    }
+
+    @Override
+    public int getMaxNumberOfPreparedUploadBatches() {
+        return maxNumberOfPreparedUploadBatches;
+    }
+
+    @Override
+    public ExecutorService getUploadBatchPreparationExecutor() {
+        return uploadBatchPreparationExecutor;
+    }
+
+    @Override
+    public int getMaxConcurrentIndividualUploads() {
+        return maxConcurrentIndividualUploads;
+    }
+
+    @Override
+    public ExecutorService getIndividualUploadExecutor() {
+        return individualUploadExecutor;
+    }
+
+    @Override
+    public int getMaxConcurrentRoleAssignmentEdits() {
+        return maxConcurrentRoleAssignmentEdits;
+    }
+
+    @Override
+    public ExecutorService getRoleAssignmentEditExecutor() {
+        return roleAssignmentEditExecutor;
+    }
+
+    @Override
+    public ExecutorService getChecksumExecutor() {
+        return checksumExecutor;
+    }
+
+    @Override
+    public long getTaskLogCheckpointInterval() {
+        return taskLogCheckpointInterval;
+    }
+
+    @Override
+    public ScheduledExecutorService getTaskLogCheckpointScheduler() {
+        return taskLogCheckpointScheduler;
+    }
+
+    @Override
+    public IngestMetrics getIngestMetrics() {
+        return ingestMetrics;
     }
 
     @Override
@@ -19,6 +19,8 @@ import io.dropwizard.configuration.ConfigurationException;
 
 import java.io.IOException;
 import java.nio.file.Path;
+import java.util.Set;
+import java.util.stream.Stream;
 
 public interface YamlService {
     @SuppressWarnings("unchecked")
@@ -28,4 +30,29 @@ public interface YamlService {
     <T> T readYamlFromString(String yamlString, Class<T> target) throws IOException, ConfigurationException;
 
     void writeYaml(Object object, Path yamlFile) throws IOException;
+
+    /**
+     * Reads a YAML file, leaving out some properties of one of the top-level objects. This is for very large lists that are read with
+     * {@link #streamStringList(Path, String, String)} instead. The result is not validated.
+     *
+     * @param yamlFile          the YAML file
+     * @param target            the class of the result
+     * @param objectProperty    the top-level property that holds the object with the skipped properties
+     * @param skippedProperties the properties of that object to leave out
+     * @param <T>               the type of the result
+     * @return the object read from the file
+     * @throws IOException if the file could not be read or parsed
+     */
+    <T> T readYamlSkipping(Path yamlFile, Class<T> target, String objectProperty, Set<String> skippedProperties) throws IOException;
+
+    /**
+     * Streams the strings in a list in a YAML file, without reading the rest of the file into memory. The stream must be closed after use.
+     *
+     * @param yamlFile       the YAML file
+     * @param objectProperty the top-level property that holds the object with the list
+     * @param listProperty   the property of that object that holds the list
+     * @return the strings in the list, or an empty stream if the list is not present
+     * @throws IOException if the file could not be opened
+     */
+    Stream<String> streamStringList(Path yamlFile, String objectProperty, String listProperty) throws IOException;
 }
@@ -17,6 +17,10 @@ package nl.knaw.dans.dvingest.core.service;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonInclude.Include;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.filter.FilteringParserDelegate;
+import com.fasterxml.jackson.core.filter.TokenFilter;
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.module.SimpleModule;
@@ -46,9 +50,18 @@ import javax.validation.Validation;
 import javax.validation.Validator;
 import javax.validation.constraints.NotNull;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.file.Path;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 @Slf4j
 public class YamlServiceImpl implements YamlService {
@@ -80,6 +93,9 @@ public class YamlServiceImpl implements YamlService {
 
     private final Map<Class<?>, YamlConfigurationFactoryWithCustomYamlFactory<?>> yamlConfigurationFactories = new HashMap<>();
 
+    // For reading files token by token, with the same limits as the configuration factories
+    private final YAMLFactory streamingYamlFactory;
+
     /**
      * Mixin to ignore fields in FileMeta that are not needed in the YAML files. Note, that  we are not ignoring the "restrict" field. In theory, we could accidentally expose restricted files if we
      * did ignore it. It seems in practise this does not happen, but for clarity and safety we do not ignore it.
@@ -98,6 +114,7 @@ public class YamlServiceImpl implements YamlService {
 
     public YamlServiceImpl(@Valid @NotNull YamlServiceConfig yamlServiceConfig) {
         try (var factory = Validation.buildDefaultValidatorFactory()) {
+            streamingYamlFactory = createYamlFactory(yamlServiceConfig.getLoaderOptions());
             SimpleModule module = new SimpleModule();
             module.addDeserializer(MetadataField.class, new MetadataFieldDeserializer());
             mapper.setSerializationInclusion(Include.NON_NULL);
@@ -159,4 +176,138 @@ public class YamlServiceImpl implements YamlService {
     public void writeYaml(Object object, Path yamlFile) throws IOException {
         mapper.writeValue(yamlFile.toFile(), object);
     }
+
+    @Override
+    public <T> T readYamlSkipping(Path yamlFile, Class<T> target, String objectProperty, Set<String> skippedProperties) throws IOException {
+        log.debug("readYamlSkipping: {} for class {}, skipping {} of {}", yamlFile, target.getName(), skippedProperties, objectProperty);
+        var filter = new ObjectPropertyFilter(objectProperty, new SkipPropertiesFilter(skippedProperties));
+        try (var parser = new FilteringParserDelegate(streamingYamlFactory.createParser(yamlFile.toFile()), filter, TokenFilter.Inclusion.INCLUDE_ALL_AND_PATH, true)) {
+            return mapper.readValue(parser, target);
+        }
+    }
+
+    @Override
+    public Stream<String> streamStringList(Path yamlFile, String objectProperty, String listProperty) throws IOException {
+        log.debug("streamStringList: {} of {} in {}", listProperty, objectProperty, yamlFile);
+        var parser = streamingYamlFactory.createParser(yamlFile.toFile());
+        try {
+            var found = moveToProperty(parser, objectProperty) && parser.nextToken() == JsonToken.START_OBJECT && moveToProperty(parser, listProperty)
+                && parser.nextToken() == JsonToken.START_ARRAY;
+            var iterator = found ? new StringListIterator(parser) : Collections.<String> emptyIterator();
+            return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(() -> {
+                    try {
+                        parser.close();
+                    }
+                    catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+        }
+        catch (IOException | RuntimeException e) {
+            parser.close();
+            throw e;
+        }
+    }
+
+    /*
+     * Moves the parser to the value of the given property of the object that starts at the current token (or at the next token, at the start of the document). Other
+     * properties are skipped without building them in memory.
+     */
+    private static boolean moveToProperty(JsonParser parser, String property) throws IOException {
+        if (parser.currentToken() == null && parser.nextToken() != JsonToken.START_OBJECT) {
+            return false;
+        }
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            if (property.equals(parser.currentName())) {
+                return true;
+            }
+            parser.nextToken();
+            parser.skipChildren();
+        }
+        return false;
+    }
+
+    private static class StringListIterator implements Iterator<String> {
+        private final JsonParser parser;
+        private String next;
+
+        StringListIterator(JsonParser parser) throws IOException {
+            this.parser = parser;
+            advance();
+        }
+
+        private void advance() throws IOException {
+            var token = parser.nextToken();
+            if (token == null || token == JsonToken.END_ARRAY) {
+                next = null;
+            }
+            else if (token.isScalarValue() && token != JsonToken.VALUE_NULL) {
+                next = parser.getValueAsString();
+            }
+            else {
+                throw new IllegalStateException("Expected a list of strings, but found " + token + " at " + parser.currentLocation());
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public String next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            var result = next;
+            try {
+                advance();
+            }
+            catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return result;
+        }
+    }
+
+    private static class ObjectPropertyFilter extends TokenFilter {
+        private final String objectProperty;
+        private final TokenFilter childFilter;
+
+        ObjectPropertyFilter(String objectProperty, TokenFilter childFilter) {
+            this.objectProperty = objectProperty;
+            this.childFilter = childFilter;
+        }
+
+        @Override
+        public TokenFilter includeProperty(String name) {
+            return objectProperty.equals(name) ? childFilter : TokenFilter.INCLUDE_ALL;
+        }
+
+        @Override
+        public boolean includeEmptyObject(boolean contentsFiltered) {
+            // Keep the object, even if all its properties were skipped
+            return true;
+        }
+    }
+
+    private static class SkipPropertiesFilter extends TokenFilter {
+        private final Set<String> skippedProperties;
+
+        SkipPropertiesFilter(Set<String> skippedProperties) {
+            this.skippedProperties = skippedProperties;
+        }
+
+        @Override
+        public TokenFilter includeProperty(String name) {
+            return skippedProperties.contains(name) ? null : TokenFilter.INCLUDE_ALL;
+        }
+
+        @Override
+        public boolean includeEmptyObject(boolean contentsFiltered) {
+            // Keep the object, even if all its properties were skipped
+            return true;
+        }
+    }
 }
@@ -0,0 +1,118 @@
+/*
+ * Copyright (C) 2024 DANS - Data Archiving and Networked Services (info@dans.knaw.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.knaw.dans.dvingest.core.yaml;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.AbstractList;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * A read-only list of strings that is not kept in memory, but read from its source every time it is traversed. This is meant for the (potentially very long) file lists in
+ * edit-files.yml. Callers that use {@link #stream()} should close the stream, so that the underlying file is closed; {@link #iterator()} closes it when it is exhausted. An
+ * iteration that is abandoned before that (including the ones in the inherited methods, such as {@link #contains(Object)}) leaves the file open until the list is closed.
+ */
+public class StreamedStringList extends AbstractList<String> implements Closeable {
+
+    @FunctionalInterface
+    public interface StreamOpener {
+        Stream<String> open() throws IOException;
+    }
+
+    private final StreamOpener opener;
+    // The streams of iterators that have not been exhausted yet
+    private final Set<Stream<String>> openStreams = ConcurrentHashMap.newKeySet();
+    private int size = -1;
+
+    public StreamedStringList(StreamOpener opener) {
+        this.opener = opener;
+    }
+
+    @Override
+    public Stream<String> stream() {
+        try {
+            return opener.open();
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public Iterator<String> iterator() {
+        var stream = stream();
+        openStreams.add(stream);
+        var iterator = stream.iterator();
+        return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                var hasNext = iterator.hasNext();
+                if (!hasNext && openStreams.remove(stream)) {
+                    stream.close();
+                }
+                return hasNext;
+            }
+
+            @Override
+            public String next() {
+                return iterator.next();
+            }
+        };
+    }
+
+    @Override
+    public synchronized int size() {
+        if (size < 0) {
+            try (var stream = stream()) {
+                size = Math.toIntExact(stream.count());
+            }
+        }
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        try (var stream = stream()) {
+            return stream.findAny().isEmpty();
+        }
+    }
+
+    @Override
+    public String get(int index) {
+        if (index < 0) {
+            throw new IndexOutOfBoundsException(index);
+        }
+        try (var stream = stream()) {
+            return stream.skip(index).findFirst().orElseThrow(() -> new IndexOutOfBoundsException(index));
+        }
+    }
+
+    /**
+     * Closes the underlying file of every iteration that was not completed. The list can still be traversed afterwards.
+     */
+    @Override
+    public void close() {
+        for (var stream : openStreams) {
+            if (openStreams.remove(stream)) {
+                stream.close();
+            }
+        }
+    }
+}
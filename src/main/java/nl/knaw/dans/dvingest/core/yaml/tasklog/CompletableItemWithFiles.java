@@ -0,0 +1,36 @@
+/*
+ * Copyright (C) 2024 DANS - Data Archiving and Networked Services (info@dans.knaw.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.knaw.dans.dvingest.core.yaml.tasklog;
+
+import lombok.Data;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * A task that processes a list of files one by one, possibly out of order. The files that have been processed are recorded, so that the task can be resumed without processing
+ * any of them again. The list of files may be saved in a checkpoint while files are still being added to it, so it is copied on write.
+ */
+@Data
+public class CompletableItemWithFiles {
+    private boolean completed = false;
+    private int numberCompleted = 0;
+    private List<String> completedFiles = new CopyOnWriteArrayList<>();
+
+    public void setCompletedFiles(List<String> completedFiles) {
+        this.completedFiles = new CopyOnWriteArrayList<>(completedFiles);
+    }
+}
@@ -0,0 +1,36 @@
+/*
+ * Copyright (C) 2024 DANS - Data Archiving and Networked Services (info@dans.knaw.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.knaw.dans.dvingest.core.yaml.tasklog;
+
+import lombok.Data;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Progress of adding or deleting the role assignments of edit-permissions.yml. Because the role assignments are edited concurrently, they may complete in any order, so each one is
+ * recorded as {@code assignee=role} rather than only counted. The list is thread-safe for the same reason as {@link CompletableItemWithFiles#getCompletedFiles()}.
+ */
+@Data
+public class CompletableItemWithRoleAssignments {
+    private boolean completed = false;
+    private int numberCompleted = 0;
+    private List<String> completedRoleAssignments = new CopyOnWriteArrayList<>();
+
+    public void setCompletedRoleAssignments(List<String> completedRoleAssignments) {
+        this.completedRoleAssignments = new CopyOnWriteArrayList<>(completedRoleAssignments);
+    }
+}
@@ -25,8 +25,8 @@ public class EditFilesLog {
     private CompletableItemWithCount addUnrestrictedFilesSeparately = new CompletableItemWithCount();
     private CompletableItemWithCount addRestrictedFiles = new CompletableItemWithCount();
     private CompletableItemWithCount addRestrictedFilesSeparately = new CompletableItemWithCount();
-    private CompletableItemWithCount addUnrestrictedIndividually = new CompletableItemWithCount();
-    private CompletableItemWithCount addRestrictedIndividually = new CompletableItemWithCount();
+    private CompletableItemWithFiles addUnrestrictedIndividually = new CompletableItemWithFiles();
+    private CompletableItemWithFiles addRestrictedIndividually = new CompletableItemWithFiles();
     private CompletableItem moveFiles = new CompletableItem();
     private CompletableItem updateFileMetas = new CompletableItem();
     private CompletableItemWithCount addEmbargoes = new CompletableItemWithCount();
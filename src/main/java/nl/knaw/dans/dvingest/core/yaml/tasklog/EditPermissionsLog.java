@@ -19,6 +19,6 @@ import lombok.Data;
 
 @Data
 public class EditPermissionsLog {
-    private CompletableItemWithCount deleteRoleAssignments = new CompletableItemWithCount();
-    private CompletableItemWithCount addRoleAssignments = new CompletableItemWithCount();
+    private CompletableItemWithRoleAssignments deleteRoleAssignments = new CompletableItemWithRoleAssignments();
+    private CompletableItemWithRoleAssignments addRoleAssignments = new CompletableItemWithRoleAssignments();
 }
@@ -0,0 +1,42 @@
+/*
+ * Copyright (C) 2024 DANS - Data Archiving and Networked Services (info@dans.knaw.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.knaw.dans.dvingest.resources;
+
+import lombok.AllArgsConstructor;
+import nl.knaw.dans.dvingest.core.IngestArea;
+
+import javax.ws.rs.DefaultValue;
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+
+/**
+ * Reports the statistics of import jobs. This endpoint is not part of the generated API, because the status objects of the API only carry a status and a message.
+ */
+@Path("/ingest/report")
+@AllArgsConstructor
+public class IngestReportResource {
+    private final IngestArea ingestArea;
+
+    @GET
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response ingestReportGet(@QueryParam("path") String path, @QueryParam("deposits") @DefaultValue("false") boolean includeDeposits) {
+        return Response.ok(ingestArea.getReport(path, includeDeposits)).build();
+    }
+}
@@ -0,0 +1,44 @@
+/*
+ * Copyright (C) 2024 DANS - Data Archiving and Networked Services (info@dans.knaw.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.knaw.dans.dvingest.resources;
+
+import io.dropwizard.servlets.tasks.Task;
+import nl.knaw.dans.dvingest.core.service.ExpiringCache;
+
+import java.io.PrintWriter;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Empties the caches of Dataverse lookups, so that changes in Dataverse (e.g., a role that was just granted to a depositor) take effect before the cached values expire. Invoked with
+ * {@code POST /tasks/invalidate-caches} on the admin port.
+ */
+public class InvalidateCachesTask extends Task {
+    private final List<ExpiringCache<?, ?>> caches;
+
+    public InvalidateCachesTask(List<ExpiringCache<?, ?>> caches) {
+        super("invalidate-caches");
+        this.caches = caches;
+    }
+
+    @Override
+    public void execute(Map<String, List<String>> parameters, PrintWriter output) {
+        for (var cache : caches) {
+            cache.invalidateAll();
+        }
+        output.println("Invalidated " + caches.size() + " cache(s)");
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright (C) 2024 DANS - Data Archiving and Networked Services (info@dans.knaw.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.knaw.dans.dvingest;
+
+import nl.knaw.dans.dvingest.core.DataverseIngestDeposit;
+import nl.knaw.dans.dvingest.core.DataverseIngestDepositFactory;
+import nl.knaw.dans.dvingest.core.DepositLanes;
+import nl.knaw.dans.dvingest.core.DepositTask;
+import nl.knaw.dans.dvingest.core.DepositTaskFactory;
+import nl.knaw.dans.dvingest.core.TargetDataset;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class InboxTaskFactoryImplTest {
+    private final ExecutorService executorService = Executors.newFixedThreadPool(4);
+    private final DataverseIngestDepositFactory depositFactory = mock(DataverseIngestDepositFactory.class);
+    private final DepositTaskFactory depositTaskFactory = mock(DepositTaskFactory.class);
+    private final Path outputDir = Path.of("target/test/InboxTaskFactoryImplTest/out");
+
+    @AfterEach
+    public void tearDown() {
+        executorService.shutdownNow();
+    }
+
+    @Test
+    public void createInboxTask_without_lanes_returns_deposit_task() {
+        // Given
+        var task = depositTask("deposit1", "dataset1", () -> {
+        });
+        var factory = new InboxTaskFactoryImpl(depositFactory, depositTaskFactory, outputDir, null);
+
+        // When
+        var inboxTask = factory.createInboxTask(Path.of("deposit1"));
+
+        // Then
+        assertThat(inboxTask).isSameAs(task);
+    }
+
+    @Test
+    public void inbox_tasks_are_dispatched_to_lane_of_target_dataset() throws Exception {
+        // Given
+        var factory = new InboxTaskFactoryImpl(depositFactory, depositTaskFactory, outputDir, new DepositLanes(executorService));
+        var completed = Collections.synchronizedList(new ArrayList<String>());
+        var blocker = new CountDownLatch(1);
+        var otherDatasetDone = new CountDownLatch(1);
+        var sameDatasetDone = new CountDownLatch(1);
+        depositTask("deposit1", "dataset1", () -> {
+            await(blocker);
+            completed.add("deposit1");
+        });
+        depositTask("deposit2", "dataset1", () -> {
+            completed.add("deposit2");
+            sameDatasetDone.countDown();
+        });
+        depositTask("deposit3", "dataset2", () -> {
+            completed.add("deposit3");
+            otherDatasetDone.countDown();
+        });
+
+        // When
+        factory.createInboxTask(Path.of("deposit1")).run();
+        factory.createInboxTask(Path.of("deposit2")).run();
+        factory.createInboxTask(Path.of("deposit3")).run();
+
+        // Then
+        // The inbox tasks return right away; the deposit for the other dataset does not wait for the blocked one
+        assertThat(otherDatasetDone.await(10, TimeUnit.SECONDS)).isTrue();
+        assertThat(completed).containsExactly("deposit3");
+        blocker.countDown();
+        assertThat(sameDatasetDone.await(10, TimeUnit.SECONDS)).isTrue();
+        assertThat(completed).containsExactly("deposit3", "deposit1", "deposit2");
+    }
+
+    private DepositTask depositTask(String depositDir, String targetDatasetKey, Runnable work) {
+        var deposit = mock(DataverseIngestDeposit.class);
+        when(deposit.getTargetDataset()).thenReturn(new TargetDataset(List.of(targetDatasetKey), false, false));
+        when(depositFactory.createDataverseIngestDeposit(Path.of(depositDir))).thenReturn(deposit);
+        var task = mock(DepositTask.class);
+        doAnswer(invocation -> {
+            work.run();
+            return null;
+        }).when(task).run();
+        when(depositTaskFactory.createDepositTask(eq(deposit), any(), eq(false))).thenReturn(task);
+        return task;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright (C) 2024 DANS - Data Archiving and Networked Services (info@dans.knaw.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.knaw.dans.dvingest.core;
+
+import nl.knaw.dans.dvingest.config.YamlServiceConfig;
+import nl.knaw.dans.dvingest.core.service.YamlServiceImpl;
+import nl.knaw.dans.dvingest.core.yaml.EditFilesRoot;
+import nl.knaw.dans.dvingest.core.yaml.EditMetadataRoot;
+import nl.knaw.dans.dvingest.core.yaml.FromTo;
+import nl.knaw.dans.dvingest.core.yaml.StreamedStringList;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+public class DataverseIngestBagTest extends TestDirFixture {
+    private final YamlServiceImpl yamlService = spy(new YamlServiceImpl(new YamlServiceConfig()));
+
+    @Test
+    public void getEditFiles_parses_edit_files_yml_only_once() throws Exception {
+        // Given
+        var bagDir = Files.createDirectories(testDir.resolve("bag"));
+        Files.writeString(bagDir.resolve("bagit.txt"), "BagIt-Version: 1.0\nTag-File-Character-Encoding: UTF-8\n");
+        Files.writeString(bagDir.resolve("edit-files.yml"), """
+            editFiles:
+              addRestrictedFiles:
+                - file1.txt
+                - file2.txt
+            """);
+        var bag = new DataverseIngestBag(bagDir, yamlService);
+
+        // When
+        var first = bag.getEditFiles();
+        var second = bag.getEditFiles();
+
+        // Then
+        assertThat(first.getAddRestrictedFiles()).containsExactly("file1.txt", "file2.txt");
+        assertThat(second).isSameAs(first);
+        verify(yamlService, times(1)).readYamlSkipping(eq(bagDir.resolve("edit-files.yml")), eq(EditFilesRoot.class), eq("editFiles"), any());
+    }
+
+    @Test
+    public void getEditFiles_streams_lists_of_files_to_add_and_reads_other_instructions() throws Exception {
+        // Given
+        var bagDir = Files.createDirectories(testDir.resolve("bag"));
+        Files.writeString(bagDir.resolve("bagit.txt"), "BagIt-Version: 1.0\nTag-File-Character-Encoding: UTF-8\n");
+        Files.writeString(bagDir.resolve("edit-files.yml"), """
+            editFiles:
+              deleteFiles:
+                - old.txt
+              addUnrestrictedFiles:
+                - file1.txt
+                - file2.txt
+                - file3.txt
+              moveFiles:
+                - from: a.txt
+                  to: b.txt
+            """);
+        var bag = new DataverseIngestBag(bagDir, yamlService);
+
+        // When
+        var editFiles = bag.getEditFiles();
+
+        // Then
+        assertThat(editFiles.getAddUnrestrictedFiles()).isInstanceOf(StreamedStringList.class);
+        assertThat(editFiles.getAddUnrestrictedFiles()).containsExactly("file1.txt", "file2.txt", "file3.txt");
+        assertThat(editFiles.getAddUnrestrictedFiles()).hasSize(3);
+        assertThat(editFiles.getAddRestrictedFiles()).isEmpty();
+        assertThat(editFiles.getDeleteFiles()).containsExactly("old.txt");
+        assertThat(editFiles.getMoveFiles()).containsExactly(new FromTo("a.txt", "b.txt"));
+    }
+
+    @Test
+    public void missing_instruction_file_is_remembered() throws Exception {
+        // Given
+        var bagDir = Files.createDirectories(testDir.resolve("bag"));
+        Files.writeString(bagDir.resolve("bagit.txt"), "BagIt-Version: 1.0\nTag-File-Character-Encoding: UTF-8\n");
+        var bag = new DataverseIngestBag(bagDir, yamlService);
+
+        // When
+        var first = bag.getEditMetadata();
+        Files.writeString(bagDir.resolve("edit-metadata.yml"), "editMetadata: {}\n");
+        var second = bag.getEditMetadata();
+
+        // Then
+        assertThat(first).isNull();
+        assertThat(second).isNull();
+        verify(yamlService, never()).readYaml(any(), eq(EditMetadataRoot.class));
+    }
+}
@@ -16,10 +16,14 @@
 package nl.knaw.dans.dvingest.core;
 
 import nl.knaw.dans.dvingest.core.service.YamlService;
+import nl.knaw.dans.dvingest.core.yaml.Create;
+import nl.knaw.dans.dvingest.core.yaml.Init;
+import nl.knaw.dans.dvingest.core.yaml.InitRoot;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
 
 import java.nio.file.Files;
+import java.util.List;
 import java.util.Properties;
 import java.util.TreeSet;
 import java.util.UUID;
@@ -98,4 +102,81 @@ public class DataverseIngestDepositTest extends TestDirFixture {
         // Then
         assertThat(deposits).containsExactly(deposit1, deposit2, deposit3);
     }
+
+    @Test
+    public void getTargetDataset_should_include_updates_dataset_and_sword_token() throws Exception {
+        // Given
+        var depositDir = testDir.resolve(UUID.randomUUID().toString());
+        Files.createDirectories(depositDir);
+        var props = new Properties();
+        props.setProperty("creation.timestamp", "2023-01-01T10:00:00Z");
+        props.setProperty("updates-dataset", "doi:10.5072/FK2/ABCDEF");
+        props.setProperty("dataverse.sword-token", "sword:11111111-1111-1111-1111-111111111111");
+        props.store(Files.newBufferedWriter(depositDir.resolve("deposit.properties")), "");
+
+        // When
+        var deposit = new DataverseIngestDeposit(depositDir, yamlServiceMock);
+
+        // Then
+        assertThat(deposit.getTargetDataset())
+            .isEqualTo(new TargetDataset(List.of("doi:10.5072/FK2/ABCDEF", "sword:11111111-1111-1111-1111-111111111111"), false, false));
+    }
+
+    @Test
+    public void getTargetDataset_should_match_is_version_of_of_later_version_with_bag_id_of_first_version() throws Exception {
+        // Given
+        var id1 = UUID.randomUUID();
+        var dir1 = testDir.resolve(id1.toString());
+        Files.createDirectories(dir1.resolve("bag"));
+        var props1 = new Properties();
+        props1.setProperty("creation.timestamp", "2023-01-01T10:00:00Z");
+        props1.store(Files.newBufferedWriter(dir1.resolve("deposit.properties")), "");
+        Files.writeString(dir1.resolve("bag/bag-info.txt"), "Created: 2023-01-01T10:00:00Z\n");
+
+        var dir2 = testDir.resolve(UUID.randomUUID().toString());
+        Files.createDirectories(dir2.resolve("bag"));
+        var props2 = new Properties();
+        props2.setProperty("creation.timestamp", "2023-01-02T10:00:00Z");
+        props2.store(Files.newBufferedWriter(dir2.resolve("deposit.properties")), "");
+        Files.writeString(dir2.resolve("bag/bag-info.txt"), "Created: 2023-01-02T10:00:00Z\nIs-Version-Of: urn:uuid:" + id1 + "\n");
+
+        // When
+        var deposit1 = new DataverseIngestDeposit(dir1, yamlServiceMock);
+        var deposit2 = new DataverseIngestDeposit(dir2, yamlServiceMock);
+
+        // Then
+        assertThat(deposit1.getTargetDataset()).isEqualTo(new TargetDataset(List.of("urn:uuid:" + id1), true, false));
+        assertThat(deposit2.getTargetDataset()).isEqualTo(new TargetDataset(List.of("urn:uuid:" + id1), false, false));
+    }
+
+    @Test
+    public void getTargetDataset_should_link_create_deposit_with_import_pid_to_update_deposit_by_pid() throws Exception {
+        // Given
+        var dir1 = testDir.resolve(UUID.randomUUID().toString());
+        Files.createDirectories(dir1.resolve("bag"));
+        var props1 = new Properties();
+        props1.setProperty("creation.timestamp", "2023-01-01T10:00:00Z");
+        props1.store(Files.newBufferedWriter(dir1.resolve("deposit.properties")), "");
+        Files.writeString(dir1.resolve("bag/init.yml"), "");
+        var init = new Init();
+        init.setCreate(new Create());
+        init.getCreate().setImportPid("doi:10.5072/FK2/ABCDEF");
+        Mockito.when(yamlServiceMock.readYaml(dir1.resolve("bag/init.yml"), InitRoot.class)).thenReturn(new InitRoot(init));
+
+        var dir2 = testDir.resolve(UUID.randomUUID().toString());
+        Files.createDirectories(dir2.resolve("bag"));
+        var props2 = new Properties();
+        props2.setProperty("creation.timestamp", "2023-01-02T10:00:00Z");
+        props2.setProperty("updates-dataset", "doi:10.5072/FK2/ABCDEF");
+        props2.store(Files.newBufferedWriter(dir2.resolve("deposit.properties")), "");
+
+        // When
+        var deposit1 = new DataverseIngestDeposit(dir1, yamlServiceMock);
+        var deposit2 = new DataverseIngestDeposit(dir2, yamlServiceMock);
+
+        // Then
+        assertThat(deposit1.getTargetDataset().getIdentifiers()).containsExactly("doi:10.5072/FK2/ABCDEF", "urn:uuid:" + deposit1.getId());
+        assertThat(deposit1.getTargetDataset().isPidMinted()).isFalse();
+        assertThat(deposit2.getTargetDataset()).isEqualTo(new TargetDataset(List.of("doi:10.5072/FK2/ABCDEF"), false, true));
+    }
 }
@@ -0,0 +1,171 @@
+/*
+ * Copyright (C) 2024 DANS - Data Archiving and Networked Services (info@dans.knaw.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.knaw.dans.dvingest.core;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class DepositLanesTest {
+    private final ExecutorService executorService = Executors.newFixedThreadPool(4);
+
+    @AfterEach
+    public void tearDown() {
+        executorService.shutdownNow();
+    }
+
+    @Test
+    public void tasks_in_same_lane_should_run_in_order_of_submission() throws Exception {
+        // Given
+        var lanes = new DepositLanes(executorService);
+        var completed = Collections.synchronizedList(new ArrayList<Integer>());
+        var futures = new ArrayList<CompletableFuture<Void>>();
+
+        // When
+        for (int i = 0; i < 20; i++) {
+            int number = i;
+            futures.add(lanes.submit("dataset", () -> {
+                sleep(number % 3);
+                completed.add(number);
+            }));
+        }
+        CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).get(10, TimeUnit.SECONDS);
+
+        // Then
+        var expected = new ArrayList<Integer>();
+        for (int i = 0; i < 20; i++) {
+            expected.add(i);
+        }
+        assertThat(completed).containsExactlyElementsOf(expected);
+        assertThat(lanes.getNumberOfActiveLanes()).isZero();
+    }
+
+    @Test
+    public void tasks_in_different_lanes_should_not_wait_for_each_other() throws Exception {
+        // Given
+        var lanes = new DepositLanes(executorService);
+        var blocker = new CountDownLatch(1);
+
+        // When
+        var blocked = lanes.submit("slow-dataset", () -> {
+            try {
+                blocker.await();
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        var other = lanes.submit("other-dataset", () -> {
+        });
+
+        // Then
+        other.get(10, TimeUnit.SECONDS);
+        assertThat(blocked).isNotDone();
+        blocker.countDown();
+        blocked.get(10, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void failing_task_should_not_block_rest_of_lane() throws Exception {
+        // Given
+        var lanes = new DepositLanes(executorService);
+        var completed = Collections.synchronizedList(new ArrayList<String>());
+
+        // When
+        var failing = lanes.submit("dataset", () -> {
+            throw new IllegalStateException("Deposit failed");
+        });
+        var next = lanes.submit("dataset", () -> completed.add("next"));
+        next.get(10, TimeUnit.SECONDS);
+
+        // Then
+        assertThat(failing).isCompletedExceptionally();
+        assertThat(completed).isEqualTo(List.of("next"));
+    }
+
+    @Test
+    public void task_linking_two_lanes_should_wait_for_both_and_be_waited_for_by_later_tasks_of_either() throws Exception {
+        // Given
+        var lanes = new DepositLanes(executorService);
+        var completed = Collections.synchronizedList(new ArrayList<String>());
+
+        // When
+        var first = lanes.submit(new TargetDataset(List.of("doi:X"), false, false), () -> {
+            sleep(100);
+            completed.add("first");
+        });
+        var second = lanes.submit(new TargetDataset(List.of("sword:T"), false, false), () -> {
+            sleep(50);
+            completed.add("second");
+        });
+        var linking = lanes.submit(new TargetDataset(List.of("doi:X", "sword:T"), false, false), () -> completed.add("linking"));
+        var last = lanes.submit(new TargetDataset(List.of("sword:T"), false, false), () -> completed.add("last"));
+        CompletableFuture.allOf(first, second, linking, last).get(10, TimeUnit.SECONDS);
+
+        // Then
+        assertThat(completed).containsExactlyInAnyOrder("first", "second", "linking", "last");
+        assertThat(completed.subList(2, 4)).containsExactly("linking", "last");
+        assertThat(lanes.getNumberOfActiveLanes()).isZero();
+    }
+
+    @Test
+    public void task_referring_to_dataset_by_pid_only_should_wait_for_tasks_minting_pid() throws Exception {
+        // Given
+        var lanes = new DepositLanes(executorService);
+        var blocker = new CountDownLatch(1);
+        var created = lanes.submit(new TargetDataset(List.of("urn:uuid:1"), true, false), () -> {
+            try {
+                blocker.await();
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        // When
+        var updated = lanes.submit(new TargetDataset(List.of("doi:Y"), false, true), () -> {
+        });
+        var unrelated = lanes.submit(new TargetDataset(List.of("urn:uuid:2"), true, false), () -> {
+        });
+
+        // Then
+        unrelated.get(10, TimeUnit.SECONDS);
+        Thread.sleep(50);
+        assertThat(updated).isNotDone();
+        blocker.countDown();
+        updated.get(10, TimeUnit.SECONDS);
+        assertThat(created).isDone();
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
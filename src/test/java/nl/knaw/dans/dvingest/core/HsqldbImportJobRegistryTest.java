@@ -0,0 +1,206 @@
+/*
+ * Copyright (C) 2024 DANS - Data Archiving and Networked Services (info@dans.knaw.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.knaw.dans.dvingest.core;
+
+import nl.knaw.dans.dvingest.api.ImportCommandDto;
+import nl.knaw.dans.dvingest.api.ImportJobStatusDto;
+import nl.knaw.dans.dvingest.api.ImportJobStatusDto.StatusEnum;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class HsqldbImportJobRegistryTest extends TestDirFixture {
+    private HsqldbImportJobRegistry registry;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        super.setUp();
+        registry = HsqldbImportJobRegistry.inDirectory(testDir.resolve("db"));
+        registry.start();
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        registry.stop();
+    }
+
+    private ImportJobStatusDto job(String path, StatusEnum status) {
+        return new ImportJobStatusDto().path(path).singleObject(false).status(status).message("message for " + path);
+    }
+
+    private DataverseIngestDeposit deposit(UUID id) {
+        var deposit = mock(DataverseIngestDeposit.class);
+        when(deposit.getId()).thenReturn(id);
+        when(deposit.getLocation()).thenReturn(Path.of("/inbox/batch1").resolve(id.toString()));
+        return deposit;
+    }
+
+    @Test
+    public void saveJob_inserts_and_then_updates_job() {
+        // Given
+        registry.saveJob(job("batch1", StatusEnum.PENDING));
+
+        // When
+        registry.saveJob(job("batch1", StatusEnum.RUNNING).message("running"));
+
+        // Then
+        assertThat(registry.findJobs()).hasSize(1);
+        assertThat(registry.findJob("batch1")).hasValue(job("batch1", StatusEnum.RUNNING).message("running"));
+    }
+
+    @Test
+    public void findJob_returns_empty_for_unknown_path() {
+        assertThat(registry.findJob("unknown")).isEmpty();
+    }
+
+    @Test
+    public void findJobsWithStatus_returns_only_jobs_with_that_status_in_order_of_submission() {
+        // Given
+        registry.saveJob(job("batch1", StatusEnum.RUNNING));
+        registry.saveJob(job("batch2", StatusEnum.DONE));
+        registry.saveJob(job("batch3", StatusEnum.RUNNING));
+
+        // When
+        var running = registry.findJobsWithStatus(StatusEnum.RUNNING);
+
+        // Then
+        assertThat(running).extracting(ImportJobStatusDto::getPath).containsExactly("batch1", "batch3");
+    }
+
+    @Test
+    public void saveDepositOutcome_replaces_earlier_outcome_of_same_deposit() {
+        // Given
+        var t0 = Instant.ofEpochMilli(1_000_000);
+        registry.saveDepositOutcome(outcome("batch1", "deposit1", DepositTask.Status.FAILED, t0, t0.plusSeconds(1)));
+        registry.saveDepositOutcome(outcome("batch1", "deposit2", DepositTask.Status.SUCCESS, t0.plusSeconds(2), t0.plusSeconds(5)));
+        registry.saveDepositOutcome(outcome("batch2", "deposit3", DepositTask.Status.REJECTED, t0, t0.plusSeconds(1)));
+
+        // When
+        registry.saveDepositOutcome(outcome("batch1", "deposit1", DepositTask.Status.SUCCESS, t0.plusSeconds(10), t0.plusSeconds(12)));
+
+        // Then
+        assertThat(registry.findDepositOutcomes("batch1")).containsExactly(
+            outcome("batch1", "deposit2", DepositTask.Status.SUCCESS, t0.plusSeconds(2), t0.plusSeconds(5)),
+            outcome("batch1", "deposit1", DepositTask.Status.SUCCESS, t0.plusSeconds(10), t0.plusSeconds(12)));
+    }
+
+    @Test
+    public void saveDepositOutcome_stores_bytes_uploaded_and_phase_durations_in_order() {
+        // Given
+        var t0 = Instant.ofEpochMilli(1_000_000);
+        var phaseDurations = new LinkedHashMap<String, Long>();
+        phaseDurations.put("validation", 300L);
+        phaseDurations.put("conversion", 1200L);
+        phaseDurations.put("editFiles", 45000L);
+        phaseDurations.put("updateState", 8000L);
+        var outcome = new DepositOutcome("batch1", "deposit1", DepositTask.Status.SUCCESS, t0, t0.plusSeconds(60), 123456789L, phaseDurations);
+
+        // When
+        registry.saveDepositOutcome(outcome);
+
+        // Then
+        var found = registry.findDepositOutcomes("batch1");
+        assertThat(found).containsExactly(outcome);
+        assertThat(found.get(0).getPhaseDurations()).containsExactly(
+            entry("validation", 300L), entry("conversion", 1200L), entry("editFiles", 45000L), entry("updateState", 8000L));
+    }
+
+    @Test
+    public void jobs_and_outcomes_survive_restart() throws Exception {
+        // Given
+        var t0 = Instant.ofEpochMilli(1_000_000);
+        registry.saveJob(job("batch1", StatusEnum.DONE));
+        registry.saveDepositOutcome(outcome("batch1", "deposit1", DepositTask.Status.SUCCESS, t0, t0.plusSeconds(1)));
+
+        // When
+        registry.stop();
+        registry = HsqldbImportJobRegistry.inDirectory(testDir.resolve("db"));
+        registry.start();
+
+        // Then
+        assertThat(registry.findJob("batch1")).hasValue(job("batch1", StatusEnum.DONE));
+        assertThat(registry.findDepositOutcomes("batch1")).hasSize(1);
+    }
+
+    @Test
+    public void saveCommand_replaces_earlier_command() {
+        // Given
+        registry.saveCommand("batch1", new ImportCommandDto().path("/inbox/batch1").singleObject(false).continueBatch(false).onlyConvertDansBag(false));
+
+        // When
+        registry.saveCommand("batch1", new ImportCommandDto().path("/inbox/batch1").singleObject(false).continueBatch(true).onlyConvertDansBag(true));
+
+        // Then
+        assertThat(registry.findCommand("batch1")).hasValue(new ImportCommandDto().path("/inbox/batch1").singleObject(false).continueBatch(true).onlyConvertDansBag(true));
+        assertThat(registry.findCommand("batch2")).isEmpty();
+    }
+
+    @Test
+    public void findUnfinishedDeposits_returns_queued_deposits_without_outcome_in_queue_order() {
+        // Given
+        var id1 = UUID.fromString("00000000-0000-0000-0000-000000000003");
+        var id2 = UUID.fromString("00000000-0000-0000-0000-000000000001");
+        var id3 = UUID.fromString("00000000-0000-0000-0000-000000000002");
+        registry.saveQueue("batch1", List.of(deposit(id1), deposit(id2), deposit(id3)));
+        var t0 = Instant.ofEpochMilli(1_000_000);
+        registry.saveDepositOutcome(outcome("batch1", id1.toString(), DepositTask.Status.SUCCESS, t0, t0.plusSeconds(1)));
+
+        // When
+        var unfinished = registry.findUnfinishedDeposits("batch1");
+
+        // Then
+        assertThat(unfinished).hasValue(List.of(Path.of("/inbox/batch1").resolve(id2.toString()), Path.of("/inbox/batch1").resolve(id3.toString())));
+        assertThat(registry.findUnfinishedDeposits("batch2")).isEmpty();
+    }
+
+    @Test
+    public void saveQueue_removes_earlier_queue_and_outcomes_of_queued_deposits_only() {
+        // Given
+        var id1 = UUID.fromString("00000000-0000-0000-0000-000000000001");
+        var id2 = UUID.fromString("00000000-0000-0000-0000-000000000002");
+        var id3 = UUID.fromString("00000000-0000-0000-0000-000000000003");
+        registry.saveQueue("batch1", List.of(deposit(id1), deposit(id3)));
+        var t0 = Instant.ofEpochMilli(1_000_000);
+        registry.saveDepositOutcome(new DepositOutcome("batch1", id1.toString(), DepositTask.Status.FAILED, t0, t0.plusSeconds(1), 0L, Map.of("editFiles", 100L)));
+        registry.saveDepositOutcome(new DepositOutcome("batch1", id3.toString(), DepositTask.Status.SUCCESS, t0, t0.plusSeconds(2), 0L, Map.of("editFiles", 200L)));
+
+        // When
+        registry.saveQueue("batch1", List.of(deposit(id1), deposit(id2)));
+
+        // Then
+        assertThat(registry.findDepositOutcomes("batch1"))
+            .extracting(DepositOutcome::getDepositId, DepositOutcome::getPhaseDurations)
+            .containsExactly(tuple(id3.toString(), Map.of("editFiles", 200L)));
+        assertThat(registry.findUnfinishedDeposits("batch1")).hasValueSatisfying(l -> assertThat(l).hasSize(2));
+    }
+
+    private static DepositOutcome outcome(String jobPath, String depositId, DepositTask.Status status, Instant started, Instant finished) {
+        return new DepositOutcome(jobPath, depositId, status, started, finished, 0L, Map.of());
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright (C) 2024 DANS - Data Archiving and Networked Services (info@dans.knaw.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.knaw.dans.dvingest.core;
+
+import nl.knaw.dans.dvingest.api.ImportJobStatusDto;
+import nl.knaw.dans.dvingest.api.ImportJobStatusDto.StatusEnum;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+import static org.assertj.core.api.Assertions.offset;
+
+public class ImportJobReportTest {
+    private static final Instant t0 = Instant.parse("2024-01-01T00:00:00Z");
+    private final ImportJobStatusDto status = new ImportJobStatusDto().path("batch1").status(StatusEnum.RUNNING).message("Import job running");
+
+    @Test
+    public void of_aggregates_outcomes() {
+        // Given
+        var outcomes = new ArrayList<DepositOutcome>();
+        for (int i = 0; i < 20; i++) {
+            // Deposit i takes i + 1 minutes and starts when deposit i - 1 finishes
+            var started = t0.plusSeconds(60L * i * (i + 1) / 2);
+            var outcomeStatus = i == 3 ? DepositTask.Status.REJECTED : i == 7 ? DepositTask.Status.FAILED : DepositTask.Status.SUCCESS;
+            outcomes.add(new DepositOutcome("batch1", "deposit" + i, outcomeStatus, started, started.plusSeconds(60L * (i + 1)), 1000L, Map.of()));
+        }
+
+        // When
+        var report = ImportJobReport.of(status, outcomes, false);
+
+        // Then
+        assertThat(report.getPath()).isEqualTo("batch1");
+        assertThat(report.getNumberOfDeposits()).isEqualTo(20);
+        assertThat(report.getNumberOfDepositsPerOutcome()).containsOnly(
+            entry(DepositTask.Status.SUCCESS, 18L), entry(DepositTask.Status.REJECTED, 1L), entry(DepositTask.Status.FAILED, 1L));
+        // 20 deposits in 210 minutes
+        assertThat(report.getDepositsPerHour()).isCloseTo(20 * 60.0 / 210, offset(0.001));
+        assertThat(report.getAverageDuration()).isEqualTo(630_000L);
+        assertThat(report.getP95Duration()).isEqualTo(19 * 60_000L);
+        assertThat(report.getBytesUploaded()).isEqualTo(20_000L);
+        assertThat(report.getDeposits()).isNull();
+    }
+
+    @Test
+    public void of_includes_phase_durations_per_deposit_on_request() {
+        // Given
+        var outcome = new DepositOutcome("batch1", "deposit1", DepositTask.Status.SUCCESS, t0, t0.plusSeconds(10), 42L, Map.of("editFiles", 7000L));
+
+        // When
+        var report = ImportJobReport.of(status, List.of(outcome), true);
+
+        // Then
+        assertThat(report.getDeposits()).containsExactly(
+            new ImportJobReport.DepositReport("deposit1", DepositTask.Status.SUCCESS, "2024-01-01T00:00:00Z", "2024-01-01T00:00:10Z", 10_000L, 42L, Map.of("editFiles", 7000L)));
+    }
+
+    @Test
+    public void of_reports_zeros_for_job_without_outcomes() {
+        // When
+        var report = ImportJobReport.of(status, List.of(), false);
+
+        // Then
+        assertThat(report.getNumberOfDeposits()).isZero();
+        assertThat(report.getDepositsPerHour()).isZero();
+        assertThat(report.getAverageDuration()).isZero();
+        assertThat(report.getP95Duration()).isZero();
+    }
+
+    @Test
+    public void summarize_counts_outcomes() {
+        // Given
+        var outcomes = List.of(
+            new DepositOutcome("batch1", "deposit1", DepositTask.Status.SUCCESS, t0, t0, 1000L, Map.of()),
+            new DepositOutcome("batch1", "deposit2", DepositTask.Status.FAILED, t0, t0, 500L, Map.of()));
+
+        // When
+        var summary = ImportJobReport.summarize(outcomes);
+
+        // Then
+        assertThat(summary).isEqualTo("2 deposits processed: 1 succeeded, 0 rejected, 1 failed; 1500 bytes uploaded");
+    }
+
+    @Test
+    public void totals_give_same_summary_as_outcomes_when_added_one_by_one() {
+        // Given
+        var outcomes = List.of(
+            new DepositOutcome("batch1", "deposit1", DepositTask.Status.SUCCESS, t0, t0, 1000L, Map.of()),
+            new DepositOutcome("batch1", "deposit2", DepositTask.Status.REJECTED, t0, t0, 0L, Map.of()),
+            new DepositOutcome("batch1", "deposit3", DepositTask.Status.SUCCESS, t0, t0, 2000L, Map.of()));
+        var totals = new ImportJobReport.Totals();
+
+        // When
+        var summaries = new ArrayList<String>();
+        for (var outcome : outcomes) {
+            totals.add(outcome);
+            summaries.add(totals.summarize());
+        }
+
+        // Then
+        assertThat(summaries).containsExactly(
+            "1 deposits processed: 1 succeeded, 0 rejected, 0 failed; 1000 bytes uploaded",
+            "2 deposits processed: 1 succeeded, 1 rejected, 0 failed; 1000 bytes uploaded",
+            "3 deposits processed: 2 succeeded, 1 rejected, 0 failed; 3000 bytes uploaded");
+        assertThat(summaries.get(2)).isEqualTo(ImportJobReport.summarize(outcomes));
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright (C) 2024 DANS - Data Archiving and Networked Services (info@dans.knaw.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.knaw.dans.dvingest.core;
+
+import nl.knaw.dans.dvingest.api.ImportCommandDto;
+import nl.knaw.dans.dvingest.api.ImportJobStatusDto.StatusEnum;
+import nl.knaw.dans.dvingest.core.service.YamlService;
+import nl.knaw.dans.dvingest.core.yaml.Create;
+import nl.knaw.dans.dvingest.core.yaml.Init;
+import nl.knaw.dans.dvingest.core.yaml.InitRoot;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class ImportJobTest extends TestDirFixture {
+    private final YamlService yamlService = mock(YamlService.class);
+    private final DepositTaskFactory depositTaskFactory = mock(DepositTaskFactory.class);
+    private final ExecutorService executorService = Executors.newFixedThreadPool(4);
+    private final List<String> events = Collections.synchronizedList(new ArrayList<>());
+    private Path batchDir;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        super.setUp();
+        batchDir = Files.createDirectories(testDir.resolve("batch"));
+        when(depositTaskFactory.createDepositTask(any(), any(), anyBoolean())).thenAnswer(invocation -> depositTask(invocation.getArgument(0, DataverseIngestDeposit.class)));
+    }
+
+    @AfterEach
+    public void tearDown() {
+        executorService.shutdownNow();
+    }
+
+    @Test
+    public void create_deposit_with_import_pid_and_its_update_never_overlap() throws Exception {
+        // Given
+        var create = deposit("2023-01-01T10:00:00Z", null, "doi:10.5072/FK2/AAAAAA");
+        var other = deposit("2023-01-01T11:00:00Z", null, null);
+        var update = deposit("2023-01-01T12:00:00Z", "doi:10.5072/FK2/AAAAAA", null);
+
+        // When
+        importJob().run();
+
+        // Then
+        assertThat(events).containsSubsequence("end " + create, "start " + update);
+        assertThat(events).contains("end " + other);
+    }
+
+    @Test
+    public void update_by_pid_only_never_overlaps_create_deposit_with_minted_pid() throws Exception {
+        // Given
+        var create = deposit("2023-01-01T10:00:00Z", null, null);
+        var update = deposit("2023-01-01T12:00:00Z", "doi:10.5072/FK2/BBBBBB", null);
+
+        // When
+        importJob().run();
+
+        // Then
+        assertThat(events).containsSubsequence("end " + create, "start " + update);
+    }
+
+    @Test
+    public void deposits_for_unrelated_datasets_run_concurrently() throws Exception {
+        // Given
+        var first = deposit("2023-01-01T10:00:00Z", null, "doi:10.5072/FK2/AAAAAA");
+        var second = deposit("2023-01-01T11:00:00Z", null, "doi:10.5072/FK2/BBBBBB");
+
+        // When
+        var job = importJob();
+        job.run();
+
+        // Then
+        assertThat(events).containsSubsequence("start " + first, "start " + second, "end " + first);
+        assertThat(job.getStatus().getStatus()).isEqualTo(StatusEnum.DONE);
+    }
+
+    private ImportJob importJob() {
+        var command = new ImportCommandDto().path(batchDir.toString()).singleObject(false).continueBatch(false).onlyConvertDansBag(false);
+        return new ImportJob(command, "batch", testDir.resolve("out"), false, path -> new DataverseIngestDeposit(path, yamlService), depositTaskFactory,
+            new DepositLanes(executorService), null, null);
+    }
+
+    private UUID deposit(String creationTimestamp, String updatesDataset, String importPid) throws Exception {
+        var id = UUID.randomUUID();
+        var depositDir = Files.createDirectories(batchDir.resolve(id.toString()).resolve("bag"));
+        var props = new Properties();
+        props.setProperty("creation.timestamp", creationTimestamp);
+        if (updatesDataset != null) {
+            props.setProperty("updates-dataset", updatesDataset);
+        }
+        try (var writer = Files.newBufferedWriter(depositDir.resolveSibling("deposit.properties"))) {
+            props.store(writer, "");
+        }
+        if (importPid != null) {
+            Files.writeString(depositDir.resolve("init.yml"), "");
+            var init = new Init();
+            init.setCreate(new Create());
+            init.getCreate().setImportPid(importPid);
+            when(yamlService.readYaml(depositDir.resolve("init.yml"), InitRoot.class)).thenReturn(new InitRoot(init));
+        }
+        return id;
+    }
+
+    /*
+     * A deposit task that records when it starts and ends. The first deposit is slow, so that later deposits would overlap with it if they were not in its lane.
+     */
+    private DepositTask depositTask(DataverseIngestDeposit deposit) {
+        var task = mock(DepositTask.class);
+        when(task.getStatus()).thenReturn(DepositTask.Status.SUCCESS);
+        when(task.getPhaseDurations()).thenReturn(Map.of());
+        doAnswer(invocation -> {
+            events.add("start " + deposit.getId());
+            Thread.sleep(deposit.getCreationTimestamp().getHour() == 10 ? 500 : 10);
+            events.add("end " + deposit.getId());
+            return null;
+        }).when(task).run();
+        return task;
+    }
+}
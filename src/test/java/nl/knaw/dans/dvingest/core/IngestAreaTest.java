@@ -0,0 +1,106 @@
+/*
+ * Copyright (C) 2024 DANS - Data Archiving and Networked Services (info@dans.knaw.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.knaw.dans.dvingest.core;
+
+import nl.knaw.dans.dvingest.api.ImportCommandDto;
+import nl.knaw.dans.dvingest.api.ImportJobStatusDto;
+import nl.knaw.dans.dvingest.api.ImportJobStatusDto.StatusEnum;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class IngestAreaTest extends TestDirFixture {
+    private final ImportJobFactory importJobFactory = mock(ImportJobFactory.class);
+    private final ImportJobRegistry importJobRegistry = mock(ImportJobRegistry.class);
+    private final ExecutorService executorService = mock(ExecutorService.class);
+    private Path inbox;
+    private Path outbox;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        super.setUp();
+        inbox = Files.createDirectories(testDir.resolve("inbox")).toRealPath();
+        outbox = Files.createDirectories(testDir.resolve("outbox")).toRealPath();
+    }
+
+    @Test
+    public void start_resumes_running_job_from_its_unfinished_deposits() {
+        // Given
+        var command = new ImportCommandDto().path(inbox.resolve("batch1").toString()).singleObject(false).continueBatch(false).onlyConvertDansBag(false);
+        var remaining = List.of(inbox.resolve("batch1/deposit2"), inbox.resolve("batch1/deposit3"));
+        var resumedJob = mock(ImportJob.class);
+        when(importJobRegistry.findJobsWithStatus(StatusEnum.PENDING)).thenReturn(List.of());
+        when(importJobRegistry.findJobsWithStatus(StatusEnum.RUNNING)).thenReturn(List.of(new ImportJobStatusDto().path("batch1").status(StatusEnum.RUNNING)));
+        when(importJobRegistry.findCommand("batch1")).thenReturn(Optional.of(command));
+        when(importJobRegistry.findUnfinishedDeposits("batch1")).thenReturn(Optional.of(remaining));
+        when(importJobFactory.resumeImportJob(any(), eq("batch1"), eq(outbox.resolve("batch1")), eq(false), eq(remaining))).thenReturn(resumedJob);
+        var ingestArea = new IngestArea(importJobFactory, inbox, outbox, executorService, importJobRegistry);
+
+        // When
+        ingestArea.start();
+
+        // Then
+        verify(importJobFactory).resumeImportJob(eq(new ImportCommandDto().path(command.getPath()).singleObject(false).continueBatch(true).onlyConvertDansBag(false)),
+            eq("batch1"), eq(outbox.resolve("batch1")), eq(false), eq(remaining));
+        verify(executorService).submit(resumedJob);
+    }
+
+    @Test
+    public void start_marks_job_without_command_as_failed() {
+        // Given
+        when(importJobRegistry.findJobsWithStatus(StatusEnum.PENDING)).thenReturn(List.of(new ImportJobStatusDto().path("batch1").status(StatusEnum.PENDING)));
+        when(importJobRegistry.findJobsWithStatus(StatusEnum.RUNNING)).thenReturn(List.of());
+        when(importJobRegistry.findCommand("batch1")).thenReturn(Optional.empty());
+        var ingestArea = new IngestArea(importJobFactory, inbox, outbox, executorService, importJobRegistry);
+
+        // When
+        ingestArea.start();
+
+        // Then
+        verify(importJobRegistry).saveJob(new ImportJobStatusDto().path("batch1").status(StatusEnum.FAILED).message("Import job interrupted by restart of the service"));
+        verify(importJobFactory, never()).resumeImportJob(any(), anyString(), any(), anyBoolean(), any());
+        verify(executorService, never()).submit(any(Runnable.class));
+    }
+
+    @Test
+    public void getStatus_falls_back_to_registry_for_jobs_not_in_memory() {
+        // Given
+        var status = new ImportJobStatusDto().path("batch1").status(StatusEnum.DONE).message("Import job completed");
+        when(importJobRegistry.findJob("batch1")).thenReturn(Optional.of(status));
+        var ingestArea = new IngestArea(importJobFactory, inbox, outbox, executorService, importJobRegistry);
+
+        // When
+        var result = ingestArea.getStatus("batch1");
+
+        // Then
+        assertThat(result).containsExactly(status);
+    }
+}
@@ -0,0 +1,173 @@
+/*
+ * Copyright (C) 2024 DANS - Data Archiving and Networked Services (info@dans.knaw.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.knaw.dans.dvingest.core;
+
+import nl.knaw.dans.dvingest.core.yaml.tasklog.TaskLog;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TaskLogJournalTest extends TestDirFixture {
+
+    @Test
+    public void replay_restores_changes_appended_at_checkpoints() throws Exception {
+        // Given
+        var journalFile = testDir.resolve("_tasks.journal");
+        var taskLog = new TaskLog();
+        var journal = new TaskLogJournal(journalFile, taskLog);
+        taskLog.getInit().setTargetPid("doi:10.5072/FK2/ABCDEF");
+        taskLog.getDataset().setCompleted(true);
+        journal.append(taskLog);
+        taskLog.getEditFiles().getAddUnrestrictedFiles().setNumberCompleted(1000);
+        taskLog.getEditFiles().getAddUnrestrictedIndividually().getCompletedFiles().addAll(List.of("a.txt", "b.txt"));
+        journal.append(taskLog);
+        taskLog.getEditFiles().getAddUnrestrictedFiles().setNumberCompleted(2000);
+        taskLog.getEditFiles().getAddUnrestrictedIndividually().getCompletedFiles().add("c.txt");
+        journal.append(taskLog);
+
+        // When
+        var replayed = TaskLogJournal.replay(journalFile, new TaskLog());
+
+        // Then
+        assertThat(replayed).isEqualTo(taskLog);
+    }
+
+    @Test
+    public void append_writes_only_changed_values() throws Exception {
+        // Given
+        var journalFile = testDir.resolve("_tasks.journal");
+        var taskLog = new TaskLog();
+        var journal = new TaskLogJournal(journalFile, taskLog);
+        taskLog.getEditFiles().getAddUnrestrictedIndividually().getCompletedFiles().addAll(List.of("a.txt", "b.txt"));
+        journal.append(taskLog);
+
+        // When
+        taskLog.getEditFiles().getAddUnrestrictedIndividually().getCompletedFiles().add("c.txt");
+        taskLog.getEditFiles().getAddUnrestrictedIndividually().setNumberCompleted(3);
+        journal.append(taskLog);
+        journal.append(taskLog);
+
+        // Then
+        assertThat(Files.readAllLines(journalFile)).containsExactlyInAnyOrder(
+            "/editFiles/addUnrestrictedIndividually/completedFiles/0 \"a.txt\"",
+            "/editFiles/addUnrestrictedIndividually/completedFiles/1 \"b.txt\"",
+            "/editFiles/addUnrestrictedIndividually/completedFiles/2 \"c.txt\"",
+            "/editFiles/addUnrestrictedIndividually/numberCompleted 3");
+    }
+
+    @Test
+    public void replay_is_idempotent() throws Exception {
+        // Given
+        var journalFile = testDir.resolve("_tasks.journal");
+        var taskLog = new TaskLog();
+        var journal = new TaskLogJournal(journalFile, taskLog);
+        taskLog.getEditFiles().getAddRestrictedIndividually().getCompletedFiles().addAll(List.of("a.txt", "b.txt"));
+        taskLog.getEditFiles().getAddRestrictedIndividually().setNumberCompleted(2);
+        journal.append(taskLog);
+
+        // When
+        var replayedOnce = TaskLogJournal.replay(journalFile, new TaskLog());
+        var replayedTwice = TaskLogJournal.replay(journalFile, replayedOnce);
+
+        // Then
+        assertThat(replayedTwice).isEqualTo(taskLog);
+    }
+
+    @Test
+    public void replay_ignores_incomplete_last_line() throws Exception {
+        // Given
+        var journalFile = testDir.resolve("_tasks.journal");
+        Files.writeString(journalFile, "/dataset/completed true\n/editFiles/deleteFiles/compl");
+
+        // When
+        var replayed = TaskLogJournal.replay(journalFile, new TaskLog());
+
+        // Then
+        assertThat(replayed.getDataset().isCompleted()).isTrue();
+        assertThat(replayed.getEditFiles().getDeleteFiles().isCompleted()).isFalse();
+    }
+
+    @Test
+    public void replay_removes_incomplete_last_line_so_that_later_changes_are_not_lost() throws Exception {
+        // Given
+        var journalFile = testDir.resolve("_tasks.journal");
+        Files.writeString(journalFile, "/dataset/completed true\n/editFiles/deleteFiles/compl");
+        var taskLog = TaskLogJournal.replay(journalFile, new TaskLog());
+        var journal = new TaskLogJournal(journalFile, taskLog);
+        taskLog.getUpdateState().setCompleted(true);
+        journal.append(taskLog);
+
+        // When
+        var replayed = TaskLogJournal.replay(journalFile, new TaskLog());
+
+        // Then
+        assertThat(replayed.getDataset().isCompleted()).isTrue();
+        assertThat(replayed.getUpdateState().isCompleted()).isTrue();
+        assertThat(Files.readAllLines(journalFile)).containsExactly("/dataset/completed true", "/updateState/completed true");
+    }
+
+    @Test
+    public void replay_ignores_blank_and_malformed_lines() throws Exception {
+        // Given
+        var journalFile = testDir.resolve("_tasks.journal");
+        Files.writeString(journalFile, "\n/dataset/completed true\n   \ngarbage\n/updateState/completed tr\n/editFiles/addEmbargoes/numberCompleted 2\n");
+
+        // When
+        var replayed = TaskLogJournal.replay(journalFile, new TaskLog());
+
+        // Then
+        assertThat(replayed.getDataset().isCompleted()).isTrue();
+        assertThat(replayed.getUpdateState().isCompleted()).isFalse();
+        assertThat(replayed.getEditFiles().getAddEmbargoes().getNumberCompleted()).isEqualTo(2);
+    }
+
+    @Test
+    public void append_writes_replaced_list_as_a_whole() throws Exception {
+        // Given
+        var journalFile = testDir.resolve("_tasks.journal");
+        var taskLog = new TaskLog();
+        var journal = new TaskLogJournal(journalFile, taskLog);
+        taskLog.getEditFiles().getAddUnrestrictedIndividually().getCompletedFiles().addAll(List.of("a.txt", "b.txt"));
+        journal.append(taskLog);
+
+        // When
+        taskLog.getEditFiles().getAddUnrestrictedIndividually().setCompletedFiles(List.of("c.txt"));
+        journal.append(taskLog);
+
+        // Then
+        assertThat(TaskLogJournal.replay(journalFile, new TaskLog())).isEqualTo(taskLog);
+    }
+
+    @Test
+    public void reset_removes_journal() throws Exception {
+        // Given
+        var journalFile = testDir.resolve("_tasks.journal");
+        var taskLog = new TaskLog();
+        var journal = new TaskLogJournal(journalFile, taskLog);
+        taskLog.getDataset().setCompleted(true);
+        journal.append(taskLog);
+
+        // When
+        journal.reset(taskLog);
+        journal.append(taskLog);
+
+        // Then
+        assertThat(journalFile).doesNotExist();
+    }
+}
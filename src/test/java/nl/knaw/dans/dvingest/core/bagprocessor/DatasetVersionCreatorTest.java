@@ -320,7 +320,7 @@ public class DatasetVersionCreatorTest {
         roleAssignment.setAssignee("@user");
         roleAssignment.set_roleAlias("NOT-admin");
 
-        Mockito.when(dataverseServiceMock.getRoleAssignmentsOnDataverse("root"))
+        Mockito.when(dataverseServiceMock.getRoleAssignmentsOnDataverse("root", "@user"))
             .thenReturn(List.of(roleAssignment));
 
         // When / Then
@@ -358,7 +358,7 @@ public class DatasetVersionCreatorTest {
         var roleAssignment = new RoleAssignmentReadOnly();
         roleAssignment.setAssignee("@user");
         roleAssignment.set_roleAlias("admin");
-        Mockito.when(dataverseServiceMock.getRoleAssignmentsOnDataverse("root"))
+        Mockito.when(dataverseServiceMock.getRoleAssignmentsOnDataverse("root", "@user"))
             .thenReturn(List.of(roleAssignment));
         Mockito.when(dataverseServiceMock.createDataset(dataset)).thenReturn("pid");
 
@@ -390,7 +390,7 @@ public class DatasetVersionCreatorTest {
         var roleAssignment = new RoleAssignmentReadOnly();
         roleAssignment.setAssignee(":authenticated-users");
         roleAssignment.set_roleAlias("creator");
-        Mockito.when(dataverseServiceMock.getRoleAssignmentsOnDataverse("root"))
+        Mockito.when(dataverseServiceMock.getRoleAssignmentsOnDataverse("root", ":authenticated-users"))
             .thenReturn(List.of(roleAssignment));
         Mockito.when(dataverseServiceMock.createDataset(dataset)).thenReturn("pid");
 
@@ -491,7 +491,7 @@ public class DatasetVersionCreatorTest {
         var datasetRoleAssignment = new RoleAssignmentReadOnly();
         datasetRoleAssignment.setAssignee("@user");
         datasetRoleAssignment.set_roleAlias("updater");
-        Mockito.when(dataverseServiceMock.getRoleAssignmentsOnDataverse("root"))
+        Mockito.when(dataverseServiceMock.getRoleAssignmentsOnDataverse("root", "@user"))
             .thenReturn(List.of(dataverseRoleAssignment));
         Mockito.when(dataverseServiceMock.getRoleAssignmentsOnDataset("pid"))
             .thenReturn(List.of(datasetRoleAssignment));
@@ -570,7 +570,7 @@ public class DatasetVersionCreatorTest {
         var roleAssignment = new RoleAssignmentReadOnly();
         roleAssignment.setAssignee("@user");
         roleAssignment.set_roleAlias("creator");
-        Mockito.when(dataverseServiceMock.getRoleAssignmentsOnDataverse("root"))
+        Mockito.when(dataverseServiceMock.getRoleAssignmentsOnDataverse("root", "@user"))
             .thenReturn(List.of(roleAssignment));
         Mockito.when(dataverseServiceMock.createDataset(dataset)).thenReturn("pid");
 
@@ -578,7 +578,7 @@ public class DatasetVersionCreatorTest {
         new DatasetVersionCreator(depositId, dataverseServiceMock, initRoot.getInit(), dataset, initLog, datasetLog).createDatasetVersion(null);
 
         // Then
-        Mockito.verify(dataverseServiceMock, Mockito.never()).getRoleAssignmentsOnDataverse(Mockito.anyString());
+        Mockito.verify(dataverseServiceMock, Mockito.never()).getRoleAssignmentsOnDataverse(Mockito.anyString(), Mockito.anyString());
         Mockito.verify(dataverseServiceMock).createDataset(dataset);
         Mockito.verify(dataverseServiceMock).updateMetadata("pid", dataset.getDatasetVersion());
         YamlBeanAssert.assertThat(initLog).isEqualTo(allCompletedYaml);
@@ -26,6 +26,7 @@ import org.mockito.Mockito;
 
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
 
@@ -62,6 +63,9 @@ public class FilesEditorAddFilesIndividuallyTest extends FilesEditorTestFixture
         Mockito.verify(dataverseServiceMock).addFile(anyString(), eq(dataDir.resolve("file2")), Mockito.any(FileMeta.class));
         YamlBeanAssert.assertThat(editFilesLog.getAddRestrictedIndividually()).isEqualTo("""
             numberCompleted: 2
+            completedFiles:
+              - file1
+              - file2
             completed: true
             """);
     }
@@ -91,6 +95,9 @@ public class FilesEditorAddFilesIndividuallyTest extends FilesEditorTestFixture
         Mockito.verify(dataverseServiceMock).addFile(anyString(), eq(dataDir.resolve("file4")), Mockito.any(FileMeta.class));
         YamlBeanAssert.assertThat(editFilesLog.getAddUnrestrictedIndividually()).isEqualTo("""
             numberCompleted: 2
+            completedFiles:
+              - file3
+              - file4
             completed: true
             """);
     }
@@ -118,6 +125,8 @@ public class FilesEditorAddFilesIndividuallyTest extends FilesEditorTestFixture
             .hasMessageContaining("File to add not found in bag: file5");
         YamlBeanAssert.assertThat(editFilesLog.getAddRestrictedIndividually()).isEqualTo("""
             numberCompleted: 1
+            completedFiles:
+              - file1
             completed: false
             """);
     }
@@ -145,6 +154,8 @@ public class FilesEditorAddFilesIndividuallyTest extends FilesEditorTestFixture
             .hasMessageContaining("File to add not found in bag: file6");
         YamlBeanAssert.assertThat(editFilesLog.getAddUnrestrictedIndividually()).isEqualTo("""
             numberCompleted: 1
+            completedFiles:
+              - file3
             completed: false
             """);
     }
@@ -297,4 +308,103 @@ public class FilesEditorAddFilesIndividuallyTest extends FilesEditorTestFixture
             """);
     }
 
+    @Test
+    public void addUnrestrictedFilesIndividually_resumes_from_completed_files() throws Exception {
+        // Given
+        ArgumentCaptor<FileMeta> fileMetaCaptor = ArgumentCaptor.forClass(FileMeta.class);
+        when(dataverseServiceMock.addFile(anyString(), any(Path.class), fileMetaCaptor.capture()))
+            .thenAnswer(invocation -> new FileList(List.of(fileMetaCaptor.getValue())));
+        Files.createFile(dataDir.resolve("file3"));
+        Files.createFile(dataDir.resolve("file4"));
+        Files.createFile(dataDir.resolve("file5"));
+        var editFilesRoot = yamlService.readYamlFromString("""
+            editFiles:
+                addUnrestrictedIndividually:
+                  - file3
+                  - file4
+                  - file5
+            """, EditFilesRoot.class);
+        var editFilesLog = new EditFilesLog();
+        editFilesLog.getAddUnrestrictedIndividually().getCompletedFiles().add("file4");
+        editFilesLog.getAddUnrestrictedIndividually().setNumberCompleted(1);
+        // Must not influence the unrestricted files
+        editFilesLog.getAddRestrictedIndividually().setNumberCompleted(2);
+        var filesEditor = new FilesEditor(UUID.randomUUID(), dataDir, editFilesRoot.getEditFiles(), dataverseServiceMock, utilityServicesMock, editFilesLog);
+
+        // When
+        filesEditor.addUnrestrictedFilesIndividually();
+
+        // Then
+        Mockito.verify(dataverseServiceMock).addFile(anyString(), eq(dataDir.resolve("file3")), Mockito.any(FileMeta.class));
+        Mockito.verify(dataverseServiceMock, Mockito.never()).addFile(anyString(), eq(dataDir.resolve("file4")), Mockito.any(FileMeta.class));
+        Mockito.verify(dataverseServiceMock).addFile(anyString(), eq(dataDir.resolve("file5")), Mockito.any(FileMeta.class));
+        YamlBeanAssert.assertThat(editFilesLog.getAddUnrestrictedIndividually()).isEqualTo("""
+            numberCompleted: 3
+            completedFiles:
+              - file4
+              - file3
+              - file5
+            completed: true
+            """);
+    }
+
+    @Test
+    public void addRestrictedFilesIndividually_resumes_from_number_completed_in_older_task_log() throws Exception {
+        // Given
+        ArgumentCaptor<FileMeta> fileMetaCaptor = ArgumentCaptor.forClass(FileMeta.class);
+        when(dataverseServiceMock.addFile(anyString(), any(Path.class), fileMetaCaptor.capture()))
+            .thenAnswer(invocation -> new FileList(List.of(fileMetaCaptor.getValue())));
+        Files.createFile(dataDir.resolve("file1"));
+        Files.createFile(dataDir.resolve("file2"));
+        var editFilesRoot = yamlService.readYamlFromString("""
+            editFiles:
+                addRestrictedIndividually:
+                  - file1
+                  - file2
+            """, EditFilesRoot.class);
+        var editFilesLog = new EditFilesLog();
+        editFilesLog.getAddRestrictedIndividually().setNumberCompleted(1);
+        var filesEditor = new FilesEditor(UUID.randomUUID(), dataDir, editFilesRoot.getEditFiles(), dataverseServiceMock, utilityServicesMock, editFilesLog);
+
+        // When
+        filesEditor.addRestrictedFilesIndividually();
+
+        // Then
+        Mockito.verify(dataverseServiceMock, Mockito.never()).addFile(anyString(), eq(dataDir.resolve("file1")), Mockito.any(FileMeta.class));
+        Mockito.verify(dataverseServiceMock).addFile(anyString(), eq(dataDir.resolve("file2")), Mockito.any(FileMeta.class));
+        YamlBeanAssert.assertThat(editFilesLog.getAddRestrictedIndividually()).isEqualTo("""
+            numberCompleted: 2
+            completedFiles:
+              - file1
+              - file2
+            completed: true
+            """);
+    }
+
+    @Test
+    public void addUnrestrictedFilesIndividually_uploads_concurrently() throws Exception {
+        // Given
+        when(utilityServicesMock.getMaxConcurrentIndividualUploads()).thenReturn(3);
+        when(utilityServicesMock.getIndividualUploadExecutor()).thenReturn(executorService);
+        when(dataverseServiceMock.addFile(anyString(), any(Path.class), any(FileMeta.class)))
+            .thenAnswer(invocation -> new FileList(List.of(invocation.getArgument(2, FileMeta.class))));
+        var files = new ArrayList<String>();
+        for (int i = 0; i < 10; i++) {
+            Files.createFile(dataDir.resolve("file" + i));
+            files.add("file" + i);
+        }
+        var editFilesRoot = yamlService.readYamlFromString("editFiles: {}", EditFilesRoot.class);
+        editFilesRoot.getEditFiles().setAddUnrestrictedIndividually(files);
+        var editFilesLog = new EditFilesLog();
+        var filesEditor = new FilesEditor(UUID.randomUUID(), dataDir, editFilesRoot.getEditFiles(), dataverseServiceMock, utilityServicesMock, editFilesLog);
+
+        // When
+        filesEditor.addUnrestrictedFilesIndividually();
+
+        // Then
+        Mockito.verify(dataverseServiceMock, Mockito.times(10)).addFile(anyString(), any(Path.class), any(FileMeta.class));
+        assertThat(editFilesLog.getAddUnrestrictedIndividually().getNumberCompleted()).isEqualTo(10);
+        assertThat(editFilesLog.getAddUnrestrictedIndividually().getCompletedFiles()).containsExactlyInAnyOrderElementsOf(files);
+        assertThat(editFilesLog.getAddUnrestrictedIndividually().isCompleted()).isTrue();
+    }
 }
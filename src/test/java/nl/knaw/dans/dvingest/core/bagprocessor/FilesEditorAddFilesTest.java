@@ -16,6 +16,7 @@
 package nl.knaw.dans.dvingest.core.bagprocessor;
 
 import nl.knaw.dans.dvingest.YamlBeanAssert;
+import nl.knaw.dans.dvingest.core.service.StreamingZipBatch;
 import nl.knaw.dans.dvingest.core.service.UtilityServices;
 import nl.knaw.dans.dvingest.core.service.UtilityServicesImpl;
 import nl.knaw.dans.dvingest.core.yaml.EditFilesRoot;
@@ -26,6 +27,7 @@ import org.apache.commons.io.FileUtils;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
 
+import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
@@ -34,9 +36,11 @@ import java.util.UUID;
 import java.util.zip.ZipFile;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -127,6 +131,36 @@ public class FilesEditorAddFilesTest extends FilesEditorTestFixture {
             """);
     }
 
+    @Test
+    public void addRestrictedFiles_counts_uncompressed_size_of_batch_as_bytes_uploaded() throws Exception {
+        // Given
+        Files.createDirectory(testDir.resolve("temp"));
+        UtilityServices utilityServices = UtilityServicesImpl.builder()
+            .tempDir(testDir.resolve("temp"))
+            .maxUploadSize(1000000)
+            .maxNumberOfFilesPerUpload(100).build();
+        Files.writeString(dataDir.resolve("file1"), "a".repeat(10_000));
+        Files.writeString(dataDir.resolve("file2"), "b".repeat(20_000));
+
+        when(dataverseServiceMock.getFiles("pid", true)).thenReturn(
+            List.of());
+        when(dataverseServiceMock.addFile(anyString(), any(Path.class), any(FileMeta.class))).thenAnswer(
+            invocation -> createFileMetaPerZipEntry(invocation.getArgument(1, Path.class), true));
+        var editFilesRoot = yamlService.readYamlFromString("""
+            editFiles:
+                addRestrictedFiles:
+                  - file1
+                  - file2
+            """, EditFilesRoot.class);
+        var filesEditor = new FilesEditor(UUID.randomUUID(), dataDir, editFilesRoot.getEditFiles(), dataverseServiceMock, utilityServices, new EditFilesLog());
+
+        // When
+        filesEditor.editFiles("pid");
+
+        // Then
+        assertThat(filesEditor.getBytesUploaded()).isEqualTo(30_000L);
+    }
+
     @Test
     public void addRestrictedFiles_adds_two_batches() throws Exception {
         // Given
@@ -301,6 +335,149 @@ public class FilesEditorAddFilesTest extends FilesEditorTestFixture {
             """);
     }
 
+    @Test
+    public void addUnrestrictedFiles_adds_two_batches_with_prepared_batches() throws Exception {
+        // Given
+        var tempDir = Files.createDirectory(testDir.resolve("temp"));
+        UtilityServices utilityServices = UtilityServicesImpl.builder()
+            .tempDir(testDir.resolve("temp"))
+            .maxUploadSize(1000000)
+            .maxNumberOfFilesPerUpload(2) // Causes first batch to be limited to 2 files
+            .maxNumberOfPreparedUploadBatches(1)
+            .uploadBatchPreparationExecutor(executorService).build();
+        Files.createFile(dataDir.resolve("file1"));
+        Files.createFile(dataDir.resolve("file2"));
+        Files.createFile(dataDir.resolve("file3"));
+
+        when(dataverseServiceMock.getFiles("pid", true)).thenReturn(
+            List.of());
+        when(dataverseServiceMock.addFile(anyString(), any(Path.class), any(FileMeta.class)))
+            .thenAnswer(invocation -> {
+                var path = invocation.getArgument(1, Path.class);
+                FileUtils.copyFile(path.toFile(), path.resolveSibling("batch1.zip").toFile());
+                return createFileMetaPerZipEntry(path, false);
+            }).thenAnswer(
+                invocation -> {
+                    var path = invocation.getArgument(1, Path.class);
+                    FileUtils.copyFile(path.toFile(), path.resolveSibling("batch2.zip").toFile());
+                    return createFileMetaPerZipEntry(path, false);
+                });
+        var editFilesRoot = yamlService.readYamlFromString("""
+            editFiles:
+                addUnrestrictedFiles:
+                  - file1
+                  - file2
+                  - file3
+            """, EditFilesRoot.class);
+        var editFilesLog = new EditFilesLog();
+        var filesEditor = new FilesEditor(UUID.randomUUID(), dataDir, editFilesRoot.getEditFiles(), dataverseServiceMock, utilityServices, editFilesLog);
+
+        // When
+        filesEditor.editFiles("pid");
+
+        // Then
+        verify(dataverseServiceMock, times(2)).addFile(eq("pid"), any(Path.class), any(FileMeta.class));
+        assertZipFileContainsFiles(tempDir.resolve("batch1.zip"), "file1", "file2");
+        assertZipFileContainsFiles(tempDir.resolve("batch2.zip"), "file3");
+        assertThat(tempDir).isDirectoryNotContaining("glob:**dvingest*.zip");
+        YamlBeanAssert.assertThat(editFilesLog.getAddUnrestrictedFiles()).isEqualTo("""
+            numberCompleted: 3
+            completed: true
+            """);
+    }
+
+    @Test
+    public void addUnrestrictedFiles_with_prepared_batches_only_counts_uploaded_batches_when_upload_fails() throws Exception {
+        // Given
+        var tempDir = Files.createDirectory(testDir.resolve("temp"));
+        UtilityServices utilityServices = UtilityServicesImpl.builder()
+            .tempDir(testDir.resolve("temp"))
+            .maxUploadSize(1000000)
+            .maxNumberOfFilesPerUpload(1)
+            .maxNumberOfPreparedUploadBatches(1)
+            .uploadBatchPreparationExecutor(executorService).build();
+        Files.createFile(dataDir.resolve("file1"));
+        Files.createFile(dataDir.resolve("file2"));
+        Files.createFile(dataDir.resolve("file3"));
+
+        when(dataverseServiceMock.getFiles("pid", true)).thenReturn(
+            List.of());
+        when(dataverseServiceMock.addFile(anyString(), any(Path.class), any(FileMeta.class)))
+            .thenAnswer(invocation -> createFileMetaPerZipEntry(invocation.getArgument(1, Path.class), false))
+            .thenThrow(new IOException("Upload failed"));
+        var editFilesRoot = yamlService.readYamlFromString("""
+            editFiles:
+                addUnrestrictedFiles:
+                  - file1
+                  - file2
+                  - file3
+            """, EditFilesRoot.class);
+        var editFilesLog = new EditFilesLog();
+        var filesEditor = new FilesEditor(UUID.randomUUID(), dataDir, editFilesRoot.getEditFiles(), dataverseServiceMock, utilityServices, editFilesLog);
+
+        // When / Then
+        assertThatThrownBy(() -> filesEditor.editFiles("pid"))
+            .isInstanceOf(IOException.class)
+            .hasMessage("Upload failed");
+        assertThat(tempDir)
+            .withFailMessage("Prepared ZIP files should be deleted after a failed upload")
+            .isDirectoryNotContaining("glob:**dvingest*.zip");
+        YamlBeanAssert.assertThat(editFilesLog.getAddUnrestrictedFiles()).isEqualTo("""
+            numberCompleted: 1
+            completed: false
+            """);
+    }
+
+    @Test
+    public void addUnrestrictedFiles_streams_two_batches() throws Exception {
+        // Given
+        var tempDir = Files.createDirectory(testDir.resolve("temp"));
+        UtilityServices utilityServices = UtilityServicesImpl.builder()
+            .tempDir(tempDir)
+            .maxUploadSize(1000000)
+            .maxNumberOfFilesPerUpload(2) // Causes first batch to be limited to 2 files
+            .streamUploadBatches(true).build();
+        Files.createFile(dataDir.resolve("file1"));
+        Files.createFile(dataDir.resolve("file2"));
+        Files.createFile(dataDir.resolve("file3"));
+
+        when(dataverseServiceMock.getFiles("pid", true)).thenReturn(
+            List.of());
+        when(dataverseServiceMock.addZipFile(anyString(), any(StreamingZipBatch.class), any(FileMeta.class)))
+            .thenAnswer(invocation -> {
+                var zipFile = tempDir.resolve("streamed.zip");
+                try (var outputStream = Files.newOutputStream(zipFile)) {
+                    invocation.getArgument(1, StreamingZipBatch.class).writeTo(outputStream);
+                }
+                var result = createFileMetaPerZipEntry(zipFile, false);
+                Files.delete(zipFile);
+                return result;
+            });
+        var editFilesRoot = yamlService.readYamlFromString("""
+            editFiles:
+                addUnrestrictedFiles:
+                  - file1
+                  - file2
+                  - file3
+            """, EditFilesRoot.class);
+        var editFilesLog = new EditFilesLog();
+        var filesEditor = new FilesEditor(UUID.randomUUID(), dataDir, editFilesRoot.getEditFiles(), dataverseServiceMock, utilityServices, editFilesLog);
+
+        // When
+        filesEditor.editFiles("pid");
+
+        // Then
+        ArgumentCaptor<StreamingZipBatch> batchCaptor = ArgumentCaptor.forClass(StreamingZipBatch.class);
+        verify(dataverseServiceMock, times(2)).addZipFile(eq("pid"), batchCaptor.capture(), any(FileMeta.class));
+        verify(dataverseServiceMock, never()).addFile(anyString(), any(Path.class), any(FileMeta.class));
+        assertThat(batchCaptor.getAllValues().get(0).getFiles()).containsExactly(dataDir.resolve("file1"), dataDir.resolve("file2"));
+        assertThat(batchCaptor.getAllValues().get(1).getFiles()).containsExactly(dataDir.resolve("file3"));
+        YamlBeanAssert.assertThat(editFilesLog.getAddUnrestrictedFiles()).isEqualTo("""
+            numberCompleted: 3
+            completed: true
+            """);
+    }
+
     @Test
     public void addUnrestrictedFiles_skips_already_completed_files() throws Exception {
         // Given
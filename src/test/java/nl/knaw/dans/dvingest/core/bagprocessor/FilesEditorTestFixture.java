@@ -18,22 +18,28 @@ package nl.knaw.dans.dvingest.core.bagprocessor;
 import nl.knaw.dans.dvingest.config.YamlServiceConfig;
 import nl.knaw.dans.dvingest.core.TestDirFixture;
 import nl.knaw.dans.dvingest.core.service.DataverseService;
+import nl.knaw.dans.dvingest.core.service.IngestMetrics;
 import nl.knaw.dans.dvingest.core.service.UtilityServices;
 import nl.knaw.dans.dvingest.core.service.YamlService;
 import nl.knaw.dans.dvingest.core.service.YamlServiceImpl;
 import nl.knaw.dans.lib.dataverse.model.file.DataFile;
 import nl.knaw.dans.lib.dataverse.model.file.FileMeta;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.mockito.Mockito;
 
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class FilesEditorTestFixture extends TestDirFixture {
     protected static final YamlService yamlService = new YamlServiceImpl(new YamlServiceConfig());
 
     protected final DataverseService dataverseServiceMock = Mockito.mock(DataverseService.class);
     protected final UtilityServices utilityServicesMock = Mockito.mock(UtilityServices.class);
+    // Stands in for the executors that the application shares between deposits
+    protected final ExecutorService executorService = Executors.newCachedThreadPool();
 
     protected Path dataDir;
 
@@ -42,10 +48,16 @@ public class FilesEditorTestFixture extends TestDirFixture {
         super.setUp();
         Mockito.reset(dataverseServiceMock);
         Mockito.reset(utilityServicesMock);
+        Mockito.when(utilityServicesMock.getIngestMetrics()).thenReturn(IngestMetrics.disabled());
         dataDir = testDir.resolve("data");
         Files.createDirectories(dataDir);
     }
 
+    @AfterEach
+    public void tearDown() {
+        executorService.shutdownNow();
+    }
+
     protected FileMeta file(String path, int id) {
         var dvPath = new DataversePath(path);
         var fileMeta = new FileMeta();
@@ -0,0 +1,209 @@
+/*
+ * Copyright (C) 2024 DANS - Data Archiving and Networked Services (info@dans.knaw.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.knaw.dans.dvingest.core.bagprocessor;
+
+import nl.knaw.dans.lib.dataverse.DataverseException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.when;
+
+public class IndividualUploadSchedulerTest {
+    private final ExecutorService executorService = Executors.newCachedThreadPool();
+
+    @AfterEach
+    public void tearDown() {
+        executorService.shutdownNow();
+    }
+
+    private static DataverseException dataverseException(int status, String message) {
+        var e = Mockito.mock(DataverseException.class);
+        when(e.getStatus()).thenReturn(status);
+        when(e.getMessage()).thenReturn(message);
+        return e;
+    }
+
+    @Test
+    public void uploadAll_uploads_in_order_with_one_concurrent_upload() throws Exception {
+        // Given
+        var scheduler = new IndividualUploadScheduler(UUID.randomUUID(), 1, executorService, 1, 10, 3);
+        var uploaded = new ArrayList<String>();
+
+        // When
+        scheduler.uploadAll(List.of("a", "b", "c"), uploaded::add);
+
+        // Then
+        assertThat(uploaded).containsExactly("a", "b", "c");
+    }
+
+    @Test
+    public void uploadAll_does_not_exceed_max_concurrent_uploads() throws Exception {
+        // Given
+        var scheduler = new IndividualUploadScheduler(UUID.randomUUID(), 2, executorService, 1, 10, 3);
+        var inProgress = new AtomicInteger();
+        var maxInProgress = new AtomicInteger();
+        var uploaded = Collections.synchronizedList(new ArrayList<String>());
+
+        // When
+        scheduler.uploadAll(List.of("a", "b", "c", "d", "e", "f"), file -> {
+            maxInProgress.accumulateAndGet(inProgress.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(20);
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            inProgress.decrementAndGet();
+            uploaded.add(file);
+        });
+
+        // Then
+        assertThat(uploaded).containsExactlyInAnyOrder("a", "b", "c", "d", "e", "f");
+        assertThat(maxInProgress.get()).isLessThanOrEqualTo(2);
+    }
+
+    @Test
+    public void uploadAll_leaves_the_shared_executor_running_for_the_next_call() throws Exception {
+        // Given
+        var sharedExecutor = Executors.newFixedThreadPool(1);
+        var scheduler = new IndividualUploadScheduler(UUID.randomUUID(), 3, sharedExecutor, 1, 10, 3);
+        var uploaded = Collections.synchronizedList(new ArrayList<String>());
+
+        try {
+            // When
+            scheduler.uploadAll(List.of("a", "b", "c"), uploaded::add);
+            scheduler.uploadAll(List.of("d", "e"), uploaded::add);
+
+            // Then
+            assertThat(uploaded).containsExactlyInAnyOrder("a", "b", "c", "d", "e");
+            assertThat(sharedExecutor.isShutdown()).isFalse();
+        }
+        finally {
+            sharedExecutor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void uploadAll_uploads_in_order_without_executor() throws Exception {
+        // Given
+        var scheduler = new IndividualUploadScheduler(UUID.randomUUID(), 3, null, 1, 10, 3);
+        var uploaded = new ArrayList<String>();
+
+        // When
+        scheduler.uploadAll(List.of("a", "b", "c"), uploaded::add);
+
+        // Then
+        assertThat(uploaded).containsExactly("a", "b", "c");
+    }
+
+    @Test
+    public void uploadAll_retries_after_lock_conflict() throws Exception {
+        // Given
+        var scheduler = new IndividualUploadScheduler(UUID.randomUUID(), 2, executorService, 1, 10, 3);
+        var attempts = new AtomicInteger();
+
+        // When
+        scheduler.uploadAll(List.of("a"), file -> {
+            if (attempts.incrementAndGet() < 3) {
+                throw dataverseException(409, "Dataset cannot be edited due to dataset lock.");
+            }
+        });
+
+        // Then
+        assertThat(attempts.get()).isEqualTo(3);
+    }
+
+    @Test
+    public void uploadAll_gives_up_after_max_attempts() {
+        // Given
+        var scheduler = new IndividualUploadScheduler(UUID.randomUUID(), 1, executorService, 1, 10, 3);
+        var attempts = new AtomicInteger();
+        var lockConflict = dataverseException(409, "Dataset cannot be edited due to dataset lock.");
+
+        // When / Then
+        assertThatThrownBy(() -> scheduler.uploadAll(List.of("a"), file -> {
+            attempts.incrementAndGet();
+            throw lockConflict;
+        })).isSameAs(lockConflict);
+        assertThat(attempts.get()).isEqualTo(3);
+    }
+
+    @Test
+    public void uploadAll_does_not_retry_other_errors() {
+        // Given
+        var scheduler = new IndividualUploadScheduler(UUID.randomUUID(), 2, executorService, 1, 10, 3);
+        var attempts = new AtomicInteger();
+
+        // When / Then
+        assertThatThrownBy(() -> scheduler.uploadAll(List.of("a", "b"), file -> {
+            attempts.incrementAndGet();
+            throw new IOException("Upload of " + file + " failed");
+        })).isInstanceOf(IOException.class);
+        assertThat(attempts.get()).isLessThanOrEqualTo(2);
+    }
+
+    @Test
+    public void uploadAll_lets_uploads_in_progress_finish_before_rethrowing_a_failure() {
+        // Given
+        var scheduler = new IndividualUploadScheduler(UUID.randomUUID(), 3, executorService, 1, 10, 3);
+        var slowUploadsStarted = new CountDownLatch(2);
+        var completed = Collections.synchronizedList(new ArrayList<String>());
+        var interrupted = new AtomicBoolean();
+
+        // When
+        assertThatThrownBy(() -> scheduler.uploadAll(List.of("slow1", "slow2", "failing"), file -> {
+            try {
+                if (file.equals("failing")) {
+                    slowUploadsStarted.await();
+                    throw new IOException("Upload of " + file + " failed");
+                }
+                slowUploadsStarted.countDown();
+                Thread.sleep(200);
+            }
+            catch (InterruptedException e) {
+                interrupted.set(true);
+                return;
+            }
+            completed.add(file);
+        })).isInstanceOf(IOException.class).hasMessage("Upload of failing failed");
+
+        // Then
+        assertThat(interrupted.get()).isFalse();
+        assertThat(completed).containsExactlyInAnyOrder("slow1", "slow2");
+    }
+
+    @Test
+    public void isLockConflict_matches_lock_as_a_whole_word_only() {
+        assertThat(IndividualUploadScheduler.isLockConflict(dataverseException(400, "Dataset cannot be edited due to dataset lock."))).isTrue();
+        assertThat(IndividualUploadScheduler.isLockConflict(dataverseException(400, "Dataset is locked for ingest"))).isTrue();
+        assertThat(IndividualUploadScheduler.isLockConflict(dataverseException(409, "Conflict"))).isTrue();
+        assertThat(IndividualUploadScheduler.isLockConflict(dataverseException(400, "Unknown metadata block: foo"))).isFalse();
+    }
+}
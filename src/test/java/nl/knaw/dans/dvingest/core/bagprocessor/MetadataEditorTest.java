@@ -0,0 +1,178 @@
+/*
+ * Copyright (C) 2024 DANS - Data Archiving and Networked Services (info@dans.knaw.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.knaw.dans.dvingest.core.bagprocessor;
+
+import nl.knaw.dans.dvingest.core.service.DataverseService;
+import nl.knaw.dans.dvingest.core.yaml.EditMetadata;
+import nl.knaw.dans.dvingest.core.yaml.tasklog.EditMetadataLog;
+import nl.knaw.dans.lib.dataverse.DataverseException;
+import nl.knaw.dans.lib.dataverse.model.dataset.MetadataField;
+import nl.knaw.dans.lib.dataverse.model.dataset.PrimitiveSingleValueField;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+public class MetadataEditorTest {
+    private final DataverseService dataverseServiceMock = Mockito.mock(DataverseService.class);
+    private final EditMetadataLog editMetadataLog = new EditMetadataLog();
+
+    private static List<MetadataField> fields(String prefix, int count) {
+        return IntStream.range(0, count)
+            .mapToObj(i -> (MetadataField) new PrimitiveSingleValueField(prefix + i, "value" + i))
+            .collect(Collectors.toList());
+    }
+
+    private MetadataEditor editor(EditMetadata editMetadata) {
+        return new MetadataEditor(UUID.randomUUID(), editMetadata, editMetadataLog, dataverseServiceMock, TaskLogCheckpointer.disabled());
+    }
+
+    @Test
+    public void editMetadata_sends_one_request_per_operation() throws Exception {
+        // Given
+        var editMetadata = new EditMetadata();
+        editMetadata.setAddFieldValues(fields("add", 50));
+        editMetadata.setReplaceFieldValues(fields("replace", 50));
+        editMetadata.setDeleteFieldValues(fields("delete", 50));
+
+        // When
+        editor(editMetadata).editMetadata("pid");
+
+        // Then
+        var inOrder = Mockito.inOrder(dataverseServiceMock);
+        inOrder.verify(dataverseServiceMock).editMetadata("pid", editMetadata.getAddFieldValues(), false);
+        inOrder.verify(dataverseServiceMock).editMetadata("pid", editMetadata.getReplaceFieldValues(), true);
+        inOrder.verify(dataverseServiceMock).deleteDatasetMetadata("pid", editMetadata.getDeleteFieldValues());
+        Mockito.verifyNoMoreInteractions(dataverseServiceMock);
+        assertThat(editMetadataLog.getAddFieldValues().isCompleted()).isTrue();
+        assertThat(editMetadataLog.getReplaceFieldValues().isCompleted()).isTrue();
+        assertThat(editMetadataLog.getDeleteFieldValues().isCompleted()).isTrue();
+    }
+
+    @Test
+    public void editMetadata_skips_operations_without_field_values() throws Exception {
+        // Given
+        var editMetadata = new EditMetadata();
+        editMetadata.setReplaceFieldValues(fields("replace", 2));
+
+        // When
+        editor(editMetadata).editMetadata("pid");
+
+        // Then
+        verify(dataverseServiceMock, times(1)).editMetadata("pid", editMetadata.getReplaceFieldValues(), true);
+        verify(dataverseServiceMock, never()).editMetadata(anyString(), any(), Mockito.eq(false));
+        verify(dataverseServiceMock, never()).deleteDatasetMetadata(anyString(), any());
+        assertThat(editMetadataLog.getAddFieldValues().isCompleted()).isTrue();
+        assertThat(editMetadataLog.getDeleteFieldValues().isCompleted()).isTrue();
+    }
+
+    @Test
+    public void editMetadata_resumes_after_the_last_completed_operation() throws Exception {
+        // Given
+        var editMetadata = new EditMetadata();
+        editMetadata.setAddFieldValues(fields("add", 3));
+        editMetadata.setDeleteFieldValues(fields("delete", 3));
+        doThrow(Mockito.mock(DataverseException.class)).when(dataverseServiceMock).deleteDatasetMetadata(anyString(), any());
+
+        // When
+        assertThatThrownBy(() -> editor(editMetadata).editMetadata("pid")).isInstanceOf(DataverseException.class);
+        Mockito.reset(dataverseServiceMock);
+        editor(editMetadata).editMetadata("pid");
+
+        // Then
+        verify(dataverseServiceMock, never()).editMetadata(anyString(), any(), anyBoolean());
+        verify(dataverseServiceMock, times(1)).deleteDatasetMetadata("pid", editMetadata.getDeleteFieldValues());
+        assertThat(editMetadataLog.getDeleteFieldValues().isCompleted()).isTrue();
+    }
+
+    @Test
+    public void plan_sends_duplicate_field_values_only_once() {
+        // Given
+        var field = new PrimitiveSingleValueField("title", "A title");
+        var editMetadata = new EditMetadata();
+        editMetadata.setAddFieldValues(List.of(field, field));
+
+        // When
+        var plan = editor(editMetadata).plan();
+
+        // Then
+        assertThat(plan.get(0).getName()).isEqualTo("adding");
+        assertThat(plan.get(0).getFields()).containsExactly(field);
+    }
+
+    @Test
+    public void plan_sends_separately_constructed_equal_field_values_only_once() {
+        // Given
+        var first = new PrimitiveSingleValueField("title", "A title");
+        var second = new PrimitiveSingleValueField("title", "A title");
+        var editMetadata = new EditMetadata();
+        editMetadata.setReplaceFieldValues(List.of(first, second));
+
+        // When
+        var plan = editor(editMetadata).plan();
+
+        // Then
+        assertThat(first).isNotSameAs(second);
+        assertThat(plan).extracting(MetadataEditor.Operation::getName).containsExactly("adding", "replacing", "deleting");
+        assertThat(plan.get(1).getFields()).containsExactly(first);
+    }
+
+    @Test
+    public void plan_keeps_field_values_that_differ_only_in_field_name() {
+        // Given
+        var title = new PrimitiveSingleValueField("title", "Same value");
+        var subtitle = new PrimitiveSingleValueField("subtitle", "Same value");
+        var editMetadata = new EditMetadata();
+        editMetadata.setAddFieldValues(List.of(title, subtitle));
+
+        // When
+        var plan = editor(editMetadata).plan();
+
+        // Then
+        assertThat(plan.get(0).getFields()).containsExactly(title, subtitle);
+    }
+
+    @Test
+    public void plan_does_not_change_the_task_log() {
+        // Given
+        var editMetadata = new EditMetadata();
+        editMetadata.setReplaceFieldValues(fields("replace", 2));
+
+        // When
+        var plan = editor(editMetadata).plan();
+
+        // Then
+        assertThat(plan).extracting(MetadataEditor.Operation::getName).containsExactly("adding", "replacing", "deleting");
+        assertThat(plan.get(0).getFields()).isEmpty();
+        assertThat(plan.get(2).getFields()).isEmpty();
+        assertThat(editMetadataLog.getAddFieldValues().isCompleted()).isFalse();
+        assertThat(editMetadataLog.getReplaceFieldValues().isCompleted()).isFalse();
+        assertThat(editMetadataLog.getDeleteFieldValues().isCompleted()).isFalse();
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ * Copyright (C) 2024 DANS - Data Archiving and Networked Services (info@dans.knaw.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.knaw.dans.dvingest.core.bagprocessor;
+
+import nl.knaw.dans.dvingest.core.service.DataverseService;
+import nl.knaw.dans.dvingest.core.yaml.EditPermissions;
+import nl.knaw.dans.dvingest.core.yaml.tasklog.EditPermissionsLog;
+import nl.knaw.dans.lib.dataverse.DataverseException;
+import nl.knaw.dans.lib.dataverse.model.RoleAssignment;
+import nl.knaw.dans.lib.dataverse.model.RoleAssignmentReadOnly;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class PermissionsEditorTest {
+    private final DataverseService dataverseServiceMock = Mockito.mock(DataverseService.class);
+    private final EditPermissionsLog editPermissionsLog = new EditPermissionsLog();
+    private final ExecutorService executorService = Executors.newCachedThreadPool();
+
+    @AfterEach
+    public void tearDown() {
+        executorService.shutdownNow();
+    }
+
+    private static RoleAssignment roleAssignment(String assignee, String role) {
+        var roleAssignment = new RoleAssignment();
+        roleAssignment.setAssignee(assignee);
+        roleAssignment.setRole(role);
+        return roleAssignment;
+    }
+
+    private static RoleAssignmentReadOnly listed(String assignee, String role) {
+        var roleAssignment = new RoleAssignmentReadOnly();
+        roleAssignment.setAssignee(assignee);
+        roleAssignment.set_roleAlias(role);
+        return roleAssignment;
+    }
+
+    private PermissionsEditor editor(EditPermissions editPermissions, int maxConcurrentEdits) {
+        return new PermissionsEditor(UUID.randomUUID(), editPermissions, editPermissionsLog, dataverseServiceMock, maxConcurrentEdits, executorService,
+            TaskLogCheckpointer.disabled());
+    }
+
+    @Test
+    public void editPermissions_lists_role_assignments_once_and_applies_only_the_delta() throws Exception {
+        // Given
+        var editPermissions = new EditPermissions();
+        editPermissions.setDeleteRoleAssignments(List.of(roleAssignment("@user001", "contributor"), roleAssignment("@user002", "contributor")));
+        editPermissions.setAddRoleAssignments(List.of(roleAssignment("@user003", "curator"), roleAssignment("@user004", "curator")));
+        var user001Contributor = listed("@user001", "contributor");
+        when(dataverseServiceMock.getRoleAssignmentsOnDataset("pid")).thenReturn(List.of(user001Contributor, listed("@user004", "curator")));
+
+        // When
+        editor(editPermissions, 4).editPermissions("pid");
+
+        // Then
+        verify(dataverseServiceMock, times(1)).getRoleAssignmentsOnDataset("pid");
+        verify(dataverseServiceMock).deleteRoleAssignment("pid", user001Contributor);
+        verify(dataverseServiceMock).addRoleAssignment("pid", editPermissions.getAddRoleAssignments().get(0));
+        verify(dataverseServiceMock, never()).addRoleAssignment("pid", editPermissions.getAddRoleAssignments().get(1));
+        assertThat(editPermissionsLog.getDeleteRoleAssignments().isCompleted()).isTrue();
+        assertThat(editPermissionsLog.getDeleteRoleAssignments().getCompletedRoleAssignments()).containsExactlyInAnyOrder("@user001=contributor", "@user002=contributor");
+        assertThat(editPermissionsLog.getAddRoleAssignments().isCompleted()).isTrue();
+        assertThat(editPermissionsLog.getAddRoleAssignments().getCompletedRoleAssignments()).containsExactlyInAnyOrder("@user003=curator", "@user004=curator");
+    }
+
+    @Test
+    public void editPermissions_adds_role_assignment_that_is_deleted_first() throws Exception {
+        // Given
+        var editPermissions = new EditPermissions();
+        editPermissions.setDeleteRoleAssignments(List.of(roleAssignment("@user001", "contributor")));
+        editPermissions.setAddRoleAssignments(List.of(roleAssignment("@user001", "contributor")));
+        var user001Contributor = listed("@user001", "contributor");
+        when(dataverseServiceMock.getRoleAssignmentsOnDataset("pid")).thenReturn(List.of(user001Contributor));
+
+        // When
+        editor(editPermissions, 1).editPermissions("pid");
+
+        // Then
+        var inOrder = Mockito.inOrder(dataverseServiceMock);
+        inOrder.verify(dataverseServiceMock).deleteRoleAssignment("pid", user001Contributor);
+        inOrder.verify(dataverseServiceMock).addRoleAssignment("pid", editPermissions.getAddRoleAssignments().get(0));
+    }
+
+    @Test
+    public void editPermissions_skips_role_assignments_recorded_as_completed() throws Exception {
+        // Given
+        var editPermissions = new EditPermissions();
+        editPermissions.setAddRoleAssignments(List.of(roleAssignment("@user001", "curator"), roleAssignment("@user002", "curator"), roleAssignment("@user003", "curator")));
+        // A task log written before completed role assignments were recorded
+        editPermissionsLog.getAddRoleAssignments().setNumberCompleted(1);
+        editPermissionsLog.getDeleteRoleAssignments().setCompleted(true);
+        when(dataverseServiceMock.getRoleAssignmentsOnDataset("pid")).thenReturn(List.of());
+
+        // When
+        editor(editPermissions, 2).editPermissions("pid");
+
+        // Then
+        verify(dataverseServiceMock, never()).addRoleAssignment("pid", editPermissions.getAddRoleAssignments().get(0));
+        verify(dataverseServiceMock).addRoleAssignment("pid", editPermissions.getAddRoleAssignments().get(1));
+        verify(dataverseServiceMock).addRoleAssignment("pid", editPermissions.getAddRoleAssignments().get(2));
+        assertThat(editPermissionsLog.getAddRoleAssignments().getNumberCompleted()).isEqualTo(3);
+    }
+
+    @Test
+    public void editPermissions_does_not_list_role_assignments_when_everything_is_completed() throws Exception {
+        // Given
+        var editPermissions = new EditPermissions();
+        editPermissions.setAddRoleAssignments(List.of(roleAssignment("@user001", "curator")));
+        editPermissionsLog.getDeleteRoleAssignments().setCompleted(true);
+        editPermissionsLog.getAddRoleAssignments().setCompleted(true);
+
+        // When
+        editor(editPermissions, 1).editPermissions("pid");
+
+        // Then
+        verify(dataverseServiceMock, never()).getRoleAssignmentsOnDataset(anyString());
+        verify(dataverseServiceMock, never()).addRoleAssignment(anyString(), any(RoleAssignment.class));
+    }
+
+    @Test
+    public void editPermissions_records_role_assignments_added_before_a_failure() throws Exception {
+        // Given
+        var editPermissions = new EditPermissions();
+        editPermissions.setAddRoleAssignments(List.of(roleAssignment("@user001", "curator"), roleAssignment("@user002", "curator")));
+        when(dataverseServiceMock.getRoleAssignmentsOnDataset("pid")).thenReturn(List.of());
+        doThrow(Mockito.mock(DataverseException.class)).when(dataverseServiceMock).addRoleAssignment("pid", editPermissions.getAddRoleAssignments().get(1));
+
+        // When
+        assertThatThrownBy(() -> editor(editPermissions, 1).editPermissions("pid")).isInstanceOf(DataverseException.class);
+
+        // Then
+        assertThat(editPermissionsLog.getAddRoleAssignments().isCompleted()).isFalse();
+        assertThat(editPermissionsLog.getAddRoleAssignments().getCompletedRoleAssignments()).containsExactly("@user001=curator");
+    }
+}
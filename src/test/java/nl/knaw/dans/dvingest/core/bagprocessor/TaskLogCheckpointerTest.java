@@ -0,0 +1,148 @@
+/*
+ * Copyright (C) 2024 DANS - Data Archiving and Networked Services (info@dans.knaw.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.knaw.dans.dvingest.core.bagprocessor;
+
+import nl.knaw.dans.dvingest.core.DataverseIngestBag;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.after;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+
+public class TaskLogCheckpointerTest {
+    private final UUID depositId = UUID.randomUUID();
+    private final DataverseIngestBag bag = mock(DataverseIngestBag.class);
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+
+    @AfterEach
+    public void tearDown() {
+        scheduler.shutdownNow();
+    }
+
+    @Test
+    public void first_checkpoint_is_saved_immediately() throws Exception {
+        // Given
+        var checkpointer = new TaskLogCheckpointer(depositId, bag, 60_000, scheduler);
+
+        // When
+        checkpointer.checkpoint();
+
+        // Then
+        verify(bag, times(1)).checkpointTaskLog();
+    }
+
+    @Test
+    public void checkpoints_within_interval_are_coalesced_into_one_save_at_end_of_interval() throws Exception {
+        // Given
+        var checkpointer = new TaskLogCheckpointer(depositId, bag, 200, scheduler);
+        checkpointer.checkpoint();
+
+        // When
+        for (int i = 0; i < 100; i++) {
+            checkpointer.checkpoint();
+        }
+
+        // Then
+        verify(bag, times(1)).checkpointTaskLog();
+        verify(bag, timeout(2000).times(2)).checkpointTaskLog();
+        verify(bag, after(500).times(2)).checkpointTaskLog();
+    }
+
+    @Test
+    public void every_checkpoint_is_saved_without_scheduler() throws Exception {
+        // Given
+        var checkpointer = new TaskLogCheckpointer(depositId, bag, 60_000, null);
+
+        // When
+        checkpointer.checkpoint();
+        checkpointer.checkpoint();
+        checkpointer.checkpoint();
+
+        // Then
+        verify(bag, times(3)).checkpointTaskLog();
+    }
+
+    @Test
+    public void close_cancels_pending_save() throws Exception {
+        // Given
+        var checkpointer = new TaskLogCheckpointer(depositId, bag, 200, scheduler);
+        checkpointer.checkpoint();
+        checkpointer.checkpoint();
+
+        // When
+        checkpointer.close();
+        checkpointer.checkpoint();
+        checkpointer.flush();
+
+        // Then
+        verify(bag, after(500).times(1)).checkpointTaskLog();
+    }
+
+    @Test
+    public void failing_save_does_not_throw() throws Exception {
+        // Given
+        doThrow(new IOException("disk full")).when(bag).checkpointTaskLog();
+        var checkpointer = new TaskLogCheckpointer(depositId, bag, 0, null);
+
+        // When
+        checkpointer.checkpoint();
+        checkpointer.flush();
+
+        // Then
+        verify(bag, times(2)).checkpointTaskLog();
+    }
+
+    @Test
+    public void delayed_save_waits_for_update_in_progress() throws Exception {
+        // Given
+        var updating = new AtomicBoolean(false);
+        var savedWhileUpdating = new CopyOnWriteArrayList<Boolean>();
+        doAnswer(invocation -> savedWhileUpdating.add(updating.get())).when(bag).checkpointTaskLog();
+        var checkpointer = new TaskLogCheckpointer(depositId, bag, 100, scheduler);
+        checkpointer.checkpoint();
+        checkpointer.checkpoint();
+
+        // When
+        checkpointer.update(() -> {
+            updating.set(true);
+            try {
+                Thread.sleep(500);
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            updating.set(false);
+        });
+
+        // Then
+        verify(bag, timeout(2000).atLeast(2)).checkpointTaskLog();
+        assertThat(savedWhileUpdating).doesNotContain(true);
+    }
+}
@@ -51,7 +51,7 @@ public abstract class DansConversionFixture extends TestDirFixture {
         super.setUp();
         BagReader bagReader = new BagReader();
         XmlReader xmlReader = new XmlReaderImpl();
-        dansBagDepositReader = new DansBagDepositReaderImpl(xmlReader, bagReader);
+        dansBagDepositReader = new DansBagDepositReaderImpl(xmlReader, bagReader, null);
         Mockito.reset(dataverseServiceMock);
     }
 
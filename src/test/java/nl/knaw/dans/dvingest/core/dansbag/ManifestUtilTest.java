@@ -0,0 +1,82 @@
+/*
+ * Copyright (C) 2024 DANS - Data Archiving and Networked Services (info@dans.knaw.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.knaw.dans.dvingest.core.dansbag;
+
+import gov.loc.repository.bagit.creator.BagCreator;
+import gov.loc.repository.bagit.hash.StandardSupportedAlgorithms;
+import gov.loc.repository.bagit.reader.BagReader;
+import nl.knaw.dans.dvingest.core.TestDirFixture;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.Executors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ManifestUtilTest extends TestDirFixture {
+
+    @Test
+    public void ensureSha1ManifestPresent_adds_sha1_manifest_and_updates_tagmanifest() throws Exception {
+        // Given
+        var bagDir = testDir.resolve("bag");
+        Files.createDirectories(bagDir.resolve("sub/.hidden"));
+        Files.writeString(bagDir.resolve("file1.txt"), "content 1");
+        Files.writeString(bagDir.resolve("sub/file2.txt"), "content 2");
+        Files.writeString(bagDir.resolve("sub/.hidden/file3.txt"), "content 3");
+        Files.write(bagDir.resolve("large.bin"), new byte[3 * 1024 * 1024 + 17]);
+        BagCreator.bagInPlace(bagDir, List.of(StandardSupportedAlgorithms.MD5), true);
+        var bag = new BagReader().read(bagDir);
+
+        // When
+        ManifestUtil.ensureSha1ManifestPresent(bag, null);
+
+        // Then
+        assertThat(Files.readAllLines(bagDir.resolve("manifest-sha1.txt"))).containsExactlyInAnyOrder(
+            DigestUtils.sha1Hex("content 1") + "  data/file1.txt",
+            DigestUtils.sha1Hex("content 2") + "  data/sub/file2.txt",
+            DigestUtils.sha1Hex("content 3") + "  data/sub/.hidden/file3.txt",
+            DigestUtils.sha1Hex(new byte[3 * 1024 * 1024 + 17]) + "  data/large.bin");
+        assertThat(Files.readString(bagDir.resolve("tagmanifest-md5.txt")))
+            .contains(DigestUtils.md5Hex(Files.readAllBytes(bagDir.resolve("manifest-sha1.txt"))) + "  manifest-sha1.txt");
+        var sha1s = ManifestUtil.getFilePathToSha1(new BagReader().read(bagDir));
+        assertThat(sha1s).hasSize(4);
+    }
+
+    @Test
+    public void createSha1PayloadManifest_gives_same_result_on_checksum_executor_as_in_calling_thread() throws Exception {
+        // Given
+        var dataDir = Files.createDirectories(testDir.resolve("data"));
+        for (int i = 0; i < 50; i++) {
+            Files.writeString(dataDir.resolve("file" + i), "content " + i);
+        }
+        var checksumExecutor = Executors.newFixedThreadPool(8);
+
+        try {
+            // When
+            var sequential = ManifestUtil.createSha1PayloadManifest(dataDir, null);
+            var parallel = ManifestUtil.createSha1PayloadManifest(dataDir, checksumExecutor);
+
+            // Then
+            assertThat(parallel.getFileToChecksumMap()).hasSize(50).isEqualTo(sequential.getFileToChecksumMap());
+            assertThat(parallel.getFileToChecksumMap().get(dataDir.resolve("file7"))).isEqualTo(DigestUtils.sha1Hex("content 7"));
+        }
+        finally {
+            checksumExecutor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,180 @@
+/*
+ * Copyright (C) 2024 DANS - Data Archiving and Networked Services (info@dans.knaw.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.knaw.dans.dvingest.core.dansbag.deposit;
+
+import nl.knaw.dans.dvingest.core.dansbag.DansConversionFixture;
+import nl.knaw.dans.dvingest.core.dansbag.testhelpers.DansDepositCreator;
+import nl.knaw.dans.dvingest.core.dansbag.xml.FilesXmlStreamReader;
+import nl.knaw.dans.dvingest.core.dansbag.xml.XPathEvaluator;
+import nl.knaw.dans.dvingest.core.dansbag.xml.XmlReaderImpl;
+import org.junit.jupiter.api.Test;
+import org.w3c.dom.Document;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static nl.knaw.dans.dvingest.core.dansbag.xml.XPathConstants.DDM_PROFILE;
+import static nl.knaw.dans.dvingest.core.dansbag.xml.XPathConstants.FILES_FILE;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class DansBagDepositTest extends DansConversionFixture {
+    private static final String DDM = """
+        <?xml version="1.0" encoding="UTF-8"?>
+        <ddm:DDM xmlns:ddm="http://schemas.dans.knaw.nl/dataset/ddm-v2/">
+            <ddm:profile>
+                <ddm:accessRights>%s</ddm:accessRights>
+            </ddm:profile>
+        </ddm:DDM>
+        """;
+
+    private static final List<String> FILES_XMLS = List.of("""
+            <?xml version="1.0" encoding="UTF-8"?>
+            <files xmlns="http://easy.dans.knaw.nl/schemas/bag/metadata/files/">
+                <file filepath="data/a.txt"/>
+                <file filepath="data/b.txt"/>
+            </files>
+            """, """
+            <?xml version="1.0" encoding="UTF-8"?>
+            <files xmlns="http://easy.dans.knaw.nl/schemas/bag/metadata/files/">
+                <file filepath="data/a.txt">
+                    <accessibleToRights> ANONYMOUS </accessibleToRights>
+                </file>
+                <file filepath="data/b.txt">
+                    <accessibleToRights>ANONYMOUS</accessibleToRights>
+                </file>
+            </files>
+            """, """
+            <?xml version="1.0" encoding="UTF-8"?>
+            <files xmlns="http://easy.dans.knaw.nl/schemas/bag/metadata/files/">
+                <file filepath="data/a.txt">
+                    <accessibleToRights>ANONYMOUS</accessibleToRights>
+                    <accessibleToRights>NONE</accessibleToRights>
+                </file>
+                <file filepath="data/b.txt"/>
+            </files>
+            """, """
+            <?xml version="1.0" encoding="UTF-8"?>
+            <files xmlns="http://easy.dans.knaw.nl/schemas/bag/metadata/files/">
+                <file filepath="data/a.txt">
+                    <accessibleToRights>ANONYMOUS</accessibleToRights>
+                    <accessibleToRights>ANONYMOUS</accessibleToRights>
+                </file>
+                <file filepath="data/b.txt"/>
+            </files>
+            """, """
+            <?xml version="1.0" encoding="UTF-8"?>
+            <files xmlns="http://easy.dans.knaw.nl/schemas/bag/metadata/files/">
+                <file filepath="data/a.txt">
+                    <accessibleToRights>RESTRICTED_REQUEST</accessibleToRights>
+                </file>
+            </files>
+            """);
+
+    /*
+     * The results of allowAccessRequests and restrictedFilesPresent as they were computed from the files.xml DOM, before files.xml was streamed.
+     */
+    private static boolean allowAccessRequestsFromDom(Document ddm, Document filesXml) {
+        var isNoAccessDataset = "NO_ACCESS".equals(accessRights(ddm));
+        var accessibleToNoneFilesPresent = XPathEvaluator.strings(filesXml, FILES_FILE + "/files:accessibleToRights")
+            .map(String::trim)
+            .anyMatch("NONE"::equals);
+        return !(isNoAccessDataset || accessibleToNoneFilesPresent);
+    }
+
+    private static boolean restrictedFilesPresentFromDom(Document ddm, Document filesXml) {
+        var numberOfFiles = XPathEvaluator.nodes(filesXml, FILES_FILE).count();
+        var explicitAccessibleToValues = XPathEvaluator.strings(filesXml, FILES_FILE + "/files:accessibleToRights")
+            .map(String::trim).toList();
+        var explicitlyRestrictedFilesPresent = explicitAccessibleToValues.stream()
+            .anyMatch(a -> !"ANONYMOUS".equals(a));
+        var implicitFilesAreRestricted = !"OPEN_ACCESS".equals(accessRights(ddm));
+        var implicitFilesPresent = numberOfFiles > explicitAccessibleToValues.size();
+        return explicitlyRestrictedFilesPresent || (implicitFilesPresent && implicitFilesAreRestricted);
+    }
+
+    private static String accessRights(Document ddm) {
+        return XPathEvaluator.nodes(ddm, DDM_PROFILE + "/ddm:accessRights").findFirst().orElseThrow().getTextContent().trim();
+    }
+
+    private static List<DepositFile> readDepositFiles(Path filesXml) throws Exception {
+        var depositFiles = new ArrayList<DepositFile>();
+        new FilesXmlStreamReader().readFileElements(filesXml, fileElement -> depositFiles.add(
+            new DepositFile(Path.of(fileElement.getFilepath()), fileElement.getFilepath(), null, fileElement.getAccessibleToRights(), fileElement.getDescriptions())));
+        return depositFiles;
+    }
+
+    @Test
+    public void allowAccessRequests_and_restrictedFilesPresent_give_same_results_as_dom_for_all_combinations() throws Exception {
+        var xmlReader = new XmlReaderImpl();
+        for (var accessRights : List.of("OPEN_ACCESS", "REQUEST_PERMISSION", "NO_ACCESS")) {
+            for (int i = 0; i < FILES_XMLS.size(); i++) {
+                // Given
+                var ddmPath = testDir.resolve("dataset-" + accessRights + "-" + i + ".xml");
+                Files.writeString(ddmPath, String.format(DDM, accessRights));
+                var filesXmlPath = testDir.resolve("files-" + accessRights + "-" + i + ".xml");
+                Files.writeString(filesXmlPath, FILES_XMLS.get(i));
+                var ddm = xmlReader.readXmlFile(ddmPath);
+                var filesXml = xmlReader.readXmlFile(filesXmlPath);
+                var deposit = new DansBagDeposit();
+                deposit.setDdm(ddm);
+                deposit.setFiles(readDepositFiles(filesXmlPath));
+
+                // When
+                var allowAccessRequests = deposit.allowAccessRequests();
+                var restrictedFilesPresent = deposit.restrictedFilesPresent();
+
+                // Then
+                assertThat(allowAccessRequests).as("allowAccessRequests for %s, files.xml %d", accessRights, i).isEqualTo(allowAccessRequestsFromDom(ddm, filesXml));
+                assertThat(restrictedFilesPresent).as("restrictedFilesPresent for %s, files.xml %d", accessRights, i).isEqualTo(restrictedFilesPresentFromDom(ddm, filesXml));
+            }
+        }
+    }
+
+    @Test
+    public void allowAccessRequests_and_restrictedFilesPresent_give_same_results_as_dom_for_example_bags() throws Exception {
+        var xmlReader = new XmlReaderImpl();
+        List<Path> bags;
+        try (var dirs = Files.list(Paths.get("target/test/example-bags/valid"))) {
+            bags = dirs.filter(Files::isDirectory).sorted().collect(Collectors.toList());
+        }
+        assertThat(bags).isNotEmpty();
+        for (var bag : bags) {
+            // Given
+            var depositDir = testDir.resolve(bag.getFileName());
+            DansDepositCreator.creator()
+                .copyBagFrom(bag)
+                .depositDir(depositDir)
+                .create();
+            var deposit = dansBagDepositReader.readDeposit(depositDir);
+            var filesXml = xmlReader.readXmlFile(deposit.getFilesXmlPath());
+
+            // When
+            var allowAccessRequests = deposit.allowAccessRequests();
+            var restrictedFilesPresent = deposit.restrictedFilesPresent();
+
+            // Then
+            assertThat(allowAccessRequests).as("allowAccessRequests for %s", bag).isEqualTo(allowAccessRequestsFromDom(deposit.getDdm(), filesXml));
+            assertThat(restrictedFilesPresent).as("restrictedFilesPresent for %s", bag).isEqualTo(restrictedFilesPresentFromDom(deposit.getDdm(), filesXml));
+            assertThat(deposit.getFiles())
+                .extracting(DepositFile::getFilepath)
+                .containsExactlyElementsOf(XPathEvaluator.strings(filesXml, FILES_FILE + "/@filepath").collect(Collectors.toList()));
+        }
+    }
+}
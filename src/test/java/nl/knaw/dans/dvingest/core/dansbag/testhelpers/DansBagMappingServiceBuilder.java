@@ -93,6 +93,6 @@ public class DansBagMappingServiceBuilder {
             skipFields);
         var supportedLicenses = new SupportedLicenses(dataverseService);
         return new DansBagMappingServiceImpl(mapper, dataverseService, supportedLicenses, fileExclusionPattern, filesForSeparateUploadPattern, embargoExclusions, depositorRoleAutoIngest,
-            expectedDataverseRole, expectedDatasetRole);
+            expectedDataverseRole, expectedDatasetRole, null);
     }
 }
@@ -0,0 +1,93 @@
+/*
+ * Copyright (C) 2024 DANS - Data Archiving and Networked Services (info@dans.knaw.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.knaw.dans.dvingest.core.dansbag.xml;
+
+import nl.knaw.dans.dvingest.core.TestDirFixture;
+import nl.knaw.dans.dvingest.core.dansbag.xml.FilesXmlStreamReader.FileElementData;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class FilesXmlStreamReaderTest extends TestDirFixture {
+    private static final String FILES_XML = """
+        <?xml version="1.0" encoding="UTF-8"?>
+        <files xmlns="http://easy.dans.knaw.nl/schemas/bag/metadata/files/"
+               xmlns:dcterms="http://purl.org/dc/terms/">
+            <file filepath="data/a.txt">
+                <dcterms:format>text/plain</dcterms:format>
+                <accessibleToRights>ANONYMOUS</accessibleToRights>
+            </file>
+            <file filepath="data/sub dir/b:c.txt">
+                <dcterms:description>first</dcterms:description>
+                <dcterms:description><![CDATA[second]]></dcterms:description>
+                <accessibleToRights>NONE</accessibleToRights>
+                <accessibleToRights>ANONYMOUS</accessibleToRights>
+            </file>
+            <file filepath="data/d.txt">
+                <dcterms:description>d.txt</dcterms:description>
+            </file>
+            <file filepath="data/sub dir//e.txt">
+                <accessibleToRights> RESTRICTED_REQUEST </accessibleToRights>
+            </file>
+        </files>
+        """;
+
+    private List<FileElementData> readAll() throws Exception {
+        var filesXml = testDir.resolve("files.xml");
+        Files.writeString(filesXml, FILES_XML);
+        var result = new ArrayList<FileElementData>();
+        new FilesXmlStreamReader().readFileElements(filesXml, result::add);
+        return result;
+    }
+
+    @Test
+    public void readFileElements_extracts_filepath_accessibleToRights_and_descriptions() throws Exception {
+        // When
+        var files = readAll();
+
+        // Then
+        assertThat(files).containsExactly(
+            new FileElementData("data/a.txt", List.of("ANONYMOUS"), List.of()),
+            new FileElementData("data/sub dir/b:c.txt", List.of("NONE", "ANONYMOUS"), List.of("first", "second")),
+            new FileElementData("data/d.txt", List.of(), List.of("d.txt")),
+            new FileElementData("data/sub dir//e.txt", List.of(" RESTRICTED_REQUEST "), List.of()));
+    }
+
+    @Test
+    public void readFileElements_gives_same_values_as_dom() throws Exception {
+        // Given
+        var filesXml = testDir.resolve("files.xml");
+        var files = readAll();
+        var document = new XmlReaderImpl().readXmlFile(filesXml);
+
+        // When
+        var nodes = XPathEvaluator.nodes(document, XPathConstants.FILES_FILE).collect(Collectors.toList());
+
+        // Then
+        assertThat(nodes).hasSize(files.size());
+        for (int i = 0; i < nodes.size(); i++) {
+            var node = nodes.get(i);
+            assertThat(files.get(i).getFilepath()).isEqualTo(node.getAttributes().getNamedItem("filepath").getTextContent());
+            assertThat(files.get(i).getAccessibleToRights()).isEqualTo(XPathEvaluator.strings(node, "files:accessibleToRights").collect(Collectors.toList()));
+            assertThat(files.get(i).getDescriptions()).isEqualTo(XPathEvaluator.strings(node, "dcterms:description").collect(Collectors.toList()));
+        }
+    }
+}
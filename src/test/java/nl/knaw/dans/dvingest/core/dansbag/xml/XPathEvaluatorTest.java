@@ -0,0 +1,88 @@
+/*
+ * Copyright (C) 2024 DANS - Data Archiving and Networked Services (info@dans.knaw.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.knaw.dans.dvingest.core.dansbag.xml;
+
+import org.junit.jupiter.api.Test;
+import org.w3c.dom.Document;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class XPathEvaluatorTest {
+
+    private static Document parse(String xml) throws Exception {
+        return new XmlReaderImpl().getFactory()
+            .newDocumentBuilder()
+            .parse(new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static String filesXml(int n) {
+        var sb = new StringBuilder("<files xmlns=\"" + XmlNamespaces.NAMESPACE_FILES_XML + "\" xmlns:dcterms=\"" + XmlNamespaces.NAMESPACE_DCTERMS + "\">");
+        for (int i = 0; i < n; i++) {
+            sb.append("<file filepath=\"data/file").append(i).append("\"><dcterms:description>description ").append(i).append("</dcterms:description></file>");
+        }
+        return sb.append("</files>").toString();
+    }
+
+    @Test
+    public void strings_returns_text_content_of_matching_nodes() throws Exception {
+        // Given
+        var document = parse(filesXml(3));
+
+        // When
+        var descriptions = XPathEvaluator.strings(document, "/files:files/files:file/dcterms:description").collect(Collectors.toList());
+
+        // Then
+        assertThat(descriptions).containsExactly("description 0", "description 1", "description 2");
+    }
+
+    @Test
+    public void nodes_can_be_evaluated_from_multiple_threads_at_the_same_time() throws Exception {
+        // Given
+        var executor = Executors.newFixedThreadPool(4);
+        var tasks = new ArrayList<Callable<Long>>();
+        for (int t = 0; t < 8; t++) {
+            tasks.add(() -> {
+                // DOM documents are not thread-safe, so each task gets its own
+                var document = parse(filesXml(100));
+                long count = 0;
+                for (var file : XPathEvaluator.nodes(document, "/files:files/files:file").collect(Collectors.toList())) {
+                    count += XPathEvaluator.nodes(file, "dcterms:description").count();
+                }
+                return count;
+            });
+        }
+
+        try {
+            // When
+            var results = executor.invokeAll(tasks);
+
+            // Then
+            for (var result : results) {
+                assertThat(result.get()).isEqualTo(100L);
+            }
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright (C) 2024 DANS - Data Archiving and Networked Services (info@dans.knaw.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.knaw.dans.dvingest.core.service;
+
+import nl.knaw.dans.lib.dataverse.model.RoleAssignmentReadOnly;
+import nl.knaw.dans.lib.dataverse.model.user.AuthenticatedUser;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class CachingDataverseServiceTest {
+    private final DataverseService dataverseServiceMock = Mockito.mock(DataverseService.class);
+    private final ExpiringCache<String, AuthenticatedUser> users = new ExpiringCache<>("users", 10, Duration.ofMinutes(1), IngestMetrics.disabled());
+    private final ExpiringCache<String, Map<String, List<RoleAssignmentReadOnly>>> roleAssignments = new ExpiringCache<>("role-assignments", 10, Duration.ofMinutes(1), IngestMetrics.disabled());
+    private final DataverseService cachingDataverseService = new CachingDataverseService(dataverseServiceMock, users, roleAssignments);
+
+    @Test
+    public void getUserById_should_fetch_user_only_once() {
+        // Given
+        var user = new AuthenticatedUser();
+        when(dataverseServiceMock.getUserById("user001")).thenReturn(Optional.of(user));
+
+        // When
+        var first = cachingDataverseService.getUserById("user001");
+        var second = cachingDataverseService.getUserById("user001");
+
+        // Then
+        assertThat(first).containsSame(user);
+        assertThat(second).containsSame(user);
+        verify(dataverseServiceMock, times(1)).getUserById("user001");
+    }
+
+    @Test
+    public void getUserById_should_not_cache_missing_user() {
+        // Given
+        when(dataverseServiceMock.getUserById("user001")).thenReturn(Optional.empty());
+
+        // When
+        cachingDataverseService.getUserById("user001");
+        cachingDataverseService.getUserById("user001");
+
+        // Then
+        verify(dataverseServiceMock, times(2)).getUserById("user001");
+    }
+
+    @Test
+    public void getRoleAssignmentsOnDataverse_should_fetch_again_after_invalidation() throws Exception {
+        // Given
+        var roleAssignment = roleAssignment("@user", "admin");
+        when(dataverseServiceMock.getRoleAssignmentsOnDataverse("root")).thenReturn(List.of(roleAssignment));
+
+        // When
+        cachingDataverseService.getRoleAssignmentsOnDataverse("root");
+        cachingDataverseService.getRoleAssignmentsOnDataverse("root");
+        roleAssignments.invalidate("root");
+        var result = cachingDataverseService.getRoleAssignmentsOnDataverse("root");
+
+        // Then
+        assertThat(result).containsExactly(roleAssignment);
+        verify(dataverseServiceMock, times(2)).getRoleAssignmentsOnDataverse("root");
+    }
+
+    @Test
+    public void getRoleAssignmentsOnDataverse_should_look_up_role_assignments_by_assignee() throws Exception {
+        // Given
+        var userAdmin = roleAssignment("@user", "admin");
+        var userCurator = roleAssignment("@user", "curator");
+        var otherAdmin = roleAssignment("@other", "admin");
+        when(dataverseServiceMock.getRoleAssignmentsOnDataverse("root")).thenReturn(List.of(userAdmin, otherAdmin, userCurator));
+
+        // When
+        var forUser = cachingDataverseService.getRoleAssignmentsOnDataverse("root", "@user");
+        var forOther = cachingDataverseService.getRoleAssignmentsOnDataverse("root", "@other");
+        var forUnknown = cachingDataverseService.getRoleAssignmentsOnDataverse("root", "@unknown");
+
+        // Then
+        assertThat(forUser).containsExactly(userAdmin, userCurator);
+        assertThat(forOther).containsExactly(otherAdmin);
+        assertThat(forUnknown).isEmpty();
+        verify(dataverseServiceMock, times(1)).getRoleAssignmentsOnDataverse("root");
+    }
+
+    @Test
+    public void getRoleAssignmentsOnDataverse_should_return_unmodifiable_lists() throws Exception {
+        // Given
+        var roleAssignment = roleAssignment("@user", "admin");
+        when(dataverseServiceMock.getRoleAssignmentsOnDataverse("root")).thenReturn(new ArrayList<>(List.of(roleAssignment)));
+
+        // When
+        var all = cachingDataverseService.getRoleAssignmentsOnDataverse("root");
+        var forUser = cachingDataverseService.getRoleAssignmentsOnDataverse("root", "@user");
+
+        // Then
+        assertThatThrownBy(() -> all.add(new RoleAssignmentReadOnly())).isInstanceOf(UnsupportedOperationException.class);
+        assertThatThrownBy(() -> forUser.clear()).isInstanceOf(UnsupportedOperationException.class);
+        assertThat(cachingDataverseService.getRoleAssignmentsOnDataverse("root", "@user")).containsExactly(roleAssignment);
+    }
+
+    @Test
+    public void other_calls_should_be_passed_on() throws Exception {
+        // Given
+        when(dataverseServiceMock.getDatasetState("pid")).thenReturn("RELEASED");
+
+        // When
+        var state = cachingDataverseService.getDatasetState("pid");
+        cachingDataverseService.getDatasetState("pid");
+
+        // Then
+        assertThat(state).isEqualTo("RELEASED");
+        verify(dataverseServiceMock, times(2)).getDatasetState("pid");
+    }
+
+    private static RoleAssignmentReadOnly roleAssignment(String assignee, String role) {
+        var roleAssignment = new RoleAssignmentReadOnly();
+        roleAssignment.setAssignee(assignee);
+        roleAssignment.set_roleAlias(role);
+        return roleAssignment;
+    }
+}
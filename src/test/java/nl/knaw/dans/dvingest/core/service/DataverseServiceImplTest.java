@@ -15,9 +15,12 @@
  */
 package nl.knaw.dans.dvingest.core.service;
 
+import com.codahale.metrics.MetricRegistry;
 import nl.knaw.dans.lib.dataverse.DatasetApi;
 import nl.knaw.dans.lib.dataverse.DataverseClient;
 import nl.knaw.dans.lib.dataverse.DataverseHttpResponse;
+import nl.knaw.dans.lib.dataverse.Version;
+import nl.knaw.dans.lib.dataverse.model.dataset.DatasetVersion;
 import nl.knaw.dans.lib.dataverse.model.dataset.FileList;
 import nl.knaw.dans.lib.dataverse.model.file.FileMeta;
 import org.junit.jupiter.api.Test;
@@ -29,10 +32,13 @@ import java.util.List;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.Mockito.anyList;
+import static org.mockito.Mockito.anyLong;
 import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.eq;
+import static org.mockito.Mockito.longThat;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
@@ -89,6 +95,110 @@ public class DataverseServiceImplTest {
         verifyNoMoreInteractions(dataverseClientMock, datasetApiMock);
     }
 
+    @Test
+    public void waitForReleasedState_polls_until_released_and_records_publish_duration() throws Exception {
+        var persistentId = "doi:10.5072/FK2/ABCDEF";
+        var draft = new DatasetVersion();
+        draft.setVersionState("DRAFT");
+        var released = new DatasetVersion();
+        released.setVersionState("RELEASED");
+
+        var dataverseClientMock = mock(DataverseClient.class);
+        var datasetApiMock = mock(DatasetApi.class);
+        DataverseHttpResponse<DatasetVersion> draftResponseMock = mock(DataverseHttpResponse.class);
+        DataverseHttpResponse<DatasetVersion> releasedResponseMock = mock(DataverseHttpResponse.class);
+        when(dataverseClientMock.dataset(persistentId)).thenReturn(datasetApiMock);
+        when(draftResponseMock.getData()).thenReturn(draft);
+        when(releasedResponseMock.getData()).thenReturn(released);
+        when(datasetApiMock.getVersion(Version.LATEST.toString(), true)).thenReturn(draftResponseMock, draftResponseMock, releasedResponseMock);
+        var metricRegistry = new MetricRegistry();
+        var model = new PublishDurationModel(0, new IngestMetrics(metricRegistry));
+        var dataverseService = DataverseServiceImpl.builder()
+            .dataverseClient(dataverseClientMock)
+            .minPollingInterval(1)
+            .pollingInterval(10)
+            .publishDurationModel(model)
+            .build();
+
+        dataverseService.waitForReleasedState(persistentId, 10, 0);
+
+        verify(datasetApiMock, times(3)).getVersion(Version.LATEST.toString(), true);
+        assertThat(metricRegistry.histogram("ingest.publish.predictionError").getCount()).isEqualTo(1);
+        assertThat(model.predict(10, 0)).isGreaterThan(0);
+    }
+
+    @Test
+    public void waitForReleasedState_leaves_waiting_after_predicted_time_to_client_and_keeps_its_timeout_exception() throws Exception {
+        var persistentId = "doi:10.5072/FK2/ABCDEF";
+        var draft = new DatasetVersion();
+        draft.setVersionState("DRAFT");
+        var clientTimeout = new IllegalStateException("Dataset did not become RELEASED");
+
+        var dataverseClientMock = mock(DataverseClient.class);
+        var datasetApiMock = mock(DatasetApi.class);
+        DataverseHttpResponse<DatasetVersion> draftResponseMock = mock(DataverseHttpResponse.class);
+        when(dataverseClientMock.dataset(persistentId)).thenReturn(datasetApiMock);
+        when(draftResponseMock.getData()).thenReturn(draft);
+        when(datasetApiMock.getVersion(Version.LATEST.toString(), true)).thenReturn(draftResponseMock);
+        doThrow(clientTimeout).when(datasetApiMock).awaitState(eq("RELEASED"), anyLong(), eq(10L));
+        var dataverseService = DataverseServiceImpl.builder()
+            .dataverseClient(dataverseClientMock)
+            .leadTimePerFile(0)
+            .minPollingInterval(1)
+            .pollingInterval(10)
+            .timeout(50)
+            .build();
+
+        assertThatThrownBy(() -> dataverseService.waitForReleasedState(persistentId, 10, 0))
+            .isSameAs(clientTimeout);
+        verify(datasetApiMock).awaitState(eq("RELEASED"), longThat(remaining -> remaining <= 50), eq(10L));
+    }
+
+    @Test
+    public void observedDuration_is_midpoint_between_last_unreleased_and_first_released_poll() {
+        assertThat(DataverseServiceImpl.observedDuration(1000, 5000, 7000)).isEqualTo(5000);
+        assertThat(DataverseServiceImpl.observedDuration(1000, 1000, 3000)).isEqualTo(1000);
+    }
+
+    @Test
+    public void publish_duration_model_converges_when_publishing_is_faster_than_predicted() {
+        // Given
+        var model = new PublishDurationModel(1000, IngestMetrics.disabled());
+        long actualDuration = 20_000;
+        assertThat(model.predict(100, 0)).isEqualTo(100_000);
+
+        // When
+        for (int i = 0; i < 30; i++) {
+            // The polls of waitForReleasedState, on a simulated clock
+            long predicted = model.predict(100, 0);
+            long elapsed = 0;
+            long lastUnreleased = 0;
+            while (true) {
+                elapsed += DataverseServiceImpl.nextPollDelay(predicted, elapsed, 500, 5000);
+                if (elapsed >= actualDuration) {
+                    break;
+                }
+                lastUnreleased = elapsed;
+            }
+            model.record(100, 0, predicted, DataverseServiceImpl.observedDuration(0, lastUnreleased, elapsed));
+        }
+
+        // Then
+        assertThat(model.predict(100, 0)).isBetween(18_000L, 22_000L);
+    }
+
+    @Test
+    public void nextPollDelay_halves_time_to_predicted_completion_and_backs_off_after_it() {
+        // Before the predicted completion time: half of the remaining time, but at least the minimum
+        assertThat(DataverseServiceImpl.nextPollDelay(8000, 0, 500, 5000)).isEqualTo(4000);
+        assertThat(DataverseServiceImpl.nextPollDelay(8000, 4000, 500, 5000)).isEqualTo(2000);
+        assertThat(DataverseServiceImpl.nextPollDelay(8000, 7800, 500, 5000)).isEqualTo(500);
+        // After it: growing with the time overdue, up to the maximum
+        assertThat(DataverseServiceImpl.nextPollDelay(8000, 8000, 500, 5000)).isEqualTo(500);
+        assertThat(DataverseServiceImpl.nextPollDelay(8000, 12000, 500, 5000)).isEqualTo(2000);
+        assertThat(DataverseServiceImpl.nextPollDelay(8000, 60000, 500, 5000)).isEqualTo(5000);
+    }
+
     private DataverseServiceImpl createDataverseService(DataverseClient dataverseClient) {
         return DataverseServiceImpl.builder()
             .dataverseClient(dataverseClient)
@@ -0,0 +1,115 @@
+/*
+ * Copyright (C) 2024 DANS - Data Archiving and Networked Services (info@dans.knaw.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.knaw.dans.dvingest.core.service;
+
+import com.codahale.metrics.MetricRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class ExpiringCacheTest {
+    private final AtomicLong clock = new AtomicLong();
+    private final MetricRegistry metricRegistry = new MetricRegistry();
+
+    private ExpiringCache<String, String> cache(int maximumSize) {
+        return new ExpiringCache<>("test", maximumSize, Duration.ofMinutes(1), new IngestMetrics(metricRegistry), clock::get);
+    }
+
+    @Test
+    public void getIfPresent_should_return_value_until_it_expires() {
+        // Given
+        var cache = cache(10);
+        cache.put("user001", "value");
+
+        // When
+        var beforeExpiry = cache.getIfPresent("user001");
+        clock.addAndGet(Duration.ofMinutes(1).toNanos());
+        var afterExpiry = cache.getIfPresent("user001");
+
+        // Then
+        assertThat(beforeExpiry).contains("value");
+        assertThat(afterExpiry).isEmpty();
+        assertThat(cache.size()).isZero();
+    }
+
+    @Test
+    public void put_should_evict_least_recently_used_value_when_full() {
+        // Given
+        var cache = cache(2);
+        cache.put("a", "1");
+        cache.put("b", "2");
+        cache.getIfPresent("a");
+
+        // When
+        cache.put("c", "3");
+
+        // Then
+        assertThat(cache.getIfPresent("a")).contains("1");
+        assertThat(cache.getIfPresent("b")).isEmpty();
+        assertThat(cache.getIfPresent("c")).contains("3");
+        assertThat(metricRegistry.meter("ingest.cache.test.evictions").getCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void invalidate_should_remove_value() {
+        // Given
+        var cache = cache(10);
+        cache.put("a", "1");
+        cache.put("b", "2");
+
+        // When
+        cache.invalidate("a");
+
+        // Then
+        assertThat(cache.getIfPresent("a")).isEmpty();
+        assertThat(cache.getIfPresent("b")).contains("2");
+
+        // When
+        cache.invalidateAll();
+
+        // Then
+        assertThat(cache.size()).isZero();
+    }
+
+    @Test
+    public void hits_and_misses_should_be_reported() {
+        // Given
+        var cache = cache(10);
+        cache.put("a", "1");
+
+        // When
+        cache.getIfPresent("a");
+        cache.getIfPresent("a");
+        cache.getIfPresent("a");
+        cache.getIfPresent("b");
+
+        // Then
+        assertThat(metricRegistry.meter("ingest.cache.test.hits").getCount()).isEqualTo(3);
+        assertThat(metricRegistry.meter("ingest.cache.test.misses").getCount()).isEqualTo(1);
+        assertThat(metricRegistry.getGauges().get("ingest.cache.test.hit-ratio").getValue()).isEqualTo(0.75);
+    }
+
+    @Test
+    public void constructor_should_reject_maximum_size_below_one() {
+        assertThatThrownBy(() -> cache(0))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessage("maximumSize must be at least 1, but was 0");
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright (C) 2024 DANS - Data Archiving and Networked Services (info@dans.knaw.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.knaw.dans.dvingest.core.service;
+
+import com.codahale.metrics.MetricRegistry;
+import nl.knaw.dans.lib.dataverse.DataverseException;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.io.IOException;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.when;
+
+public class MeteredDataverseServiceTest {
+    private final DataverseService dataverseServiceMock = Mockito.mock(DataverseService.class);
+    private final MetricRegistry metricRegistry = new MetricRegistry();
+    private final DataverseService meteredDataverseService = new MeteredDataverseService(dataverseServiceMock, new IngestMetrics(metricRegistry));
+
+    @Test
+    public void call_is_delegated_and_timed() throws Exception {
+        // Given
+        when(dataverseServiceMock.getFiles("pid", true)).thenReturn(List.of());
+
+        // When
+        var files = meteredDataverseService.getFiles("pid", true);
+        meteredDataverseService.getFiles("pid", true);
+
+        // Then
+        assertThat(files).isEmpty();
+        assertThat(metricRegistry.timer("ingest.dataverse.getFiles").getCount()).isEqualTo(2);
+        assertThat(metricRegistry.getMeters()).doesNotContainKey("ingest.dataverse.getFiles.failures");
+    }
+
+    @Test
+    public void failed_call_is_timed_and_counted_as_failure() throws Exception {
+        // Given
+        doThrow(new IOException("Connection refused")).when(dataverseServiceMock).deleteFiles("pid", List.of(1L));
+
+        // When
+        assertThatThrownBy(() -> meteredDataverseService.deleteFiles("pid", List.of(1L)))
+            .isInstanceOf(IOException.class)
+            .hasMessage("Connection refused");
+
+        // Then
+        assertThat(metricRegistry.timer("ingest.dataverse.deleteFiles").getCount()).isEqualTo(1);
+        assertThat(metricRegistry.meter("ingest.dataverse.deleteFiles.failures").getCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void dataverse_exception_is_rethrown_unchanged() throws Exception {
+        // Given
+        var exception = Mockito.mock(DataverseException.class);
+        when(dataverseServiceMock.getDatasetState("pid")).thenThrow(exception);
+
+        // When / Then
+        assertThatThrownBy(() -> meteredDataverseService.getDatasetState("pid")).isSameAs(exception);
+        assertThat(metricRegistry.meter("ingest.dataverse.getDatasetState.failures").getCount()).isEqualTo(1);
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright (C) 2024 DANS - Data Archiving and Networked Services (info@dans.knaw.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.knaw.dans.dvingest.core.service;
+
+import com.codahale.metrics.MetricRegistry;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PublishDurationModelTest {
+    private static final long MEBIBYTE = 1024 * 1024;
+
+    private final MetricRegistry metricRegistry = new MetricRegistry();
+    private final PublishDurationModel model = new PublishDurationModel(20, new IngestMetrics(metricRegistry));
+
+    @Test
+    public void predict_uses_lead_time_per_file_before_anything_is_observed() {
+        assertThat(model.predict(100, 10 * MEBIBYTE)).isEqualTo(2000);
+        assertThat(model.predict(0, 0)).isEqualTo(0);
+    }
+
+    @Test
+    public void predict_uses_observed_duration_for_datasets_of_similar_size() {
+        // Given
+        model.record(100, 10 * MEBIBYTE, 2000, 500);
+
+        // When
+        var similar = model.predict(110, 11 * MEBIBYTE);
+
+        // Then
+        assertThat(similar).isEqualTo(500);
+    }
+
+    @Test
+    public void predict_uses_observed_duration_per_file_for_datasets_of_another_size() {
+        // Given
+        model.record(100, 10 * MEBIBYTE, 2000, 500);
+
+        // When
+        var larger = model.predict(1000, 10000 * MEBIBYTE);
+
+        // Then
+        assertThat(larger).isEqualTo(5000);
+    }
+
+    @Test
+    public void record_moves_prediction_towards_new_observations() {
+        // Given
+        model.record(10, 0, 200, 1000);
+
+        // When
+        model.record(10, 0, 1000, 2000);
+
+        // Then
+        assertThat(model.predict(10, 0)).isEqualTo(1300);
+    }
+
+    @Test
+    public void record_reports_prediction_error() {
+        // When
+        model.record(100, 0, 2000, 2500);
+        model.record(100, 0, 2000, 1500);
+
+        // Then
+        var histogram = metricRegistry.histogram("ingest.publish.predictionError");
+        assertThat(histogram.getCount()).isEqualTo(2);
+        assertThat(histogram.getSnapshot().getMax()).isEqualTo(500);
+        assertThat(histogram.getSnapshot().getMin()).isEqualTo(-500);
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright (C) 2024 DANS - Data Archiving and Networked Services (info@dans.knaw.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.knaw.dans.dvingest.core.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class ReferenceDataCacheTest {
+    private final AtomicLong clock = new AtomicLong();
+    private final AtomicInteger loads = new AtomicInteger();
+
+    private ReferenceDataCache<Integer> cache(Duration timeToLive) {
+        return new ReferenceDataCache<>("test data", loads::incrementAndGet, timeToLive, null, clock::get);
+    }
+
+    @Test
+    public void get_should_load_data_when_first_needed() {
+        // Given
+        var cache = cache(Duration.ofMinutes(10));
+
+        // When
+        var first = cache.get();
+        var second = cache.get();
+
+        // Then
+        assertThat(first).isEqualTo(1);
+        assertThat(second).isEqualTo(1);
+        assertThat(loads).hasValue(1);
+    }
+
+    @Test
+    public void get_should_return_stale_data_and_refresh_when_expired() {
+        // Given
+        var cache = cache(Duration.ofMinutes(10));
+        cache.get();
+        clock.addAndGet(Duration.ofMinutes(10).toNanos());
+
+        // When
+        var stale = cache.get();
+        var fresh = cache.get();
+
+        // Then
+        assertThat(stale).isEqualTo(1);
+        assertThat(fresh).isEqualTo(2);
+    }
+
+    @Test
+    public void get_should_keep_stale_data_when_refresh_fails() {
+        // Given
+        var fail = new AtomicInteger();
+        var cache = new ReferenceDataCache<Integer>("test data", () -> {
+            if (fail.get() > 0) {
+                throw new IOException("Dataverse is down");
+            }
+            return loads.incrementAndGet();
+        }, Duration.ofMinutes(10), null, clock::get);
+        cache.get();
+        fail.set(1);
+        clock.addAndGet(Duration.ofMinutes(10).toNanos());
+
+        // When
+        var afterFailure = cache.get();
+        fail.set(0);
+        var beforeRetry = cache.get();
+        clock.addAndGet(ReferenceDataCache.RETRY_DELAY.toNanos());
+        cache.get();
+        var afterRetry = cache.get();
+
+        // Then
+        assertThat(afterFailure).isEqualTo(1);
+        assertThat(beforeRetry).isEqualTo(1);
+        assertThat(afterRetry).isEqualTo(2);
+    }
+
+    @Test
+    public void get_should_throw_IllegalStateException_when_there_is_no_data_and_it_cannot_be_fetched() {
+        // Given
+        var cache = new ReferenceDataCache<Integer>("test data", () -> {
+            throw new IOException("Dataverse is down");
+        }, Duration.ofMinutes(10), null, clock::get);
+
+        // When / Then
+        assertThatThrownBy(cache::get)
+            .isInstanceOf(IllegalStateException.class)
+            .hasMessage("Could not fetch test data from Dataverse")
+            .hasCauseInstanceOf(IOException.class);
+    }
+
+    @Test
+    public void loadedOnce_should_never_refresh() {
+        // Given
+        var cache = ReferenceDataCache.loadedOnce("test data", loads::incrementAndGet);
+
+        // When
+        cache.get();
+        cache.get();
+
+        // Then
+        assertThat(cache.get()).isEqualTo(1);
+        assertThat(loads).hasValue(1);
+    }
+
+    @Test
+    public void start_should_not_fail_when_data_cannot_be_fetched() {
+        // Given
+        var cache = new ReferenceDataCache<Integer>("test data", () -> {
+            throw new IOException("Dataverse is down");
+        }, Duration.ofMinutes(10), null, clock::get);
+
+        // When
+        cache.start();
+
+        // Then
+        assertThatThrownBy(cache::get).isInstanceOf(IllegalStateException.class);
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ * Copyright (C) 2024 DANS - Data Archiving and Networked Services (info@dans.knaw.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.knaw.dans.dvingest.core.service;
+
+import com.sun.net.httpserver.HttpServer;
+import nl.knaw.dans.dvingest.core.TestDirFixture;
+import nl.knaw.dans.lib.dataverse.DataverseException;
+import nl.knaw.dans.lib.dataverse.model.file.FileMeta;
+import org.apache.commons.collections4.IteratorUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.ZipInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class StreamingFileUploaderTest extends TestDirFixture {
+    private HttpServer server;
+    private final AtomicReference<Map<String, List<String>>> requestHeaders = new AtomicReference<>();
+    private final AtomicReference<byte[]> requestBody = new AtomicReference<>();
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        super.setUp();
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.start();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        server.stop(0);
+    }
+
+    private StreamingFileUploader uploader(String baseUrl) {
+        return StreamingFileUploader.builder()
+            .baseUrl(URI.create(baseUrl))
+            .apiKey("changeme")
+            .userAgent("dd-dataverse-ingest-test")
+            .build();
+    }
+
+    private String serverUrl() {
+        return "http://localhost:" + server.getAddress().getPort() + "/dataverse";
+    }
+
+    private void respondWith(int status, String body) {
+        server.createContext("/dataverse/api/datasets/:persistentId/add", exchange -> {
+            requestHeaders.set(Map.copyOf(exchange.getRequestHeaders()));
+            requestBody.set(exchange.getRequestBody().readAllBytes());
+            var bytes = body.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(status, bytes.length);
+            exchange.getResponseBody().write(bytes);
+            exchange.close();
+        });
+    }
+
+    private StreamingZipBatch batch(String... files) throws IOException {
+        var paths = new ArrayList<File>();
+        for (var file : files) {
+            paths.add(Files.writeString(testDir.resolve(file), "content of " + file).toFile());
+        }
+        return StreamingZipBatch.next(testDir, IteratorUtils.peekingIterator(paths.iterator()), Map.of(), 100, Long.MAX_VALUE);
+    }
+
+    private List<String> zipEntriesInRequest() throws IOException {
+        var body = requestBody.get();
+        var text = new String(body, StandardCharsets.ISO_8859_1);
+        var start = text.indexOf("\r\n\r\n", text.indexOf("filename=\"batch.zip\"")) + 4;
+        var entries = new ArrayList<String>();
+        try (var zip = new ZipInputStream(new ByteArrayInputStream(body, start, body.length - start))) {
+            for (var entry = zip.getNextEntry(); entry != null; entry = zip.getNextEntry()) {
+                entries.add(entry.getName());
+            }
+        }
+        return entries;
+    }
+
+    @Test
+    public void addFileUri_resolves_api_path_against_base_url() {
+        assertThat(uploader("http://localhost:8080").addFileUri("doi:10.5072/FK2/ABCDEF"))
+            .isEqualTo(URI.create("http://localhost:8080/api/datasets/:persistentId/add?persistentId=doi%3A10.5072%2FFK2%2FABCDEF"));
+    }
+
+    @Test
+    public void addFileUri_keeps_path_prefix_of_base_url() {
+        var expected = URI.create("https://example.org/dataverse/api/datasets/:persistentId/add?persistentId=doi%3A10.5072%2FFK2%2FABCDEF");
+
+        assertThat(uploader("https://example.org/dataverse").addFileUri("doi:10.5072/FK2/ABCDEF")).isEqualTo(expected);
+        assertThat(uploader("https://example.org/dataverse/").addFileUri("doi:10.5072/FK2/ABCDEF")).isEqualTo(expected);
+    }
+
+    @Test
+    public void addZipFile_streams_multipart_request_and_returns_added_files() throws Exception {
+        // Given
+        respondWith(200, "{\"status\":\"OK\",\"data\":{\"files\":[{\"label\":\"a.txt\",\"restricted\":true},{\"label\":\"b.txt\",\"restricted\":true}]}}");
+        var fileMeta = new FileMeta();
+        fileMeta.setRestricted(true);
+
+        // When
+        var result = uploader(serverUrl()).addZipFile("doi:10.5072/FK2/ABCDEF", batch("a.txt", "b.txt"), fileMeta);
+
+        // Then
+        assertThat(result.getFiles()).extracting(FileMeta::getLabel).containsExactly("a.txt", "b.txt");
+        assertThat(requestHeaders.get().get("X-dataverse-key")).containsExactly("changeme");
+        assertThat(requestHeaders.get().get("User-agent")).containsExactly("dd-dataverse-ingest-test");
+        assertThat(requestHeaders.get().get("Transfer-encoding")).containsExactly("chunked");
+        assertThat(requestHeaders.get().get("Content-type").get(0)).startsWith("multipart/form-data; boundary=");
+        assertThat(new String(requestBody.get(), StandardCharsets.ISO_8859_1)).contains("name=\"jsonData\"", "\"restricted\":true");
+        assertThat(zipEntriesInRequest()).containsExactly("a.txt", "b.txt");
+    }
+
+    @Test
+    public void addZipFile_throws_DataverseException_with_status_and_body_of_error_response() throws Exception {
+        // Given
+        respondWith(409, "{\"status\":\"ERROR\",\"message\":\"Dataset cannot be edited due to dataset lock.\"}");
+
+        // When / Then
+        assertThatThrownBy(() -> uploader(serverUrl()).addZipFile("doi:10.5072/FK2/ABCDEF", batch("a.txt"), new FileMeta()))
+            .isInstanceOfSatisfying(DataverseException.class, e -> {
+                assertThat(e.getStatus()).isEqualTo(409);
+                assertThat(e.getMessage()).contains("HTTP 409", "Dataset cannot be edited due to dataset lock.");
+            });
+    }
+}
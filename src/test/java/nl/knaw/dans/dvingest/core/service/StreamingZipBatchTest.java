@@ -0,0 +1,101 @@
+/*
+ * Copyright (C) 2024 DANS - Data Archiving and Networked Services (info@dans.knaw.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.knaw.dans.dvingest.core.service;
+
+import nl.knaw.dans.dvingest.core.TestDirFixture;
+import org.apache.commons.collections4.IteratorUtils;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class StreamingZipBatchTest extends TestDirFixture {
+
+    private List<File> createFiles(int size, String... names) throws Exception {
+        var files = new ArrayList<File>();
+        for (var name : names) {
+            var file = testDir.resolve(name);
+            Files.createDirectories(file.getParent());
+            Files.write(file, new byte[size]);
+            files.add(file.toFile());
+        }
+        return files;
+    }
+
+    private Map<String, Integer> readZip(byte[] zip) throws Exception {
+        var entries = new LinkedHashMap<String, Integer>();
+        try (var zipInputStream = new ZipInputStream(new ByteArrayInputStream(zip))) {
+            for (var entry = zipInputStream.getNextEntry(); entry != null; entry = zipInputStream.getNextEntry()) {
+                entries.put(entry.getName(), zipInputStream.readAllBytes().length);
+            }
+        }
+        return entries;
+    }
+
+    @Test
+    public void next_limits_batch_to_max_number_of_files() throws Exception {
+        // Given
+        var iterator = IteratorUtils.peekingIterator(createFiles(10, "a", "b", "c").iterator());
+
+        // When
+        var first = StreamingZipBatch.next(testDir, iterator, Map.of(), 2, 1000);
+        var second = StreamingZipBatch.next(testDir, iterator, Map.of(), 2, 1000);
+
+        // Then
+        assertThat(first.getFiles()).containsExactly(testDir.resolve("a"), testDir.resolve("b"));
+        assertThat(second.getFiles()).containsExactly(testDir.resolve("c"));
+        assertThat(iterator.hasNext()).isFalse();
+    }
+
+    @Test
+    public void next_limits_batch_to_max_number_of_bytes_but_takes_at_least_one_file() throws Exception {
+        // Given
+        var iterator = IteratorUtils.peekingIterator(createFiles(100, "a", "b", "c").iterator());
+
+        // When
+        var first = StreamingZipBatch.next(testDir, iterator, Map.of(), 10, 150);
+        var second = StreamingZipBatch.next(testDir, iterator, Map.of(), 10, 50);
+
+        // Then
+        assertThat(first.getFiles()).containsExactly(testDir.resolve("a"));
+        assertThat(second.getFiles()).containsExactly(testDir.resolve("b"));
+    }
+
+    @Test
+    public void writeTo_writes_zip_with_entries_relative_to_root_dir_and_renamed() throws Exception {
+        // Given
+        var iterator = IteratorUtils.peekingIterator(createFiles(42, "a", "sub/b").iterator());
+        var batch = StreamingZipBatch.next(testDir, iterator, Map.of("sub/b", "sub/b_renamed"), 10, 1000);
+        var outputStream = new ByteArrayOutputStream();
+
+        // When
+        batch.writeTo(outputStream);
+
+        // Then
+        assertThat(readZip(outputStream.toByteArray())).containsExactly(
+            Map.entry("a", 42),
+            Map.entry("sub/b_renamed", 42));
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright (C) 2024 DANS - Data Archiving and Networked Services (info@dans.knaw.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.knaw.dans.dvingest.core.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class UploadBatchSizerTest {
+
+    @Test
+    public void starts_with_max_limits() {
+        // Given
+        var sizer = new UploadBatchSizer(10, 1000, 1000, 1000000, 60000);
+
+        // Then
+        assertThat(sizer.getMaxNumberOfFiles()).isEqualTo(1000);
+        assertThat(sizer.getMaxNumberOfBytes()).isEqualTo(1000000);
+    }
+
+    @Test
+    public void fixed_sizer_does_not_change_limits() {
+        // Given
+        var sizer = UploadBatchSizer.fixed(100, 5000);
+
+        // When
+        sizer.recordUpload(100, 5000, 1000000);
+        sizer.recordFailure();
+
+        // Then
+        assertThat(sizer.getMaxNumberOfFiles()).isEqualTo(100);
+        assertThat(sizer.getMaxNumberOfBytes()).isEqualTo(5000);
+    }
+
+    @Test
+    public void shrinks_when_uploads_take_longer_than_target() {
+        // Given
+        var sizer = new UploadBatchSizer(10, 1000, 1000, 1000000, 60000);
+
+        // When: 1000 files, 1200000 bytes in 120 s; i.e. 120 ms per file and 10 bytes per ms
+        sizer.recordUpload(1000, 1200000, 120000);
+
+        // Then
+        assertThat(sizer.getMaxNumberOfFiles()).isEqualTo(500);
+        assertThat(sizer.getMaxNumberOfBytes()).isEqualTo(600000);
+    }
+
+    @Test
+    public void grows_at_most_by_a_factor_of_two_and_not_beyond_max() {
+        // Given
+        var sizer = new UploadBatchSizer(10, 1000, 1000, 1000000, 60000);
+        sizer.recordFailure();
+        sizer.recordFailure();
+        assertThat(sizer.getMaxNumberOfFiles()).isEqualTo(250);
+
+        // When: very fast uploads
+        sizer.recordUpload(250, 250000, 10);
+
+        // Then
+        assertThat(sizer.getMaxNumberOfFiles()).isEqualTo(500);
+        assertThat(sizer.getMaxNumberOfBytes()).isEqualTo(500000);
+
+        // When
+        sizer.recordUpload(500, 500000, 10);
+        sizer.recordUpload(500, 500000, 10);
+
+        // Then
+        assertThat(sizer.getMaxNumberOfFiles()).isEqualTo(1000);
+        assertThat(sizer.getMaxNumberOfBytes()).isEqualTo(1000000);
+    }
+
+    @Test
+    public void failures_do_not_go_below_min() {
+        // Given
+        var sizer = new UploadBatchSizer(10, 40, 1000, 4000, 60000);
+
+        // When
+        for (int i = 0; i < 10; i++) {
+            sizer.recordFailure();
+        }
+
+        // Then
+        assertThat(sizer.getMaxNumberOfFiles()).isEqualTo(10);
+        assertThat(sizer.getMaxNumberOfBytes()).isEqualTo(1000);
+    }
+
+    @Test
+    public void constructor_rejects_invalid_bounds() {
+        assertThatThrownBy(() -> new UploadBatchSizer(100, 10, 1000, 4000, 60000))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+}
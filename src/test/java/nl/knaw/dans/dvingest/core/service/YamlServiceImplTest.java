@@ -17,11 +17,16 @@ package nl.knaw.dans.dvingest.core.service;
 
 import io.dropwizard.configuration.ConfigurationParsingException;
 import nl.knaw.dans.dvingest.config.YamlServiceConfig;
+import nl.knaw.dans.dvingest.core.yaml.EditFilesRoot;
 import nl.knaw.dans.lib.dataverse.model.dataset.Dataset;
 import org.junit.jupiter.api.Test;
 
+import java.io.IOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.Set;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
 
@@ -49,4 +54,86 @@ public class YamlServiceImplTest {
             customYamlService.readYaml(yamlFile, Dataset.class)
         );
     }
+
+    @Test
+    public void streamStringList_returns_items_of_list_in_object() throws Exception {
+        // Given
+        var file = writeTestYaml("stream.yml", """
+            editFiles:
+              deleteFiles:
+                - old.txt
+              addRestrictedFiles:
+                - file1.txt
+                - file2.txt
+            """);
+        var yamlService = new YamlServiceImpl(new YamlServiceConfig());
+
+        // When
+        try (var files = yamlService.streamStringList(file, "editFiles", "addRestrictedFiles")) {
+
+            // Then
+            assertThat(files).containsExactly("file1.txt", "file2.txt");
+        }
+    }
+
+    @Test
+    public void streamStringList_returns_empty_stream_for_missing_list() throws Exception {
+        // Given
+        var file = writeTestYaml("missing.yml", """
+            editFiles:
+              deleteFiles:
+                - old.txt
+            """);
+        var yamlService = new YamlServiceImpl(new YamlServiceConfig());
+
+        // When
+        try (var files = yamlService.streamStringList(file, "editFiles", "addRestrictedFiles")) {
+
+            // Then
+            assertThat(files).isEmpty();
+        }
+    }
+
+    @Test
+    public void readYamlSkipping_leaves_skipped_properties_at_their_defaults() throws Exception {
+        // Given
+        var file = writeTestYaml("skipping.yml", """
+            editFiles:
+              deleteFiles:
+                - old.txt
+              addRestrictedFiles:
+                - file1.txt
+            """);
+        var yamlService = new YamlServiceImpl(new YamlServiceConfig());
+
+        // When
+        var editFilesRoot = yamlService.readYamlSkipping(file, EditFilesRoot.class, "editFiles", Set.of("addRestrictedFiles"));
+
+        // Then
+        assertThat(editFilesRoot.getEditFiles().getDeleteFiles()).containsExactly("old.txt");
+        assertThat(editFilesRoot.getEditFiles().getAddRestrictedFiles()).isEmpty();
+    }
+
+    @Test
+    public void readYamlSkipping_accepts_object_with_only_skipped_properties() throws Exception {
+        // Given
+        var file = writeTestYaml("only-skipped.yml", """
+            editFiles:
+              addRestrictedFiles:
+                - file1.txt
+            """);
+        var yamlService = new YamlServiceImpl(new YamlServiceConfig());
+
+        // When
+        var editFilesRoot = yamlService.readYamlSkipping(file, EditFilesRoot.class, "editFiles", Set.of("addRestrictedFiles"));
+
+        // Then
+        assertThat(editFilesRoot.getEditFiles()).isNotNull();
+        assertThat(editFilesRoot.getEditFiles().getAddRestrictedFiles()).isEmpty();
+    }
+
+    private static Path writeTestYaml(String name, String content) throws IOException {
+        var dir = Files.createDirectories(Path.of("target/test/YamlServiceImplTest"));
+        return Files.writeString(dir.resolve(name), content);
+    }
 }
@@ -0,0 +1,72 @@
+/*
+ * Copyright (C) 2024 DANS - Data Archiving and Networked Services (info@dans.knaw.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.knaw.dans.dvingest.core.yaml;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class StreamedStringListTest {
+    private final AtomicInteger opened = new AtomicInteger();
+    private final AtomicInteger closed = new AtomicInteger();
+    private final StreamedStringList list = new StreamedStringList(() -> {
+        opened.incrementAndGet();
+        return Stream.of("a.txt", "b.txt", "c.txt").onClose(closed::incrementAndGet);
+    });
+
+    @Test
+    public void exhausted_iteration_closes_stream() {
+        // Given
+        var iterator = list.iterator();
+
+        // When
+        while (iterator.hasNext()) {
+            iterator.next();
+        }
+
+        // Then
+        assertThat(closed).hasValue(1);
+    }
+
+    @Test
+    public void close_closes_streams_of_abandoned_iterations() {
+        // Given
+        assertThat(list.contains("a.txt")).isTrue();
+        list.iterator().next();
+
+        // When
+        list.close();
+
+        // Then
+        assertThat(opened).hasValue(2);
+        assertThat(closed).hasValue(2);
+    }
+
+    @Test
+    public void size_reads_list_only_once() {
+        // When
+        list.size();
+        list.size();
+
+        // Then
+        assertThat(list.size()).isEqualTo(3);
+        assertThat(opened).hasValue(1);
+        assertThat(closed).hasValue(1);
+    }
+}